@@ -4,16 +4,30 @@
  */
 package org.thavam.util.concurrent.blockingMap;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -57,7 +71,8 @@ class ActiveBlockingHashMap<K, V> implements BlockingMap<K, V> {
      * operations on isAvailable(), take(..), clear(), containsValue(),
      * isEmtpy() form critical sections that should not interleave. However,
      * mutative operations are performed in take(..) & clear() only. Hence,
-     * explicit read & write locks can be used to improve thru put
+     * explicit read & write locks can be used to improve thru put. Puts hold
+     * the read lock, shared among producers, to be ordered with snapshots
      *
      */
     private final ReadWriteLock primaryMapLock = new ReentrantReadWriteLock();
@@ -68,11 +83,84 @@ class ActiveBlockingHashMap<K, V> implements BlockingMap<K, V> {
      * flag to prevent take while or after a clear has been triggered
      */
     private final AtomicBoolean cleared = new AtomicBoolean(false);
+    /**
+     * consumers waiting in takeMatching & available keys indexed for them
+     */
+    private final PredicateWaiterIndex<K> predicateIndex;
+    /**
+     * weakly consistent views over the available mappings
+     */
+    private final AvailableEntryViews<K, V> views;
+    /**
+     * keys modified while a snapshot pass is running, one set per snapshot in
+     * progress. Empty most of the time, costs an array length check per update.
+     * Updated under the write lock, read by updates holding the map lock
+     */
+    private final List<Set<Object>> snapshotDeltas = new CopyOnWriteArrayList<Set<Object>>();
+    /**
+     * consumers waiting in takeAsync, per key, in arrival order. A queue is
+     * guarded by its own monitor & is unmapped once empty
+     */
+    private final ConcurrentMap<K, Queue<CompletableFuture<V>>> asyncWaiters
+            = new ConcurrentHashMap<K, Queue<CompletableFuture<V>>>();
+    /**
+     * receives the operations of this map, NOOP unless metered
+     */
+    private final MetricsRecorder recorder;
+    /**
+     * whether the operations are recorded, the clock is read only if so
+     */
+    private final boolean metered;
+    /**
+     * feed of the changes of this map, null until requested. Costs one
+     * volatile read per update when unused
+     */
+    private volatile ChangeFeed<K, V> changeFeed;
+    /**
+     * watchdog of this map, null unless started. Puts stamp their mappings
+     * while it runs
+     */
+    private volatile BlockingMapWatchdog<K> watchdog;
+    /**
+     * tracker of the contended keys, null unless started
+     */
+    private volatile HotKeyTracker<K> hotKeys;
+    /**
+     * view of this map used by the takeMatching wait loop
+     */
+    private final PredicateWaiterIndex.MappingSource<K, V> mappings
+            = new PredicateWaiterIndex.MappingSource<K, V>() {
+        @Override
+        public Map.Entry<K, V> pollMatching(Predicate<? super K> predicate) {
+            return ActiveBlockingHashMap.this.pollMatching(predicate);
+        }
+
+        @Override
+        public boolean isKeyAvailable(K key) {
+            return ActiveBlockingHashMap.this.isKeyAvailable(key);
+        }
+
+        @Override
+        public boolean isCleared() {
+            return cleared.get();
+        }
+    };
 
     //package-private accessor prevents instantiation by entities from other packages
     ActiveBlockingHashMap() {
+        this(MetricsRecorder.NOOP);
+    }
+
+    ActiveBlockingHashMap(MetricsRecorder recorder) {
+        if (recorder == null) {
+            throw new NullPointerException();
+        }
+        this.recorder = recorder;
+        this.metered = (recorder != MetricsRecorder.NOOP);
         this.primaryMap = new ConcurrentHashMap<K, ObjectLatch<V>>();
         this.blockedThreadsMap = new ConcurrentHashMap<Thread, ObjectLatch<V>>();
+        this.predicateIndex = new PredicateWaiterIndex<K>(primaryMap);
+        this.views = new AvailableEntryViews<K, V>(primaryMap, this);
     }
 
     /**
@@ -187,14 +275,87 @@ class ActiveBlockingHashMap<K, V> implements BlockingMap<K, V> {
      */
     @Override
     public V put(K key, V value) {
-        ObjectLatch<V> latch = primaryMap.get(key);
+        return put(key, value, false, null);
+    }
 
-        if (latch == null) {
-            primaryMap.putIfAbsent(key, new ObjectLatch<V>());
-            latch = primaryMap.get(key);
+    /**
+     * Same as put, stamping the mapping with the time it is put at & the
+     * given context of the producer
+     */
+    V put(K key, V value, Object context) {
+        return put(key, value, true, context);
+    }
+
+    private V put(K key, V value, boolean traced, Object context) {
+        Object event = FlightRecorderEvents.beginPut();
+        ObjectLatch<V> latch = latchFor(key);
+        //only counted while recorded, the consumers leave once woken
+        int waiters = (event != null) ? latch.getRecordedWaiters() : 0;
+        ChangeFeed<K, V> feed = changeFeed;
+        //claimed once the latch is found : after the take of the previous
+        //mapping, before the take of this one
+        long sequence = (feed == null) ? -1 : feed.claim();
+        V existing = null;
+        boolean set = false;
+        //shared with other producers, excludes the registration of a snapshot
+        primaryMapReadLock.lock();
+        try {
+            existing = (traced || metered || (watchdog != null))
+                    ? latch.set(value, System.nanoTime(), context) : latch.set(value);
+            set = (existing == null);
+            if (set) {
+                modified(key);
+            }
+        } finally {
+            primaryMapReadLock.unlock();
+            if (feed != null) {
+                feed.publish(sequence, set ? ChangeFeed.Type.PUT : null, key, value);
+            }
+        }
+        recordPut(key, set);
+        if (existing == null) {
+            if (!asyncWaiters.isEmpty()) {
+                completeAsyncWaiters(key);
+            }
+            //wake up a consumer waiting on a matching predicate, if any
+            predicateIndex.keyAvailable(key);
+            FlightRecorderEvents.endPut(event, key, waiters);
+        }
+        return existing;
+    }
+
+    /**
+     * Records the outcome of a put in the metrics & the hot keys, if any
+     */
+    private void recordPut(K key, boolean set) {
+        if (metered) {
+            if (set) {
+                recorder.published();
+            } else {
+                recorder.duplicatePut();
+            }
         }
+        if (!set) {
+            HotKeyTracker<K> tracker = hotKeys;
+            if (tracker != null) {
+                tracker.duplicatePut(key);
+            }
+        }
+    }
 
-        return latch.set(value);
+    /**
+     * Returns the latch of the key, creating it if it does not exist
+     */
+    private ObjectLatch<V> latchFor(K key) {
+        ObjectLatch<V> latch = primaryMap.get(key);
+        if (latch == null) {
+            ObjectLatch<V> created = new ObjectLatch<V>();
+            latch = primaryMap.putIfAbsent(key, created);
+            if (latch == null) {
+                latch = created;
+            }
+        }
+        return latch;
     }
 
     /**
@@ -347,6 +508,15 @@ class ActiveBlockingHashMap<K, V> implements BlockingMap<K, V> {
      */
 	@Override
     public V take(K key, long timeout, TimeUnit unit) throws InterruptedException {
+        ObjectLatch<V> taken = takeLatch(key, timeout, unit);
+        return (taken == null) ? null : taken.getIfAvailable();
+    }
+
+    /**
+     * Same as take, returning the latch of the mapping taken, with its
+     * timestamp & context, or null if the call times out
+     */
+    private ObjectLatch<V> takeLatch(K key, long timeout, TimeUnit unit) throws InterruptedException {
         V result = null;
 
         //prevent any consumer from getting in to a blocked stated on cleared map
@@ -371,23 +541,289 @@ class ActiveBlockingHashMap<K, V> implements BlockingMap<K, V> {
             } finally {
                 primaryMapWriteLock.unlock();
             }
+            long start = metered ? System.nanoTime() : 0;
+            //remove does not wait, neither parked nor resumed
+            boolean waits = (timeout > 0);
             //put thread in map before awaiting
             blockedThreadsMap.put(Thread.currentThread(), latch);
-            result = latch.get(timeout, unit);
+            Object event = FlightRecorderEvents.beginTake();
+            if (event != null) {
+                latch.recordedWaiter(1);
+            }
+            BlockingMapWatchdog<K> dog = waits ? watchdog : null;
+            if (dog != null) {
+                dog.parked(key);
+            }
+            HotKeyTracker<K> tracker = hotKeys;
+            if ((tracker != null) && waits && !latch.isAvailable()) {
+                tracker.waited(key);
+            }
+            if (metered && waits) {
+                recorder.waiterParked();
+            }
+            try {
+                result = latch.get(timeout, unit);
+            } finally {
+                if (event != null) {
+                    latch.recordedWaiter(-1);
+                }
+                if (metered && waits) {
+                    recorder.waiterResumed();
+                }
+                if (dog != null) {
+                    dog.resumed();
+                }
+            }
             //remove thread after awaiting
             blockedThreadsMap.remove(Thread.currentThread());
 
             primaryMapWriteLock.lock();
             try {
-                result = ((primaryMap.remove((K) key) == null) ? null : result);
+                //claimed before the removal, hence before the put of the next mapping
+                ChangeFeed<K, V> feed = changeFeed;
+                long sequence = (feed == null) ? -1 : feed.claim();
+                //only the latch awaited on is removed, it may have been
+                //taken by takeMatching & replaced by another consumer
+                boolean handed = (result != null);
+                result = (primaryMap.remove((K) key, latch) ? latch.getIfAvailable() : null);
+                if (result != null) {
+                    modified(key);
+                }
+                if (handed && (result == null) && (tracker != null)) {
+                    tracker.lostTake(key);
+                }
+                if (feed != null) {
+                    feed.publish(sequence, (result != null) ? ChangeFeed.Type.TAKE : null, key, result);
+                }
             } finally {
                 primaryMapWriteLock.unlock();
             }
+            //one outcome per take, decided by the removal : a value put
+            //right after the timeout is taken, not expired
+            if (result != null) {
+                predicateIndex.keyRemoved(key);
+                if (metered) {
+                    long now = System.nanoTime();
+                    recorder.taken(now - start, now - latch.getPublishedNanos());
+                }
+                FlightRecorderEvents.endTake(event, key, true);
+                return latch;
+            }
+            if (waits && !cleared.get()) {
+                published(ChangeFeed.Type.EXPIRE, key, null);
+                if (metered) {
+                    recorder.timedOut(System.nanoTime() - start);
+                }
+                FlightRecorderEvents.endTake(event, key, false);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Same as <tt>take(key, timeout, unit)</tt>, returning the value along
+     * with the context its producer attached & the time it was put at
+     */
+    TakenEntry<K, V> takeEntry(K key, long timeout, TimeUnit unit) throws InterruptedException {
+        ObjectLatch<V> taken = takeLatch(key, timeout, unit);
+        if (taken == null) {
+            return null;
+        }
+        return new TakenEntry<K, V>(key, taken.getIfAvailable(), taken.getContext(), taken.getPublishedNanos(),
+                System.nanoTime());
+    }
+
+    /**
+     * Retrieves and removes a mapping whose key matches the given predicate,
+     * waiting if necessary until such a mapping becomes available or the
+     * specified time elapses.
+     *
+     * <p>
+     * Available mappings are looked up first. Predicates created by
+     * {@link KeyPredicates} are routed through the predicate index, only keys
+     * of the matching partition are examined. Other predicates are evaluated
+     * against the keys of the map, without holding the map lock. Each put
+     * wakes up at most one waiting consumer.
+     *
+     * @param predicate condition the key of the mapping should satisfy
+     * @param timeout how long to wait before giving up, in units of
+     * <tt>unit</tt>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the
+     * <tt>timeout</tt> parameter
+     * @return the mapping taken, or <tt>null</tt> if the call times out
+     * @throws NullPointerException if the specified predicate is null
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Override
+    public Map.Entry<K, V> takeMatching(Predicate<? super K> predicate, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        return predicateIndex.await(mappings, predicate, timeout, unit);
+    }
 
+    /**
+     * Takes the first available mapping whose key matches, if any
+     */
+    private Map.Entry<K, V> pollMatching(Predicate<? super K> predicate) {
+        Iterable<K> candidates = predicateIndex.candidates(predicate);
+        boolean routed = (candidates != null);
+        if (!routed) {
+            //weakly consistent traversal, does not block producers or consumers
+            candidates = primaryMap.keySet();
+        }
+        for (K key : candidates) {
+            if (predicate.test(key)) {
+                V value = takeIfAvailable(key);
+                if (value != null) {
+                    return new AbstractMap.SimpleImmutableEntry<K, V>(key, value);
+                }
+                if (routed) {
+                    predicateIndex.purge(key);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes the mapping for a key only if it is available, never blocks
+     */
+    private V takeIfAvailable(K key) {
+        V result = null;
+        ObjectLatch<V> latch;
+        primaryMapWriteLock.lock();
+        try {
+            latch = primaryMap.get(key);
+            if ((latch != null) && latch.isAvailable()) {
+                ChangeFeed<K, V> feed = changeFeed;
+                long sequence = (feed == null) ? -1 : feed.claim();
+                if (primaryMap.remove(key, latch)) {
+                    result = latch.getIfAvailable();
+                    modified(key);
+                }
+                if (feed != null) {
+                    feed.publish(sequence, (result != null) ? ChangeFeed.Type.TAKE : null, key, result);
+                }
+            }
+        } finally {
+            primaryMapWriteLock.unlock();
+        }
+        if (result != null) {
+            predicateIndex.keyRemoved(key);
+            if (metered) {
+                recorder.taken(0, System.nanoTime() - latch.getPublishedNanos());
+            }
         }
         return result;
     }
 
+    /**
+     * Retrieves and removes the mappings of all the given keys, waiting if
+     * necessary until all of them are available or the specified time elapses.
+     *
+     * <p>
+     * Availability is checked & the mappings are removed under the write lock.
+     * Hence a batch published by <tt>putAll(m, true)</tt> is either taken as
+     * a whole or not at all. While keys are missing, the consumer waits on the
+     * latch of one missing key at a time, without holding the lock.
+     *
+     * @param keys keys whose mappings are to be removed from the map
+     * @param timeout how long to wait before giving up, in units of
+     * <tt>unit</tt>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the
+     * <tt>timeout</tt> parameter
+     * @return the mappings of all the keys, or <tt>null</tt> if the call times
+     * out before all of them are available
+     * @throws NullPointerException if any of the keys is null
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Override
+    public Map<K, V> takeAll(Collection<? extends K> keys, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        //duplicate keys would be taken twice
+        Set<K> distinctKeys = new LinkedHashSet<K>(keys);
+        final long start = System.nanoTime();
+        //wraps around for very long timeouts, differences remain valid
+        final long deadline = start + unit.toNanos(timeout);
+        for (;;) {
+            //prevent any consumer from getting in to a blocked stated on cleared map
+            if (cleared.get()) {
+                return null;
+            }
+            Map<K, V> result = null;
+            ObjectLatch<V> missing = null;
+            K missingKey = null;
+            primaryMapWriteLock.lock();
+            try {
+                for (K key : distinctKeys) {
+                    ObjectLatch<V> latch = primaryMap.get(key);
+                    if ((latch == null) || !latch.isAvailable()) {
+                        missing = (latch == null) ? latchFor(key) : latch;
+                        missingKey = key;
+                        break;
+                    }
+                }
+                if (missing == null) {
+                    result = new LinkedHashMap<K, V>();
+                    ChangeFeed<K, V> feed = changeFeed;
+                    long now = metered ? System.nanoTime() : 0;
+                    for (K key : distinctKeys) {
+                        long sequence = (feed == null) ? -1 : feed.claim();
+                        ObjectLatch<V> latch = primaryMap.remove(key);
+                        V value = latch.getIfAvailable();
+                        result.put(key, value);
+                        if (metered) {
+                            recorder.taken(now - start, now - latch.getPublishedNanos());
+                        }
+                        if (feed != null) {
+                            feed.publish(sequence, ChangeFeed.Type.TAKE, key, value);
+                        }
+                    }
+                    modified(distinctKeys);
+                }
+            } finally {
+                primaryMapWriteLock.unlock();
+            }
+            if (result != null) {
+                for (K key : distinctKeys) {
+                    predicateIndex.keyRemoved(key);
+                }
+                return result;
+            }
+
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                if (metered) {
+                    recorder.timedOut(System.nanoTime() - start);
+                }
+                return null;
+            }
+            //put thread in map before awaiting
+            blockedThreadsMap.put(Thread.currentThread(), missing);
+            BlockingMapWatchdog<K> dog = watchdog;
+            if (dog != null) {
+                dog.parked(missingKey);
+            }
+            HotKeyTracker<K> tracker = hotKeys;
+            if (tracker != null) {
+                tracker.waited(missingKey);
+            }
+            if (metered) {
+                recorder.waiterParked();
+            }
+            try {
+                missing.get(remaining, TimeUnit.NANOSECONDS);
+            } finally {
+                blockedThreadsMap.remove(Thread.currentThread());
+                if (metered) {
+                    recorder.waiterResumed();
+                }
+                if (dog != null) {
+                    dog.resumed();
+                }
+            }
+        }
+    }
+
     /**
      * Shuts down this blocking map & removes all mappings from this map. The
      * map will be empty after this call returns.
@@ -402,15 +838,44 @@ class ActiveBlockingHashMap<K, V> implements BlockingMap<K, V> {
     public void clear() {
         //clear the map only if it has not been cleared yet
         if (!cleared.getAndSet(true)) {
+            Object event = FlightRecorderEvents.beginShutdown();
             primaryMapWriteLock.lock();
             try {
+                int abandoned = 0;
                 for (Thread thread : blockedThreadsMap.keySet()) {
                     thread.interrupt();
+                    abandoned++;
+                }
+                abandoned += predicateIndex.interruptWaiters();
+                abandoned += cancelAsyncWaiters();
+                if (metered && (abandoned > 0)) {
+                    recorder.abandonedOnShutdown(abandoned);
+                }
+                if (metered || (event != null)) {
+                    int discarded = 0;
+                    for (ObjectLatch<V> latch : primaryMap.values()) {
+                        if (latch.isAvailable()) {
+                            discarded++;
+                        }
+                    }
+                    if (metered && (discarded > 0)) {
+                        recorder.discardedOnShutdown(discarded);
+                    }
+                    FlightRecorderEvents.endShutdown(event, abandoned, discarded);
                 }
                 primaryMap.clear();
+                published(ChangeFeed.Type.CLEAR, null, null);
             } finally {
                 primaryMapWriteLock.unlock();
             }
+            BlockingMapWatchdog<K> dog = watchdog;
+            if (dog != null) {
+                dog.close();
+            }
+            HotKeyTracker<K> tracker = hotKeys;
+            if (tracker != null) {
+                tracker.close();
+            }
         }
     }
 
@@ -427,17 +892,12 @@ class ActiveBlockingHashMap<K, V> implements BlockingMap<K, V> {
         primaryMapReadLock.lock();
         try {
             for (ObjectLatch<V> latch : primaryMap.values()) {
-                //latch().get will not block since it is invoked only after 
-                //checking for availability
-                if ((latch.isAvailable())
-                        && (latch.getImmediately() != null)
-                        && (latch.getImmediately().equals(value))) {
+                //one read per latch, pending latches answer null
+                V available = latch.getIfAvailable();
+                if ((available != null) && (available.equals(value))) {
                     return true;
                 }
             }
-        } catch (InterruptedException e) {
-            //do nothing
-            //program flow will never find this place
         } finally {
             primaryMapReadLock.unlock();
         }
@@ -488,49 +948,468 @@ class ActiveBlockingHashMap<K, V> implements BlockingMap<K, V> {
     }
 
     /**
-     * Not supported Semantics of addition/removal to map outside the
-     * producer/consumer methods not defined
+     * Returns a weakly consistent view of the available mappings. Keys with
+     * pending latches are skipped. The view is traversed without taking the
+     * map lock, removal through the view or its iterator behaves like
+     * <tt>remove(k)</tt>.
      *
-     * @throws IllegalStateException if the map has been shut-down
-     * @throws UnsupportedOperationException
+     * @return a view of the available mappings
      */
     @Override
     public Set<Map.Entry<K, V>> entrySet() {
-        throw new UnsupportedOperationException();
+        return views.entrySet();
     }
 
     /**
-     * Not supported Semantics of addition/removal to map outside the
-     * producer/consumer methods not defined
+     * Returns a weakly consistent view of the available keys. Keys with
+     * pending latches are skipped. The view is traversed without taking the
+     * map lock, removal through the view or its iterator behaves like
+     * <tt>remove(k)</tt>.
      *
-     * @throws IllegalStateException if the map has been shut-down
-     * @throws UnsupportedOperationException
+     * @return a view of the available keys
      */
     @Override
     public Set<K> keySet() {
-        throw new UnsupportedOperationException();
+        return views.keySet();
     }
 
     /**
-     * Not supported Semantics of addition/removal to map outside the
-     * producer/consumer methods not defined
+     * Returns a weakly consistent view of the available values. The view is
+     * traversed without taking the map lock, removal through its iterator
+     * behaves like <tt>remove(k)</tt>.
      *
-     * @throws IllegalStateException if the map has been shut-down
-     * @throws UnsupportedOperationException
+     * @return a view of the available values
      */
     @Override
     public Collection<V> values() {
-        throw new UnsupportedOperationException();
+        return views.values();
     }
 
     /**
-     * To be supported
+     * Puts all mappings of the given map in one pass. Same as
+     * <tt>putAll(m, false)</tt>
      *
-     * @throws UnsupportedOperationException
-     * @throws IllegalStateException if the map has been shut-down
+     * @param m mappings to be stored in this map
+     * @throws NullPointerException if any key or value is null
      */
     @Override
     public void putAll(Map<? extends K, ? extends V> m) {
-        throw new UnsupportedOperationException();
+        putAll(m, false);
+    }
+
+    /**
+     * Puts all mappings of the given map in one pass. Keys that are already
+     * available are ignored, as with put.
+     *
+     * <p>
+     * The batch is validated before anything is published, a null key or value
+     * leaves the map untouched. Predicate waiters are evaluated once for the
+     * whole batch after publication. Each mapping is recorded as with put, in
+     * the metrics, the hot keys & the Flight Recorder events.
+     *
+     * <p>
+     * If <tt>atomic</tt> is <tt>true</tt>, all latches are set while holding
+     * the write lock. Operations synchronizing on the map lock (takeAll, take,
+     * isKeyAvailable, size, isEmpty, containsValue) observe either none or all
+     * mappings of the batch. Consumers woken up by a latch wait for the lock
+     * to be released before completing their take.
+     *
+     * @param m mappings to be stored in this map
+     * @param atomic whether the batch should become visible all at once
+     * @throws NullPointerException if any key or value is null
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m, boolean atomic) {
+        //validate the whole batch first, nothing is published on failure
+        for (Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
+            if ((entry.getKey() == null) || (entry.getValue() == null)) {
+                throw new NullPointerException();
+            }
+        }
+        List<K> published = new ArrayList<K>(m.size());
+        //events of the published mappings, by index in published, if recorded
+        Object[] events = null;
+        int[] waiters = null;
+        Lock lock = atomic ? primaryMapWriteLock : primaryMapReadLock;
+        lock.lock();
+        ChangeFeed<K, V> feed = changeFeed;
+        try {
+            for (Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
+                Object event = FlightRecorderEvents.beginPut();
+                ObjectLatch<V> latch = latchFor(entry.getKey());
+                int recordedWaiters = (event != null) ? latch.getRecordedWaiters() : 0;
+                long sequence = (feed == null) ? -1 : feed.claim();
+                boolean set = (((metered || (watchdog != null)) ? latch.set(entry.getValue(), System.nanoTime())
+                        : latch.set(entry.getValue())) == null);
+                if (set) {
+                    if (event != null) {
+                        if (events == null) {
+                            events = new Object[m.size()];
+                            waiters = new int[m.size()];
+                        }
+                        events[published.size()] = event;
+                        waiters[published.size()] = recordedWaiters;
+                    }
+                    published.add(entry.getKey());
+                    modified(entry.getKey());
+                }
+                recordPut(entry.getKey(), set);
+                if (feed != null) {
+                    feed.publish(sequence, set ? ChangeFeed.Type.PUT : null, entry.getKey(), entry.getValue());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (!asyncWaiters.isEmpty()) {
+            for (K key : published) {
+                completeAsyncWaiters(key);
+            }
+        }
+        //wake up consumers waiting on matching predicates, if any
+        predicateIndex.keysAvailable(published);
+        if (events != null) {
+            for (int i = 0; i < published.size(); i++) {
+                FlightRecorderEvents.endPut(events[i], published.get(i), waiters[i]);
+            }
+        }
+    }
+
+    /**
+     * Performs the given action for each available mapping, using the bulk
+     * forEach of the latch table. Pending latches are skipped & the map lock is
+     * never taken.
+     *
+     * @param parallelismThreshold the (estimated) number of mappings needed
+     * for this operation to be executed in parallel
+     * @param action the action
+     */
+    @Override
+    public void forEach(long parallelismThreshold, BiConsumer<? super K, ? super V> action) {
+        if (action == null) {
+            throw new NullPointerException();
+        }
+        latches().forEach(parallelismThreshold, (key, latch) -> {
+            V value = latch.getIfAvailable();
+            if (value != null) {
+                action.accept(key, value);
+            }
+        });
+    }
+
+    /**
+     * Searches the available mappings, using the bulk search of the latch
+     * table. Pending latches are skipped & the map lock is never taken.
+     *
+     * @param parallelismThreshold the (estimated) number of mappings needed
+     * for this operation to be executed in parallel
+     * @param searchFunction a function returning a non-null result on success,
+     * else null
+     * @return a non-null result from applying the given search function on
+     * some mapping, or null if none
+     */
+    @Override
+    public <U> U search(long parallelismThreshold, BiFunction<? super K, ? super V, ? extends U> searchFunction) {
+        if (searchFunction == null) {
+            throw new NullPointerException();
+        }
+        return latches().search(parallelismThreshold, (key, latch) -> {
+            V value = latch.getIfAvailable();
+            return (value == null) ? null : searchFunction.apply(key, value);
+        });
+    }
+
+    /**
+     * Reduces the available mappings, using the bulk reduce of the latch table.
+     * Pending latches are skipped & the map lock is never taken.
+     *
+     * @param parallelismThreshold the (estimated) number of mappings needed
+     * for this operation to be executed in parallel
+     * @param transformer a function returning the transformation for a
+     * mapping, or null if there is no transformation
+     * @param reducer a commutative associative combining function
+     * @return the result of accumulating the given transformation of all
+     * mappings
+     */
+    @Override
+    public <U> U reduce(long parallelismThreshold, BiFunction<? super K, ? super V, ? extends U> transformer,
+            BiFunction<? super U, ? super U, ? extends U> reducer) {
+        if ((transformer == null) || (reducer == null)) {
+            throw new NullPointerException();
+        }
+        return latches().reduce(parallelismThreshold, (key, latch) -> {
+            V value = latch.getIfAvailable();
+            return (value == null) ? null : transformer.apply(key, value);
+        }, reducer);
+    }
+
+    /**
+     * Retrieves and removes the mapping for a key when it becomes available,
+     * without blocking the calling thread. The future is completed with the
+     * value by the thread putting the mapping, or at once if the mapping is
+     * already available.
+     *
+     * <p>
+     * Completing the future by other means, e.g. with <tt>null</tt> on a
+     * timeout or with <tt>cancel</tt>, withdraws the consumer at once. A value
+     * handed to a withdrawn consumer is passed to the next consumer of the
+     * key, or put back on the map. On shutdown, pending futures are cancelled.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @return a future completed with the value taken
+     * @throws NullPointerException if the specified key is null
+     */
+    CompletableFuture<V> takeAsync(K key) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        final CompletableFuture<V> future = new CompletableFuture<V>();
+        Queue<CompletableFuture<V>> waiters;
+        for (;;) {
+            waiters = asyncWaiters.computeIfAbsent(key, k -> new ArrayDeque<CompletableFuture<V>>());
+            synchronized (waiters) {
+                //unmapped once empty, retry on the queue now mapped
+                if (asyncWaiters.get(key) != waiters) {
+                    continue;
+                }
+                waiters.add(future);
+            }
+            break;
+        }
+        final Queue<CompletableFuture<V>> queue = waiters;
+        future.whenComplete((value, failure) -> {
+            //handed values are polled from the queue, withdrawn consumers left
+            if (value == null) {
+                withdrawAsyncWaiter(key, queue, future);
+            }
+        });
+        if (cleared.get()) {
+            future.cancel(false);
+        } else {
+            //the mapping may have been put before the future was queued
+            completeAsyncWaiters(key);
+        }
+        return future;
+    }
+
+    /**
+     * Hands available mappings of the key to the futures waiting for it, in
+     * arrival order, & unmaps the queue once empty
+     */
+    private void completeAsyncWaiters(K key) {
+        Queue<CompletableFuture<V>> waiters = asyncWaiters.get(key);
+        if (waiters == null) {
+            return;
+        }
+        synchronized (waiters) {
+            for (;;) {
+                //drop consumers withdrawn meanwhile
+                while (!waiters.isEmpty() && waiters.peek().isDone()) {
+                    waiters.poll();
+                }
+                if (waiters.isEmpty()) {
+                    asyncWaiters.remove(key, waiters);
+                    return;
+                }
+                V value = takeIfAvailable(key);
+                if (value == null) {
+                    return;
+                }
+                CompletableFuture<V> waiter;
+                while (((waiter = waiters.poll()) != null) && !waiter.complete(value)) {
+                }
+                if (waiter == null) {
+                    //all withdrawn while the value was taken
+                    asyncWaiters.remove(key, waiters);
+                    put(key, value);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops a future withdrawn by its consumer from the queue of its key, &
+     * unmaps the queue once empty
+     */
+    private void withdrawAsyncWaiter(K key, Queue<CompletableFuture<V>> waiters, CompletableFuture<V> future) {
+        synchronized (waiters) {
+            if (waiters.remove(future) && waiters.isEmpty()) {
+                asyncWaiters.remove(key, waiters);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of keys with consumers waiting in takeAsync
+     */
+    int getAsyncWaitedKeyCount() {
+        return asyncWaiters.size();
+    }
+
+    /**
+     * Cancels all futures waiting in takeAsync, on shutdown. Returns the
+     * number of futures cancelled
+     */
+    private int cancelAsyncWaiters() {
+        int cancelled = 0;
+        for (Queue<CompletableFuture<V>> waiters : asyncWaiters.values()) {
+            synchronized (waiters) {
+                //polled before cancelling, cancelling withdraws from the queue
+                CompletableFuture<V> waiter;
+                while ((waiter = waiters.poll()) != null) {
+                    if (waiter.cancel(false)) {
+                        cancelled++;
+                    }
+                }
+            }
+        }
+        asyncWaiters.clear();
+        return cancelled;
+    }
+
+    /**
+     * Writes the available mappings to a snapshot file. One weakly consistent
+     * pass streams the mappings of the latch table to the file, while updates
+     * record the keys they modify. The current state of each modified key is
+     * appended after the pass, hence a mapping put or taken during the pass is
+     * reflected as it stands at the end of the pass.
+     *
+     * <p>
+     * Updates record their key once done, holding the map lock, & the delta
+     * is registered & deregistered under the write lock. An update is thus
+     * either done before the pass starts & seen by it, or recorded in the
+     * delta before the pass ends, or made after the pass.
+     *
+     * @param file snapshot file, replaced once the snapshot is complete
+     * @param keySerializer converts keys to bytes
+     * @param valueSerializer converts values to bytes
+     * @return the number of records written
+     * @throws IOException if the snapshot cannot be written
+     */
+    @SuppressWarnings("unchecked")
+    long snapshot(Path file, Serializer<K> keySerializer, Serializer<V> valueSerializer) throws IOException {
+        Set<Object> delta = ConcurrentHashMap.newKeySet();
+        try (MapSnapshot.Writer<K, V> writer = new MapSnapshot.Writer<K, V>(file, keySerializer, valueSerializer)) {
+            primaryMapWriteLock.lock();
+            try {
+                snapshotDeltas.add(delta);
+            } finally {
+                primaryMapWriteLock.unlock();
+            }
+            try {
+                for (Map.Entry<K, ObjectLatch<V>> entry : primaryMap.entrySet()) {
+                    V value = entry.getValue().getIfAvailable();
+                    if (value != null) {
+                        writer.entry(entry.getKey(), value);
+                    }
+                }
+            } finally {
+                primaryMapWriteLock.lock();
+                try {
+                    snapshotDeltas.remove(delta);
+                } finally {
+                    primaryMapWriteLock.unlock();
+                }
+            }
+            for (Object key : delta) {
+                ObjectLatch<V> latch = primaryMap.get(key);
+                V value = (latch == null) ? null : latch.getIfAvailable();
+                if (value != null) {
+                    writer.deltaPut((K) key, value);
+                } else {
+                    writer.deltaTake((K) key);
+                }
+            }
+            return writer.finish();
+        }
+    }
+
+    /**
+     * Records the key in the delta of the snapshots in progress, once it is
+     * modified. Invoked holding the map lock, read or write
+     */
+    private void modified(Object key) {
+        for (Set<Object> delta : snapshotDeltas) {
+            delta.add(key);
+        }
+    }
+
+    private void modified(Collection<?> keys) {
+        for (Set<Object> delta : snapshotDeltas) {
+            delta.addAll(keys);
+        }
+    }
+
+    /**
+     * Returns the change feed of this map, created with the given capacity on
+     * the first call
+     */
+    synchronized ChangeFeed<K, V> changeFeed(int capacity) {
+        if (changeFeed == null) {
+            changeFeed = new ChangeFeed<K, V>(capacity);
+        }
+        return changeFeed;
+    }
+
+    /**
+     * Starts the watchdog of this map. Only one watchdog runs at a time
+     */
+    synchronized BlockingMapWatchdog<K> watchdog(long waiterThreshold, long valueThreshold, TimeUnit unit,
+            BlockingMapWatchdog.Listener<? super K> listener) {
+        if (watchdog != null) {
+            throw new IllegalStateException("Watchdog already running");
+        }
+        watchdog = new BlockingMapWatchdog<K>(primaryMap, waiterThreshold, valueThreshold, unit, listener,
+                this::unwatch);
+        return watchdog;
+    }
+
+    /**
+     * Detaches the watchdog once closed
+     */
+    private synchronized void unwatch(BlockingMapWatchdog<K> closed) {
+        if (watchdog == closed) {
+            watchdog = null;
+        }
+    }
+
+    /**
+     * Starts tracking the contended keys of this map. Only one tracker runs at
+     * a time
+     */
+    synchronized HotKeyTracker<K> trackHotKeys(int capacity, int sampleRate) {
+        if (hotKeys != null) {
+            throw new IllegalStateException("Hot keys already tracked");
+        }
+        hotKeys = new HotKeyTracker<K>(capacity, sampleRate, this::untrackHotKeys);
+        return hotKeys;
+    }
+
+    /**
+     * Detaches the hot key tracker once closed
+     */
+    private synchronized void untrackHotKeys(HotKeyTracker<K> closed) {
+        if (hotKeys == closed) {
+            hotKeys = null;
+        }
+    }
+
+    /**
+     * Publishes a change that need not be ordered with the puts of its key
+     */
+    private void published(ChangeFeed.Type type, K key, V value) {
+        ChangeFeed<K, V> feed = changeFeed;
+        if (feed != null) {
+            feed.publish(type, key, value);
+        }
+    }
+
+    /**
+     * The latch table is always a ConcurrentHashMap, whose bulk operations run
+     * on the common ForkJoinPool
+     */
+    private ConcurrentHashMap<K, ObjectLatch<V>> latches() {
+        return (ConcurrentHashMap<K, ObjectLatch<V>>) primaryMap;
     }
 }
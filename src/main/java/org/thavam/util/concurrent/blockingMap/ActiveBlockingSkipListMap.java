@@ -0,0 +1,654 @@
+/*
+ * ActiveBlockingSkipListMap.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * This class represents a BlockingSkipListMap that is active & functional.
+ * BlockingSkipListMap delegates all operations to this map
+ *
+ * Available mappings are held in a <tt>ConcurrentSkipListMap</tt>. Unlike
+ * ActiveBlockingHashMap, no latch is created for a key that is awaited and
+ * there is no map wide lock. Consumers register a waiter describing the range
+ * of keys they are interested in (a single key, a ceiling or a bounded range)
+ * and park. A producer that adds a new key hands a signal to the first
+ * registered waiter whose range contains the key. Waiters for a single key are
+ * indexed by their key, hence a put only visits the waiters of its own key &
+ * the waiters of ranges. Operations on disjoint keys therefore only meet on
+ * the lock-free skip list.
+ *
+ * A waiter that is signalled but does not end up consuming the signalled key
+ * (it took a smaller key of its range, timed out or was interrupted) passes
+ * the signal on to the next interested waiter. This prevents an available key
+ * from being stranded while other consumers are parked waiting for it.
+ *
+ * When multiple consumers wait on the same key, only one of them is woken up
+ * per put. The others keep waiting for the next mapping on that key or until
+ * they time out.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @version 1.0 19/10/26
+ */
+/**
+ * Should not be accessible outside the package. Meant to be used from
+ * BlockingSkipListMap
+ */
+class ActiveBlockingSkipListMap<K, V> implements NavigableBlockingMap<K, V> {
+
+    /**
+     * mappings that have been produced and not yet consumed
+     */
+    private final ConcurrentSkipListMap<K, V> available;
+    /**
+     * consumers parked waiting for a single key, in order of arrival per key
+     */
+    private final ConcurrentSkipListMap<K, KeyWaiters<K>> keyWaiters;
+    /**
+     * consumers parked waiting for a range of keys or keys matching a
+     * predicate, in order of arrival
+     */
+    private final Queue<Waiter<K>> rangeWaiters = new ConcurrentLinkedQueue<Waiter<K>>();
+    /**
+     * comparator used to order keys, null for natural ordering
+     */
+    private final Comparator<? super K> comparator;
+    /*
+     *
+     * flag to prevent take while or after a clear has been triggered
+     */
+    private final AtomicBoolean cleared = new AtomicBoolean(false);
+
+    //package-private accessor prevents instantiation by entities from other packages
+    ActiveBlockingSkipListMap(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+        this.available = new ConcurrentSkipListMap<K, V>(comparator);
+        this.keyWaiters = new ConcurrentSkipListMap<K, KeyWaiters<K>>(comparator);
+    }
+
+    /**
+     * Consumer blocked on a range of keys, or on keys matching a predicate.
+     * Bounds that are null are unbounded. The lower bound is always inclusive.
+     */
+    private static final class Waiter<K> {
+
+        final Thread thread = Thread.currentThread();
+        final K fromKey;
+        final K toKey;
+        final boolean toInclusive;
+        /**
+         * additional condition on keys in range, null if none
+         */
+        final Predicate<? super K> predicate;
+        /**
+         * key handed over by a producer, null while not signalled
+         */
+        final AtomicReference<K> signal = new AtomicReference<K>();
+        /**
+         * waits for the single key fromKey
+         */
+        final boolean single;
+
+        Waiter(K fromKey, K toKey, boolean toInclusive, Predicate<? super K> predicate) {
+            this.fromKey = fromKey;
+            this.toKey = toKey;
+            this.toInclusive = toInclusive;
+            this.predicate = predicate;
+            this.single = (fromKey != null) && (fromKey == toKey) && toInclusive && (predicate == null);
+        }
+    }
+
+    /**
+     * Waiters of a single key. Removed from the index once empty, & marked so
+     * that a waiter registering concurrently registers on a new queue
+     */
+    private static final class KeyWaiters<K> extends ConcurrentLinkedQueue<Waiter<K>> {
+
+        private static final long serialVersionUID = 1L;
+        //guarded by this
+        boolean removed;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(K k1, K k2) {
+        return (comparator == null)
+                ? ((Comparable<? super K>) k1).compareTo(k2)
+                : comparator.compare(k1, k2);
+    }
+
+    private boolean isWithinUpperBound(K key, K toKey, boolean toInclusive) {
+        if (toKey == null) {
+            return true;
+        }
+        int c = compare(key, toKey);
+        return (c < 0) || (toInclusive && c == 0);
+    }
+
+    private boolean isInRange(Waiter<K> waiter, K key) {
+        return ((waiter.fromKey == null) || (compare(key, waiter.fromKey) >= 0))
+                && isWithinUpperBound(key, waiter.toKey, waiter.toInclusive)
+                && ((waiter.predicate == null) || waiter.predicate.test(key));
+    }
+
+    /**
+     * Removes an entry the waiter waits for, if any : the least key in its
+     * range, or the least key matching its predicate.
+     */
+    private Map.Entry<K, V> poll(Waiter<K> waiter) {
+        return (waiter.predicate == null)
+                ? pollInRange(waiter.fromKey, waiter.toKey, waiter.toInclusive)
+                : pollMatching(waiter.predicate);
+    }
+
+    /**
+     * Removes the entry with the least key in range, if any. Retries when a
+     * competing consumer removes the candidate first.
+     */
+    private Map.Entry<K, V> pollInRange(K fromKey, K toKey, boolean toInclusive) {
+        if (fromKey == null && toKey == null) {
+            return available.pollFirstEntry();
+        }
+        for (;;) {
+            Map.Entry<K, V> candidate = (fromKey == null)
+                    ? available.firstEntry()
+                    : available.ceilingEntry(fromKey);
+            if ((candidate == null)
+                    || !isWithinUpperBound(candidate.getKey(), toKey, toInclusive)) {
+                return null;
+            }
+            if (available.remove(candidate.getKey(), candidate.getValue())) {
+                return candidate;
+            }
+        }
+    }
+
+    /**
+     * Removes the entry with the least key matching the predicate, if any. The
+     * traversal is weakly consistent & does not block producers.
+     */
+    private Map.Entry<K, V> pollMatching(Predicate<? super K> predicate) {
+        for (Map.Entry<K, V> candidate : available.entrySet()) {
+            if (predicate.test(candidate.getKey())
+                    && available.remove(candidate.getKey(), candidate.getValue())) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Hands the signal for a newly available key to the first waiter that is
+     * interested in it and has not been signalled yet, waiters of the single
+     * key first.
+     */
+    private void signal(K key) {
+        KeyWaiters<K> queue = keyWaiters.get(key);
+        if ((queue != null) && signal(queue, key)) {
+            return;
+        }
+        signal(rangeWaiters, key);
+    }
+
+    private boolean signal(Queue<Waiter<K>> queue, K key) {
+        for (Waiter<K> waiter : queue) {
+            if ((waiter.signal.get() == null)
+                    && isInRange(waiter, key)
+                    && waiter.signal.compareAndSet(null, key)) {
+                LockSupport.unpark(waiter.thread);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void register(Waiter<K> waiter) {
+        if (!waiter.single) {
+            rangeWaiters.add(waiter);
+            return;
+        }
+        for (;;) {
+            KeyWaiters<K> queue = keyWaiters.computeIfAbsent(waiter.fromKey, k -> new KeyWaiters<K>());
+            synchronized (queue) {
+                if (!queue.removed) {
+                    queue.add(waiter);
+                    return;
+                }
+            }
+            //emptied & being removed, the next round finds it gone
+            keyWaiters.remove(waiter.fromKey, queue);
+        }
+    }
+
+    private void deregister(Waiter<K> waiter) {
+        if (!waiter.single) {
+            rangeWaiters.remove(waiter);
+            return;
+        }
+        KeyWaiters<K> queue = keyWaiters.get(waiter.fromKey);
+        if (queue == null) {
+            return;
+        }
+        synchronized (queue) {
+            queue.remove(waiter);
+            if (queue.isEmpty()) {
+                queue.removed = true;
+                keyWaiters.remove(waiter.fromKey, queue);
+            }
+        }
+    }
+
+    /**
+     * Common wait loop of all take operations.
+     *
+     * A waiter is registered before the last look at the skip list, a producer
+     * signals after publishing. Either the consumer sees the mapping or the
+     * producer sees the waiter, so no wake up is lost.
+     */
+    private Map.Entry<K, V> await(Waiter<K> waiter, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        //prevent any consumer from getting in to a blocked stated on cleared map
+        if (cleared.get()) {
+            return null;
+        }
+        Map.Entry<K, V> entry = poll(waiter);
+        if ((entry != null) || (timeout <= 0)) {
+            return entry;
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+
+        //wraps around for very long timeouts, differences remain valid
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        register(waiter);
+        try {
+            for (;;) {
+                entry = poll(waiter);
+                if (entry != null) {
+                    return entry;
+                }
+                //signalled key already gone, look again before parking
+                if (waiter.signal.getAndSet(null) != null) {
+                    continue;
+                }
+                if (cleared.get()) {
+                    return null;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return null;
+                }
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            deregister(waiter);
+            //pass on a signal that was not consumed by this waiter
+            K signalled = waiter.signal.get();
+            if ((signalled != null) && available.containsKey(signalled)) {
+                signal(signalled);
+            }
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains a mapping for the specified
+     * key.
+     *
+     * @param key key whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map contains a mapping for the specified
+     * key
+     * @throws ClassCastException if the key is of an inappropriate type for
+     * this map
+     * @throws NullPointerException if the specified key is null
+     */
+    @Override
+    public boolean isKeyAvailable(K key) {
+        return available.containsKey(key);
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains a mapping for the specified
+     * key.
+     *
+     * @param key key whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map contains a mapping for the specified
+     * key
+     * @throws ClassCastException if the key is of an inappropriate type for
+     * this map
+     * @throws NullPointerException if the specified key is null
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        return available.containsKey(key);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or {@code null}
+     * if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or {@code null}
+     * if this map contains no mapping for the key
+     * @throws ClassCastException if the key is of an inappropriate type for
+     * this map
+     * @throws NullPointerException if the specified key is null
+     */
+    @Override
+    public V get(Object key) {
+        return available.get(key);
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map unless
+     * the key is already available. Wakes up one consumer waiting for the key.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the value already available for <tt>key</tt>, or <tt>null</tt>
+     * if the mapping was put
+     * @throws ClassCastException if the key cannot be compared with the keys
+     * currently in the map
+     * @throws NullPointerException if the specified key or value is null
+     */
+    @Override
+    public V put(K key, V value) {
+        V existing = available.putIfAbsent(key, value);
+        if (existing == null) {
+            signal(key);
+        }
+        return existing;
+    }
+
+    /**
+     * Removes the mapping for a key from this map if it is present.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @return the previous value associated with <tt>key</tt>, or <tt>null</tt>
+     * if there was no mapping for <tt>key</tt>.
+     * @throws ClassCastException if the key is of an inappropriate type for
+     * this map
+     * @throws NullPointerException if the specified key is null
+     */
+    @Override
+    public V remove(Object key) {
+        return available.remove(key);
+    }
+
+    /**
+     * Same as put, an unbound map never blocks producers.
+     */
+    @Override
+    public V offer(K key, V value) {
+        return put(key, value);
+    }
+
+    /**
+     * Same as put, an unbound map never blocks producers.
+     */
+    @Override
+    public V offer(K key, V value, long timeout, TimeUnit unit) {
+        return put(key, value);
+    }
+
+    /**
+     * Retrieves and removes the mapping for a key from this map, waiting if
+     * necessary until the mapping becomes available.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @return the value associated with <tt>key</tt>, or <tt>null</tt> if the
+     * map was cleared while waiting
+     * @throws NullPointerException if the specified key is null
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Override
+    public V take(K key) throws InterruptedException {
+        return take(key, Integer.MAX_VALUE, TimeUnit.DAYS);
+    }
+
+    /**
+     * Retrieves and removes the mapping for a key from this map, waiting if
+     * necessary until the mapping becomes available or the specified time
+     * elapses.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @param timeout how long to wait before giving up, in units of
+     * <tt>unit</tt>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the
+     * <tt>timeout</tt> parameter
+     * @return the value associated with <tt>key</tt>, or <tt>null</tt> if the
+     * call times out
+     * @throws NullPointerException if the specified key is null
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Override
+    public V take(K key, long timeout, TimeUnit unit) throws InterruptedException {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        Map.Entry<K, V> entry = await(new Waiter<K>(key, key, true, null), timeout, unit);
+        return (entry == null) ? null : entry.getValue();
+    }
+
+    @Override
+    public Map.Entry<K, V> takeFirst() throws InterruptedException {
+        return takeFirst(Integer.MAX_VALUE, TimeUnit.DAYS);
+    }
+
+    @Override
+    public Map.Entry<K, V> takeFirst(long timeout, TimeUnit unit) throws InterruptedException {
+        return await(new Waiter<K>(null, null, false, null), timeout, unit);
+    }
+
+    @Override
+    public Map.Entry<K, V> takeCeiling(K key) throws InterruptedException {
+        return takeCeiling(key, Integer.MAX_VALUE, TimeUnit.DAYS);
+    }
+
+    @Override
+    public Map.Entry<K, V> takeCeiling(K key, long timeout, TimeUnit unit) throws InterruptedException {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        return await(new Waiter<K>(key, null, false, null), timeout, unit);
+    }
+
+    @Override
+    public Map.Entry<K, V> takeInRange(K fromKey, K toKey, long timeout, TimeUnit unit) throws InterruptedException {
+        if ((fromKey == null) || (toKey == null)) {
+            throw new NullPointerException();
+        }
+        if (compare(fromKey, toKey) > 0) {
+            throw new IllegalArgumentException("fromKey > toKey");
+        }
+        return await(new Waiter<K>(fromKey, toKey, false, null), timeout, unit);
+    }
+
+    /**
+     * Retrieves and removes the mapping with the least key matching the
+     * predicate. Available keys are traversed in ascending order and each new
+     * key is evaluated against the predicates of waiting consumers.
+     */
+    @Override
+    public Map.Entry<K, V> takeMatching(Predicate<? super K> predicate, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        if (predicate == null) {
+            throw new NullPointerException();
+        }
+        return await(new Waiter<K>(null, null, false, predicate), timeout, unit);
+    }
+
+    /**
+     * Shuts down this blocking map & removes all mappings from this map. The
+     * map will be empty after this call returns.
+     *
+     * <p>
+     * Interrupts any threads waiting on any key in map before clearing. This is
+     * done to prevent threads being blocked forever
+     */
+    @Override
+    public void clear() {
+        //clear the map only if it has not been cleared yet
+        if (!cleared.getAndSet(true)) {
+            for (Waiter<K> waiter : rangeWaiters) {
+                waiter.thread.interrupt();
+            }
+            for (KeyWaiters<K> queue : keyWaiters.values()) {
+                for (Waiter<K> waiter : queue) {
+                    waiter.thread.interrupt();
+                }
+            }
+            available.clear();
+        }
+    }
+
+    /**
+     * Returns true if this map maps one or more keys to the specified value.
+     * This is a linear scan of the available mappings.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return true if this map maps one or more keys to the specified value
+     */
+    @Override
+    public boolean containsValue(Object value) {
+        return available.containsValue(value);
+    }
+
+    /**
+     * Returns true if this map contains no key-value mappings.
+     *
+     * @return true if this map contains no key-value mappings
+     */
+    @Override
+    public boolean isEmpty() {
+        return available.isEmpty();
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map. This is a linear
+     * traversal of the available mappings.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    @Override
+    public int size() {
+        return available.size();
+    }
+
+    /**
+     * Weakly consistent, ordered view of the available mappings, backed by the
+     * skip list
+     */
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return available.entrySet();
+    }
+
+    /**
+     * Weakly consistent, ordered view of the available keys, backed by the
+     * skip list
+     */
+    @Override
+    public Set<K> keySet() {
+        return available.keySet();
+    }
+
+    /**
+     * Weakly consistent, ordered view of the available values, backed by the
+     * skip list
+     */
+    @Override
+    public Collection<V> values() {
+        return available.values();
+    }
+
+    /**
+     * Puts all mappings, each one as with put. <tt>putAll(m, false)</tt>
+     * checks the whole batch first; atomic publication is not supported,
+     * there is no map wide lock
+     *
+     * @throws NullPointerException if any key or value is null
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        for (Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Stream over the skip list, parallel if there are at least
+     * parallelismThreshold mappings. Skip list splits by key range.
+     */
+    private Stream<Map.Entry<K, V>> bulkStream(long parallelismThreshold) {
+        boolean parallel = (parallelismThreshold < Long.MAX_VALUE)
+                && ((parallelismThreshold <= 1) || (available.size() >= parallelismThreshold));
+        return StreamSupport.stream(available.entrySet().spliterator(), parallel);
+    }
+
+    /**
+     * Weakly consistent traversal of the skip list, never blocks producers
+     */
+    @Override
+    public void forEach(long parallelismThreshold, BiConsumer<? super K, ? super V> action) {
+        if (action == null) {
+            throw new NullPointerException();
+        }
+        bulkStream(parallelismThreshold).forEach(entry -> action.accept(entry.getKey(), entry.getValue()));
+    }
+
+    /**
+     * Weakly consistent search of the skip list, never blocks producers
+     */
+    @Override
+    public <U> U search(long parallelismThreshold, BiFunction<? super K, ? super V, ? extends U> searchFunction) {
+        if (searchFunction == null) {
+            throw new NullPointerException();
+        }
+        Optional<U> result = bulkStream(parallelismThreshold)
+                .<U>map(entry -> searchFunction.apply(entry.getKey(), entry.getValue()))
+                .filter(Objects::nonNull)
+                .findAny();
+        return result.orElse(null);
+    }
+
+    /**
+     * Weakly consistent reduction of the skip list, never blocks producers
+     */
+    @Override
+    public <U> U reduce(long parallelismThreshold, BiFunction<? super K, ? super V, ? extends U> transformer,
+            BiFunction<? super U, ? super U, ? extends U> reducer) {
+        if ((transformer == null) || (reducer == null)) {
+            throw new NullPointerException();
+        }
+        Optional<U> result = bulkStream(parallelismThreshold)
+                .<U>map(entry -> transformer.apply(entry.getKey(), entry.getValue()))
+                .filter(Objects::nonNull)
+                .reduce((left, right) -> reducer.apply(left, right));
+        return result.orElse(null);
+    }
+}
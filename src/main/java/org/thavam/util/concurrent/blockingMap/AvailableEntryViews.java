@@ -0,0 +1,387 @@
+/*
+ * AvailableEntryViews.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * Live views over the available mappings of a latch table. Keys whose latch is
+ * still pending, i.e. keys with consumers waiting but no value yet, are
+ * skipped.
+ *
+ * <p>
+ * The views are weakly consistent, like the views of ConcurrentHashMap. They
+ * never throw <tt>ConcurrentModificationException</tt>, do not take the map
+ * lock & never block producers or consumers. They reflect the mappings as
+ * they are while being traversed. <tt>size</tt> & <tt>isEmpty</tt> of a view
+ * are computed by a traversal & hence are only estimates under concurrent
+ * updates.
+ *
+ * <p>
+ * Removal through a view or its iterator behaves like <tt>remove(k)</tt> on
+ * the map. Addition is not supported. Entries returned are immutable
+ * snapshots.
+ *
+ * <p>
+ * Spliterators split with the spliterator of the latch table & can be used
+ * with parallel streams.
+ *
+ * @param <K> the type of keys maintained by the map
+ * @param <V> the type of mapped values
+ * @version 1.0, 19/10/26
+ */
+/**
+ * Should not be accessible outside the package. Meant to be used from
+ * ActiveBlockingHashMap
+ */
+class AvailableEntryViews<K, V> {
+
+    private final ConcurrentMap<K, ObjectLatch<V>> latches;
+    /**
+     * map whose remove is used for removal through the views
+     */
+    private final Map<K, V> owner;
+
+    AvailableEntryViews(ConcurrentMap<K, ObjectLatch<V>> latches, Map<K, V> owner) {
+        this.latches = latches;
+        this.owner = owner;
+    }
+
+    /**
+     * Returns the immutable entry of the latch, or <tt>null</tt> if the latch
+     * is pending.
+     */
+    private Map.Entry<K, V> availableEntry(Map.Entry<K, ObjectLatch<V>> latchEntry) {
+        V value = latchEntry.getValue().getIfAvailable();
+        return (value == null) ? null : new AbstractMap.SimpleImmutableEntry<K, V>(latchEntry.getKey(), value);
+    }
+
+    Set<K> keySet() {
+        return new KeySetView();
+    }
+
+    Collection<V> values() {
+        return new ValuesView();
+    }
+
+    Set<Map.Entry<K, V>> entrySet() {
+        return new EntrySetView();
+    }
+
+    /**
+     * Iterates available entries of the latch table, skipping pending latches.
+     * Looks one entry ahead, so that hasNext does not change with concurrent
+     * updates once it has answered.
+     */
+    private abstract class AvailableIterator<E> implements Iterator<E> {
+
+        private final Iterator<Map.Entry<K, ObjectLatch<V>>> latchIterator = latches.entrySet().iterator();
+        private Map.Entry<K, V> next;
+        private Map.Entry<K, V> last;
+
+        AvailableIterator() {
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while ((next == null) && latchIterator.hasNext()) {
+                next = availableEntry(latchIterator.next());
+            }
+        }
+
+        abstract E element(Map.Entry<K, V> entry);
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public E next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            advance();
+            return element(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            owner.remove(last.getKey());
+            last = null;
+        }
+    }
+
+    /**
+     * Splits with the spliterator of the latch table & skips pending latches.
+     */
+    private abstract class AvailableSpliterator<E> implements Spliterator<E> {
+
+        private final Spliterator<Map.Entry<K, ObjectLatch<V>>> latchSpliterator;
+        /**
+         * available entry found by the last tryAdvance on the latch table
+         */
+        private Map.Entry<K, V> found;
+
+        AvailableSpliterator(Spliterator<Map.Entry<K, ObjectLatch<V>>> latchSpliterator) {
+            this.latchSpliterator = latchSpliterator;
+        }
+
+        abstract E element(Map.Entry<K, V> entry);
+
+        abstract Spliterator<E> split(Spliterator<Map.Entry<K, ObjectLatch<V>>> prefix);
+
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action) {
+            if (action == null) {
+                throw new NullPointerException();
+            }
+            found = null;
+            //loop till an available entry is found or the table is exhausted
+            while ((found == null) && latchSpliterator.tryAdvance(latchEntry -> {
+                found = availableEntry(latchEntry);
+            })) {
+            }
+            if (found == null) {
+                return false;
+            }
+            action.accept(element(found));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super E> action) {
+            if (action == null) {
+                throw new NullPointerException();
+            }
+            latchSpliterator.forEachRemaining(latchEntry -> {
+                Map.Entry<K, V> entry = availableEntry(latchEntry);
+                if (entry != null) {
+                    action.accept(element(entry));
+                }
+            });
+        }
+
+        @Override
+        public Spliterator<E> trySplit() {
+            Spliterator<Map.Entry<K, ObjectLatch<V>>> prefix = latchSpliterator.trySplit();
+            return (prefix == null) ? null : split(prefix);
+        }
+
+        @Override
+        public long estimateSize() {
+            //pending latches are counted, hence an estimate
+            return latchSpliterator.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.CONCURRENT | Spliterator.NONNULL;
+        }
+    }
+
+    private final class KeySetView extends AbstractSet<K> {
+
+        @Override
+        public Iterator<K> iterator() {
+            return new AvailableIterator<K>() {
+                @Override
+                K element(Map.Entry<K, V> entry) {
+                    return entry.getKey();
+                }
+            };
+        }
+
+        @Override
+        public Spliterator<K> spliterator() {
+            return new KeySpliterator(latches.entrySet().spliterator());
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (Iterator<K> it = iterator(); it.hasNext(); it.next()) {
+                size++;
+            }
+            return size;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return !iterator().hasNext();
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            ObjectLatch<V> latch = latches.get(key);
+            return (latch != null) && (latch.getIfAvailable() != null);
+        }
+
+        @Override
+        public boolean remove(Object key) {
+            return owner.remove(key) != null;
+        }
+    }
+
+    private final class KeySpliterator extends AvailableSpliterator<K> {
+
+        KeySpliterator(Spliterator<Map.Entry<K, ObjectLatch<V>>> latchSpliterator) {
+            super(latchSpliterator);
+        }
+
+        @Override
+        K element(Map.Entry<K, V> entry) {
+            return entry.getKey();
+        }
+
+        @Override
+        Spliterator<K> split(Spliterator<Map.Entry<K, ObjectLatch<V>>> prefix) {
+            return new KeySpliterator(prefix);
+        }
+
+        @Override
+        public int characteristics() {
+            return super.characteristics() | Spliterator.DISTINCT;
+        }
+    }
+
+    private final class ValuesView extends AbstractCollection<V> {
+
+        @Override
+        public Iterator<V> iterator() {
+            return new AvailableIterator<V>() {
+                @Override
+                V element(Map.Entry<K, V> entry) {
+                    return entry.getValue();
+                }
+            };
+        }
+
+        @Override
+        public Spliterator<V> spliterator() {
+            return new ValueSpliterator(latches.entrySet().spliterator());
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (Iterator<V> it = iterator(); it.hasNext(); it.next()) {
+                size++;
+            }
+            return size;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return !iterator().hasNext();
+        }
+    }
+
+    private final class ValueSpliterator extends AvailableSpliterator<V> {
+
+        ValueSpliterator(Spliterator<Map.Entry<K, ObjectLatch<V>>> latchSpliterator) {
+            super(latchSpliterator);
+        }
+
+        @Override
+        V element(Map.Entry<K, V> entry) {
+            return entry.getValue();
+        }
+
+        @Override
+        Spliterator<V> split(Spliterator<Map.Entry<K, ObjectLatch<V>>> prefix) {
+            return new ValueSpliterator(prefix);
+        }
+    }
+
+    private final class EntrySetView extends AbstractSet<Map.Entry<K, V>> {
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return new AvailableIterator<Map.Entry<K, V>>() {
+                @Override
+                Map.Entry<K, V> element(Map.Entry<K, V> entry) {
+                    return entry;
+                }
+            };
+        }
+
+        @Override
+        public Spliterator<Map.Entry<K, V>> spliterator() {
+            return new EntrySpliterator(latches.entrySet().spliterator());
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (Iterator<Map.Entry<K, V>> it = iterator(); it.hasNext(); it.next()) {
+                size++;
+            }
+            return size;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return !iterator().hasNext();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            ObjectLatch<V> latch = (entry.getKey() == null) ? null : latches.get(entry.getKey());
+            V value = (latch == null) ? null : latch.getIfAvailable();
+            return (value != null) && value.equals(entry.getValue());
+        }
+
+        /**
+         * Removes the key if it is available with the value of the entry
+         */
+        @Override
+        public boolean remove(Object o) {
+            return contains(o) && (owner.remove(((Map.Entry<?, ?>) o).getKey()) != null);
+        }
+    }
+
+    private final class EntrySpliterator extends AvailableSpliterator<Map.Entry<K, V>> {
+
+        EntrySpliterator(Spliterator<Map.Entry<K, ObjectLatch<V>>> latchSpliterator) {
+            super(latchSpliterator);
+        }
+
+        @Override
+        Map.Entry<K, V> element(Map.Entry<K, V> entry) {
+            return entry;
+        }
+
+        @Override
+        Spliterator<Map.Entry<K, V>> split(Spliterator<Map.Entry<K, ObjectLatch<V>>> prefix) {
+            return new EntrySpliterator(prefix);
+        }
+
+        @Override
+        public int characteristics() {
+            return super.characteristics() | Spliterator.DISTINCT;
+        }
+    }
+}
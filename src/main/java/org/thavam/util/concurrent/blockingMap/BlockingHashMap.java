@@ -8,11 +8,17 @@
  */
 package org.thavam.util.concurrent.blockingMap;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
 
 /**
  * An unbound {@linkplain BlockingMap blocking map} backed by a hashmap that is
@@ -60,9 +66,44 @@ public class BlockingHashMap<K, V> implements BlockingMap<K, V> {
      * flag to multiple clear()
      */
     private final AtomicBoolean cleared = new AtomicBoolean(false);
+    /**
+     * MBean of a named map, unregistered on shutdown. null if unnamed
+     */
+    private final BlockingMapStatistics statistics;
 
     public BlockingHashMap() {
         this.state = new ActiveBlockingHashMap<K, V>();
+        this.statistics = null;
+    }
+
+    /**
+     * Creates a map whose operations are recorded by the given recorder, e.g.
+     * a {@link BlockingMapMetrics}. Puts then stamp their mappings with the
+     * time they are published at, to time the handoff to the consumer.
+     *
+     * @param recorder receives the operations of the map
+     * @throws NullPointerException if the recorder is null
+     */
+    public BlockingHashMap(MetricsRecorder recorder) {
+        this.state = new ActiveBlockingHashMap<K, V>(recorder);
+        this.statistics = null;
+    }
+
+    /**
+     * Creates a map whose statistics are published over JMX, as a
+     * {@link BlockingMapStatistics} MBean registered under the given name in
+     * the platform MBean server until the map is shut down.
+     *
+     * @param name name of the map, unique among the registered maps
+     * @throws NullPointerException if the name is null
+     * @throws IllegalArgumentException if a map is already registered under
+     * the name
+     */
+    public BlockingHashMap(String name) {
+        BlockingMapMetrics metrics = new BlockingMapMetrics();
+        this.statistics = new BlockingMapStatistics(name, metrics);
+        this.state = new ActiveBlockingHashMap<K, V>(metrics);
+        statistics.register();
     }
 
     /**
@@ -322,6 +363,32 @@ public class BlockingHashMap<K, V> implements BlockingMap<K, V> {
         return state.take(key, timeout, unit);
     }
 
+    /**
+     * Retrieves and removes a mapping whose key satisfies the given predicate,
+     * waiting if necessary until such a mapping becomes available or the
+     * specified time elapses.
+     *
+     * <p>
+     * Prefer predicates created by {@link KeyPredicates}, they are routed by
+     * partition instead of being evaluated against every key put while the
+     * consumer waits.
+     *
+     * @param predicate condition the key of the mapping should satisfy
+     * @param timeout how long to wait before giving up, in units of
+     * <tt>unit</tt>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the
+     * <tt>timeout</tt> parameter
+     * @return the mapping taken, or <tt>null</tt> if the call times out
+     * @throws NullPointerException if the specified predicate is null
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public Map.Entry<K, V> takeMatching(Predicate<? super K> predicate, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        return state.takeMatching(predicate, timeout, unit);
+    }
+
     /**
      * Shuts down this blocking map and removes all mappings from this map.The map
      * will be empty after this call.
@@ -339,6 +406,9 @@ public class BlockingHashMap<K, V> implements BlockingMap<K, V> {
             BlockingMap<K, V> oldState = state;
             state = PassiveHashMap.<K, V>getInstance();
             oldState.clear();
+            if (statistics != null) {
+                statistics.unregister();
+            }
         } else {
             state.clear();
         }
@@ -380,11 +450,19 @@ public class BlockingHashMap<K, V> implements BlockingMap<K, V> {
     }
 
     /**
-     * Not supported Semantics of addition/removal to map outside the
-     * producer/consumer methods not defined
+     * Returns a weakly consistent view of the available mappings. Keys on which
+     * consumers are waiting, but which have no value yet, are skipped.
      *
+     * <p>
+     * The view is live & never throws <tt>ConcurrentModificationException</tt>.
+     * It is traversed without taking the map lock & never blocks producers or
+     * consumers. Removal through the view or its iterator behaves like
+     * <tt>remove(k)</tt>, addition is not supported. Its spliterator splits,
+     * hence the view can be used with parallel streams. <tt>size</tt> of the
+     * view is computed by a traversal.
+     *
+     * @return a view of the available mappings
      * @throws IllegalStateException if the map has been shut-down
-     * @throws UnsupportedOperationException if map is in passive state
      */
     @Override
     public Set<Map.Entry<K, V>> entrySet() {
@@ -392,11 +470,19 @@ public class BlockingHashMap<K, V> implements BlockingMap<K, V> {
     }
 
     /**
-     * Not supported Semantics of addition/removal to map outside the
-     * producer/consumer methods not defined
+     * Returns a weakly consistent view of the available keys. Keys on which
+     * consumers are waiting, but which have no value yet, are skipped.
      *
+     * <p>
+     * The view is live & never throws <tt>ConcurrentModificationException</tt>.
+     * It is traversed without taking the map lock & never blocks producers or
+     * consumers. Removal through the view or its iterator behaves like
+     * <tt>remove(k)</tt>, addition is not supported. Its spliterator splits,
+     * hence the view can be used with parallel streams. <tt>size</tt> of the
+     * view is computed by a traversal.
+     *
+     * @return a view of the available keys
      * @throws IllegalStateException if the map has been shut-down
-     * @throws UnsupportedOperationException if map is in passive state
      */
     @Override
     public Set<K> keySet() {
@@ -404,11 +490,19 @@ public class BlockingHashMap<K, V> implements BlockingMap<K, V> {
     }
 
     /**
-     * Not supported Semantics of addition/removal to map outside the
-     * producer/consumer methods not defined
+     * Returns a weakly consistent view of the available values. Keys on which
+     * consumers are waiting, but which have no value yet, are skipped.
      *
+     * <p>
+     * The view is live & never throws <tt>ConcurrentModificationException</tt>.
+     * It is traversed without taking the map lock & never blocks producers or
+     * consumers. Removal through the view or its iterator behaves like
+     * <tt>remove(k)</tt>, addition is not supported. Its spliterator splits,
+     * hence the view can be used with parallel streams. <tt>size</tt> of the
+     * view is computed by a traversal.
+     *
+     * @return a view of the available values
      * @throws IllegalStateException if the map has been shut-down
-     * @throws UnsupportedOperationException if map is in passive state
      */
     @Override
     public Collection<V> values() {
@@ -416,13 +510,360 @@ public class BlockingHashMap<K, V> implements BlockingMap<K, V> {
     }
 
     /**
-     * To be supported
+     * Copies all of the mappings from the specified map to this map, in one
+     * pass. Same as <tt>putAll(m, false)</tt>
      *
+     * @param m mappings to be stored in this map
+     * @throws NullPointerException if any key or value is null
      * @throws UnsupportedOperationException if map is in passive state
-     * @throws IllegalStateException if the map has been shut-down
      */
     @Override
     public void putAll(Map<? extends K, ? extends V> m) {
         state.putAll(m);
     }
+
+    /**
+     * Copies all of the mappings from the specified map to this map, in one
+     * pass. Keys that are already available on the map are ignored.
+     *
+     * <p>
+     * If <tt>atomic</tt> is <tt>true</tt>, the whole batch is published under
+     * the map lock: <tt>takeAll</tt>, <tt>take</tt>, <tt>isKeyAvailable</tt>,
+     * <tt>size</tt> & <tt>isEmpty</tt> observe either none or all of its
+     * mappings.
+     *
+     * @param m mappings to be stored in this map
+     * @param atomic whether the batch should become visible all at once
+     * @throws NullPointerException if any key or value is null. Nothing is
+     * put in this case.
+     * @throws UnsupportedOperationException if map is in passive state
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m, boolean atomic) {
+        state.putAll(m, atomic);
+    }
+
+    /**
+     * Retrieves and removes the mappings of all the given keys, waiting if
+     * necessary until all of them are available or the specified time elapses.
+     * Either all the mappings are removed or none of them.
+     *
+     * @param keys keys whose mappings are to be removed from the map
+     * @param timeout how long to wait before giving up, in units of
+     * <tt>unit</tt>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the
+     * <tt>timeout</tt> parameter
+     * @return the mappings of all the keys, or <tt>null</tt> if the call times
+     * out before all of them are available
+     * @throws NullPointerException if any of the keys is null
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public Map<K, V> takeAll(Collection<? extends K> keys, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        return state.takeAll(keys, timeout, unit);
+    }
+
+    /**
+     * Performs the given action for each available mapping. Keys on which
+     * consumers are waiting, but which have no value yet, are skipped.
+     *
+     * <p>
+     * As with the bulk operations of ConcurrentHashMap, the traversal is
+     * weakly consistent & runs in parallel on the common
+     * <tt>ForkJoinPool</tt> when the map holds at least
+     * <tt>parallelismThreshold</tt> entries. The map lock is never taken,
+     * producers & consumers are never stalled by a bulk operation.
+     *
+     * @param parallelismThreshold the (estimated) number of mappings needed
+     * for this operation to be executed in parallel
+     * @param action the action
+     * @throws NullPointerException if the action is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public void forEach(long parallelismThreshold, BiConsumer<? super K, ? super V> action) {
+        state.forEach(parallelismThreshold, action);
+    }
+
+    /**
+     * Returns a non-null result from applying the given search function on
+     * each available mapping, or null if none. Upon success, further element
+     * processing is suppressed. Runs like <tt>forEach(threshold, action)</tt>.
+     *
+     * @param <U> the return type of the search function
+     * @param parallelismThreshold the (estimated) number of mappings needed
+     * for this operation to be executed in parallel
+     * @param searchFunction a function returning a non-null result on success,
+     * else null
+     * @return a non-null result from applying the given search function on
+     * some mapping, or null if none
+     * @throws NullPointerException if the search function is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public <U> U search(long parallelismThreshold, BiFunction<? super K, ? super V, ? extends U> searchFunction) {
+        return state.search(parallelismThreshold, searchFunction);
+    }
+
+    /**
+     * Returns the result of accumulating the given transformation of all
+     * available mappings using the given reducer to combine values, or null if
+     * none. Runs like <tt>forEach(threshold, action)</tt>.
+     *
+     * @param <U> the return type of the transformer
+     * @param parallelismThreshold the (estimated) number of mappings needed
+     * for this operation to be executed in parallel
+     * @param transformer a function returning the transformation for a
+     * mapping, or null if there is no transformation
+     * @param reducer a commutative associative combining function
+     * @return the result of accumulating the given transformation of all
+     * mappings
+     * @throws NullPointerException if the transformer or reducer is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public <U> U reduce(long parallelismThreshold, BiFunction<? super K, ? super V, ? extends U> transformer,
+            BiFunction<? super U, ? super U, ? extends U> reducer) {
+        return state.reduce(parallelismThreshold, transformer, reducer);
+    }
+
+    /**
+     * Returns the active map, throwing if this map has been shut-down
+     */
+    private ActiveBlockingHashMap<K, V> active() {
+        BlockingMap<K, V> current = state;
+        if (!(current instanceof ActiveBlockingHashMap)) {
+            throw new IllegalStateException("Map Shutdown.Not Active");
+        }
+        return (ActiveBlockingHashMap<K, V>) current;
+    }
+
+    /**
+     * Same as <tt>put(key, value)</tt>, attaching the given context of the
+     * producer, e.g. its trace id, to the mapping & stamping it with the time
+     * it is put at. The consumer retrieves both with
+     * {@link #takeEntry(Object)}. Plain puts & takes neither stamp nor
+     * allocate anything for it.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @param context context of the producer, may be null
+     * @return the value already available on the key, in which case the put
+     * is ignored, or <tt>null</tt>
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    public V put(K key, V value, Object context) {
+        return active().put(key, value, context);
+    }
+
+    /**
+     * Same as <tt>take(key)</tt>, returning the value along with the context
+     * its producer attached & the time it spent on the map.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @return the mapping taken, with its context & timestamps
+     * @throws NullPointerException if the specified key is null
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    public TakenEntry<K, V> takeEntry(K key) throws InterruptedException {
+        return takeEntry(key, Integer.MAX_VALUE, TimeUnit.DAYS);
+    }
+
+    /**
+     * Same as <tt>take(key, timeout, unit)</tt>, returning the value along
+     * with the context its producer attached & the time it spent on the map.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @param timeout how long to wait before giving up, in units of
+     * <tt>unit</tt>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the
+     * <tt>timeout</tt> parameter
+     * @return the mapping taken, with its context & timestamps, or
+     * <tt>null</tt> if the call times out
+     * @throws NullPointerException if the specified key is null
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    public TakenEntry<K, V> takeEntry(K key, long timeout, TimeUnit unit) throws InterruptedException {
+        return active().takeEntry(key, timeout, unit);
+    }
+
+    /**
+     * Retrieves and removes the mapping for a key when it becomes available,
+     * without blocking the calling thread. The returned future is completed
+     * with the value by the producer putting the mapping, or at once if the
+     * mapping is already available. Consumers of the same key, whether
+     * blocked in <tt>take</tt> or waiting on a future, each receive a
+     * distinct mapping.
+     *
+     * <p>
+     * No thread waits on behalf of the consumer. A consumer gives up by
+     * completing the future itself, e.g. with <tt>null</tt> once its timeout
+     * elapses, or by cancelling it. A value handed to a future completed
+     * meanwhile is passed to the next consumer of the key, or put back on the
+     * map. Pending futures are cancelled when the map is shut down.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @return a future completed with the value taken
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    public CompletableFuture<V> takeAsync(K key) {
+        return active().takeAsync(key);
+    }
+
+    /**
+     * Returns the feed of the changes of this map, keeping
+     * {@link ChangeFeed#DEFAULT_CAPACITY} events. Same as
+     * <tt>changeFeed(ChangeFeed.DEFAULT_CAPACITY)</tt>
+     *
+     * @return the change feed of this map
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    public ChangeFeed<K, V> changeFeed() {
+        return changeFeed(ChangeFeed.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Returns the feed of the changes of this map. The feed is created by the
+     * first call, with the given capacity, & records the changes made from
+     * then on; later calls return the same feed. Once created, each put &
+     * take publishes an event without waiting for subscribers.
+     *
+     * @param capacity the number of events kept for subscribers, rounded up
+     * to a power of two. Ignored if the feed already exists
+     * @return the change feed of this map
+     * @throws IllegalArgumentException if the capacity is not positive
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    public ChangeFeed<K, V> changeFeed(int capacity) {
+        return active().changeFeed(capacity);
+    }
+
+    /**
+     * Starts a watchdog reporting the consumers waiting on a key for longer
+     * than a threshold, & the values available for longer than another
+     * threshold, to the given listener. While it runs, blocked consumers
+     * register their wait with it & puts stamp their mappings with the time
+     * they are put at. The watchdog stops when closed or when the map is shut
+     * down.
+     *
+     * @param waiterThreshold how long a consumer may wait before being
+     * reported, in units of <tt>unit</tt>
+     * @param valueThreshold how long a value may stay available before being
+     * reported, in units of <tt>unit</tt>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the
+     * thresholds
+     * @param listener receives the consumers & values reported
+     * @return the watchdog started
+     * @throws NullPointerException if the unit or the listener is null
+     * @throws IllegalArgumentException if a threshold is not positive
+     * @throws IllegalStateException if a watchdog is already running or the
+     * map has been shut-down
+     */
+    public BlockingMapWatchdog<K> watchdog(long waiterThreshold, long valueThreshold, TimeUnit unit,
+            BlockingMapWatchdog.Listener<? super K> listener) {
+        return active().watchdog(waiterThreshold, valueThreshold, unit, listener);
+    }
+
+    /**
+     * Starts tracking the keys most contended for, with
+     * {@link HotKeyTracker#DEFAULT_CAPACITY} keys & one event sampled in
+     * {@link HotKeyTracker#DEFAULT_SAMPLE_RATE}. Same as
+     * <tt>trackHotKeys(HotKeyTracker.DEFAULT_CAPACITY, HotKeyTracker.DEFAULT_SAMPLE_RATE)</tt>
+     *
+     * @return the tracker started
+     * @throws IllegalStateException if a tracker is already running or the
+     * map has been shut-down
+     */
+    public HotKeyTracker<K> trackHotKeys() {
+        return trackHotKeys(HotKeyTracker.DEFAULT_CAPACITY, HotKeyTracker.DEFAULT_SAMPLE_RATE);
+    }
+
+    /**
+     * Starts tracking the keys most contended for : consumers blocking on
+     * them, puts ignored because they are available & consumers woken to
+     * find their mapping taken by another. Events are sampled & counted in a
+     * sketch of bounded size. The tracker stops when closed or when the map
+     * is shut down.
+     *
+     * @param capacity the number of keys tracked at most
+     * @param sampleRate one event in <tt>sampleRate</tt> is counted, 1 counts
+     * them all
+     * @return the tracker started
+     * @throws IllegalArgumentException if the capacity or the sample rate is
+     * not positive
+     * @throws IllegalStateException if a tracker is already running or the
+     * map has been shut-down
+     */
+    public HotKeyTracker<K> trackHotKeys(int capacity, int sampleRate) {
+        return active().trackHotKeys(capacity, sampleRate);
+    }
+
+    /**
+     * Writes the available mappings of this map to a binary snapshot file,
+     * to be loaded by <tt>restore</tt>, e.g. across a planned restart.
+     *
+     * <p>
+     * The mappings are streamed to the file through a fixed size buffer, no
+     * copy of the map is made. Producers & consumers are not stalled : one
+     * weakly consistent pass writes the available mappings, while the keys
+     * modified meanwhile are recorded. Their state at the end of the pass is
+     * then appended as a delta. Hence the snapshot holds the mappings as they
+     * stand at the end of the pass, mappings put or taken during the pass
+     * included.
+     *
+     * <p>
+     * The snapshot is written to a temporary file, forced & moved over
+     * <tt>file</tt> once complete. An existing snapshot is replaced only by
+     * a complete one.
+     *
+     * @param file the snapshot file
+     * @param keySerializer converts keys to bytes
+     * @param valueSerializer converts values to bytes
+     * @return the number of records written, pass & delta
+     * @throws IOException if the snapshot cannot be written
+     * @throws NullPointerException if a serializer is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    public long snapshot(Path file, Serializer<K> keySerializer, Serializer<V> valueSerializer)
+            throws IOException {
+        return active().snapshot(file, keySerializer, valueSerializer);
+    }
+
+    /**
+     * Loads a snapshot written by <tt>snapshot</tt> in to this map, meant to
+     * be invoked on a new map before it is used. The mappings of the pass are
+     * deserialized & put in parallel, by tasks of the common
+     * <tt>ForkJoinPool</tt>, while the file is being read. The delta is then
+     * applied in order. Consumers already waiting on restored keys receive
+     * their mappings.
+     *
+     * @param file the snapshot file
+     * @param keySerializer converts bytes to keys
+     * @param valueSerializer converts bytes to values
+     * @return the number of records read, pass & delta
+     * @throws IOException if the file cannot be read, is not a complete
+     * snapshot or its mappings cannot be deserialized
+     * @throws NullPointerException if a serializer is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    public long restore(Path file, Serializer<K> keySerializer, Serializer<V> valueSerializer)
+            throws IOException {
+        return MapSnapshot.restore(file, keySerializer, valueSerializer, new MapSnapshot.Target<K, V>() {
+            @Override
+            public void put(K key, V value) {
+                state.put(key, value);
+            }
+
+            @Override
+            public void remove(K key) {
+                state.remove(key);
+            }
+        });
+    }
 }
@@ -4,8 +4,15 @@
  */
 package org.thavam.util.concurrent.blockingMap;
 
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
 
 /**
  * <H1>A Blocking Map</H1> Blocking map is a Map that additionally supports
@@ -292,4 +299,259 @@ public interface BlockingMap<K, V> extends Map<K, V> {
      * @throws InterruptedException if interrupted while waiting
      */
     V take(K key, long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Retrieves and removes a mapping whose key satisfies the given predicate,
+     * waiting if necessary until such a mapping becomes available or the
+     * specified time elapses.
+     *
+     * <p>
+     * This lets a consumer wait on a group of keys (e.g. all keys of a tenant)
+     * rather than a specific key. If several available mappings match, which
+     * one is taken is implementation dependent. Predicates created by
+     * {@link KeyPredicates} can be routed by implementations, so that waiting
+     * consumers are only evaluated against keys of their partition.
+     *
+     * <p>
+     * The default implementation looks for a matching key in
+     * {@link #keySet keySet} & takes it without waiting, looking again with
+     * growing pauses, up to 10 milliseconds, until the time elapses.
+     * Implementations should override it to wake consumers on put.
+     *
+     * @param predicate condition the key of the mapping should satisfy
+     * @param timeout how long to wait before giving up, in units of
+     * <tt>unit</tt>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the
+     * <tt>timeout</tt> parameter
+     * @return the mapping taken, or <tt>null</tt> if the call times out
+     * @throws NullPointerException if the specified predicate is null
+     * @throws InterruptedException if interrupted while waiting
+     */
+    default Map.Entry<K, V> takeMatching(Predicate<? super K> predicate, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        if (predicate == null) {
+            throw new NullPointerException();
+        }
+        //wraps around for very long timeouts, differences remain valid
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long pause = TimeUnit.MICROSECONDS.toNanos(100);
+        for (;;) {
+            for (K key : keySet()) {
+                if (predicate.test(key)) {
+                    V value = take(key, 0, TimeUnit.NANOSECONDS);
+                    if (value != null) {
+                        return new AbstractMap.SimpleImmutableEntry<K, V>(key, value);
+                    }
+                }
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            LockSupport.parkNanos(this, Math.min(pause, remaining));
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            pause = Math.min(pause * 2, TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map, in one
+     * pass. Keys that are already available on the map are ignored, as with
+     * put.
+     *
+     * <p>
+     * If <tt>atomic</tt> is <tt>true</tt>, the mappings become visible all at
+     * once: a consumer using {@link #takeAll takeAll} never observes only a
+     * part of the batch. Otherwise, the mappings may become visible one by
+     * one.
+     *
+     * <p>
+     * The default implementation does not support atomic publication & puts
+     * the mappings with {@link #putAll(Map) putAll(m)}, once all keys & values
+     * are checked.
+     *
+     * @param m mappings to be stored in this map
+     * @param atomic whether the batch should become visible all at once
+     * @throws UnsupportedOperationException if atomic publication is not
+     * supported by this map
+     * @throws NullPointerException if any key or value is null. Nothing is
+     * put in this case.
+     */
+    default void putAll(Map<? extends K, ? extends V> m, boolean atomic) {
+        if (atomic) {
+            throw new UnsupportedOperationException();
+        }
+        for (Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
+            if ((entry.getKey() == null) || (entry.getValue() == null)) {
+                throw new NullPointerException();
+            }
+        }
+        putAll(m);
+    }
+
+    /**
+     * Retrieves and removes the mappings of all the given keys, waiting if
+     * necessary until all of them are available or the specified time elapses.
+     * Either all the mappings are removed or none of them.
+     *
+     * <p>
+     * The default implementation takes the keys one by one & puts the
+     * mappings taken back if the time elapses or the thread is interrupted
+     * before the last one. Other consumers may therefore observe a part of
+     * the mappings missing meanwhile, & a mapping put back is ignored if its
+     * key was put again in the mean time. Implementations should override it
+     * to take all the mappings at once.
+     *
+     * @param keys keys whose mappings are to be removed from the map
+     * @param timeout how long to wait before giving up, in units of
+     * <tt>unit</tt>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the
+     * <tt>timeout</tt> parameter
+     * @return the mappings of all the keys, or <tt>null</tt> if the call times
+     * out before all of them are available
+     * @throws UnsupportedOperationException if the <tt>takeAll</tt> operation
+     * is not supported by this map
+     * @throws NullPointerException if any of the keys is null
+     * @throws InterruptedException if interrupted while waiting
+     */
+    default Map<K, V> takeAll(Collection<? extends K> keys, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        for (K key : keys) {
+            if (key == null) {
+                throw new NullPointerException();
+            }
+        }
+        //wraps around for very long timeouts, differences remain valid
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        Map<K, V> taken = new LinkedHashMap<K, V>();
+        boolean complete = false;
+        try {
+            for (K key : keys) {
+                if (!taken.containsKey(key)) {
+                    V value = take(key, Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (value == null) {
+                        return null;
+                    }
+                    taken.put(key, value);
+                }
+            }
+            complete = true;
+            return taken;
+        } finally {
+            if (!complete) {
+                for (Map.Entry<K, V> entry : taken.entrySet()) {
+                    put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Performs the given action for each available mapping. Keys on which
+     * consumers are waiting, but which have no value yet, are skipped.
+     *
+     * <p>
+     * As with the bulk operations of ConcurrentHashMap, the traversal is
+     * weakly consistent & is performed in parallel on the common
+     * <tt>ForkJoinPool</tt> when the map holds at least
+     * <tt>parallelismThreshold</tt> mappings. A threshold of
+     * <tt>Long.MAX_VALUE</tt> suppresses all parallelism, a threshold of
+     * <tt>1</tt> results in maximal parallelism.
+     *
+     * <p>
+     * The default implementation ignores the threshold & traverses
+     * {@link #keySet keySet} sequentially, looking up the value of each key
+     * with {@link #get get}.
+     *
+     * @param parallelismThreshold the (estimated) number of mappings needed
+     * for this operation to be executed in parallel
+     * @param action the action
+     * @throws NullPointerException if the action is null
+     */
+    default void forEach(long parallelismThreshold, BiConsumer<? super K, ? super V> action) {
+        if (action == null) {
+            throw new NullPointerException();
+        }
+        for (K key : keySet()) {
+            V value = get(key);
+            if (value != null) {
+                action.accept(key, value);
+            }
+        }
+    }
+
+    /**
+     * Returns a non-null result from applying the given search function on
+     * each available mapping, or null if none. Upon success, further element
+     * processing is suppressed and the results of any other parallel
+     * invocations of the search function are ignored.
+     *
+     * <p>
+     * The default implementation traverses the map sequentially, as
+     * {@link #forEach(long, BiConsumer) forEach} does.
+     *
+     * @param <U> the return type of the search function
+     * @param parallelismThreshold the (estimated) number of mappings needed
+     * for this operation to be executed in parallel
+     * @param searchFunction a function returning a non-null result on success,
+     * else null
+     * @return a non-null result from applying the given search function on
+     * some mapping, or null if none
+     * @throws NullPointerException if the search function is null
+     */
+    default <U> U search(long parallelismThreshold, BiFunction<? super K, ? super V, ? extends U> searchFunction) {
+        if (searchFunction == null) {
+            throw new NullPointerException();
+        }
+        for (K key : keySet()) {
+            V value = get(key);
+            if (value != null) {
+                U result = searchFunction.apply(key, value);
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the result of accumulating the given transformation of all
+     * available mappings using the given reducer to combine values, or null if
+     * none.
+     *
+     * <p>
+     * The default implementation traverses the map sequentially, as
+     * {@link #forEach(long, BiConsumer) forEach} does.
+     *
+     * @param <U> the return type of the transformer
+     * @param parallelismThreshold the (estimated) number of mappings needed
+     * for this operation to be executed in parallel
+     * @param transformer a function returning the transformation for a
+     * mapping, or null if there is no transformation (in which case it is not
+     * combined)
+     * @param reducer a commutative associative combining function
+     * @return the result of accumulating the given transformation of all
+     * mappings
+     * @throws NullPointerException if the transformer or reducer is null
+     */
+    default <U> U reduce(long parallelismThreshold, BiFunction<? super K, ? super V, ? extends U> transformer,
+            BiFunction<? super U, ? super U, ? extends U> reducer) {
+        if ((transformer == null) || (reducer == null)) {
+            throw new NullPointerException();
+        }
+        U result = null;
+        for (K key : keySet()) {
+            V value = get(key);
+            if (value != null) {
+                U transformed = transformer.apply(key, value);
+                if (transformed != null) {
+                    result = (result == null) ? transformed : reducer.apply(result, transformed);
+                }
+            }
+        }
+        return result;
+    }
 }
@@ -0,0 +1,233 @@
+/*
+ * BlockingMapMetrics.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Built-in {@link MetricsRecorder}. Counters are striped (<tt>LongAdder</tt>),
+ * so that producers & consumers on different cores do not contend on a shared
+ * cache line, & durations go to lock free {@link LatencyHistogram}s. Reads are
+ * meant for monitoring & are not atomic with respect to the operations
+ * recorded meanwhile.
+ *
+ * <p>
+ * Usage :
+ * <pre>
+ * BlockingMapMetrics metrics = new BlockingMapMetrics();
+ * BlockingHashMap&lt;K, V&gt; map = new BlockingHashMap&lt;K, V&gt;(metrics);
+ * ...
+ * long p99 = metrics.getHandoffLatency().getValueAtPercentile(99);
+ * </pre>
+ *
+ * @version 1.0, 19/10/26
+ */
+public class BlockingMapMetrics implements MetricsRecorder {
+
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder duplicatePuts = new LongAdder();
+    private final LongAdder takes = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder abandoned = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    /**
+     * parked minus resumed, the consumers waiting right now
+     */
+    private final LongAdder waiting = new LongAdder();
+    private final LatencyHistogram handoffLatency = new LatencyHistogram();
+    private final LatencyHistogram takeWait = new LatencyHistogram();
+    /**
+     * waiting consumers ordered by the time they parked at, the first is the
+     * oldest. Entries are reused by their thread, hence parking allocates only
+     * once per consumer thread
+     */
+    private final ConcurrentSkipListSet<Parked> parked = new ConcurrentSkipListSet<Parked>();
+    private final ThreadLocal<Parked> currentParked = new ThreadLocal<Parked>() {
+        @Override
+        protected Parked initialValue() {
+            return new Parked(Thread.currentThread().getId());
+        }
+    };
+
+    /**
+     * Waiting consumer thread, mutated only while out of the set
+     */
+    private static final class Parked implements Comparable<Parked> {
+
+        private final long threadId;
+        private long since;
+
+        Parked(long threadId) {
+            this.threadId = threadId;
+        }
+
+        @Override
+        public int compareTo(Parked other) {
+            int order = Long.compare(since - other.since, 0);
+            return (order != 0) ? order : Long.compare(threadId, other.threadId);
+        }
+    }
+
+    @Override
+    public void published() {
+        puts.increment();
+    }
+
+    @Override
+    public void duplicatePut() {
+        duplicatePuts.increment();
+    }
+
+    @Override
+    public void taken(long waitNanos, long handoffNanos) {
+        takes.increment();
+        takeWait.record(waitNanos);
+        handoffLatency.record(handoffNanos);
+    }
+
+    @Override
+    public void timedOut(long waitNanos) {
+        timeouts.increment();
+        takeWait.record(waitNanos);
+    }
+
+    @Override
+    public void waiterParked() {
+        waiting.increment();
+        Parked current = currentParked.get();
+        current.since = System.nanoTime();
+        parked.add(current);
+    }
+
+    @Override
+    public void waiterResumed() {
+        parked.remove(currentParked.get());
+        waiting.decrement();
+    }
+
+    @Override
+    public void abandonedOnShutdown(int waiters) {
+        abandoned.add(waiters);
+    }
+
+    @Override
+    public void discardedOnShutdown(int mappings) {
+        discarded.add(mappings);
+    }
+
+    /**
+     * Returns the number of mappings put.
+     *
+     * @return the number of puts
+     */
+    public long getPutCount() {
+        return puts.sum();
+    }
+
+    /**
+     * Returns the number of puts ignored because their key was available.
+     *
+     * @return the number of duplicate puts
+     */
+    public long getDuplicatePutCount() {
+        return duplicatePuts.sum();
+    }
+
+    /**
+     * Returns the number of mappings taken.
+     *
+     * @return the number of takes
+     */
+    public long getTakeCount() {
+        return takes.sum();
+    }
+
+    /**
+     * Returns the number of timed takes that gave up.
+     *
+     * @return the number of timeouts
+     */
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    /**
+     * Returns the number of consumers woken without a mapping by the shutdown
+     * of the map.
+     *
+     * @return the number of abandoned consumers
+     */
+    public long getAbandonedCount() {
+        return abandoned.sum();
+    }
+
+    /**
+     * Returns the number of consumers currently waiting for a mapping.
+     *
+     * @return the number of waiting consumers
+     */
+    public long getWaitingCount() {
+        return Math.max(0, waiting.sum());
+    }
+
+    /**
+     * Returns the number of mappings available, put but not taken yet.
+     * Maintained from the counters, hence does not scan the map.
+     *
+     * @return the number of available mappings
+     */
+    public long getAvailableCount() {
+        //takes first, so that a concurrent handoff is not counted negative
+        long taken = takes.sum() + discarded.sum();
+        return Math.max(0, puts.sum() - taken);
+    }
+
+    /**
+     * Returns how long the consumer waiting for the longest time has been
+     * waiting for its mapping.
+     *
+     * @return the wait of the oldest waiting consumer in nanoseconds, 0 if
+     * none is waiting
+     */
+    public long getOldestWaitNanos() {
+        Parked oldest;
+        try {
+            oldest = parked.first();
+        } catch (NoSuchElementException ex) {
+            return 0;
+        }
+        return Math.max(0, System.nanoTime() - oldest.since);
+    }
+
+    /**
+     * Returns the histogram of the time from the put of a mapping to its
+     * take.
+     *
+     * @return the handoff latency histogram
+     */
+    public LatencyHistogram getHandoffLatency() {
+        return handoffLatency;
+    }
+
+    /**
+     * Returns the histogram of the time consumers waited, for takes &
+     * timeouts.
+     *
+     * @return the take wait histogram
+     */
+    public LatencyHistogram getTakeWait() {
+        return takeWait;
+    }
+
+    @Override
+    public String toString() {
+        return "puts=" + getPutCount() + " duplicates=" + getDuplicatePutCount() + " takes=" + getTakeCount()
+                + " timeouts=" + getTimeoutCount() + " abandoned=" + getAbandonedCount()
+                + " available=" + getAvailableCount() + " waiting=" + getWaitingCount() + " handoff[" + handoffLatency + "] wait[" + takeWait + "]";
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * BlockingMapReplica.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Standby end of a {@link BlockingMapReplicator}. Listens for the connection
+ * of the replicator of the primary & applies the batches it receives to a
+ * standby {@link BlockingHashMap} : puts are put, takes remove their key &
+ * a clear of the primary drops the mappings of the standby, which is not shut
+ * down. Each batch is acknowledged once applied.
+ *
+ * <p>
+ * One primary is served at a time; a new connection is accepted once the
+ * current one is closed. The standby map should not be used by producers or
+ * consumers before it takes over.
+ *
+ * @param <K> the type of keys maintained by the map
+ * @param <V> the type of mapped values
+ * @version 1.0, 19/10/26
+ */
+public class BlockingMapReplica<K, V> implements Closeable {
+
+    private final BlockingHashMap<K, V> standby;
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private final ServerSocketChannel serverChannel;
+    private final Thread applier;
+    private final AtomicLong appliedRecords = new AtomicLong();
+    private volatile long appliedSequence = -1;
+    private volatile SocketChannel connection;
+    private volatile boolean closed = false;
+
+    /**
+     * Binds the replica to the given address & starts applying the batches
+     * of the replicator once it connects.
+     *
+     * @param standby the standby map
+     * @param keySerializer converts bytes to keys, as on the primary
+     * @param valueSerializer converts bytes to values, as on the primary
+     * @param bindAddress address to listen on, port 0 for any free port
+     * @throws IOException if the address cannot be bound
+     */
+    public BlockingMapReplica(BlockingHashMap<K, V> standby, Serializer<K> keySerializer,
+            Serializer<V> valueSerializer, InetSocketAddress bindAddress) throws IOException {
+        if ((standby == null) || (keySerializer == null) || (valueSerializer == null)) {
+            throw new NullPointerException();
+        }
+        this.standby = standby;
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        this.serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(bindAddress);
+        } catch (IOException ex) {
+            serverChannel.close();
+            throw ex;
+        }
+        this.applier = new Thread(this::acceptLoop, "blocking-map-replica");
+        this.applier.setDaemon(true);
+        this.applier.start();
+    }
+
+    /**
+     * Returns the address the replica listens on.
+     *
+     * @return the bound address
+     * @throws IOException if the address cannot be read
+     */
+    public InetSocketAddress getLocalAddress() throws IOException {
+        return (InetSocketAddress) serverChannel.getLocalAddress();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try (SocketChannel accepted = serverChannel.accept()) {
+                accepted.socket().setTcpNoDelay(true);
+                connection = accepted;
+                if (closed) {
+                    return;
+                }
+                apply(accepted);
+            } catch (IOException ex) {
+                if (!closed) {
+                    Logger.getLogger(BlockingMapReplica.class.getName()).log(Level.WARNING,
+                            "replication connection lost : " + ex);
+                }
+            } finally {
+                connection = null;
+            }
+        }
+    }
+
+    /**
+     * Applies batches till the connection is closed
+     */
+    private void apply(SocketChannel accepted) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(accepted),
+                64 * 1024));
+        ByteBuffer acknowledgement = ByteBuffer.allocate(8);
+        for (;;) {
+            int length = in.readInt();
+            if ((length < ReplicationProtocol.BATCH_HEADER) || (length > ReplicationProtocol.MAX_FRAME)) {
+                throw new IOException("invalid frame length " + length);
+            }
+            long through = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                byte type = in.readByte();
+                byte[] key = bytes(in);
+                byte[] value = bytes(in);
+                switch (type) {
+                    case ReplicationProtocol.PUT:
+                    case ReplicationProtocol.ENTRY:
+                        standby.put(keySerializer.fromBytes(key), valueSerializer.fromBytes(value));
+                        break;
+                    case ReplicationProtocol.TAKE:
+                        standby.remove(keySerializer.fromBytes(key));
+                        break;
+                    case ReplicationProtocol.CLEAR:
+                    case ReplicationProtocol.RESET:
+                        removeAll();
+                        break;
+                    default:
+                        throw new IOException("unknown record type " + type);
+                }
+            }
+            appliedRecords.addAndGet(count);
+            appliedSequence = through;
+            acknowledgement.clear();
+            acknowledgement.putLong(0, through);
+            while (acknowledgement.hasRemaining()) {
+                accepted.write(acknowledgement);
+            }
+        }
+    }
+
+    private static byte[] bytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] b = new byte[length];
+        in.readFully(b);
+        return b;
+    }
+
+    /**
+     * Drops the mappings of the standby, which stays active
+     */
+    private void removeAll() {
+        List<K> keys = new ArrayList<K>(standby.keySet());
+        for (K key : keys) {
+            standby.remove(key);
+        }
+    }
+
+    /**
+     * Returns whether a replicator is connected.
+     *
+     * @return true if connected
+     */
+    public boolean isConnected() {
+        return connection != null;
+    }
+
+    /**
+     * Returns the sequence of the last change feed event of the primary
+     * applied, -1 if none.
+     *
+     * @return the last sequence applied
+     */
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    /**
+     * Returns the number of records applied, events & transferred mappings.
+     *
+     * @return the number of records applied
+     */
+    public long getAppliedRecords() {
+        return appliedRecords.get();
+    }
+
+    /**
+     * Stops listening & closes the connection. The standby map is not shut
+     * down.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            serverChannel.close();
+            SocketChannel current = connection;
+            if (current != null) {
+                current.close();
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(BlockingMapReplica.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        try {
+            applier.join();
+        } catch (InterruptedException ex) {
+            Logger.getLogger(BlockingMapReplica.class.getName()).log(Level.SEVERE, null, ex);
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,371 @@
+/*
+ * BlockingMapReplicator.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Replicates a {@link BlockingHashMap} to a standby map served by a
+ * {@link BlockingMapReplica}, typically in another process on the same host.
+ * Pending values put on the primary are hence already present on the standby
+ * when it takes over.
+ *
+ * <p>
+ * Replication is asynchronous : the primary only publishes its changes on its
+ * {@link ChangeFeed}, which never blocks producers or consumers. A shipping
+ * thread reads the feed, batches the events available & writes each batch
+ * without waiting for the acknowledgement of the previous ones. The lag of the
+ * standby is exposed as a number of events & as the age of the oldest batch
+ * not yet acknowledged.
+ *
+ * <p>
+ * On connection, the standby is brought up to date by a full transfer of the
+ * available mappings, followed by the events published since the transfer
+ * started. The same happens after a lost connection is re-established & when
+ * the shipping thread falls behind the capacity of the feed.
+ *
+ * @param <K> the type of keys maintained by the map
+ * @param <V> the type of mapped values
+ * @version 1.0, 19/10/26
+ */
+public class BlockingMapReplicator<K, V> implements Closeable {
+
+    /**
+     * most events shipped in one batch
+     */
+    private static final int MAX_BATCH = 1024;
+    private static final long POLL_MILLIS = 50;
+    private static final long RECONNECT_MILLIS = 100;
+
+    private final BlockingHashMap<K, V> primary;
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private final InetSocketAddress standbyAddress;
+    private final ChangeFeed<K, V> feed;
+    private final Thread shipper;
+    private final ReplicationProtocol.BatchWriter batch = new ReplicationProtocol.BatchWriter();
+    /**
+     * batches written & not acknowledged yet : through sequence & send time
+     */
+    private final Queue<long[]> inFlight = new ConcurrentLinkedQueue<long[]>();
+    private final AtomicLong shippedEvents = new AtomicLong();
+    private final AtomicLong resyncs = new AtomicLong();
+    private volatile long shippedSequence = -1;
+    private volatile long acknowledgedSequence = -1;
+    private volatile SocketChannel channel;
+    /**
+     * whether the full transfer of the current connection has been shipped
+     */
+    private volatile boolean transferred = false;
+    private volatile boolean closed = false;
+
+    /**
+     * Starts replicating the given map to the standby at the given address.
+     * The connection is established, & re-established once lost, by the
+     * shipping thread.
+     *
+     * @param primary the map replicated
+     * @param keySerializer converts keys to bytes, as on the standby
+     * @param valueSerializer converts values to bytes, as on the standby
+     * @param standbyAddress address of the BlockingMapReplica
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    public BlockingMapReplicator(BlockingHashMap<K, V> primary, Serializer<K> keySerializer,
+            Serializer<V> valueSerializer, InetSocketAddress standbyAddress) {
+        if ((primary == null) || (keySerializer == null) || (valueSerializer == null)
+                || (standbyAddress == null)) {
+            throw new NullPointerException();
+        }
+        this.primary = primary;
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        this.standbyAddress = standbyAddress;
+        this.feed = primary.changeFeed();
+        this.shipper = new Thread(this::shipLoop, "blocking-map-replicator-" + standbyAddress);
+        this.shipper.setDaemon(true);
+        this.shipper.start();
+    }
+
+    private void shipLoop() {
+        ChangeFeed.Subscription<K, V> subscription = null;
+        while (!closed) {
+            try {
+                if (channel == null) {
+                    connect();
+                    subscription = null;
+                }
+                if (subscription == null) {
+                    transferred = false;
+                    //subscribed before the transfer, events it already
+                    //reflects are applied again harmlessly
+                    subscription = feed.subscribe();
+                    transfer(subscription.getNextSequence() - 1);
+                    transferred = true;
+                }
+                ship(subscription);
+            } catch (ChangeFeed.LaggedException ex) {
+                resyncs.incrementAndGet();
+                subscription = null;
+            } catch (IOException ex) {
+                if (!closed) {
+                    Logger.getLogger(BlockingMapReplicator.class.getName()).log(Level.WARNING,
+                            "replication to " + standbyAddress + " interrupted : " + ex);
+                    disconnect(channel);
+                    pause();
+                }
+            } catch (InterruptedException ex) {
+                //closed
+            }
+        }
+        disconnect(channel);
+    }
+
+    private void connect() throws IOException {
+        SocketChannel connected = SocketChannel.open(standbyAddress);
+        connected.socket().setTcpNoDelay(true);
+        inFlight.clear();
+        channel = connected;
+        Thread acknowledgements = new Thread(() -> readAcknowledgements(connected),
+                "blocking-map-replicator-acks-" + standbyAddress);
+        acknowledgements.setDaemon(true);
+        acknowledgements.start();
+    }
+
+    /**
+     * Closes the connection & makes the shipping thread reconnect, unless it
+     * already has
+     */
+    private synchronized void disconnect(SocketChannel connection) {
+        if (connection == null) {
+            return;
+        }
+        if (channel == connection) {
+            channel = null;
+            transferred = false;
+        }
+        try {
+            connection.close();
+        } catch (IOException ex) {
+            Logger.getLogger(BlockingMapReplicator.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(RECONNECT_MILLIS);
+        } catch (InterruptedException ex) {
+            //closed
+        }
+    }
+
+    /**
+     * Sends a RESET & all available mappings of the primary
+     */
+    private void transfer(final long through) throws IOException {
+        batch.record(ReplicationProtocol.RESET, null, null);
+        final List<Map.Entry<K, V>> entries = new ArrayList<Map.Entry<K, V>>();
+        try {
+            //sequential pass over the latch table
+            primary.forEach(Long.MAX_VALUE,
+                    (key, value) -> entries.add(new AbstractMap.SimpleImmutableEntry<K, V>(key, value)));
+        } catch (IllegalStateException ex) {
+            //primary shut down, nothing left to transfer
+        }
+        for (Map.Entry<K, V> entry : entries) {
+            batch.record(ReplicationProtocol.ENTRY, keySerializer.toBytes(entry.getKey()),
+                    valueSerializer.toBytes(entry.getValue()));
+            if (batch.count() == MAX_BATCH) {
+                write(through);
+            }
+        }
+        write(through);
+    }
+
+    /**
+     * Waits for events & ships those available as one batch
+     */
+    private void ship(ChangeFeed.Subscription<K, V> subscription)
+            throws ChangeFeed.LaggedException, InterruptedException, IOException {
+        ChangeFeed.Event<K, V> event = subscription.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (event == null) {
+            if (subscription.getNextSequence() - 1 > shippedSequence) {
+                //placeholders of ignored puts skipped, acknowledged as well
+                write(subscription.getNextSequence() - 1);
+            }
+            return;
+        }
+        int events = 0;
+        do {
+            events++;
+            switch (event.getType()) {
+                case PUT:
+                    batch.record(ReplicationProtocol.PUT, keySerializer.toBytes(event.getKey()),
+                            valueSerializer.toBytes(event.getValue()));
+                    break;
+                case TAKE:
+                    batch.record(ReplicationProtocol.TAKE, keySerializer.toBytes(event.getKey()), null);
+                    break;
+                case CLEAR:
+                    batch.record(ReplicationProtocol.CLEAR, null, null);
+                    break;
+                default:
+                    //expired takes leave the map unchanged
+                    break;
+            }
+        } while ((events < MAX_BATCH) && ((event = subscription.poll()) != null));
+        //placeholders skipped by the subscription included
+        write(subscription.getNextSequence() - 1);
+        shippedEvents.addAndGet(events);
+    }
+
+    private void write(long through) throws IOException {
+        SocketChannel current = channel;
+        if (current == null) {
+            throw new IOException("not connected");
+        }
+        ByteBuffer frame = batch.frame(through);
+        inFlight.add(new long[]{through, System.nanoTime()});
+        while (frame.hasRemaining()) {
+            current.write(frame);
+        }
+        shippedSequence = through;
+    }
+
+    private void readAcknowledgements(SocketChannel connection) {
+        ByteBuffer acknowledgement = ByteBuffer.allocate(8);
+        try {
+            for (;;) {
+                acknowledgement.clear();
+                while (acknowledgement.hasRemaining()) {
+                    if (connection.read(acknowledgement) < 0) {
+                        throw new EOFException();
+                    }
+                }
+                long through = acknowledgement.getLong(0);
+                acknowledgedSequence = through;
+                //one acknowledgement per batch, in order. The batches of a
+                //transfer share their sequence, hence are not matched by it
+                inFlight.poll();
+            }
+        } catch (IOException ex) {
+            //closed by the standby, possibly with batches lost in flight
+        }
+        disconnect(connection);
+    }
+
+    /**
+     * Returns whether the replicator is connected to the standby.
+     *
+     * @return true if connected
+     */
+    public boolean isConnected() {
+        return channel != null;
+    }
+
+    /**
+     * Returns whether the standby has applied the full transfer & all the
+     * changes of the primary published so far.
+     *
+     * @return true if the standby is up to date
+     */
+    public boolean isCaughtUp() {
+        return (channel != null) && transferred && inFlight.isEmpty() && (getLagEvents() == 0);
+    }
+
+    /**
+     * Returns the sequence of the last change feed event shipped to the
+     * standby, -1 if none.
+     *
+     * @return the last sequence shipped
+     */
+    public long getShippedSequence() {
+        return shippedSequence;
+    }
+
+    /**
+     * Returns the sequence of the last change feed event applied by the
+     * standby, -1 if none.
+     *
+     * @return the last sequence acknowledged
+     */
+    public long getAcknowledgedSequence() {
+        return acknowledgedSequence;
+    }
+
+    /**
+     * Returns the number of changes of the primary not yet applied by the
+     * standby.
+     *
+     * @return the lag in events
+     */
+    public long getLagEvents() {
+        return Math.max(0, feed.getNextSequence() - 1 - acknowledgedSequence);
+    }
+
+    /**
+     * Returns how long the oldest batch shipped & not yet acknowledged has
+     * been in flight, 0 if the standby is up to date with what was shipped.
+     *
+     * @return the lag in nanoseconds
+     */
+    public long getLagNanos() {
+        long[] oldest = inFlight.peek();
+        return (oldest == null) ? 0 : Math.max(0, System.nanoTime() - oldest[1]);
+    }
+
+    /**
+     * Returns the number of change feed events shipped.
+     *
+     * @return the number of events shipped
+     */
+    public long getShippedEvents() {
+        return shippedEvents.get();
+    }
+
+    /**
+     * Returns the number of full transfers caused by the shipping thread
+     * falling behind the change feed.
+     *
+     * @return the number of resyncs
+     */
+    public long getResyncCount() {
+        return resyncs.get();
+    }
+
+    /**
+     * Stops replicating & closes the connection. Neither map is shut down.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        shipper.interrupt();
+        disconnect(channel);
+        try {
+            shipper.join();
+        } catch (InterruptedException ex) {
+            Logger.getLogger(BlockingMapReplicator.class.getName()).log(Level.SEVERE, null, ex);
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,493 @@
+/*
+ * BlockingMapServer.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serves a {@link BlockingHashMap} over TCP to {@link RemoteBlockingMap}
+ * clients, with the pipelined binary protocol of {@link RemoteProtocol}.
+ *
+ * <p>
+ * One selector thread accepts connections, reads & decodes requests &
+ * executes them. put, get, remove, isKeyAvailable, size & the listing of
+ * the available keys never block & are answered at once. A take is registered with
+ * {@link BlockingHashMap#takeAsync(Object)} : no thread waits for the
+ * mapping, the response is queued by the producer thread completing the take
+ * & written by the selector thread. Timeouts of takes are kept in a deadline
+ * queue of the selector thread. Responses queued for a connection are written
+ * together with one gathering write.
+ *
+ * <p>
+ * When a connection closes, its pending takes are withdrawn. A value handed
+ * to a take whose response could not be written before the connection closed
+ * is lost (at most once delivery).
+ *
+ * @param <K> the type of keys maintained by the map
+ * @param <V> the type of mapped values
+ * @version 1.0, 19/10/26
+ */
+public class BlockingMapServer<K, V> implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /**
+     * responses written by one gathering write
+     */
+    private static final int WRITE_BATCH = 64;
+
+    private final BlockingHashMap<K, V> map;
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final Thread selectorThread;
+    /**
+     * connections with responses queued by producer threads, to be flushed by
+     * the selector thread
+     */
+    private final Queue<Connection> flushQueue = new ConcurrentLinkedQueue<Connection>();
+    /**
+     * futures of the takes with a timeout, by deadline. Added & expired by
+     * the selector thread, removed by the thread completing the take
+     */
+    private final ConcurrentNavigableMap<PendingTake, CompletableFuture<?>> deadlines
+            = new ConcurrentSkipListMap<PendingTake, CompletableFuture<?>>(
+                    Comparator.comparingLong((PendingTake take) -> take.deadline)
+                    .thenComparingLong(take -> take.sequence));
+    /**
+     * sequence of the pending takes, orders takes of the same deadline.
+     * Accessed by the selector thread only
+     */
+    private long takeSequence = 0;
+    private volatile boolean closed = false;
+
+    /**
+     * Take waiting for its mapping or its deadline
+     */
+    private static final class PendingTake {
+
+        final long deadline;
+        final long sequence;
+
+        PendingTake(long deadline, long sequence) {
+            this.deadline = deadline;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * Binds the server to the given address & starts the selector thread.
+     *
+     * @param map the map served
+     * @param keySerializer converts keys to bytes & back
+     * @param valueSerializer converts values to bytes & back
+     * @param bindAddress address to listen on, port 0 for any free port
+     * @throws IOException if the address cannot be bound
+     */
+    public BlockingMapServer(BlockingHashMap<K, V> map, Serializer<K> keySerializer,
+            Serializer<V> valueSerializer, InetSocketAddress bindAddress) throws IOException {
+        if ((map == null) || (keySerializer == null) || (valueSerializer == null)) {
+            throw new NullPointerException();
+        }
+        this.map = map;
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(bindAddress);
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException ex) {
+            serverChannel.close();
+            selector.close();
+            throw ex;
+        }
+        this.selectorThread = new Thread(this::selectLoop, "blocking-map-server");
+        this.selectorThread.setDaemon(true);
+        this.selectorThread.start();
+    }
+
+    /**
+     * Returns the address the server listens on.
+     *
+     * @return the bound address
+     * @throws IOException if the address cannot be read
+     */
+    public InetSocketAddress getLocalAddress() throws IOException {
+        return (InetSocketAddress) serverChannel.getLocalAddress();
+    }
+
+    /**
+     * Stops the server & closes all connections. Pending remote takes are
+     * withdrawn. The map itself is not shut down.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        selector.wakeup();
+        try {
+            selectorThread.join();
+        } catch (InterruptedException ex) {
+            Logger.getLogger(BlockingMapServer.class.getName()).log(Level.SEVERE, null, ex);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void selectLoop() {
+        try {
+            while (!closed) {
+                selector.select(selectTimeout());
+                expireTakes();
+                Connection connection;
+                while ((connection = flushQueue.poll()) != null) {
+                    connection.flushScheduled.set(false);
+                    connection.flush();
+                }
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        connection = connectionOf(key);
+                        if (key.isReadable()) {
+                            connection.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.flush();
+                        }
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+        } catch (IOException | RuntimeException ex) {
+            Logger.getLogger(BlockingMapServer.class.getName()).log(Level.SEVERE, null, ex);
+        } finally {
+            shutdown();
+        }
+    }
+
+    /**
+     * Milliseconds till the next take deadline, 0 to wait till woken up
+     */
+    private long selectTimeout() {
+        Map.Entry<PendingTake, CompletableFuture<?>> next = deadlines.firstEntry();
+        if (next == null) {
+            return 0;
+        }
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(next.getKey().deadline - System.nanoTime()) + 1);
+    }
+
+    /**
+     * Completes takes whose deadline has passed with <tt>null</tt>. A value
+     * handed to one of them meanwhile is passed on by the map.
+     */
+    private void expireTakes() {
+        long now = System.nanoTime();
+        Map.Entry<PendingTake, CompletableFuture<?>> next;
+        while (((next = deadlines.firstEntry()) != null) && (next.getKey().deadline - now <= 0)) {
+            deadlines.remove(next.getKey());
+            next.getValue().complete(null);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        key.attach(new Connection(channel, key));
+    }
+
+    /**
+     * Returns the connection attached to a key, null for the server key
+     */
+    @SuppressWarnings("unchecked")
+    private Connection connectionOf(SelectionKey key) {
+        return (Connection) key.attachment();
+    }
+
+    private void shutdown() {
+        for (SelectionKey key : selector.keys()) {
+            //only connection keys have an attachment
+            if (key.attachment() != null) {
+                connectionOf(key).close();
+            }
+        }
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException ex) {
+            Logger.getLogger(BlockingMapServer.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    /**
+     * Encodes the available keys, read by a weakly consistent traversal
+     */
+    private byte[] keys() {
+        List<byte[]> keys = new ArrayList<byte[]>();
+        int length = 4;
+        for (K key : map.keySet()) {
+            byte[] bytes = keySerializer.toBytes(key);
+            keys.add(bytes);
+            length += 4 + bytes.length;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        payload.putInt(keys.size());
+        for (byte[] key : keys) {
+            payload.putInt(key.length).put(key);
+        }
+        return payload.array();
+    }
+
+    private byte[] valueBytes(V value) {
+        return (value == null) ? null : valueSerializer.toBytes(value);
+    }
+
+    /**
+     * A client connection. Reads & the interest set are handled by the
+     * selector thread only; responses may be queued by any thread.
+     */
+    private final class Connection {
+
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+        private final Queue<ByteBuffer> out = new ConcurrentLinkedQueue<ByteBuffer>();
+        private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+        /**
+         * takes waiting for their mapping, by request id
+         */
+        private final Map<Long, CompletableFuture<V>> takes = new ConcurrentHashMap<Long, CompletableFuture<V>>();
+        private volatile boolean open = true;
+
+        Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        /**
+         * Reads available bytes & executes the complete requests received
+         */
+        void read() {
+            int read;
+            try {
+                read = channel.read(in);
+            } catch (IOException ex) {
+                read = -1;
+            }
+            if (read < 0) {
+                close();
+                return;
+            }
+            in.flip();
+            while (in.remaining() >= 4) {
+                int length = in.getInt(in.position());
+                if ((length < RemoteProtocol.REQUEST_HEADER) || (length > RemoteProtocol.MAX_FRAME)) {
+                    Logger.getLogger(BlockingMapServer.class.getName()).log(Level.WARNING,
+                            "invalid frame length {0}, connection closed", length);
+                    close();
+                    return;
+                }
+                if (in.remaining() < 4 + length) {
+                    if (4 + length > in.capacity()) {
+                        ByteBuffer larger = ByteBuffer.allocate(4 + length);
+                        larger.put(in);
+                        larger.flip();
+                        in = larger;
+                    }
+                    break;
+                }
+                in.getInt();
+                if (!execute(length)) {
+                    return;
+                }
+            }
+            in.compact();
+            flush();
+        }
+
+        /**
+         * Decodes & executes one request of the given length
+         *
+         * @return false if the request is malformed & the connection closed
+         */
+        private boolean execute(int length) {
+            long id = in.getLong();
+            byte op = in.get();
+            long argument = in.getLong();
+            int keyLength = in.getInt();
+            if ((keyLength < 0) || (keyLength > length - RemoteProtocol.REQUEST_HEADER)) {
+                Logger.getLogger(BlockingMapServer.class.getName()).log(Level.WARNING,
+                        "invalid key length {0}, connection closed", keyLength);
+                close();
+                return false;
+            }
+            byte[] keyBytes = new byte[keyLength];
+            in.get(keyBytes);
+            byte[] valueBytes = new byte[length - RemoteProtocol.REQUEST_HEADER - keyLength];
+            in.get(valueBytes);
+            try {
+                switch (op) {
+                    case RemoteProtocol.PUT:
+                        send(RemoteProtocol.value(id, valueBytes(map.put(
+                                keySerializer.fromBytes(keyBytes), valueSerializer.fromBytes(valueBytes)))));
+                        break;
+                    case RemoteProtocol.GET:
+                        send(RemoteProtocol.value(id, valueBytes(map.get(keySerializer.fromBytes(keyBytes)))));
+                        break;
+                    case RemoteProtocol.REMOVE:
+                        send(RemoteProtocol.value(id, valueBytes(map.remove(keySerializer.fromBytes(keyBytes)))));
+                        break;
+                    case RemoteProtocol.CONTAINS:
+                        send(RemoteProtocol.response(id, RemoteProtocol.VALUE, RemoteProtocol.booleanBytes(
+                                map.isKeyAvailable(keySerializer.fromBytes(keyBytes)))));
+                        break;
+                    case RemoteProtocol.SIZE:
+                        send(RemoteProtocol.response(id, RemoteProtocol.VALUE, RemoteProtocol.intBytes(map.size())));
+                        break;
+                    case RemoteProtocol.KEYS:
+                        send(RemoteProtocol.response(id, RemoteProtocol.VALUE, keys()));
+                        break;
+                    case RemoteProtocol.TAKE:
+                        take(id, keySerializer.fromBytes(keyBytes), argument);
+                        break;
+                    case RemoteProtocol.CANCEL:
+                        //answered through the response of the take
+                        CompletableFuture<V> take = takes.get(argument);
+                        if (take != null) {
+                            take.complete(null);
+                        }
+                        break;
+                    default:
+                        throw new UnsupportedOperationException("op " + op);
+                }
+            } catch (RuntimeException ex) {
+                send(RemoteProtocol.error(id, ex));
+            }
+            return true;
+        }
+
+        private void take(final long id, K key, long timeoutMillis) {
+            CompletableFuture<V> future = map.takeAsync(key);
+            takes.put(id, future);
+            future.whenComplete((value, error) -> {
+                takes.remove(id);
+                ByteBuffer response = (error == null)
+                        ? RemoteProtocol.value(id, valueBytes(value))
+                        : RemoteProtocol.error(id, error);
+                send(response);
+                scheduleFlush();
+            });
+            if ((timeoutMillis >= 0) && !future.isDone()) {
+                final PendingTake pending = new PendingTake(
+                        System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis), takeSequence++);
+                deadlines.put(pending, future);
+                //dropped as soon as completed, by a value or its deadline
+                future.whenComplete((value, error) -> deadlines.remove(pending));
+            }
+        }
+
+        void send(ByteBuffer response) {
+            if (open) {
+                out.add(response);
+            }
+        }
+
+        /**
+         * Asks the selector thread to flush this connection, once
+         */
+        private void scheduleFlush() {
+            if (flushScheduled.compareAndSet(false, true)) {
+                flushQueue.add(this);
+                if (Thread.currentThread() != selectorThread) {
+                    selector.wakeup();
+                }
+            }
+        }
+
+        /**
+         * Writes queued responses, a batch per gathering write, till the socket
+         * buffer is full
+         */
+        void flush() {
+            if (!open) {
+                return;
+            }
+            List<ByteBuffer> batch = new ArrayList<ByteBuffer>(WRITE_BATCH);
+            try {
+                while (!out.isEmpty()) {
+                    batch.clear();
+                    for (ByteBuffer response : out) {
+                        batch.add(response);
+                        if (batch.size() == WRITE_BATCH) {
+                            break;
+                        }
+                    }
+                    channel.write(batch.toArray(new ByteBuffer[batch.size()]));
+                    for (ByteBuffer response : batch) {
+                        if (response.hasRemaining()) {
+                            //socket buffer full, resumed when writable
+                            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                            return;
+                        }
+                        out.poll();
+                    }
+                }
+                key.interestOps(SelectionKey.OP_READ);
+            } catch (IOException ex) {
+                close();
+            }
+        }
+
+        /**
+         * Closes the channel & withdraws the pending takes
+         */
+        void close() {
+            open = false;
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                Logger.getLogger(BlockingMapServer.class.getName()).log(Level.SEVERE, null, ex);
+            }
+            for (CompletableFuture<V> take : takes.values()) {
+                take.complete(null);
+            }
+            out.clear();
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * BlockingMapStatistics.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * Exposes the {@link BlockingMapMetrics} of a map as an MBean of the platform
+ * MBean server, named
+ * <tt>org.thavam.util.concurrent.blockingMap:type=BlockingHashMap,name=&lt;name&gt;</tt>.
+ * {@link BlockingHashMap#BlockingHashMap(String)} registers one for the map
+ * it creates & unregisters it on shutdown.
+ *
+ * <p>
+ * Attributes are derived from the counters & histograms of the metrics.
+ * Rates are exponentially weighted averages over one minute, advanced in
+ * steps of five seconds when read, hence they do not depend on how often the
+ * MBean is polled, nor need a thread of their own.
+ *
+ * @version 1.0, 19/10/26
+ */
+public class BlockingMapStatistics implements BlockingMapStatisticsMBean {
+
+    /**
+     * domain of the MBeans registered
+     */
+    public static final String DOMAIN = "org.thavam.util.concurrent.blockingMap";
+    private final String name;
+    private final ObjectName objectName;
+    private final BlockingMapMetrics metrics;
+    private final Rate putRate = new Rate();
+    private final Rate takeRate = new Rate();
+    private final Rate timeoutRate = new Rate();
+
+    /**
+     * Creates the statistics of the given metrics, not registered yet.
+     *
+     * @param name name of the map, unique in the platform MBean server
+     * @param metrics metrics the map was created with
+     * @throws NullPointerException if the name or the metrics are null
+     * @throws IllegalArgumentException if the name is not valid in an
+     * <tt>ObjectName</tt>
+     */
+    public BlockingMapStatistics(String name, BlockingMapMetrics metrics) {
+        if ((name == null) || (metrics == null)) {
+            throw new NullPointerException();
+        }
+        this.name = name;
+        this.metrics = metrics;
+        try {
+            this.objectName = new ObjectName(DOMAIN + ":type=BlockingHashMap,name=" + ObjectName.quote(name));
+        } catch (MalformedObjectNameException ex) {
+            throw new IllegalArgumentException("invalid map name : " + name, ex);
+        }
+    }
+
+    /**
+     * Registers this MBean in the platform MBean server.
+     *
+     * @throws IllegalArgumentException if an MBean is already registered
+     * under the name
+     * @throws IllegalStateException if the registration fails
+     */
+    public void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(this, objectName);
+        } catch (InstanceAlreadyExistsException ex) {
+            throw new IllegalArgumentException("a map is already registered as " + name, ex);
+        } catch (JMException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Unregisters this MBean from the platform MBean server, does nothing if
+     * it is not registered.
+     */
+    public void unregister() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (InstanceNotFoundException ex) {
+            //not registered
+        } catch (JMException ex) {
+            Logger.getLogger(BlockingMapStatistics.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    /**
+     * Returns the name this MBean is registered under.
+     *
+     * @return the object name
+     */
+    public ObjectName getObjectName() {
+        return objectName;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getAvailableCount() {
+        return metrics.getAvailableCount();
+    }
+
+    @Override
+    public long getPendingWaiterCount() {
+        return metrics.getWaitingCount();
+    }
+
+    @Override
+    public long getOldestPendingAgeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(metrics.getOldestWaitNanos());
+    }
+
+    @Override
+    public long getPutCount() {
+        return metrics.getPutCount();
+    }
+
+    @Override
+    public long getTakeCount() {
+        return metrics.getTakeCount();
+    }
+
+    @Override
+    public long getTimeoutCount() {
+        return metrics.getTimeoutCount();
+    }
+
+    @Override
+    public double getPutRate() {
+        return putRate.perSecond(metrics.getPutCount(), System.nanoTime());
+    }
+
+    @Override
+    public double getTakeRate() {
+        return takeRate.perSecond(metrics.getTakeCount(), System.nanoTime());
+    }
+
+    @Override
+    public double getTimeoutRate() {
+        return timeoutRate.perSecond(metrics.getTimeoutCount(), System.nanoTime());
+    }
+
+    @Override
+    public long getWaitP50Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(metrics.getTakeWait().getValueAtPercentile(50));
+    }
+
+    @Override
+    public long getWaitP99Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(metrics.getTakeWait().getValueAtPercentile(99));
+    }
+
+    @Override
+    public long getWaitP999Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(metrics.getTakeWait().getValueAtPercentile(99.9));
+    }
+
+    @Override
+    public long getHandoffP99Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(metrics.getHandoffLatency().getValueAtPercentile(99));
+    }
+
+    /**
+     * One minute exponentially weighted rate of a monotonic count, advanced
+     * lazily. The events of the ticks elapsed since the last read are spread
+     * evenly over them.
+     */
+    static final class Rate {
+
+        static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(5);
+        private static final double TICK_SECONDS = 5;
+        private static final double ALPHA = 1 - Math.exp(-TICK_SECONDS / 60);
+        /**
+         * beyond, the weight left to the previous rate is negligible
+         */
+        private static final long MAX_TICKS = 200;
+        private long lastTick = System.nanoTime();
+        private long lastCount;
+        private double rate;
+        private boolean initialized;
+
+        synchronized double perSecond(long count, long now) {
+            long ticks = (now - lastTick) / TICK_NANOS;
+            if (ticks > 0) {
+                double instant = (count - lastCount) / (ticks * TICK_SECONDS);
+                if (!initialized || (ticks >= MAX_TICKS)) {
+                    rate = instant;
+                    initialized = true;
+                } else {
+                    for (long i = 0; i < ticks; i++) {
+                        rate += ALPHA * (instant - rate);
+                    }
+                }
+                lastTick += ticks * TICK_NANOS;
+                lastCount = count;
+            }
+            return rate;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * BlockingMapStatisticsMBean.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+/**
+ * Management interface of {@link BlockingMapStatistics}. Every attribute is
+ * computed from counters maintained as the map is used, reading one never
+ * scans the latches of the map.
+ *
+ * @version 1.0, 19/10/26
+ */
+public interface BlockingMapStatisticsMBean {
+
+    /**
+     * @return the name the map is registered under
+     */
+    String getName();
+
+    /**
+     * @return the number of mappings available, put but not taken yet
+     */
+    long getAvailableCount();
+
+    /**
+     * @return the number of consumers waiting for a mapping
+     */
+    long getPendingWaiterCount();
+
+    /**
+     * @return how long the consumer waiting for the longest time has been
+     * waiting, in milliseconds
+     */
+    long getOldestPendingAgeMillis();
+
+    /**
+     * @return the total number of mappings put
+     */
+    long getPutCount();
+
+    /**
+     * @return the total number of mappings taken
+     */
+    long getTakeCount();
+
+    /**
+     * @return the total number of timed takes that gave up
+     */
+    long getTimeoutCount();
+
+    /**
+     * @return mappings put per second, averaged over the last minute
+     */
+    double getPutRate();
+
+    /**
+     * @return mappings taken per second, averaged over the last minute
+     */
+    double getTakeRate();
+
+    /**
+     * @return timed takes giving up per second, averaged over the last minute
+     */
+    double getTimeoutRate();
+
+    /**
+     * @return the median wait of consumers, in microseconds
+     */
+    long getWaitP50Micros();
+
+    /**
+     * @return the 99th percentile of the wait of consumers, in microseconds
+     */
+    long getWaitP99Micros();
+
+    /**
+     * @return the 99.9th percentile of the wait of consumers, in microseconds
+     */
+    long getWaitP999Micros();
+
+    /**
+     * @return the 99th percentile of the time from put to take, in
+     * microseconds
+     */
+    long getHandoffP99Micros();
+}
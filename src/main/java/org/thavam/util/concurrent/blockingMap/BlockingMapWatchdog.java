@@ -0,0 +1,319 @@
+/*
+ * BlockingMapWatchdog.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Watches a {@link BlockingHashMap} for consumers waiting too long on their
+ * key & for values nobody takes, & reports them to a {@link Listener}.
+ * Created by {@link BlockingHashMap#watchdog(long, long, TimeUnit, Listener)},
+ * stopped by {@link #close()} or by the shutdown of the map.
+ *
+ * <p>
+ * A blocked consumer registers itself with the watchdog while it waits, one
+ * concurrent map update when it parks & one when it resumes. The watchdog
+ * thread checks the waiting consumers on every tick, a quarter of the
+ * smallest threshold, & reports each consumer once it has waited longer than
+ * its threshold.
+ *
+ * <p>
+ * Producers only stamp their mappings with the time they are put at. Orphan
+ * values are found by an incremental sweep of the map : each tick examines a
+ * bounded number of latches, resuming where the previous tick stopped,
+ * without locking the map. A value is reported once, within a sweep of the
+ * map after its threshold elapsed.
+ *
+ * @param <K> the type of keys maintained by the map
+ * @version 1.0, 19/10/26
+ */
+public final class BlockingMapWatchdog<K> implements Closeable {
+
+    /**
+     * latches examined by each tick of the sweep
+     */
+    static final int SWEEP_BATCH = 1024;
+    private static final long MIN_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long MAX_TICK_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private final long waiterThresholdNanos;
+    private final long valueThresholdNanos;
+    private final long tickNanos;
+    private final Listener<? super K> listener;
+    private final ConcurrentMap<K, ? extends ObjectLatch<?>> latches;
+    private final Consumer<BlockingMapWatchdog<K>> onClose;
+    /**
+     * consumers blocked on a key
+     */
+    private final ConcurrentMap<Thread, Waiter<K>> waiters = new ConcurrentHashMap<Thread, Waiter<K>>();
+    /**
+     * time values put before the watchdog was started are counted from
+     */
+    private final long startNanos = System.nanoTime();
+    private final Thread ticker;
+    private volatile boolean closed;
+    //accessed by the watchdog thread only
+    private Iterator<? extends Map.Entry<K, ? extends ObjectLatch<?>>> sweep;
+    private Set<Object> reported = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+    private Set<Object> reportedThisSweep = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+
+    /**
+     * Receives the consumers & values exceeding their threshold. Invoked on
+     * the watchdog thread, exceptions are logged & ignored.
+     *
+     * @param <K> the type of keys
+     */
+    public interface Listener<K> {
+
+        /**
+         * A consumer has been waiting longer than its threshold. Reported
+         * once per wait.
+         *
+         * @param key key awaited
+         * @param consumer thread waiting
+         * @param waitNanos how long it has been waiting
+         */
+        default void consumerStuck(K key, Thread consumer, long waitNanos) {
+        }
+
+        /**
+         * A value has been available longer than its threshold. Reported once
+         * per value.
+         *
+         * @param key key of the value
+         * @param ageNanos how long the value has been available
+         */
+        default void valueOrphaned(K key, long ageNanos) {
+        }
+    }
+
+    /**
+     * Consumers waiting on a key, as listed by {@link #awaitedKeys()}
+     *
+     * @param <K> the type of keys
+     */
+    public static final class Awaited<K> {
+
+        private final K key;
+        private int waiters;
+        private long longestWaitNanos;
+
+        Awaited(K key) {
+            this.key = key;
+        }
+
+        /**
+         * @return the key awaited
+         */
+        public K getKey() {
+            return key;
+        }
+
+        /**
+         * @return the number of consumers waiting on the key
+         */
+        public int getWaiters() {
+            return waiters;
+        }
+
+        /**
+         * @return how long the consumer waiting for the longest time has been
+         * waiting, in nanoseconds
+         */
+        public long getLongestWaitNanos() {
+            return longestWaitNanos;
+        }
+
+        @Override
+        public String toString() {
+            return key + " : " + waiters + " waiting, longest for "
+                    + TimeUnit.NANOSECONDS.toMillis(longestWaitNanos) + " ms";
+        }
+    }
+
+    /**
+     * Wait of a consumer
+     */
+    private static final class Waiter<K> {
+
+        final K key;
+        final long since;
+        //accessed by the watchdog thread only
+        boolean reported;
+
+        Waiter(K key, long since) {
+            this.key = key;
+            this.since = since;
+        }
+    }
+
+    BlockingMapWatchdog(ConcurrentMap<K, ? extends ObjectLatch<?>> latches, long waiterThreshold,
+            long valueThreshold, TimeUnit unit, Listener<? super K> listener, Consumer<BlockingMapWatchdog<K>> onClose) {
+        if ((unit == null) || (listener == null)) {
+            throw new NullPointerException();
+        }
+        if ((waiterThreshold <= 0) || (valueThreshold <= 0)) {
+            throw new IllegalArgumentException("thresholds should be positive");
+        }
+        this.latches = latches;
+        this.waiterThresholdNanos = unit.toNanos(waiterThreshold);
+        this.valueThresholdNanos = unit.toNanos(valueThreshold);
+        this.tickNanos = Math.max(MIN_TICK_NANOS,
+                Math.min(MAX_TICK_NANOS, Math.min(waiterThresholdNanos, valueThresholdNanos) / 4));
+        this.listener = listener;
+        this.onClose = onClose;
+        this.ticker = new Thread(this::tickLoop, "blocking-map-watchdog");
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+    }
+
+    /**
+     * The current thread waits on the key
+     */
+    void parked(K key) {
+        waiters.put(Thread.currentThread(), new Waiter<K>(key, System.nanoTime()));
+    }
+
+    /**
+     * The current thread stopped waiting
+     */
+    void resumed() {
+        waiters.remove(Thread.currentThread());
+    }
+
+    /**
+     * Returns the keys consumers are waiting on, the longest waiting first.
+     * Lists the waiting consumers only, does not scan the map.
+     *
+     * @return the awaited keys
+     */
+    public List<Awaited<K>> awaitedKeys() {
+        long now = System.nanoTime();
+        Map<K, Awaited<K>> byKey = new HashMap<K, Awaited<K>>();
+        for (Waiter<K> waiter : waiters.values()) {
+            Awaited<K> awaited = byKey.computeIfAbsent(waiter.key, Awaited::new);
+            awaited.waiters++;
+            awaited.longestWaitNanos = Math.max(awaited.longestWaitNanos, now - waiter.since);
+        }
+        List<Awaited<K>> result = new ArrayList<Awaited<K>>(byKey.values());
+        result.sort((a, b) -> Long.compare(b.longestWaitNanos, a.longestWaitNanos));
+        return result;
+    }
+
+    /**
+     * Returns a readable dump of the awaited keys, one per line, the longest
+     * waiting first.
+     *
+     * @return the dump
+     */
+    public String dump() {
+        StringBuilder dump = new StringBuilder();
+        for (Awaited<K> awaited : awaitedKeys()) {
+            dump.append(awaited).append(System.lineSeparator());
+        }
+        return dump.toString();
+    }
+
+    /**
+     * Stops the watchdog & detaches it from the map.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            LockSupport.unpark(ticker);
+            onClose.accept(this);
+        }
+    }
+
+    /**
+     * Returns whether the watchdog is stopped.
+     *
+     * @return <tt>true</tt> once closed
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private void tickLoop() {
+        while (!closed) {
+            LockSupport.parkNanos(this, tickNanos);
+            if (closed) {
+                return;
+            }
+            try {
+                checkWaiters();
+                sweepValues();
+            } catch (RuntimeException ex) {
+                Logger.getLogger(BlockingMapWatchdog.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
+    }
+
+    private void checkWaiters() {
+        long now = System.nanoTime();
+        for (Map.Entry<Thread, Waiter<K>> entry : waiters.entrySet()) {
+            Waiter<K> waiter = entry.getValue();
+            if (!waiter.reported && (now - waiter.since > waiterThresholdNanos)) {
+                waiter.reported = true;
+                try {
+                    listener.consumerStuck(waiter.key, entry.getKey(), now - waiter.since);
+                } catch (RuntimeException ex) {
+                    Logger.getLogger(BlockingMapWatchdog.class.getName()).log(Level.SEVERE, null, ex);
+                }
+            }
+        }
+    }
+
+    private void sweepValues() {
+        long now = System.nanoTime();
+        for (int examined = 0; examined < SWEEP_BATCH; examined++) {
+            if ((sweep == null) || !sweep.hasNext()) {
+                //forget the values reported that are no longer on the map
+                Set<Object> swept = reported;
+                reported = reportedThisSweep;
+                reportedThisSweep = swept;
+                reportedThisSweep.clear();
+                sweep = latches.entrySet().iterator();
+                if (!sweep.hasNext()) {
+                    return;
+                }
+            }
+            Map.Entry<K, ? extends ObjectLatch<?>> entry = sweep.next();
+            ObjectLatch<?> latch = entry.getValue();
+            if (latch.getIfAvailable() == null) {
+                continue;
+            }
+            long published = latch.getPublishedNanos();
+            //put before the watchdog was started
+            long age = now - ((published == 0) ? startNanos : published);
+            if (age > valueThresholdNanos) {
+                reportedThisSweep.add(latch);
+                if (reported.add(latch)) {
+                    try {
+                        listener.valueOrphaned(entry.getKey(), age);
+                    } catch (RuntimeException ex) {
+                        Logger.getLogger(BlockingMapWatchdog.class.getName()).log(Level.SEVERE, null, ex);
+                    }
+                }
+            }
+        }
+    }
+}
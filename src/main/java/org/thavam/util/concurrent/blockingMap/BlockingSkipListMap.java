@@ -0,0 +1,496 @@
+/*
+ * BlockingSkipListMap.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+
+/**
+ * An unbound {@linkplain NavigableBlockingMap navigable blocking map} backed by
+ * a concurrent skip list. Keys are ordered according to their natural ordering
+ * or by a comparator provided at construction time.
+ *
+ * <p>
+ * In addition to waiting on a specific key, consumers can wait on the smallest
+ * key (<tt>takeFirst</tt>), the smallest key not less than a given key
+ * (<tt>takeCeiling</tt>) or the smallest key in a range
+ * (<tt>takeInRange</tt>). This makes the map usable as a deadline or priority
+ * scheduler, e.g. keyed by timestamp.
+ *
+ * <p>
+ * There is no map wide lock. Operations on disjoint ranges of keys do not
+ * contend with each other beyond the lock-free skip list. When several
+ * consumers wait on overlapping ranges, each new key wakes up a single
+ * consumer, in order of arrival.
+ *
+ * <p>
+ * This map can be shutdown using <tt>clear</tt>. All consumers blocked on the
+ * map while invoking clear will be throw <tt>InterruptedException</tt> or
+ * return with <tt>null</tt>. Attempting any operation after shutdown will throw
+ * <tt>IllegalStateException</tt>.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ * @version 1.0, 19/10/26
+ */
+public class BlockingSkipListMap<K, V> implements NavigableBlockingMap<K, V> {
+
+    /**
+     *
+     * state pattern employed since map exhibits distinctively different
+     * behavior before and after clear/shutdown
+     *
+     */
+    private volatile NavigableBlockingMap<K, V> state;
+    /*
+     *
+     * flag to multiple clear()
+     */
+    private final AtomicBoolean cleared = new AtomicBoolean(false);
+
+    /**
+     * Constructs a new, empty map, sorted according to the natural ordering of
+     * the keys.
+     */
+    public BlockingSkipListMap() {
+        this(null);
+    }
+
+    /**
+     * Constructs a new, empty map, sorted according to the specified
+     * comparator.
+     *
+     * @param comparator the comparator that will be used to order this map. If
+     * <tt>null</tt>, the natural ordering of the keys will be used.
+     */
+    public BlockingSkipListMap(Comparator<? super K> comparator) {
+        this.state = new ActiveBlockingSkipListMap<K, V>(comparator);
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains a mapping for the specified
+     * key.
+     *
+     * @param key key whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map contains a mapping for the specified
+     * key
+     * @throws ClassCastException if the key cannot be compared with the keys
+     * currently in the map
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public boolean isKeyAvailable(K key) {
+        return state.isKeyAvailable(key);
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains a mapping for the specified
+     * key.
+     *
+     * @param key key whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map contains a mapping for the specified
+     * key
+     * @throws ClassCastException if the key cannot be compared with the keys
+     * currently in the map
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        return state.containsKey(key);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or {@code null}
+     * if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or {@code null}
+     * if this map contains no mapping for the key
+     * @throws ClassCastException if the key cannot be compared with the keys
+     * currently in the map
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public V get(Object key) {
+        return state.get(key);
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     *
+     * <p>
+     * Producers cannot put on a key that is already available on the map.
+     * Attempts to put a mapping whose key is already available on the map are
+     * ignored. However, the same mapping can be put in to the map after it is
+     * taken by consumer(s)
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the value already available for <tt>key</tt>, or <tt>null</tt>
+     * if there was no mapping for <tt>key</tt>
+     * @throws ClassCastException if the key cannot be compared with the keys
+     * currently in the map
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public V put(K key, V value) {
+        return state.put(key, value);
+    }
+
+    /**
+     * Removes the mapping for a key from this map if it is present.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @return the previous value associated with <tt>key</tt>, or <tt>null</tt>
+     * if there was no mapping for <tt>key</tt>.
+     * @throws ClassCastException if the key cannot be compared with the keys
+     * currently in the map
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public V remove(Object key) {
+        return state.remove(key);
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map. offer
+     * on an unbound map will always succeed
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the value already available for <tt>key</tt>, or <tt>null</tt>
+     * if there was no mapping for <tt>key</tt>
+     * @throws InterruptedException if interrupted while waiting
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public V offer(K key, V value) throws InterruptedException {
+        return state.offer(key, value);
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map. offer
+     * on an unbound map will always succeed
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @param timeout how long to wait before giving up, in units of
+     * <tt>unit</tt>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the
+     * <tt>timeout</tt> parameter
+     * @return the value already available for <tt>key</tt>, or <tt>null</tt>
+     * if there was no mapping for <tt>key</tt>
+     * @throws InterruptedException if interrupted while waiting
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public V offer(K key, V value, long timeout, TimeUnit unit) throws InterruptedException {
+        return state.offer(key, value, timeout, unit);
+    }
+
+    /**
+     * Retrieves and removes the mapping for a key from this map if it is
+     * present, waiting if necessary until the mapping becomes available.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @return the value associated with <tt>key</tt>
+     * @throws NullPointerException if the specified key is null
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public V take(K key) throws InterruptedException {
+        return state.take(key);
+    }
+
+    /**
+     * Retrieves and removes the mapping for a key from this map if it is
+     * present, waiting if necessary until the mapping becomes available or the
+     * specified time elapses.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @param timeout how long to wait before giving up, in units of
+     * <tt>unit</tt>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the
+     * <tt>timeout</tt> parameter
+     * @return the value associated with <tt>key</tt>, or <tt>null</tt> if the
+     * call times out.
+     * @throws NullPointerException if the specified key is null
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public V take(K key, long timeout, TimeUnit unit) throws InterruptedException {
+        return state.take(key, timeout, unit);
+    }
+
+    @Override
+    public Map.Entry<K, V> takeFirst() throws InterruptedException {
+        return state.takeFirst();
+    }
+
+    @Override
+    public Map.Entry<K, V> takeFirst(long timeout, TimeUnit unit) throws InterruptedException {
+        return state.takeFirst(timeout, unit);
+    }
+
+    @Override
+    public Map.Entry<K, V> takeCeiling(K key) throws InterruptedException {
+        return state.takeCeiling(key);
+    }
+
+    @Override
+    public Map.Entry<K, V> takeCeiling(K key, long timeout, TimeUnit unit) throws InterruptedException {
+        return state.takeCeiling(key, timeout, unit);
+    }
+
+    @Override
+    public Map.Entry<K, V> takeInRange(K fromKey, K toKey, long timeout, TimeUnit unit) throws InterruptedException {
+        return state.takeInRange(fromKey, toKey, timeout, unit);
+    }
+
+    /**
+     * Retrieves and removes the mapping with the least key satisfying the
+     * given predicate, waiting if necessary until such a mapping becomes
+     * available or the specified time elapses.
+     *
+     * @param predicate condition the key of the mapping should satisfy
+     * @param timeout how long to wait before giving up, in units of
+     * <tt>unit</tt>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the
+     * <tt>timeout</tt> parameter
+     * @return the mapping taken, or <tt>null</tt> if the call times out
+     * @throws NullPointerException if the specified predicate is null
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public Map.Entry<K, V> takeMatching(Predicate<? super K> predicate, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        return state.takeMatching(predicate, timeout, unit);
+    }
+
+    /**
+     * Shuts down this blocking map and removes all mappings from this map.The
+     * map will be empty after this call.
+     *
+     * <p>
+     * Interrupts any threads waiting on any key in map before clearing. This is
+     * done to prevent threads being blocked forever
+     *
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public void clear() {
+        //clear the map only if it has not been cleared yet
+        if (!cleared.getAndSet(true)) {
+            NavigableBlockingMap<K, V> oldState = state;
+            state = PassiveSkipListMap.<K, V>getInstance();
+            oldState.clear();
+        } else {
+            state.clear();
+        }
+    }
+
+    /**
+     * Returns true if this map maps one or more keys to the specified value.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return true if this map maps one or more keys to the specified value
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public boolean containsValue(Object value) {
+        return state.containsValue(value);
+    }
+
+    /**
+     * Returns true if this map contains no key-value mappings.
+     *
+     * @return true if this map contains no key-value mappings
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public boolean isEmpty() {
+        return state.isEmpty();
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map
+     *
+     * @return the number of key-value mappings in this map
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public int size() {
+        return state.size();
+    }
+
+    /**
+     * Returns a weakly consistent view of the available mappings, in ascending
+     * key order. The view is traversed without blocking producers or
+     * consumers. Removal through the view or its iterator behaves like
+     * <tt>remove(k)</tt>, addition is not supported.
+     *
+     * @return a view of the available mappings
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return state.entrySet();
+    }
+
+    /**
+     * Returns a weakly consistent view of the available keys, in ascending
+     * key order. The view is traversed without blocking producers or
+     * consumers. Removal through the view or its iterator behaves like
+     * <tt>remove(k)</tt>, addition is not supported.
+     *
+     * @return a view of the available keys
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public Set<K> keySet() {
+        return state.keySet();
+    }
+
+    /**
+     * Returns a weakly consistent view of the available values, in ascending
+     * key order. The view is traversed without blocking producers or
+     * consumers. Removal through the view or its iterator behaves like
+     * <tt>remove(k)</tt>, addition is not supported.
+     *
+     * @return a view of the available values
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public Collection<V> values() {
+        return state.values();
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map. Keys that
+     * are already available on the map are ignored.
+     *
+     * @param m mappings to be stored in this map
+     * @throws NullPointerException if any key or value is null
+     * @throws UnsupportedOperationException if map is in passive state
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        state.putAll(m);
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map. Atomic
+     * publication is not supported, since this map has no map wide lock.
+     *
+     * @param m mappings to be stored in this map
+     * @param atomic should be <tt>false</tt>
+     * @throws NullPointerException if any key or value is null
+     * @throws UnsupportedOperationException if <tt>atomic</tt> is true or map
+     * is in passive state
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m, boolean atomic) {
+        state.putAll(m, atomic);
+    }
+
+    /**
+     * Retrieves and removes the mappings of all the given keys, one by one as
+     * with take, since this map has no map wide lock. The mappings taken are
+     * put back if the time elapses before the last one.
+     *
+     * @param keys keys whose mappings are to be removed from the map
+     * @param timeout how long to wait before giving up, in units of
+     * <tt>unit</tt>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the
+     * <tt>timeout</tt> parameter
+     * @return the mappings of all the keys, or <tt>null</tt> if the call times
+     * out before all of them are available
+     * @throws NullPointerException if any of the keys is null
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public Map<K, V> takeAll(Collection<? extends K> keys, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        return state.takeAll(keys, timeout, unit);
+    }
+
+    /**
+     * Performs the given action for each available mapping, in parallel on the
+     * common <tt>ForkJoinPool</tt> when the map holds at least
+     * <tt>parallelismThreshold</tt> mappings. The traversal is weakly
+     * consistent & not ordered when parallel.
+     *
+     * @param parallelismThreshold the (estimated) number of mappings needed
+     * for this operation to be executed in parallel
+     * @param action the action
+     * @throws NullPointerException if the action is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public void forEach(long parallelismThreshold, BiConsumer<? super K, ? super V> action) {
+        state.forEach(parallelismThreshold, action);
+    }
+
+    /**
+     * Returns a non-null result from applying the given search function on
+     * each available mapping, or null if none. Runs like
+     * <tt>forEach(threshold, action)</tt>.
+     *
+     * @param <U> the return type of the search function
+     * @param parallelismThreshold the (estimated) number of mappings needed
+     * for this operation to be executed in parallel
+     * @param searchFunction a function returning a non-null result on success,
+     * else null
+     * @return a non-null result from applying the given search function on
+     * some mapping, or null if none
+     * @throws NullPointerException if the search function is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public <U> U search(long parallelismThreshold, BiFunction<? super K, ? super V, ? extends U> searchFunction) {
+        return state.search(parallelismThreshold, searchFunction);
+    }
+
+    /**
+     * Returns the result of accumulating the given transformation of all
+     * available mappings using the given reducer to combine values, or null if
+     * none. Runs like <tt>forEach(threshold, action)</tt>.
+     *
+     * @param <U> the return type of the transformer
+     * @param parallelismThreshold the (estimated) number of mappings needed
+     * for this operation to be executed in parallel
+     * @param transformer a function returning the transformation for a
+     * mapping, or null if there is no transformation
+     * @param reducer a commutative associative combining function
+     * @return the result of accumulating the given transformation of all
+     * mappings
+     * @throws NullPointerException if the transformer or reducer is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public <U> U reduce(long parallelismThreshold, BiFunction<? super K, ? super V, ? extends U> transformer,
+            BiFunction<? super U, ? super U, ? extends U> reducer) {
+        return state.reduce(parallelismThreshold, transformer, reducer);
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ * ChangeFeed.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Append only feed of the changes of a {@link BlockingHashMap}, e.g. to
+ * mirror the map on a standby or to audit what was produced & consumed. Each
+ * change is an {@link Event} numbered by a sequence that increases by one per
+ * event.
+ *
+ * <p>
+ * Events are kept in a ring buffer of fixed capacity, written without locks :
+ * a producer claims a sequence with one atomic increment & stores its event in
+ * the slot of the sequence. Producers never wait for subscribers. A
+ * {@link Subscription} reads the ring from a given sequence at its own pace;
+ * once the ring has wrapped over events it has not read yet, it throws
+ * {@link LaggedException} & the subscriber has to resync from a snapshot of
+ * the map.
+ *
+ * <p>
+ * Events of the same key are numbered in the order their changes take effect
+ * on the map : the put of a mapping comes before its take, the take before
+ * the put of the next mapping of the key. Hence applying the events in
+ * sequence order to a copy of the map reproduces the map. To resync, open a
+ * new subscription, snapshot the map & restore the snapshot, then apply the
+ * events of the subscription. Events already reflected in the snapshot are
+ * applied again harmlessly : each key ends up as its last event left it.
+ *
+ * @param <K> the type of keys maintained by the map
+ * @param <V> the type of mapped values
+ * @version 1.0, 19/10/26
+ */
+public final class ChangeFeed<K, V> {
+
+    /**
+     * default number of events kept by the ring
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    /**
+     * longest park of a subscription waiting for events, in nanoseconds
+     */
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Kind of change
+     */
+    public enum Type {
+
+        /**
+         * a mapping was put on the map
+         */
+        PUT,
+        /**
+         * a mapping was taken or removed from the map
+         */
+        TAKE,
+        /**
+         * a timed take of the key gave up before a mapping was put, the map
+         * is unchanged
+         */
+        EXPIRE,
+        /**
+         * the map was cleared & shut down, the last event of the feed
+         */
+        CLEAR
+    }
+
+    /**
+     * One change of the map.
+     *
+     * @param <K> the type of keys maintained by the map
+     * @param <V> the type of mapped values
+     */
+    public static final class Event<K, V> {
+
+        private final long sequence;
+        /**
+         * null for the placeholder of an ignored put, skipped by subscriptions
+         */
+        private final Type type;
+        private final K key;
+        private final V value;
+
+        private Event(long sequence, Type type, K key, V value) {
+            this.sequence = sequence;
+            this.type = type;
+            this.key = key;
+            this.value = value;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        /**
+         * Returns the key changed, <tt>null</tt> for CLEAR
+         */
+        public K getKey() {
+            return key;
+        }
+
+        /**
+         * Returns the value put or taken, <tt>null</tt> for EXPIRE & CLEAR
+         */
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return sequence + " " + type + " " + key + "=" + value;
+        }
+    }
+
+    /**
+     * Thrown to a subscription whose next event has been overwritten. The
+     * subscriber should resync from a snapshot.
+     */
+    public static class LaggedException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+        private final long missedSequence;
+
+        LaggedException(long missedSequence) {
+            super("events from sequence " + missedSequence + " overwritten, resync from a snapshot");
+            this.missedSequence = missedSequence;
+        }
+
+        /**
+         * Returns the sequence of the first event lost
+         */
+        public long getMissedSequence() {
+            return missedSequence;
+        }
+    }
+
+    /**
+     * Reader of the feed, from a given sequence. A subscription is meant to
+     * be used by one thread at a time & holds no resources : an abandoned
+     * subscription does not hold up producers.
+     *
+     * @param <K> the type of keys maintained by the map
+     * @param <V> the type of mapped values
+     */
+    public static final class Subscription<K, V> {
+
+        private final ChangeFeed<K, V> feed;
+        private long next;
+
+        private Subscription(ChangeFeed<K, V> feed, long next) {
+            this.feed = feed;
+            this.next = next;
+        }
+
+        /**
+         * Returns the sequence of the next event to be read.
+         */
+        public long getNextSequence() {
+            return next;
+        }
+
+        /**
+         * Returns the next event if it has been published, without waiting.
+         *
+         * @return the next event, or <tt>null</tt> if there is none yet
+         * @throws LaggedException if the next event has been overwritten
+         */
+        public Event<K, V> poll() throws LaggedException {
+            for (;;) {
+                Event<K, V> event = feed.ring.get((int) next & feed.mask);
+                if ((event == null) || (event.sequence < next)) {
+                    //not published yet
+                    return null;
+                }
+                if (event.sequence > next) {
+                    throw new LaggedException(next);
+                }
+                next++;
+                if (event.type != null) {
+                    return event;
+                }
+            }
+        }
+
+        /**
+         * Returns the next event, waiting if necessary until it is published
+         * or the specified time elapses.
+         *
+         * @param timeout how long to wait before giving up, in units of
+         * <tt>unit</tt>
+         * @param unit a <tt>TimeUnit</tt> determining how to interpret the
+         * <tt>timeout</tt> parameter
+         * @return the next event, or <tt>null</tt> if the call times out
+         * @throws LaggedException if the next event has been overwritten
+         * @throws InterruptedException if interrupted while waiting
+         */
+        public Event<K, V> poll(long timeout, TimeUnit unit) throws LaggedException, InterruptedException {
+            final long deadline = System.nanoTime() + unit.toNanos(timeout);
+            //producers do not signal, back off from spinning to parking
+            long park = 1000;
+            for (;;) {
+                Event<K, V> event = poll();
+                if (event != null) {
+                    return event;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return null;
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                LockSupport.parkNanos(Math.min(park, remaining));
+                park = Math.min(park * 2, MAX_PARK_NANOS);
+            }
+        }
+    }
+
+    private final AtomicReferenceArray<Event<K, V>> ring;
+    private final int mask;
+    /**
+     * next sequence to be claimed
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Creates a feed keeping at least the given number of events, rounded up
+     * to a power of two
+     */
+    ChangeFeed(int capacity) {
+        if ((capacity <= 0) || (capacity > (1 << 30))) {
+            throw new IllegalArgumentException("capacity should be in (0, 2^30] : " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.ring = new AtomicReferenceArray<Event<K, V>>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Claims the sequence of an event, to be published with
+     * publish(sequence, ..) by the same thread
+     */
+    long claim() {
+        return sequence.getAndIncrement();
+    }
+
+    /**
+     * Publishes the event of a claimed sequence. A null type publishes a
+     * placeholder, skipped by subscriptions, for a change that did not happen
+     */
+    void publish(long claimed, Type type, K key, V value) {
+        Event<K, V> event = new Event<K, V>(claimed, type, key, value);
+        int index = (int) claimed & mask;
+        for (;;) {
+            Event<K, V> current = ring.get(index);
+            //a slow producer never overwrites the event of a later lap
+            if ((current != null) && (current.sequence > claimed)) {
+                return;
+            }
+            if (ring.compareAndSet(index, current, event)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Claims a sequence & publishes its event
+     */
+    void publish(Type type, K key, V value) {
+        publish(claim(), type, key, value);
+    }
+
+    /**
+     * Returns the number of events kept by the ring.
+     *
+     * @return the capacity of the ring
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Returns the sequence the next change will be given.
+     *
+     * @return the next sequence
+     */
+    public long getNextSequence() {
+        return sequence.get();
+    }
+
+    /**
+     * Subscribes to the changes made from now on.
+     *
+     * @return a subscription reading from the next sequence
+     */
+    public Subscription<K, V> subscribe() {
+        return new Subscription<K, V>(this, sequence.get());
+    }
+
+    /**
+     * Subscribes to the changes from the given sequence on. A sequence that
+     * has already been overwritten makes the first poll throw
+     * <tt>LaggedException</tt>.
+     *
+     * @param fromSequence sequence of the first event to be read
+     * @return a subscription reading from the given sequence
+     * @throws IllegalArgumentException if the sequence is negative or has not
+     * been claimed yet & is not the next one
+     */
+    public Subscription<K, V> subscribe(long fromSequence) {
+        if ((fromSequence < 0) || (fromSequence > sequence.get())) {
+            throw new IllegalArgumentException("sequence out of range : " + fromSequence);
+        }
+        return new Subscription<K, V>(this, fromSequence);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * ConsistentHashRing.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable consistent hash ring. Each node is placed at a number of virtual
+ * points on a 32 bit ring; a key belongs to the node of the first point at or
+ * after the hash of the key, wrapping around. Adding a node returns a new
+ * ring in which only the keys falling just before the points of the new node
+ * change owner.
+ *
+ * @param <N> the type of nodes
+ * @version 1.0, 19/10/26
+ */
+/**
+ * Should not be accessible outside the package. Meant to be used from
+ * PartitionedBlockingMap
+ */
+final class ConsistentHashRing<N> {
+
+    private final int virtualNodes;
+    private final List<N> nodes;
+    /**
+     * sorted points of the ring & the node owning each of them
+     */
+    private final int[] points;
+    private final Object[] owners;
+
+    ConsistentHashRing(int virtualNodes) {
+        this(virtualNodes, Collections.<N>emptyList(), new int[0], new Object[0]);
+    }
+
+    private ConsistentHashRing(int virtualNodes, List<N> nodes, int[] points, Object[] owners) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("virtualNodes should be positive : " + virtualNodes);
+        }
+        this.virtualNodes = virtualNodes;
+        this.nodes = nodes;
+        this.points = points;
+        this.owners = owners;
+    }
+
+    /**
+     * Returns a ring with the given node added, this ring if the node is
+     * already on it
+     */
+    ConsistentHashRing<N> withNode(N node) {
+        if (nodes.contains(node)) {
+            return this;
+        }
+        List<N> newNodes = new ArrayList<N>(nodes);
+        newNodes.add(node);
+        //(point, node index) pairs sorted by point, ties broken by index
+        long[] pairs = new long[newNodes.size() * virtualNodes];
+        int p = 0;
+        for (int n = 0; n < newNodes.size(); n++) {
+            String name = String.valueOf(newNodes.get(n));
+            for (int i = 0; i < virtualNodes; i++) {
+                int point = hash((name + '#' + i).getBytes(StandardCharsets.UTF_8));
+                pairs[p++] = ((long) point << 32) | n;
+            }
+        }
+        Arrays.sort(pairs);
+        int[] newPoints = new int[pairs.length];
+        Object[] newOwners = new Object[pairs.length];
+        for (int i = 0; i < pairs.length; i++) {
+            newPoints[i] = (int) (pairs[i] >> 32);
+            newOwners[i] = newNodes.get((int) pairs[i]);
+        }
+        return new ConsistentHashRing<N>(virtualNodes, Collections.unmodifiableList(newNodes), newPoints,
+                newOwners);
+    }
+
+    /**
+     * Returns the node owning the key given as bytes
+     *
+     * @throws IllegalStateException if the ring has no node
+     */
+    @SuppressWarnings("unchecked")
+    N nodeFor(byte[] key) {
+        if (points.length == 0) {
+            throw new IllegalStateException("no node on the ring");
+        }
+        int i = Arrays.binarySearch(points, hash(key));
+        if (i < 0) {
+            i = -i - 1;
+        }
+        //equal points are adjacent, the first one owns the key
+        while ((i > 0) && (i < points.length) && (points[i - 1] == points[i])) {
+            i--;
+        }
+        return (N) owners[(i == points.length) ? 0 : i];
+    }
+
+    List<N> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * FNV-1a, with the murmur3 finalizer to spread keys differing in their
+     * last bytes only
+     */
+    static int hash(byte[] bytes) {
+        int h = 0x811c9dc5;
+        for (byte b : bytes) {
+            h ^= b & 0xff;
+            h *= 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * DirectBufferPool.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of direct byte buffers, used to keep payloads outside the Java heap.
+ *
+ * <p>
+ * Buffers are pooled in size classes, powers of two from
+ * <tt>minBufferSize</tt> to <tt>maxBufferSize</tt>. A payload is stored in a
+ * buffer of the smallest class that fits it. Payloads larger than the largest
+ * class get a direct buffer of their own, which is not pooled. Released
+ * buffers are kept for reuse as long as the pool holds less than
+ * <tt>maxPooledBytes</tt>, beyond that they are left to the garbage collector.
+ *
+ * <p>
+ * This class is thread safe, free buffers are kept in lock free queues.
+ *
+ * @version 1.0, 19/10/26
+ */
+public class DirectBufferPool {
+
+    public static final int DEFAULT_MIN_BUFFER_SIZE = 4 * 1024;
+    public static final int DEFAULT_MAX_BUFFER_SIZE = 1024 * 1024;
+    public static final long DEFAULT_MAX_POOLED_BYTES = 256L * 1024 * 1024;
+
+    private final int minShift;
+    private final int maxBufferSize;
+    private final long maxPooledBytes;
+    private final Queue<ByteBuffer>[] freeBuffers;
+    /**
+     * capacity of the free buffers held by the pool
+     */
+    private final AtomicLong pooledBytes = new AtomicLong();
+    /**
+     * capacity of the buffers handed out & not released yet
+     */
+    private final AtomicLong allocatedBytes = new AtomicLong();
+
+    /**
+     * Creates a pool with buffers from 4 KB to 1 MB, holding at most 256 MB of
+     * free buffers.
+     */
+    public DirectBufferPool() {
+        this(DEFAULT_MIN_BUFFER_SIZE, DEFAULT_MAX_BUFFER_SIZE, DEFAULT_MAX_POOLED_BYTES);
+    }
+
+    /**
+     * Creates a pool with the given size classes.
+     *
+     * @param minBufferSize size of the smallest buffers, a power of two
+     * @param maxBufferSize size of the largest pooled buffers, a power of two
+     * @param maxPooledBytes maximum capacity of the free buffers kept
+     * @throws IllegalArgumentException if a size is not a power of two or
+     * minBufferSize is larger than maxBufferSize
+     */
+    public DirectBufferPool(int minBufferSize, int maxBufferSize, long maxPooledBytes) {
+        if ((Integer.bitCount(minBufferSize) != 1) || (Integer.bitCount(maxBufferSize) != 1)
+                || (minBufferSize > maxBufferSize)) {
+            throw new IllegalArgumentException("buffer sizes should be powers of two : "
+                    + minBufferSize + ", " + maxBufferSize);
+        }
+        this.minShift = Integer.numberOfTrailingZeros(minBufferSize);
+        this.maxBufferSize = maxBufferSize;
+        this.maxPooledBytes = maxPooledBytes;
+        int classes = Integer.numberOfTrailingZeros(maxBufferSize) - minShift + 1;
+        this.freeBuffers = newQueues(classes);
+        for (int i = 0; i < classes; i++) {
+            freeBuffers[i] = new ConcurrentLinkedQueue<ByteBuffer>();
+        }
+    }
+
+    /**
+     * Creates the array of free buffer queues, arrays of a generic type cannot
+     * be created directly
+     */
+    @SuppressWarnings("unchecked")
+    private static Queue<ByteBuffer>[] newQueues(int classes) {
+        return (Queue<ByteBuffer>[]) new Queue<?>[classes];
+    }
+
+    /**
+     * index of the smallest class holding length bytes
+     */
+    private int sizeClass(int length) {
+        int shift = (length <= 1) ? 0 : 32 - Integer.numberOfLeadingZeros(length - 1);
+        return Math.max(shift - minShift, 0);
+    }
+
+    /**
+     * Copies the remaining bytes of the source in to a pooled buffer. The
+     * position of the source is not changed.
+     *
+     * @param source bytes to be copied, heap or direct
+     * @return the payload holding a copy of the bytes
+     */
+    public PooledPayload copyOf(ByteBuffer source) {
+        int length = source.remaining();
+        ByteBuffer buffer = allocate(length);
+        buffer.put(source.duplicate());
+        buffer.flip();
+        return new PooledPayload(this, buffer);
+    }
+
+    /**
+     * Copies the bytes in to a pooled buffer.
+     *
+     * @param bytes bytes to be copied
+     * @return the payload holding a copy of the bytes
+     */
+    public PooledPayload copyOf(byte[] bytes) {
+        return copyOf(ByteBuffer.wrap(bytes));
+    }
+
+    private ByteBuffer allocate(int length) {
+        ByteBuffer buffer;
+        if (length > maxBufferSize) {
+            buffer = ByteBuffer.allocateDirect(length);
+        } else {
+            int sizeClass = sizeClass(length);
+            buffer = freeBuffers[sizeClass].poll();
+            if (buffer == null) {
+                buffer = ByteBuffer.allocateDirect(1 << (sizeClass + minShift));
+            } else {
+                pooledBytes.addAndGet(-buffer.capacity());
+            }
+            buffer.clear();
+        }
+        allocatedBytes.addAndGet(buffer.capacity());
+        return buffer;
+    }
+
+    /**
+     * Takes back the buffer of a released payload
+     */
+    void release(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        allocatedBytes.addAndGet(-capacity);
+        if (capacity > maxBufferSize) {
+            //left to the garbage collector
+            return;
+        }
+        //reserved before pooling, so that concurrent releases cannot overshoot
+        long pooled;
+        do {
+            pooled = pooledBytes.get();
+            if (pooled + capacity > maxPooledBytes) {
+                return;
+            }
+        } while (!pooledBytes.compareAndSet(pooled, pooled + capacity));
+        freeBuffers[sizeClass(capacity)].offer(buffer);
+    }
+
+    /**
+     * Returns the capacity of the free buffers held for reuse.
+     *
+     * @return bytes held by free buffers
+     */
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    /**
+     * Returns the capacity of the buffers held by payloads not released yet.
+     *
+     * @return bytes held by payloads in use
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+}
@@ -0,0 +1,740 @@
+/*
+ * DurableBlockingHashMap.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link BlockingHashMap} whose available mappings survive a restart of the
+ * process. Puts & takes are appended to a write ahead log kept in memory
+ * mapped, fixed size segment files of a directory. On construction, the map
+ * is rebuilt from the log found in the directory.
+ *
+ * <p>
+ * A put returns once its record has been forced to disk. Records appended by
+ * all producers during a sync interval are forced together, so the latency of
+ * a put is dominated by the sync interval, not by a system call per put.
+ * Takes are logged without waiting for the disk : a mapping taken just before
+ * a crash may be available again after restart (at least once delivery).
+ *
+ * <p>
+ * Each put is given an id, logged with the put & with the take of its
+ * mapping. On replay, a put record replaces the mapping of its key & a take
+ * record removes the mapping only if it carries the same id. Replay is hence
+ * insensitive to the order in which a take & a later put of the same key
+ * reach the log. After replay, the live mappings are appended to a new
+ * segment & the replayed segments are deleted, which compacts the log.
+ *
+ * <p>
+ * The log is compacted while running as well. Once more than
+ * {@value #MAX_SEALED_SEGMENTS} segments are full, the mappings still
+ * available from the oldest segment are appended again, by the producer or
+ * consumer that finds the log over that bound. Segments left without
+ * available mapping are then unmapped & deleted, oldest first, so the log
+ * stays proportional to the available mappings rather than to the traffic.
+ *
+ * <p>
+ * Keys & values are converted to bytes with the given {@link Serializer}s.
+ * <tt>putAll(m, true)</tt> is not supported. The views returned by
+ * <tt>keySet</tt>, <tt>values</tt> & <tt>entrySet</tt> are read only, since
+ * removal through them would bypass the log.
+ *
+ * <p>
+ * <tt>clear</tt> shuts down the map & closes the log. Mappings available at
+ * that time are kept in the log & restored by the next map opened on the
+ * directory. A take that completes while the log is being closed still
+ * returns its value, but is not logged : its mapping is restored as well.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ * @version 1.0, 19/10/26
+ */
+public class DurableBlockingHashMap<K, V> implements BlockingMap<K, V> {
+
+    /**
+     * default size of a log segment, 64 MB
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    /**
+     * default interval between two forces of the log, in milliseconds
+     */
+    public static final long DEFAULT_SYNC_INTERVAL_MILLIS = 2;
+    private static final byte[] NO_VALUE = new byte[0];
+    private static final int STRIPES = 64;
+    /**
+     * full segments retained before the oldest is compacted
+     */
+    static final int MAX_SEALED_SEGMENTS = 2;
+
+    /**
+     * Value held by the in memory map, with the id of its put & the bytes of
+     * its key, needed to log its take, & the position of its put record.
+     */
+    private static final class LoggedValue<V> {
+
+        final long id;
+        final byte[] key;
+        final V value;
+        /**
+         * end of the latest put record of the mapping, written holding the
+         * stripe of the key
+         */
+        volatile long position;
+
+        LoggedValue(long id, byte[] key, V value) {
+            this.id = id;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Live mapping found on replay
+     */
+    private static final class ReplayedPut {
+
+        final long id;
+        final byte[] key;
+        final byte[] value;
+
+        ReplayedPut(long id, byte[] key, byte[] value) {
+            this.id = id;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private final BlockingMap<K, LoggedValue<V>> map = new BlockingHashMap<K, LoggedValue<V>>();
+    private final WriteAheadLog log;
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private final AtomicLong nextId = new AtomicLong();
+    /**
+     * a put & the logging of its record, or the logging of a take, are done
+     * holding the stripe of the key. Hence, the put record of a mapping is
+     * always logged before its take record.
+     */
+    private final Lock[] stripes = new Lock[STRIPES];
+    private final Lock compaction = new ReentrantLock();
+    /**
+     * last segment whose mappings have been appended again, guarded by
+     * compaction
+     */
+    private long compactedSegment = -1;
+
+    /**
+     * Opens the map on the given directory with default segment size & sync
+     * interval.
+     *
+     * @param directory directory of the log, created if it does not exist
+     * @param keySerializer converts keys to bytes & back
+     * @param valueSerializer converts values to bytes & back
+     * @throws IOException if the log cannot be read or written
+     */
+    public DurableBlockingHashMap(Path directory, Serializer<K> keySerializer, Serializer<V> valueSerializer)
+            throws IOException {
+        this(directory, keySerializer, valueSerializer,
+                DEFAULT_SEGMENT_SIZE, DEFAULT_SYNC_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens the map on the given directory. Mappings found in the log are
+     * made available.
+     *
+     * @param directory directory of the log, created if it does not exist
+     * @param keySerializer converts keys to bytes & back
+     * @param valueSerializer converts values to bytes & back
+     * @param segmentSize size of a log segment in bytes, bounds the size of a
+     * mapping
+     * @param syncInterval interval between two forces of the log
+     * @param unit unit of the sync interval
+     * @throws IOException if the log cannot be read or written
+     * @throws IllegalArgumentException if the segment size is too small
+     */
+    public DurableBlockingHashMap(Path directory, Serializer<K> keySerializer, Serializer<V> valueSerializer,
+            int segmentSize, long syncInterval, TimeUnit unit) throws IOException {
+        if ((keySerializer == null) || (valueSerializer == null)) {
+            throw new NullPointerException();
+        }
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.log = new WriteAheadLog(directory, segmentSize, syncInterval, unit);
+        try {
+            recover();
+        } catch (RuntimeException | IOException ex) {
+            log.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Rebuilds the map from the replayed segments, appends the live mappings
+     * to the new segment & deletes the replayed segments.
+     */
+    private void recover() throws IOException {
+        final Map<K, ReplayedPut> live = new LinkedHashMap<K, ReplayedPut>();
+        final long[] maxId = {0};
+        log.replay((type, id, key, value) -> {
+            K k = keySerializer.fromBytes(key);
+            if (type == WriteAheadLog.PUT) {
+                live.put(k, new ReplayedPut(id, key, value));
+            } else {
+                ReplayedPut put = live.get(k);
+                if ((put != null) && (put.id == id)) {
+                    live.remove(k);
+                }
+            }
+            maxId[0] = Math.max(maxId[0], id);
+        });
+        nextId.set(maxId[0] + 1);
+
+        long position = 0;
+        for (Map.Entry<K, ReplayedPut> entry : live.entrySet()) {
+            ReplayedPut put = entry.getValue();
+            LoggedValue<V> logged = new LoggedValue<V>(put.id, put.key, valueSerializer.fromBytes(put.value));
+            position = log.append(WriteAheadLog.PUT, put.id, put.key, put.value);
+            logged.position = position;
+            map.put(entry.getKey(), logged);
+        }
+        try {
+            log.awaitDurable(position);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compacting the log", ex);
+        }
+        log.deleteReplayedSegments();
+    }
+
+    private Lock stripeFor(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return stripes[h & (STRIPES - 1)];
+    }
+
+    /**
+     * Logs the take of the given mapping & returns its value. The mapping has
+     * already been removed, hence its value is returned even if the log has
+     * been closed meanwhile.
+     */
+    private V taken(Object key, LoggedValue<V> taken) {
+        if (taken == null) {
+            return null;
+        }
+        Lock stripe = stripeFor(key);
+        stripe.lock();
+        try {
+            log.append(WriteAheadLog.TAKE, taken.id, taken.key, NO_VALUE);
+            log.release(taken.position);
+        } catch (IllegalStateException ex) {
+            //closed by clear, the mapping is restored on the next open as after a crash
+            Logger.getLogger(DurableBlockingHashMap.class.getName()).log(Level.FINE, "take not logged", ex);
+            return taken.value;
+        } finally {
+            stripe.unlock();
+        }
+        compact();
+        return taken.value;
+    }
+
+    /**
+     * Compacts the log if more than MAX_SEALED_SEGMENTS segments are full &
+     * no other thread is compacting it : appends again the mappings still
+     * available from the oldest segment, waits for them to be durable & lets
+     * the log reclaim the segments left without available mapping.
+     */
+    private void compact() {
+        if ((log.getSealedSegmentCount() <= MAX_SEALED_SEGMENTS) || !compaction.tryLock()) {
+            return;
+        }
+        try {
+            long oldest = log.getOldestSegment();
+            //mappings being taken are released by their consumer, not appended twice
+            if ((oldest != compactedSegment) && (log.getLivePuts(oldest) > 0)) {
+                compactedSegment = oldest;
+                log.awaitDurable(relocate(oldest));
+            }
+            log.reclaim();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IllegalStateException ex) {
+            //closed by clear meanwhile
+        } catch (IOException ex) {
+            Logger.getLogger(DurableBlockingHashMap.class.getName()).log(Level.SEVERE, null, ex);
+        } finally {
+            compaction.unlock();
+        }
+    }
+
+    /**
+     * Appends again the put records of the available mappings logged in the
+     * given segment & returns the position to await.
+     */
+    private long relocate(long segment) {
+        long position = 0;
+        for (Map.Entry<K, LoggedValue<V>> entry : map.entrySet()) {
+            LoggedValue<V> logged = entry.getValue();
+            if (log.segmentOf(logged.position) != segment) {
+                continue;
+            }
+            //serialized out of the stripe
+            byte[] valueBytes = valueSerializer.toBytes(logged.value);
+            Lock stripe = stripeFor(entry.getKey());
+            stripe.lock();
+            try {
+                //same id, replay keeps the latest copy
+                if ((map.get(entry.getKey()) == logged) && (log.segmentOf(logged.position) == segment)) {
+                    long previous = logged.position;
+                    logged.position = log.append(WriteAheadLog.PUT, logged.id, logged.key, valueBytes);
+                    log.release(previous);
+                    position = logged.position;
+                }
+            } finally {
+                stripe.unlock();
+            }
+        }
+        return position;
+    }
+
+    private static <V> V valueOf(LoggedValue<V> logged) {
+        return (logged == null) ? null : logged.value;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains a mapping for the specified
+     * key.
+     *
+     * @param key key whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map contains a mapping for the specified
+     * key
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public boolean isKeyAvailable(K key) {
+        return map.isKeyAvailable(key);
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains a mapping for the specified
+     * key.
+     *
+     * @param key key whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map contains a mapping for the specified
+     * key
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        return map.containsKey(key);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or {@code null}
+     * if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or {@code null}
+     * if this map contains no mapping for the key
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public V get(Object key) {
+        return valueOf(map.get(key));
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map &
+     * returns once the mapping is durable. Attempts to put a mapping whose key
+     * is already available on the map are ignored & not logged.
+     *
+     * <p>
+     * If the thread is interrupted while waiting for the log to be forced, the
+     * mapping stays available, but may not survive a crash. The interrupt
+     * status of the thread is set.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the value already available for <tt>key</tt>, or <tt>null</tt>
+     * if there was no mapping for <tt>key</tt>
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalArgumentException if the mapping does not fit in a log
+     * segment
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public V put(K key, V value) {
+        if ((key == null) || (value == null)) {
+            throw new NullPointerException();
+        }
+        //serialized out of the stripe
+        byte[] keyBytes = keySerializer.toBytes(key);
+        byte[] valueBytes = valueSerializer.toBytes(value);
+        LoggedValue<V> logged = new LoggedValue<V>(nextId.getAndIncrement(), keyBytes, value);
+
+        LoggedValue<V> existing;
+        long position = 0;
+        Lock stripe = stripeFor(key);
+        stripe.lock();
+        try {
+            existing = map.put(key, logged);
+            if (existing == null) {
+                position = log.append(WriteAheadLog.PUT, logged.id, keyBytes, valueBytes);
+                logged.position = position;
+            }
+        } finally {
+            stripe.unlock();
+        }
+        if (existing == null) {
+            try {
+                log.awaitDurable(position);
+            } catch (InterruptedException ex) {
+                Logger.getLogger(DurableBlockingHashMap.class.getName()).log(Level.SEVERE, null, ex);
+                Thread.currentThread().interrupt();
+            }
+            compact();
+        }
+        return valueOf(existing);
+    }
+
+    /**
+     * Removes the mapping for a key from this map if it is present & logs its
+     * removal.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @return the previous value associated with <tt>key</tt>, or <tt>null</tt>
+     * if there was no mapping for <tt>key</tt>.
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public V remove(Object key) {
+        return taken(key, map.remove(key));
+    }
+
+    /**
+     * Same as put, an unbound map never blocks producers.
+     *
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public V offer(K key, V value) throws InterruptedException {
+        return put(key, value);
+    }
+
+    /**
+     * Same as put, an unbound map never blocks producers.
+     *
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public V offer(K key, V value, long timeout, TimeUnit unit) throws InterruptedException {
+        return put(key, value);
+    }
+
+    /**
+     * Retrieves and removes the mapping for a key from this map if it is
+     * present, waiting if necessary until the mapping becomes available. The
+     * take is logged.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @return the value associated with <tt>key</tt>
+     * @throws NullPointerException if the specified key is null
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public V take(K key) throws InterruptedException {
+        return taken(key, map.take(key));
+    }
+
+    /**
+     * Retrieves and removes the mapping for a key from this map if it is
+     * present, waiting if necessary until the mapping becomes available or the
+     * specified time elapses. The take is logged.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @param timeout how long to wait before giving up, in units of
+     * <tt>unit</tt>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the
+     * <tt>timeout</tt> parameter
+     * @return the value associated with <tt>key</tt>, or <tt>null</tt> if the
+     * call times out
+     * @throws NullPointerException if the specified key is null
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public V take(K key, long timeout, TimeUnit unit) throws InterruptedException {
+        return taken(key, map.take(key, timeout, unit));
+    }
+
+    /**
+     * Retrieves and removes a mapping whose key matches the given predicate,
+     * waiting if necessary until such a mapping becomes available or the
+     * specified time elapses. The take is logged.
+     *
+     * @param predicate condition the key of the mapping should satisfy
+     * @param timeout how long to wait before giving up, in units of
+     * <tt>unit</tt>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the
+     * <tt>timeout</tt> parameter
+     * @return the mapping taken, or <tt>null</tt> if the call times out
+     * @throws NullPointerException if the predicate is null
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public Map.Entry<K, V> takeMatching(Predicate<? super K> predicate, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        Map.Entry<K, LoggedValue<V>> entry = map.takeMatching(predicate, timeout, unit);
+        if (entry == null) {
+            return null;
+        }
+        return new AbstractMap.SimpleImmutableEntry<K, V>(entry.getKey(), taken(entry.getKey(), entry.getValue()));
+    }
+
+    /**
+     * Retrieves and removes the mappings of all the given keys, waiting if
+     * necessary until all of them are available or the specified time elapses.
+     * The take of each mapping is logged.
+     *
+     * @param keys keys whose mappings are to be removed from the map
+     * @param timeout how long to wait before giving up, in units of
+     * <tt>unit</tt>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the
+     * <tt>timeout</tt> parameter
+     * @return the mappings of all the keys, or <tt>null</tt> if the call times
+     * out before all of them are available
+     * @throws NullPointerException if any of the keys is null
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public Map<K, V> takeAll(Collection<? extends K> keys, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        Map<K, LoggedValue<V>> taken = map.takeAll(keys, timeout, unit);
+        if (taken == null) {
+            return null;
+        }
+        Map<K, V> result = new LinkedHashMap<K, V>();
+        for (Map.Entry<K, LoggedValue<V>> entry : taken.entrySet()) {
+            result.put(entry.getKey(), taken(entry.getKey(), entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Shuts down this blocking map & closes the log. Consumers blocked on the
+     * map are interrupted. Mappings available at this time are dropped from
+     * memory, but kept in the log for the next map opened on the directory.
+     *
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public void clear() {
+        map.clear();
+        log.close();
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map maps one or more keys to the specified
+     * value.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map maps one or more keys to the specified
+     * value
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public boolean containsValue(Object value) {
+        return map.search(Long.MAX_VALUE, (k, logged) -> logged.value.equals(value) ? Boolean.TRUE : null) != null;
+    }
+
+    /**
+     * Returns true if this map contains no key-value mappings.
+     *
+     * @return true if this map contains no key-value mappings
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map
+     *
+     * @return the number of key-value mappings in this map
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    /**
+     * Returns a read only, weakly consistent view of the available mappings.
+     *
+     * @return a view of the available mappings
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        final Set<Map.Entry<K, LoggedValue<V>>> entries = map.entrySet();
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                final Iterator<Map.Entry<K, LoggedValue<V>>> it = entries.iterator();
+                return new Iterator<Map.Entry<K, V>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<K, V> next() {
+                        Map.Entry<K, LoggedValue<V>> entry = it.next();
+                        return new AbstractMap.SimpleImmutableEntry<K, V>(entry.getKey(), entry.getValue().value);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return entries.size();
+            }
+        };
+    }
+
+    /**
+     * Returns a read only, weakly consistent view of the available keys.
+     *
+     * @return a view of the available keys
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public Set<K> keySet() {
+        return Collections.unmodifiableSet(map.keySet());
+    }
+
+    /**
+     * Returns a read only, weakly consistent view of the available values.
+     *
+     * @return a view of the available values
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public Collection<V> values() {
+        final Collection<LoggedValue<V>> values = map.values();
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                final Iterator<LoggedValue<V>> it = values.iterator();
+                return new Iterator<V>() {
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public V next() {
+                        return it.next().value;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return values.size();
+            }
+        };
+    }
+
+    /**
+     * Puts all mappings, each one as with put. <tt>putAll(m, false)</tt>
+     * checks the whole batch first; atomic publication is not supported.
+     *
+     * @param m mappings to be stored in this map
+     * @throws NullPointerException if any key or value is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        for (Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Performs the given action for each available mapping, like
+     * {@link BlockingHashMap#forEach(long, BiConsumer)}.
+     *
+     * @throws NullPointerException if the action is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public void forEach(long parallelismThreshold, BiConsumer<? super K, ? super V> action) {
+        if (action == null) {
+            throw new NullPointerException();
+        }
+        map.forEach(parallelismThreshold, (key, logged) -> action.accept(key, logged.value));
+    }
+
+    /**
+     * Searches the available mappings, like
+     * {@link BlockingHashMap#search(long, BiFunction)}.
+     *
+     * @throws NullPointerException if the search function is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public <U> U search(long parallelismThreshold, BiFunction<? super K, ? super V, ? extends U> searchFunction) {
+        if (searchFunction == null) {
+            throw new NullPointerException();
+        }
+        return map.search(parallelismThreshold, (key, logged) -> searchFunction.apply(key, logged.value));
+    }
+
+    /**
+     * Reduces the available mappings, like
+     * {@link BlockingHashMap#reduce(long, BiFunction, BiFunction)}.
+     *
+     * @throws NullPointerException if the transformer or reducer is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public <U> U reduce(long parallelismThreshold, BiFunction<? super K, ? super V, ? extends U> transformer,
+            BiFunction<? super U, ? super U, ? extends U> reducer) {
+        if ((transformer == null) || (reducer == null)) {
+            throw new NullPointerException();
+        }
+        return map.reduce(parallelismThreshold, (key, logged) -> transformer.apply(key, logged.value), reducer);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * FlightRecorderEventTypes.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * The Flight Recorder events of {@link FlightRecorderEvents}, the only class
+ * linking against <tt>jdk.jfr</tt>. Excluded from the build on JDK 8. Event
+ * types are registered once Flight Recorder has been initialized by a
+ * recording, not before.
+ *
+ * <p>
+ * Should not be accessible outside the package. Meant to be loaded by
+ * FlightRecorderEvents
+ *
+ * @version 1.0, 19/10/26
+ */
+final class FlightRecorderEventTypes implements FlightRecorderEvents.Recorder {
+
+    /**
+     * Holder of the event types, registered on first use
+     */
+    private static final class Types {
+
+        static final EventType TAKE_COMPLETED = EventType.getEventType(TakeCompleted.class);
+        static final EventType TAKE_TIMED_OUT = EventType.getEventType(TakeTimedOut.class);
+        static final EventType PUT_HANDOFF = EventType.getEventType(PutHandoff.class);
+        static final EventType SHUTDOWN = EventType.getEventType(Shutdown.class);
+    }
+
+    private static int hashOf(Object key) {
+        return (key == null) ? 0 : key.hashCode();
+    }
+
+    /**
+     * Begins an event of each enabled type, the outcome is not known yet
+     */
+    @Override
+    public Object beginTake() {
+        if (!FlightRecorder.isInitialized()
+                || !(Types.TAKE_COMPLETED.isEnabled() || Types.TAKE_TIMED_OUT.isEnabled())) {
+            return null;
+        }
+        TakeEvent[] events = new TakeEvent[2];
+        if (Types.TAKE_COMPLETED.isEnabled()) {
+            events[0] = new TakeCompleted();
+            events[0].begin();
+        }
+        if (Types.TAKE_TIMED_OUT.isEnabled()) {
+            events[1] = new TakeTimedOut();
+            events[1].begin();
+        }
+        return events;
+    }
+
+    @Override
+    public void endTake(Object token, Object key, boolean taken) {
+        TakeEvent event = ((TakeEvent[]) token)[taken ? 0 : 1];
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.keyHash = hashOf(key);
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object beginPut() {
+        if (!FlightRecorder.isInitialized() || !Types.PUT_HANDOFF.isEnabled()) {
+            return null;
+        }
+        PutHandoff event = new PutHandoff();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endPut(Object token, Object key, int waitersWoken) {
+        PutHandoff event = (PutHandoff) token;
+        event.end();
+        if (event.shouldCommit()) {
+            event.keyHash = hashOf(key);
+            event.waitersWoken = waitersWoken;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object beginShutdown() {
+        if (!FlightRecorder.isInitialized() || !Types.SHUTDOWN.isEnabled()) {
+            return null;
+        }
+        Shutdown event = new Shutdown();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endShutdown(Object token, int waitersAbandoned, int mappingsDiscarded) {
+        Shutdown event = (Shutdown) token;
+        event.end();
+        if (event.shouldCommit()) {
+            event.waitersAbandoned = waitersAbandoned;
+            event.mappingsDiscarded = mappingsDiscarded;
+            event.commit();
+        }
+    }
+
+    @Category({"Java Application", "BlockingMap"})
+    abstract static class TakeEvent extends Event {
+
+        @Label("Key Hash")
+        int keyHash;
+    }
+
+    @Name("org.thavam.blockingMap.TakeCompleted")
+    @Label("BlockingMap Take Completed")
+    @Description("A consumer took its mapping, the duration is its wait")
+    @Threshold("10 ms")
+    static final class TakeCompleted extends TakeEvent {
+    }
+
+    @Name("org.thavam.blockingMap.TakeTimedOut")
+    @Label("BlockingMap Take Timed Out")
+    @Description("A timed take gave up before its mapping was put")
+    @Threshold("10 ms")
+    static final class TakeTimedOut extends TakeEvent {
+    }
+
+    @Name("org.thavam.blockingMap.PutHandoff")
+    @Label("BlockingMap Put With Waiters")
+    @Description("A put handed its mapping to waiting consumers, the duration includes waking them")
+    @Category({"Java Application", "BlockingMap"})
+    @Threshold("1 ms")
+    @StackTrace(false)
+    static final class PutHandoff extends Event {
+
+        @Label("Key Hash")
+        int keyHash;
+        @Label("Waiters Woken")
+        @Description("Consumers of the key that began waiting while the event was recorded")
+        int waitersWoken;
+    }
+
+    @Name("org.thavam.blockingMap.Shutdown")
+    @Label("BlockingMap Shutdown")
+    @Description("A map was shut down, waking its consumers")
+    @Category({"Java Application", "BlockingMap"})
+    static final class Shutdown extends Event {
+
+        @Label("Waiters Abandoned")
+        int waitersAbandoned;
+        @Label("Mappings Discarded")
+        int mappingsDiscarded;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * FlightRecorderEvents.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Java Flight Recorder events of {@link BlockingHashMap} operations :
+ * completed & timed out takes, puts handing their mapping to waiting
+ * consumers, & shutdowns. Events carry the hash of the key rather than the
+ * key itself, slow operations only are recorded by default.
+ *
+ * <p>
+ * The events are defined by {@link FlightRecorderEventTypes}, the only class
+ * linking against <tt>jdk.jfr</tt>. It is compiled only on JDK 11 & later &
+ * loaded on the first operation of a map; on a runtime or build without it,
+ * events are never begun. Until a recording initializes Flight Recorder, an
+ * operation only checks whether it is initialized & no event type is
+ * registered. Once it is, an operation checks whether its event type is
+ * enabled. The event is passed around as an opaque token, <tt>null</tt> when
+ * not recorded.
+ *
+ * <p>
+ * Thresholds are set like those of the JDK events, e.g. in a <tt>.jfc</tt>
+ * file or on the command line :
+ * <pre>
+ * -XX:StartFlightRecording:settings=profile,org.thavam.blockingMap.TakeCompleted#threshold=1ms
+ * </pre>
+ *
+ * <p>
+ * Should not be accessible outside the package. Meant to be used from
+ * ActiveBlockingHashMap
+ *
+ * @version 1.0, 19/10/26
+ */
+final class FlightRecorderEvents {
+
+    private static final String TYPES = "org.thavam.util.concurrent.blockingMap.FlightRecorderEventTypes";
+
+    /**
+     * Records the events, implemented against <tt>jdk.jfr</tt>
+     */
+    interface Recorder {
+
+        Object beginTake();
+
+        void endTake(Object event, Object key, boolean taken);
+
+        Object beginPut();
+
+        void endPut(Object event, Object key, int waitersWoken);
+
+        Object beginShutdown();
+
+        void endShutdown(Object event, int waitersAbandoned, int mappingsDiscarded);
+    }
+
+    /**
+     * Holder of the recorder, resolved on the first operation of a map
+     */
+    private static final class Holder {
+
+        static final Recorder RECORDER = load();
+
+        private static Recorder load() {
+            try {
+                return (Recorder) Class.forName(TYPES).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError ex) {
+                //built or running without jdk.jfr
+                Logger.getLogger(FlightRecorderEvents.class.getName()).log(Level.FINE,
+                        "Flight Recorder events not available", ex);
+                return null;
+            }
+        }
+    }
+
+    private FlightRecorderEvents() {
+    }
+
+    /**
+     * Returns whether the events can be recorded on this runtime
+     */
+    static boolean isAvailable() {
+        return Holder.RECORDER != null;
+    }
+
+    /**
+     * Begins the event of a take, if recorded
+     *
+     * @return the event begun, null if not recorded
+     */
+    static Object beginTake() {
+        Recorder recorder = Holder.RECORDER;
+        return (recorder == null) ? null : recorder.beginTake();
+    }
+
+    /**
+     * Ends & commits the event of a take, if above its threshold
+     */
+    static void endTake(Object event, Object key, boolean taken) {
+        if (event != null) {
+            Holder.RECORDER.endTake(event, key, taken);
+        }
+    }
+
+    /**
+     * Begins the event of a put, if recorded
+     *
+     * @return the event begun, null if not recorded
+     */
+    static Object beginPut() {
+        Recorder recorder = Holder.RECORDER;
+        return (recorder == null) ? null : recorder.beginPut();
+    }
+
+    /**
+     * Ends & commits the event of a put that woke waiting consumers, if
+     * above its threshold. Puts waking no consumer are not recorded
+     */
+    static void endPut(Object event, Object key, int waitersWoken) {
+        if ((event != null) && (waitersWoken > 0)) {
+            Holder.RECORDER.endPut(event, key, waitersWoken);
+        }
+    }
+
+    /**
+     * Begins the event of a shutdown, if recorded
+     *
+     * @return the event begun, null if not recorded
+     */
+    static Object beginShutdown() {
+        Recorder recorder = Holder.RECORDER;
+        return (recorder == null) ? null : recorder.beginShutdown();
+    }
+
+    /**
+     * Ends & commits the event of a shutdown
+     */
+    static void endShutdown(Object event, int waitersAbandoned, int mappingsDiscarded) {
+        if (event != null) {
+            Holder.RECORDER.endShutdown(event, waitersAbandoned, mappingsDiscarded);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * HotKeyTracker.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * Finds the keys of a {@link BlockingHashMap} most contended for : the keys
+ * consumers block on, producers put while already available, & takes lose
+ * because another consumer won the mapping. Created by
+ * {@link BlockingHashMap#trackHotKeys(int, int)}, stopped by {@link #close()}
+ * or by the shutdown of the map.
+ *
+ * <p>
+ * Contention events are sampled, one in <tt>sampleRate</tt> on average, &
+ * the sampled ones are counted in a Space-Saving sketch of fixed capacity.
+ * The sketch keeps the <tt>capacity</tt> keys of highest count in a min-heap;
+ * a key not tracked replaces the one of lowest count & inherits its count as
+ * error. Any key whose share of the sampled events exceeds
+ * <tt>1 / capacity</tt> is guaranteed to be tracked. Counts are scaled back
+ * by the sample rate when reported, hence are estimates.
+ *
+ * <p>
+ * Events not sampled cost a thread local random draw. Sampled ones update the
+ * sketch under its monitor, in logarithmic time of the capacity.
+ *
+ * @param <K> the type of keys maintained by the map
+ * @version 1.0, 19/10/26
+ */
+public final class HotKeyTracker<K> implements Closeable {
+
+    /**
+     * keys tracked by default
+     */
+    public static final int DEFAULT_CAPACITY = 64;
+    /**
+     * one event in DEFAULT_SAMPLE_RATE is sampled by default
+     */
+    public static final int DEFAULT_SAMPLE_RATE = 16;
+    private static final int WAIT = 0;
+    private static final int DUPLICATE_PUT = 1;
+    private static final int LOST_TAKE = 2;
+    private final int capacity;
+    private final int sampleRate;
+    private final Consumer<HotKeyTracker<K>> onClose;
+    //guarded by this
+    private final Map<K, Slot<K>> slots = new HashMap<K, Slot<K>>();
+    private final List<Slot<K>> heap = new ArrayList<Slot<K>>();
+    private volatile boolean closed;
+
+    /**
+     * Counter of a tracked key, at position index of the heap
+     */
+    private static final class Slot<K> {
+
+        K key;
+        long count;
+        long error;
+        final long[] kinds = new long[3];
+        int index;
+    }
+
+    /**
+     * Contention estimated for a key, as listed by {@link #getHotKeys()}
+     *
+     * @param <K> the type of keys
+     */
+    public static final class HotKey<K> {
+
+        private final K key;
+        private final long count;
+        private final long error;
+        private final long waits;
+        private final long duplicatePuts;
+        private final long lostTakes;
+
+        HotKey(Slot<K> slot, int sampleRate) {
+            this.key = slot.key;
+            this.count = slot.count * sampleRate;
+            this.error = slot.error * sampleRate;
+            this.waits = slot.kinds[WAIT] * sampleRate;
+            this.duplicatePuts = slot.kinds[DUPLICATE_PUT] * sampleRate;
+            this.lostTakes = slot.kinds[LOST_TAKE] * sampleRate;
+        }
+
+        /**
+         * @return the key
+         */
+        public K getKey() {
+            return key;
+        }
+
+        /**
+         * @return the estimated number of contention events of the key, an
+         * upper bound
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the largest overestimation of the count, inherited from the
+         * key it replaced in the sketch
+         */
+        public long getError() {
+            return error;
+        }
+
+        /**
+         * @return the estimated number of consumers that blocked on the key
+         * since it is tracked
+         */
+        public long getWaits() {
+            return waits;
+        }
+
+        /**
+         * @return the estimated number of puts ignored since it is tracked,
+         * the key being available
+         */
+        public long getDuplicatePuts() {
+            return duplicatePuts;
+        }
+
+        /**
+         * @return the estimated number of consumers woken by a put of the key
+         * that found the mapping taken by another consumer, since it is
+         * tracked
+         */
+        public long getLostTakes() {
+            return lostTakes;
+        }
+
+        @Override
+        public String toString() {
+            return key + " : count=" + count + " (error " + error + ") waits=" + waits
+                    + " duplicatePuts=" + duplicatePuts + " lostTakes=" + lostTakes;
+        }
+    }
+
+    HotKeyTracker(int capacity, int sampleRate, Consumer<HotKeyTracker<K>> onClose) {
+        if ((capacity <= 0) || (sampleRate <= 0)) {
+            throw new IllegalArgumentException("capacity & sample rate should be positive");
+        }
+        this.capacity = capacity;
+        this.sampleRate = sampleRate;
+        this.onClose = onClose;
+    }
+
+    /**
+     * A consumer blocks waiting for the key
+     */
+    void waited(K key) {
+        sample(key, WAIT);
+    }
+
+    /**
+     * A put of the key was ignored, the key being available
+     */
+    void duplicatePut(K key) {
+        sample(key, DUPLICATE_PUT);
+    }
+
+    /**
+     * A consumer woken for the key found its mapping taken by another
+     */
+    void lostTake(K key) {
+        sample(key, LOST_TAKE);
+    }
+
+    private void sample(K key, int kind) {
+        if ((sampleRate == 1) || (ThreadLocalRandom.current().nextInt(sampleRate) == 0)) {
+            count(key, kind);
+        }
+    }
+
+    private synchronized void count(K key, int kind) {
+        Slot<K> slot = slots.get(key);
+        if (slot == null) {
+            if (heap.size() < capacity) {
+                slot = new Slot<K>();
+                slot.key = key;
+                slot.count = 1;
+                slot.kinds[kind] = 1;
+                slots.put(key, slot);
+                heap.add(slot);
+                siftUp(slot, heap.size() - 1);
+                return;
+            }
+            //replaces the key of lowest count
+            slot = heap.get(0);
+            slots.remove(slot.key);
+            slot.error = slot.count;
+            slot.kinds[WAIT] = 0;
+            slot.kinds[DUPLICATE_PUT] = 0;
+            slot.kinds[LOST_TAKE] = 0;
+            slot.key = key;
+            slots.put(key, slot);
+        }
+        slot.count++;
+        slot.kinds[kind]++;
+        siftDown(slot);
+    }
+
+    /**
+     * Moves a slot added at the given index up to its place
+     */
+    private void siftUp(Slot<K> slot, int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            Slot<K> larger = heap.get(parent);
+            if (larger.count <= slot.count) {
+                break;
+            }
+            heap.set(index, larger);
+            larger.index = index;
+            index = parent;
+        }
+        heap.set(index, slot);
+        slot.index = index;
+    }
+
+    /**
+     * Restores the heap order after the count of the slot increased
+     */
+    private void siftDown(Slot<K> slot) {
+        int size = heap.size();
+        int index = slot.index;
+        for (;;) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if ((child + 1 < size) && (heap.get(child + 1).count < heap.get(child).count)) {
+                child++;
+            }
+            Slot<K> smaller = heap.get(child);
+            if (smaller.count >= slot.count) {
+                break;
+            }
+            heap.set(index, smaller);
+            smaller.index = index;
+            index = child;
+        }
+        heap.set(index, slot);
+        slot.index = index;
+    }
+
+    /**
+     * Returns the keys tracked, the most contended first.
+     *
+     * @return the hot keys
+     */
+    public List<HotKey<K>> getHotKeys() {
+        return getHotKeys(capacity);
+    }
+
+    /**
+     * Returns the given number of most contended keys, the most contended
+     * first.
+     *
+     * @param limit the number of keys to return at most
+     * @return the hot keys
+     */
+    public synchronized List<HotKey<K>> getHotKeys(int limit) {
+        List<HotKey<K>> hotKeys = new ArrayList<HotKey<K>>(heap.size());
+        for (Slot<K> slot : heap) {
+            hotKeys.add(new HotKey<K>(slot, sampleRate));
+        }
+        hotKeys.sort((a, b) -> Long.compare(b.count, a.count));
+        return (hotKeys.size() > limit) ? new ArrayList<HotKey<K>>(hotKeys.subList(0, limit)) : hotKeys;
+    }
+
+    /**
+     * Forgets the keys tracked so far.
+     */
+    public synchronized void reset() {
+        slots.clear();
+        heap.clear();
+    }
+
+    /**
+     * Returns the number of keys tracked at most.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the sampling rate, one event in that many is counted.
+     *
+     * @return the sample rate
+     */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Stops tracking & detaches the tracker from the map. The keys tracked
+     * remain available.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            onClose.accept(this);
+        }
+    }
+
+    /**
+     * Returns whether the tracker is stopped.
+     *
+     * @return <tt>true</tt> once closed
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * KeyPredicates.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Factory of key predicates for
+ * {@link BlockingMap#takeMatching(Predicate, long, java.util.concurrent.TimeUnit) takeMatching}
+ * that can be routed by the map.
+ *
+ * <p>
+ * Any predicate can be used with <tt>takeMatching</tt>, but an arbitrary
+ * predicate has to be evaluated against every key put while the consumer is
+ * waiting. Predicates created here describe a <em>partition</em> of the key
+ * space: a classifier function maps every key to a partition and the predicate
+ * matches the keys of one partition. A map can then index waiters and
+ * available keys by partition, so that a put only evaluates the waiters of the
+ * partition the key falls into, and an available key is found without looking
+ * at keys of other partitions.
+ *
+ * <p>
+ * Predicates with the same classifier share an index. Classifiers should
+ * therefore be reused (e.g. held in a constant) rather than created per call.
+ *
+ * @version 1.0, 19/10/26
+ */
+public final class KeyPredicates {
+
+    //static factory, not meant to be instantiated
+    private KeyPredicates() {
+    }
+
+    /**
+     * Returns a predicate matching keys that the classifier maps to the given
+     * partition, e.g. <tt>inPartition(Order::getTenant, "tenant-x")</tt>.
+     *
+     * @param <K> the type of keys
+     * @param classifier function mapping a key to its partition. It should be
+     * stateless and return <tt>null</tt> for keys that belong to no partition.
+     * @param partition the partition of interest
+     * @return a predicate matching the keys of the partition
+     * @throws NullPointerException if classifier or partition is null
+     */
+    public static <K> Predicate<K> inPartition(Function<? super K, ?> classifier, Object partition) {
+        if ((classifier == null) || (partition == null)) {
+            throw new NullPointerException();
+        }
+        return new PartitionPredicate<K>(classifier, partition);
+    }
+
+    /**
+     * Returns a predicate matching string keys starting with the given prefix.
+     * Prefixes of the same length share an index.
+     *
+     * @param prefix the prefix of interest
+     * @return a predicate matching keys starting with <tt>prefix</tt>
+     * @throws NullPointerException if prefix is null
+     */
+    public static Predicate<String> startsWith(String prefix) {
+        return new PartitionPredicate<String>(new PrefixClassifier(prefix.length()), prefix);
+    }
+
+    /**
+     * Predicate matching one partition of the key space.
+     */
+    static final class PartitionPredicate<K> implements Predicate<K> {
+
+        private final Function<? super K, ?> classifier;
+        private final Object partition;
+
+        PartitionPredicate(Function<? super K, ?> classifier, Object partition) {
+            this.classifier = classifier;
+            this.partition = partition;
+        }
+
+        Function<? super K, ?> classifier() {
+            return classifier;
+        }
+
+        Object partition() {
+            return partition;
+        }
+
+        @Override
+        public boolean test(K key) {
+            return partition.equals(classifier.apply(key));
+        }
+
+        @Override
+        public String toString() {
+            return "PartitionPredicate[" + partition + "]";
+        }
+    }
+
+    /**
+     * Maps a string key to its prefix of fixed length. Equal by length so that
+     * all prefixes of the same length share an index.
+     */
+    static final class PrefixClassifier implements Function<String, String> {
+
+        private final int length;
+
+        PrefixClassifier(int length) {
+            this.length = length;
+        }
+
+        @Override
+        public String apply(String key) {
+            return (key.length() < length) ? null : key.substring(0, length);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return (other instanceof PrefixClassifier)
+                    && (((PrefixClassifier) other).length == length);
+        }
+
+        @Override
+        public int hashCode() {
+            return length;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * LatencyHistogram.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free log-linear histogram of durations in nanoseconds. Values below
+ * 32 have a bucket each; above, every power of two is split in 32 equal
+ * buckets, which bounds the relative error of a percentile to about 3% over
+ * the whole range of positive longs, in a fixed table of 1888 counters.
+ *
+ * <p>
+ * Recording is one atomic increment of the bucket, plus a striped add to the
+ * total & an update of the maximum when exceeded. Reads are not atomic with
+ * respect to concurrent recording & reflect each value recorded before they
+ * start.
+ *
+ * @version 1.0, 19/10/26
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a duration, negative durations are recorded as 0.
+     *
+     * @param nanos the duration
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(value));
+        total.add(value);
+        long current;
+        while ((value > (current = max.get())) && !max.compareAndSet(current, value)) {
+        }
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * Returns the largest value falling in the bucket
+     */
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long lowest = ((long) ((index & (SUB_BUCKETS - 1)) + SUB_BUCKETS)) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Returns the number of values recorded.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the largest value recorded, 0 if none.
+     *
+     * @return the maximum
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the mean of the values recorded, 0 if none.
+     *
+     * @return the mean
+     */
+    public double getMean() {
+        long count = getCount();
+        return (count == 0) ? 0 : (double) total.sum() / count;
+    }
+
+    /**
+     * Returns the value below which the given percentage of the recorded
+     * values fall, as the upper bound of its bucket capped by the maximum.
+     *
+     * @param percentile the percentage, from 0 to 100
+     * @return the value at the percentile, 0 if nothing was recorded
+     * @throws IllegalArgumentException if the percentile is out of range
+     */
+    public long getValueAtPercentile(double percentile) {
+        if ((percentile < 0) || (percentile > 100)) {
+            throw new IllegalArgumentException("percentile should be in [0, 100] : " + percentile);
+        }
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount() + " mean=" + (long) getMean() + " p50=" + getValueAtPercentile(50)
+                + " p99=" + getValueAtPercentile(99) + " p999=" + getValueAtPercentile(99.9) + " max=" + getMax();
+    }
+}
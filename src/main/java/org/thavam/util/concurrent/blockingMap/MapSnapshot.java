@@ -0,0 +1,325 @@
+/*
+ * MapSnapshot.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Binary snapshot file of the available mappings of a map. A snapshot is
+ * written in two sections : the entries found by one weakly consistent pass
+ * over the map, followed by the delta, the current state of every key modified
+ * while the pass was running. Keys of the pass are distinct, hence the pass
+ * section is loaded in parallel; the delta is applied after it, in order.
+ *
+ * <p>
+ * Layout : <tt>[int magic]</tt>, then records <tt>[byte type][int key
+ * length][key][int value length][value]</tt>, then <tt>[byte END][long
+ * record count]</tt>. A delta take record has an empty value. A file without
+ * its end record, e.g. left by a crash, is rejected on restore. The snapshot is
+ * written to a temporary sibling file & moved over the target once complete.
+ *
+ * @version 1.0, 19/10/26
+ */
+/**
+ * Should not be accessible outside the package. Meant to be used from
+ * BlockingHashMap
+ */
+class MapSnapshot {
+
+    static final int MAGIC = 0x424D5331;
+    static final byte END = 0;
+    static final byte ENTRY = 1;
+    static final byte DELTA_PUT = 2;
+    static final byte DELTA_TAKE = 3;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /**
+     * entries deserialized & put by one task on restore
+     */
+    private static final int RESTORE_BATCH = 1024;
+    private static final byte[] NO_VALUE = new byte[0];
+
+    private MapSnapshot() {
+    }
+
+    /**
+     * Record read from a snapshot, not deserialized yet
+     */
+    private static final class Record {
+
+        final byte type;
+        final byte[] key;
+        final byte[] value;
+
+        Record(byte type, byte[] key, byte[] value) {
+            this.type = type;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Receives the mappings of a snapshot being restored
+     */
+    interface Target<K, V> {
+
+        void put(K key, V value);
+
+        void remove(K key);
+    }
+
+    /**
+     * Streams records to the temporary file through a fixed size buffer. No
+     * copy of the map is held in memory.
+     */
+    static final class Writer<K, V> implements Closeable {
+
+        private final Path file;
+        private final Path temporary;
+        private final FileChannel channel;
+        private final Serializer<K> keySerializer;
+        private final Serializer<V> valueSerializer;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private long records = 0;
+        private boolean finished = false;
+
+        Writer(Path file, Serializer<K> keySerializer, Serializer<V> valueSerializer) throws IOException {
+            if ((keySerializer == null) || (valueSerializer == null)) {
+                throw new NullPointerException();
+            }
+            this.file = file;
+            this.temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            this.keySerializer = keySerializer;
+            this.valueSerializer = valueSerializer;
+            this.channel = FileChannel.open(temporary,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            buffer.putInt(MAGIC);
+        }
+
+        void entry(K key, V value) throws IOException {
+            write(ENTRY, keySerializer.toBytes(key), valueSerializer.toBytes(value));
+        }
+
+        void deltaPut(K key, V value) throws IOException {
+            write(DELTA_PUT, keySerializer.toBytes(key), valueSerializer.toBytes(value));
+        }
+
+        void deltaTake(K key) throws IOException {
+            write(DELTA_TAKE, keySerializer.toBytes(key), NO_VALUE);
+        }
+
+        private void write(byte type, byte[] key, byte[] value) throws IOException {
+            int length = 1 + 4 + key.length + 4 + value.length;
+            if (buffer.remaining() < length) {
+                flush();
+            }
+            if (buffer.remaining() < length) {
+                //larger than the buffer, written on its own
+                ByteBuffer record = ByteBuffer.allocate(length);
+                record.put(type).putInt(key.length).put(key).putInt(value.length).put(value);
+                record.flip();
+                writeFully(record);
+            } else {
+                buffer.put(type).putInt(key.length).put(key).putInt(value.length).put(value);
+            }
+            records++;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            writeFully(buffer);
+            buffer.clear();
+        }
+
+        private void writeFully(ByteBuffer bytes) throws IOException {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+
+        /**
+         * Writes the end record, forces the file & moves it over the target.
+         *
+         * @return the number of records written
+         */
+        long finish() throws IOException {
+            if (buffer.remaining() < 1 + 8) {
+                flush();
+            }
+            buffer.put(END).putLong(records);
+            flush();
+            channel.force(true);
+            channel.close();
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            finished = true;
+            return records;
+        }
+
+        /**
+         * Closes the file, deleting it if the snapshot was not finished
+         */
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                channel.close();
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    /**
+     * Reads records through a fixed size buffer, grown only for records larger
+     * than it.
+     */
+    private static final class Reader implements Closeable {
+
+        private final FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        Reader(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            buffer.flip();
+        }
+
+        /**
+         * Makes at least the given number of bytes available in the buffer
+         */
+        private ByteBuffer require(int length) throws IOException {
+            if (buffer.remaining() >= length) {
+                return buffer;
+            }
+            if (length > buffer.capacity()) {
+                ByteBuffer larger = ByteBuffer.allocate(length);
+                larger.put(buffer);
+                buffer = larger;
+            } else {
+                buffer.compact();
+            }
+            while (buffer.position() < length) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("snapshot truncated");
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+
+        int readInt() throws IOException {
+            return require(4).getInt();
+        }
+
+        byte readByte() throws IOException {
+            return require(1).get();
+        }
+
+        long readLong() throws IOException {
+            return require(8).getLong();
+        }
+
+        byte[] readBytes() throws IOException {
+            int length = readInt();
+            if (length < 0) {
+                throw new IOException("corrupt snapshot record");
+            }
+            byte[] bytes = new byte[length];
+            require(bytes.length).get(bytes);
+            return bytes;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Loads a snapshot. Entries of the pass are deserialized & put by tasks
+     * of the common pool, in batches, while the file is being read. The delta
+     * is applied once all of them are done.
+     *
+     * @return the number of records read
+     * @throws IOException if the file cannot be read or is not a complete
+     * snapshot
+     */
+    static <K, V> long restore(Path file, Serializer<K> keySerializer, Serializer<V> valueSerializer,
+            Target<K, V> target) throws IOException {
+        if ((keySerializer == null) || (valueSerializer == null)) {
+            throw new NullPointerException();
+        }
+        List<CompletableFuture<Void>> loads = new ArrayList<CompletableFuture<Void>>();
+        List<Record> delta = new ArrayList<Record>();
+        long records = 0;
+        Exception failure = null;
+        try (Reader reader = new Reader(file)) {
+            if (reader.readInt() != MAGIC) {
+                throw new IOException(file + " is not a snapshot");
+            }
+            List<Record> batch = new ArrayList<Record>(RESTORE_BATCH);
+            for (byte type = reader.readByte(); type != END; type = reader.readByte()) {
+                Record record = new Record(type, reader.readBytes(), reader.readBytes());
+                if (type == ENTRY) {
+                    batch.add(record);
+                    if (batch.size() == RESTORE_BATCH) {
+                        loads.add(load(batch, keySerializer, valueSerializer, target));
+                        batch = new ArrayList<Record>(RESTORE_BATCH);
+                    }
+                } else if ((type == DELTA_PUT) || (type == DELTA_TAKE)) {
+                    delta.add(record);
+                } else {
+                    throw new IOException("unknown record type " + type + " in " + file);
+                }
+                records++;
+            }
+            if (reader.readLong() != records) {
+                throw new IOException("record count mismatch in " + file);
+            }
+            loads.add(load(batch, keySerializer, valueSerializer, target));
+        } catch (IOException | RuntimeException ex) {
+            failure = ex;
+            throw ex;
+        } finally {
+            //let the tasks submitted complete, even on failure
+            try {
+                CompletableFuture.allOf(loads.toArray(new CompletableFuture<?>[0])).join();
+            } catch (CompletionException ex) {
+                IOException loadFailure = new IOException("snapshot entries could not be loaded", ex.getCause());
+                if (failure == null) {
+                    throw loadFailure;
+                }
+                //the failure reading the file stays the primary one
+                failure.addSuppressed(loadFailure);
+            }
+        }
+        for (Record record : delta) {
+            K key = keySerializer.fromBytes(record.key);
+            target.remove(key);
+            if (record.type == DELTA_PUT) {
+                target.put(key, valueSerializer.fromBytes(record.value));
+            }
+        }
+        return records;
+    }
+
+    private static <K, V> CompletableFuture<Void> load(final List<Record> batch,
+            final Serializer<K> keySerializer, final Serializer<V> valueSerializer, final Target<K, V> target) {
+        return CompletableFuture.runAsync(() -> {
+            for (Record record : batch) {
+                target.put(keySerializer.fromBytes(record.key), valueSerializer.fromBytes(record.value));
+            }
+        });
+    }
+}
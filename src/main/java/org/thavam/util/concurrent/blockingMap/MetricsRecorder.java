@@ -0,0 +1,88 @@
+/*
+ * MetricsRecorder.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+/**
+ * Receives the operations of a {@link BlockingHashMap} as they happen, to be
+ * counted & timed. A map created without a recorder uses {@link #NOOP} & does
+ * not read the clock, nor stamps its mappings.
+ *
+ * <p>
+ * Methods are invoked by producer & consumer threads, inline with the
+ * operation recorded : implementations should be thread safe, must not block
+ * & should not allocate. Every method does nothing by default, hence an
+ * implementation overrides only what it records. {@link BlockingMapMetrics}
+ * is the built-in implementation.
+ *
+ * @version 1.0, 19/10/26
+ */
+public interface MetricsRecorder {
+
+    /**
+     * Recorder doing nothing, used by maps created without a recorder
+     */
+    MetricsRecorder NOOP = new MetricsRecorder() {
+    };
+
+    /**
+     * A mapping was put on the map.
+     */
+    default void published() {
+    }
+
+    /**
+     * A put was ignored, the key being already available.
+     */
+    default void duplicatePut() {
+    }
+
+    /**
+     * A mapping was taken.
+     *
+     * @param waitNanos how long the consumer waited for the mapping, 0 if it
+     * was available
+     * @param handoffNanos time from the put of the mapping to its take
+     */
+    default void taken(long waitNanos, long handoffNanos) {
+    }
+
+    /**
+     * A timed take gave up before its mapping was put.
+     *
+     * @param waitNanos how long the consumer waited
+     */
+    default void timedOut(long waitNanos) {
+    }
+
+    /**
+     * A consumer started waiting for its mapping. Invoked on the consumer
+     * thread, which is the one to invoke {@link #waiterResumed()} next.
+     */
+    default void waiterParked() {
+    }
+
+    /**
+     * A consumer stopped waiting, with or without its mapping.
+     */
+    default void waiterResumed() {
+    }
+
+    /**
+     * The map was shut down while consumers were waiting on it.
+     *
+     * @param waiters the number of consumers woken without a mapping
+     */
+    default void abandonedOnShutdown(int waiters) {
+    }
+
+    /**
+     * The map was shut down while mappings were available on it.
+     *
+     * @param mappings the number of mappings removed without being taken
+     */
+    default void discardedOnShutdown(int mappings) {
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * NavigableBlockingMap.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <H1>A Navigable Blocking Map</H1> A {@linkplain BlockingMap blocking map}
+ * whose keys are kept in ascending order. In addition to waiting on a specific
+ * key, consumers can wait for <em>any</em> key in a given range to become
+ * available.
+ *
+ * <p>
+ * The ordered take operations remove and return an entry instead of a value,
+ * since the consumer does not know in advance which key satisfied the request.
+ * The entries returned are snapshots and do not support <tt>setValue</tt>.
+ *
+ * <table summary="Ordered Take Table" BORDER CELLPADDING=3 CELLSPACING=1> <tr>
+ * <td></td> <td ALIGN=CENTER><em>Blocks</em></td> <td ALIGN=CENTER><em>Times
+ * out</em></td> </tr> <tr> <td><b>Smallest key</b></td>
+ * <td>{@link #takeFirst() takeFirst()}</td>
+ * <td>{@link #takeFirst(long, TimeUnit) takeFirst(time, unit)}</td> </tr> <tr>
+ * <td><b>Smallest key &ge; k</b></td>
+ * <td>{@link #takeCeiling(Object) takeCeiling(k)}</td>
+ * <td>{@link #takeCeiling(Object, long, TimeUnit) takeCeiling(k, time, unit)}</td>
+ * </tr> <tr> <td><b>Smallest key in [from, to)</b></td> <td><em>not
+ * applicable</em></td>
+ * <td>{@link #takeInRange(Object, Object, long, TimeUnit) takeInRange(from, to, time, unit)}</td>
+ * </tr> </table>
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @version 1.0, 19/10/26
+ */
+public interface NavigableBlockingMap<K, V> extends BlockingMap<K, V> {
+
+    /**
+     * Retrieves and removes the entry with the smallest key, waiting if
+     * necessary until any key becomes available.
+     *
+     * @return the entry with the smallest available key
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    Map.Entry<K, V> takeFirst() throws InterruptedException;
+
+    /**
+     * Retrieves and removes the entry with the smallest key, waiting if
+     * necessary until any key becomes available or the specified time elapses.
+     *
+     * @param timeout how long to wait before giving up, in units of
+     * <tt>unit</tt>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the
+     * <tt>timeout</tt> parameter
+     * @return the entry with the smallest available key, or <tt>null</tt> if
+     * the call times out
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    Map.Entry<K, V> takeFirst(long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Retrieves and removes the entry with the least key greater than or equal
+     * to the given key, waiting if necessary until such a key becomes
+     * available.
+     *
+     * @param key the lower bound (inclusive) of keys of interest
+     * @return the entry with the least available key greater than or equal to
+     * <tt>key</tt>
+     * @throws ClassCastException if the key cannot be compared with the keys
+     * currently in the map
+     * @throws NullPointerException if the specified key is null
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    Map.Entry<K, V> takeCeiling(K key) throws InterruptedException;
+
+    /**
+     * Retrieves and removes the entry with the least key greater than or equal
+     * to the given key, waiting if necessary until such a key becomes available
+     * or the specified time elapses.
+     *
+     * @param key the lower bound (inclusive) of keys of interest
+     * @param timeout how long to wait before giving up, in units of
+     * <tt>unit</tt>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the
+     * <tt>timeout</tt> parameter
+     * @return the entry with the least available key greater than or equal to
+     * <tt>key</tt>, or <tt>null</tt> if the call times out
+     * @throws ClassCastException if the key cannot be compared with the keys
+     * currently in the map
+     * @throws NullPointerException if the specified key is null
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    Map.Entry<K, V> takeCeiling(K key, long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Retrieves and removes the entry with the least key in the range
+     * <tt>[fromKey, toKey)</tt>, waiting if necessary until such a key becomes
+     * available or the specified time elapses.
+     *
+     * @param fromKey low endpoint (inclusive) of the keys of interest
+     * @param toKey high endpoint (exclusive) of the keys of interest
+     * @param timeout how long to wait before giving up, in units of
+     * <tt>unit</tt>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the
+     * <tt>timeout</tt> parameter
+     * @return the entry with the least available key in the range, or
+     * <tt>null</tt> if the call times out
+     * @throws ClassCastException if the keys cannot be compared with the keys
+     * currently in the map
+     * @throws NullPointerException if either of the keys is null
+     * @throws IllegalArgumentException if <tt>fromKey</tt> is greater than
+     * <tt>toKey</tt>
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    Map.Entry<K, V> takeInRange(K fromKey, K toKey, long timeout, TimeUnit unit) throws InterruptedException;
+}
@@ -10,6 +10,7 @@ package org.thavam.util.concurrent.blockingMap;
 
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -31,6 +32,10 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  */
 class ObjectLatch<R> {
 
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<ObjectLatch> RECORDED_WAITERS
+            = AtomicIntegerFieldUpdater.newUpdater(ObjectLatch.class, "recordedWaiters");
+
     /**
      * The object.
      *
@@ -39,6 +44,12 @@ class ObjectLatch<R> {
      * of caching issues
      */
     private volatile R object = null;
+    /**
+     * System.nanoTime() of the set, 0 unless set with a timestamp. Written
+     * before the object, read after it
+     */
+    private long publishedNanos;
+    private Object context;
     
     /**
      * The latch counter created and set to 1.
@@ -50,6 +61,26 @@ class ObjectLatch<R> {
      * co-ordinate these sections
      */
     private final ReadWriteLock setLock = new ReentrantReadWriteLock();
+    /**
+     * consumers waiting on the latch whose take is recorded by Flight
+     * Recorder. Not counted otherwise
+     */
+    private volatile int recordedWaiters;
+
+    /**
+     * Counts a consumer starting, or with a negative delta ending, a wait
+     * recorded by Flight Recorder
+     */
+    void recordedWaiter(int delta) {
+        RECORDED_WAITERS.addAndGet(this, delta);
+    }
+
+    /**
+     * Returns the consumers waiting on the latch whose take is recorded
+     */
+    int getRecordedWaiters() {
+        return recordedWaiters;
+    }
 
     /**
      * Checks if the object is already available (has been already set).
@@ -102,6 +133,63 @@ class ObjectLatch<R> {
         }
     }
 
+    /**
+     * Same as set, recording the time the object is published at if it is
+     * set
+     *
+     * @return null if mapping object set on latch, else returns the existing
+     * object in latch
+     * @param object the object
+     * @param nanos System.nanoTime() of the publication
+     */
+    public R set(R object, long nanos) {
+        return set(object, nanos, null);
+    }
+
+    /**
+     * Same as set, recording the time the object is published at & the
+     * context attached by its producer if it is set
+     *
+     * @return null if mapping object set on latch, else returns the existing
+     * object in latch
+     * @param object the object
+     * @param nanos System.nanoTime() of the publication
+     * @param context context of the producer, may be null
+     */
+    public R set(R object, long nanos, Object context) {
+        setLock.writeLock().lock();
+        try {
+            if (!isAvailable()) {
+                this.publishedNanos = nanos;
+                this.context = context;
+                this.object = object;
+                latch.countDown();
+                return null;
+            } else {
+                return this.object;
+            }
+        } finally {
+            setLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the context attached to the object by its producer, null if
+     * none or the object is not available
+     */
+    public Object getContext() {
+        //written before the object
+        return (object != null) ? context : null;
+    }
+
+    /**
+     * Returns the System.nanoTime() the object was set at, 0 if it was set
+     * without a timestamp or is not available
+     */
+    public long getPublishedNanos() {
+        return (object != null) ? publishedNanos : 0;
+    }
+
     /**
      * Get the object if it is already available (has already been set).
      * <p>
@@ -118,6 +206,20 @@ class ObjectLatch<R> {
         return (available ? object : null);
     }
 
+    /**
+     * Get the object if it is already available (has already been set).
+     * <p>
+     * Unlike getImmediately(), this does not go through the latch and hence
+     * does not throw InterruptedException when the current thread has been
+     * interrupted
+     *
+     * @return the object if it is already available, else null
+     */
+    public R getIfAvailable() {
+        //object is written before the latch is counted down
+        return (latch.getCount() == 0) ? object : null;
+    }
+
     /**
      * Get the object if it is already available (has already been set).
      * <p>
@@ -0,0 +1,112 @@
+/*
+ * OffHeapBlockingHashMap.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link BlockingHashMap} of byte payloads kept outside the Java heap, in
+ * pooled direct buffers. Large payloads waiting for their consumers hence do
+ * not inflate the old generation.
+ *
+ * <p>
+ * Producers copy their bytes in to the pool with <tt>putBytes</tt>, or put a
+ * payload obtained from the pool of the map. Consumers take a
+ * {@link PooledPayload}, read it through its read only view & release it back
+ * to the pool :
+ *
+ * <pre>
+ * try (PooledPayload payload = map.take(key)) {
+ *     ByteBuffer bytes = payload.buffer();
+ *     ...
+ * }
+ * </pre>
+ *
+ * <p>
+ * A payload put on a key that is already available is not stored & remains
+ * owned by the producer. <tt>clear</tt> releases the payloads still available
+ * on the map.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @version 1.0, 19/10/26
+ */
+public class OffHeapBlockingHashMap<K> extends BlockingHashMap<K, PooledPayload> {
+
+    private final DirectBufferPool pool;
+
+    /**
+     * Creates a map with a pool of its own, with default sizes.
+     */
+    public OffHeapBlockingHashMap() {
+        this(new DirectBufferPool());
+    }
+
+    /**
+     * Creates a map storing its payloads in the given pool, which can be
+     * shared with other maps.
+     *
+     * @param pool pool of direct buffers
+     */
+    public OffHeapBlockingHashMap(DirectBufferPool pool) {
+        if (pool == null) {
+            throw new NullPointerException();
+        }
+        this.pool = pool;
+    }
+
+    /**
+     * Returns the pool holding the payloads of this map.
+     *
+     * @return the pool of direct buffers
+     */
+    public DirectBufferPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Copies the remaining bytes of the given buffer in to the pool & puts the
+     * payload on the map. The position of the buffer is not changed. If the
+     * key is already available, the copy is released & the map is unchanged.
+     *
+     * @param key key with which the payload is to be associated
+     * @param bytes bytes of the payload, heap or direct
+     * @return <tt>true</tt> if the payload was put, <tt>false</tt> if the key
+     * was already available
+     * @throws NullPointerException if the key or bytes is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    public boolean putBytes(K key, ByteBuffer bytes) {
+        if ((key == null) || (bytes == null)) {
+            throw new NullPointerException();
+        }
+        PooledPayload payload = pool.copyOf(bytes);
+        boolean stored = false;
+        try {
+            stored = (put(key, payload) == null);
+        } finally {
+            if (!stored) {
+                payload.release();
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * Releases the payloads available on the map & shuts it down.
+     *
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public void clear() {
+        for (K key : keySet()) {
+            PooledPayload payload = remove(key);
+            if (payload != null) {
+                payload.release();
+            }
+        }
+        super.clear();
+    }
+}
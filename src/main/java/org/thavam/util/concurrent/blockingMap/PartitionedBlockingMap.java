@@ -0,0 +1,600 @@
+/*
+ * PartitionedBlockingMap.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link BlockingMap} partitioned over several {@link BlockingMapServer}
+ * nodes. Keys are placed on a consistent hash ring by the hash of their
+ * serialized form; each node owns the keys falling before its virtual points
+ * on the ring. Every operation on a key is sent to the owning node over a
+ * {@link RemoteBlockingMap} connection, on which the requests of all threads
+ * are pipelined & written in batches.
+ *
+ * <p>
+ * {@link #addNode(InetSocketAddress)} adds a node to a running map. Only the
+ * keys owned by the new node change owner : new operations on them go to the
+ * new node at once, their available mappings are moved from their old nodes
+ * & pending takes on them are withdrawn from the old nodes & sent again to
+ * the new one with the time they have left. Moving is best effort : a mapping
+ * put on an old node by a client not aware of the new node stays there.
+ *
+ * <p>
+ * <tt>size</tt>, <tt>isEmpty</tt>, <tt>keySet</tt>, <tt>containsValue</tt>,
+ * <tt>entrySet</tt> & <tt>values</tt> aggregate snapshots of all nodes & are
+ * not atomic. takeMatching polls the key snapshots, takeAll takes the keys
+ * one by one & the bulk operations get the value of each key, as the default
+ * methods of BlockingMap do. Atomic putAll throws
+ * <tt>UnsupportedOperationException</tt>.
+ *
+ * <p>
+ * <tt>clear</tt> closes the connections to all nodes, whose maps are left
+ * untouched. Pending operations & later ones throw
+ * <tt>IllegalStateException</tt>.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ * @version 1.0, 19/10/26
+ */
+public class PartitionedBlockingMap<K, V> implements BlockingMap<K, V>, Closeable {
+
+    /**
+     * default number of points of each node on the ring
+     */
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    /**
+     * Take in progress, sent to the node owning its key at the time
+     */
+    private final class PendingTake {
+
+        private final K key;
+        private final CompletableFuture<V> result = new CompletableFuture<V>();
+        /**
+         * System.nanoTime() at which the take gives up, unused if untimed
+         */
+        private final long deadline;
+        private final boolean timed;
+        //guarded by this
+        private InetSocketAddress node;
+        private CompletableFuture<V> current;
+
+        private PendingTake(K key, long timeout, TimeUnit unit) {
+            this.key = key;
+            this.timed = timeout >= 0;
+            this.deadline = timed ? System.nanoTime() + unit.toNanos(timeout) : 0;
+        }
+
+        /**
+         * Sends the take to the node owning the key, if not sent there yet
+         */
+        private synchronized void send() {
+            InetSocketAddress owner = ring.nodeFor(keySerializer.toBytes(key));
+            if (result.isDone() || owner.equals(node)) {
+                return;
+            }
+            if (current != null) {
+                //a value taken meanwhile is put through the new owner
+                current.cancel(false);
+            }
+            node = owner;
+            long remaining = timed ? Math.max(0, deadline - System.nanoTime()) : -1;
+            final CompletableFuture<V> take = connection(owner).takeAsync(key, remaining, TimeUnit.NANOSECONDS,
+                    value -> putOrphan(key, value));
+            current = take;
+            take.whenComplete((value, error) -> {
+                if (error instanceof CancellationException) {
+                    //withdrawn, by a move or by the caller
+                } else if (error != null) {
+                    result.completeExceptionally(error);
+                } else if (!result.complete(value) && (value != null)) {
+                    putOrphan(key, value);
+                }
+            });
+        }
+
+        private synchronized void cancel() {
+            if (current != null) {
+                current.cancel(false);
+            }
+        }
+    }
+
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private volatile ConsistentHashRing<InetSocketAddress> ring;
+    private final Map<InetSocketAddress, RemoteBlockingMap<K, V>> connections
+            = new ConcurrentHashMap<InetSocketAddress, RemoteBlockingMap<K, V>>();
+    private final Set<PendingTake> takes = Collections.newSetFromMap(new ConcurrentHashMap<PendingTake, Boolean>());
+    private volatile boolean closed = false;
+
+    /**
+     * Connects to the given nodes, each placed at
+     * {@link #DEFAULT_VIRTUAL_NODES} points of the ring.
+     *
+     * @param nodes addresses of the servers
+     * @param keySerializer converts keys to bytes & back, as on the servers
+     * @param valueSerializer converts values to bytes & back, as on the
+     * servers
+     * @throws IOException if a connection cannot be established
+     */
+    public PartitionedBlockingMap(Collection<InetSocketAddress> nodes, Serializer<K> keySerializer,
+            Serializer<V> valueSerializer) throws IOException {
+        this(nodes, keySerializer, valueSerializer, DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * Connects to the given nodes.
+     *
+     * @param nodes addresses of the servers
+     * @param keySerializer converts keys to bytes & back, as on the servers
+     * @param valueSerializer converts values to bytes & back, as on the
+     * servers
+     * @param virtualNodes number of points of each node on the ring
+     * @throws IllegalArgumentException if there is no node or virtualNodes is
+     * not positive
+     * @throws IOException if a connection cannot be established
+     */
+    public PartitionedBlockingMap(Collection<InetSocketAddress> nodes, Serializer<K> keySerializer,
+            Serializer<V> valueSerializer, int virtualNodes) throws IOException {
+        if ((keySerializer == null) || (valueSerializer == null)) {
+            throw new NullPointerException();
+        }
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("no node");
+        }
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        ConsistentHashRing<InetSocketAddress> initial = new ConsistentHashRing<InetSocketAddress>(virtualNodes);
+        try {
+            for (InetSocketAddress node : nodes) {
+                if (!connections.containsKey(node)) {
+                    connections.put(node, new RemoteBlockingMap<K, V>(node, keySerializer, valueSerializer));
+                    initial = initial.withNode(node);
+                }
+            }
+        } catch (IOException ex) {
+            close();
+            throw ex;
+        }
+        this.ring = initial;
+    }
+
+    /**
+     * Adds a node to the ring & moves to it the available mappings & pending
+     * takes of the keys it now owns. Operations on other keys carry on
+     * meanwhile.
+     *
+     * @param node address of the server to add
+     * @return the number of mappings moved to the new node, 0 if the node is
+     * already on the ring
+     * @throws IOException if the connection cannot be established
+     * @throws IllegalStateException if the map has been closed
+     */
+    public synchronized int addNode(InetSocketAddress node) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Map closed");
+        }
+        if (connections.containsKey(node)) {
+            return 0;
+        }
+        RemoteBlockingMap<K, V> target = new RemoteBlockingMap<K, V>(node, keySerializer, valueSerializer);
+        List<InetSocketAddress> sources = ring.getNodes();
+        connections.put(node, target);
+        ring = ring.withNode(node);
+        //from now on, new operations on the moved keys go to the new node
+        for (PendingTake take : takes) {
+            take.send();
+        }
+        int moved = 0;
+        for (InetSocketAddress sourceNode : sources) {
+            moved += move(connections.get(sourceNode), node, target);
+        }
+        return moved;
+    }
+
+    /**
+     * Moves the mappings of a node owned by the new node, pipelined
+     */
+    private int move(RemoteBlockingMap<K, V> source, InetSocketAddress node, RemoteBlockingMap<K, V> target) {
+        Map<K, CompletableFuture<V>> removed = new HashMap<K, CompletableFuture<V>>();
+        for (K key : source.keySet()) {
+            if (node.equals(ring.nodeFor(keySerializer.toBytes(key)))) {
+                removed.put(key, source.removeAsync(key));
+            }
+        }
+        Map<K, V> values = new HashMap<K, V>();
+        Map<K, CompletableFuture<V>> puts = new HashMap<K, CompletableFuture<V>>();
+        for (Map.Entry<K, CompletableFuture<V>> entry : removed.entrySet()) {
+            //null if taken meanwhile
+            V value = RemoteBlockingMap.await(entry.getValue());
+            if (value != null) {
+                values.put(entry.getKey(), value);
+                puts.put(entry.getKey(), target.putAsync(entry.getKey(), value));
+            }
+        }
+        int moved = 0;
+        for (Map.Entry<K, CompletableFuture<V>> entry : puts.entrySet()) {
+            if (RemoteBlockingMap.await(entry.getValue()) == null) {
+                moved++;
+            } else {
+                //put on the new node meanwhile, keep the old mapping where it was
+                Logger.getLogger(PartitionedBlockingMap.class.getName()).log(Level.WARNING,
+                        "key {0} available on both nodes, left on the old one", entry.getKey());
+                source.putAsync(entry.getKey(), values.get(entry.getKey()));
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Returns the nodes of the ring, in the order they were added.
+     *
+     * @return the addresses of the nodes
+     */
+    public List<InetSocketAddress> getNodes() {
+        return ring.getNodes();
+    }
+
+    /**
+     * Returns the node owning the specified key.
+     *
+     * @param key a key
+     * @return the address of the node owning the key
+     * @throws NullPointerException if the specified key is null
+     */
+    public InetSocketAddress nodeFor(K key) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        return ring.nodeFor(keySerializer.toBytes(key));
+    }
+
+    private RemoteBlockingMap<K, V> connection(InetSocketAddress node) {
+        if (closed) {
+            throw new IllegalStateException("Map closed");
+        }
+        return connections.get(node);
+    }
+
+    private RemoteBlockingMap<K, V> connectionFor(Object key) {
+        @SuppressWarnings("unchecked")
+        K k = (K) key;
+        return connection(nodeFor(k));
+    }
+
+    /**
+     * Puts a value taken by a withdrawn take back through its current owner,
+     * without waiting
+     */
+    private void putOrphan(K key, V value) {
+        if (!closed) {
+            connectionFor(key).putAsync(key, value);
+        }
+    }
+
+    /**
+     * Retrieves and removes the mapping for a key when it becomes available,
+     * without blocking the calling thread. The take follows the key if it is
+     * moved to a new node. Cancelling the future withdraws the take.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @param timeout how long to wait before completing with <tt>null</tt>,
+     * negative to wait till the mapping is available
+     * @param unit unit of the timeout
+     * @return a future completed with the value taken, or <tt>null</tt> on
+     * timeout
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if the map has been closed
+     */
+    public CompletableFuture<V> takeAsync(K key, long timeout, TimeUnit unit) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        if (closed) {
+            throw new IllegalStateException("Map closed");
+        }
+        final PendingTake take = new PendingTake(key, timeout, unit);
+        //registered before sending, so that a concurrent addNode moves it
+        takes.add(take);
+        take.result.whenComplete((value, error) -> {
+            takes.remove(take);
+            if (error instanceof CancellationException) {
+                take.cancel();
+            }
+        });
+        try {
+            take.send();
+        } catch (RuntimeException ex) {
+            take.result.completeExceptionally(ex);
+        }
+        return take.result;
+    }
+
+    private V awaitTake(CompletableFuture<V> take) throws InterruptedException {
+        try {
+            return take.get();
+        } catch (InterruptedException ex) {
+            take.cancel(false);
+            throw ex;
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            throw (cause instanceof RuntimeException) ? (RuntimeException) cause : new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if the owning node contains a mapping for the
+     * specified key.
+     *
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if the map has been closed
+     */
+    @Override
+    public boolean isKeyAvailable(K key) {
+        return connectionFor(key).isKeyAvailable(key);
+    }
+
+    /**
+     * Same as isKeyAvailable.
+     *
+     * @throws ClassCastException if the key is not of the key type
+     * @throws IllegalStateException if the map has been closed
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        return connectionFor(key).containsKey(key);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped on its node, or
+     * {@code null} if there is no mapping for the key.
+     *
+     * @throws ClassCastException if the key is not of the key type
+     * @throws IllegalStateException if the map has been closed
+     */
+    @Override
+    public V get(Object key) {
+        return connectionFor(key).get(key);
+    }
+
+    /**
+     * Associates the specified value with the specified key on its node.
+     * Attempts to put a mapping whose key is already available are ignored.
+     *
+     * @return the value already available for <tt>key</tt>, or <tt>null</tt>
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalStateException if the map has been closed
+     */
+    @Override
+    public V put(K key, V value) {
+        return connectionFor(key).put(key, value);
+    }
+
+    /**
+     * Removes the mapping for a key from its node if it is present.
+     *
+     * @throws ClassCastException if the key is not of the key type
+     * @throws IllegalStateException if the map has been closed
+     */
+    @Override
+    public V remove(Object key) {
+        return connectionFor(key).remove(key);
+    }
+
+    /**
+     * Same as put, the nodes are unbound.
+     */
+    @Override
+    public V offer(K key, V value) throws InterruptedException {
+        return put(key, value);
+    }
+
+    /**
+     * Same as put, the nodes are unbound.
+     */
+    @Override
+    public V offer(K key, V value, long timeout, TimeUnit unit) throws InterruptedException {
+        return put(key, value);
+    }
+
+    /**
+     * Retrieves and removes the mapping for a key, waiting if necessary until
+     * the mapping becomes available.
+     *
+     * @throws NullPointerException if the specified key is null
+     * @throws InterruptedException if interrupted while waiting, the take is
+     * then withdrawn
+     * @throws IllegalStateException if the map has been closed
+     */
+    @Override
+    public V take(K key) throws InterruptedException {
+        return awaitTake(takeAsync(key, -1, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Retrieves and removes the mapping for a key, waiting if necessary until
+     * the mapping becomes available or the specified time elapses.
+     *
+     * @throws NullPointerException if the specified key is null
+     * @throws InterruptedException if interrupted while waiting, the take is
+     * then withdrawn
+     * @throws IllegalStateException if the map has been closed
+     */
+    @Override
+    public V take(K key, long timeout, TimeUnit unit) throws InterruptedException {
+        return awaitTake(takeAsync(key, Math.max(0, timeout), unit));
+    }
+
+    /**
+     * Closes the connections to all nodes. The maps of the nodes are not shut
+     * down.
+     *
+     * @throws IllegalStateException if the map is already closed
+     */
+    @Override
+    public void clear() {
+        if (closed) {
+            throw new IllegalStateException("Map closed");
+        }
+        close();
+    }
+
+    /**
+     * Closes the connections to all nodes, if still open. Pending takes fail
+     * with <tt>IllegalStateException</tt>.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (RemoteBlockingMap<K, V> connection : connections.values()) {
+            connection.close();
+        }
+        IllegalStateException failure = new IllegalStateException("Map closed");
+        for (PendingTake take : takes) {
+            take.result.completeExceptionally(failure);
+        }
+    }
+
+    /**
+     * Returns true if a snapshot of some node has a mapping with the value.
+     *
+     * @throws IllegalStateException if the map has been closed
+     */
+    @Override
+    public boolean containsValue(Object value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        for (InetSocketAddress node : ring.getNodes()) {
+            if (connection(node).snapshot().containsValue(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the snapshots of the mappings of all nodes, merged
+     */
+    private Map<K, V> snapshot() {
+        Map<K, V> mappings = new HashMap<K, V>();
+        for (InetSocketAddress node : ring.getNodes()) {
+            mappings.putAll(connection(node).snapshot());
+        }
+        return mappings;
+    }
+
+    /**
+     * Returns true if no node has a mapping.
+     *
+     * @throws IllegalStateException if the map has been closed
+     */
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the number of mappings of all nodes.
+     *
+     * @throws IllegalStateException if the map has been closed
+     */
+    @Override
+    public int size() {
+        int size = 0;
+        for (InetSocketAddress node : ring.getNodes()) {
+            size += connection(node).size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns a snapshot of the mappings available on all nodes. Changes to
+     * the map are not reflected in the set, which is unmodifiable.
+     *
+     * @throws IllegalStateException if the map has been closed
+     */
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return Collections.unmodifiableMap(snapshot()).entrySet();
+    }
+
+    /**
+     * Returns a snapshot of the keys available on all nodes. Changes to the
+     * map are not reflected in the set, which is unmodifiable.
+     *
+     * @throws IllegalStateException if the map has been closed
+     */
+    @Override
+    public Set<K> keySet() {
+        List<CompletableFuture<Set<K>>> listings = new ArrayList<CompletableFuture<Set<K>>>();
+        for (InetSocketAddress node : ring.getNodes()) {
+            listings.add(connection(node).keysAsync());
+        }
+        Set<K> keys = new HashSet<K>();
+        for (CompletableFuture<Set<K>> listing : listings) {
+            keys.addAll(RemoteBlockingMap.await(listing));
+        }
+        return Collections.unmodifiableSet(keys);
+    }
+
+    /**
+     * Returns a snapshot of the values available on all nodes. Changes to the
+     * map are not reflected in the collection, which is unmodifiable.
+     *
+     * @throws IllegalStateException if the map has been closed
+     */
+    @Override
+    public Collection<V> values() {
+        return Collections.unmodifiableMap(snapshot()).values();
+    }
+
+    /**
+     * Puts all mappings, each one as with put, pipelined on the connection of
+     * each node, & waits for all of them.
+     *
+     * @throws NullPointerException if any key or value is null
+     * @throws IllegalStateException if the map has been closed
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        for (Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
+            if ((entry.getKey() == null) || (entry.getValue() == null)) {
+                throw new NullPointerException();
+            }
+        }
+        List<CompletableFuture<V>> puts = new ArrayList<CompletableFuture<V>>(m.size());
+        for (Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
+            puts.add(connectionFor(entry.getKey()).putAsync(entry.getKey(), entry.getValue()));
+        }
+        try {
+            CompletableFuture.allOf(puts.toArray(new CompletableFuture<?>[puts.size()])).join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause();
+            throw (cause instanceof RuntimeException) ? (RuntimeException) cause : new IllegalStateException(cause);
+        }
+    }
+}
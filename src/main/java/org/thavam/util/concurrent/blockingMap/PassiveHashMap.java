@@ -8,6 +8,9 @@ import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
 
 /**
  * This class represents the passive or cleared state BlockingHashMap. Throws
@@ -29,8 +32,8 @@ import java.util.concurrent.TimeUnit;
  */
 class PassiveHashMap<K,V> implements BlockingMap<K,V> {
 
-    //prevent instantiation by any other class
-    private PassiveHashMap() {
+    //prevent instantiation by any other class, PassiveSkipListMap extends this
+    PassiveHashMap() {
     }
 
     @Override
@@ -73,6 +76,11 @@ class PassiveHashMap<K,V> implements BlockingMap<K,V> {
         throw new IllegalStateException("Map Shutdown.Not Active");
     }
 
+    @Override
+    public Entry<K, V> takeMatching(Predicate<? super K> predicate, long timeout, TimeUnit unit) {
+        throw new IllegalStateException("Map Shutdown.Not Active");
+    }
+
     @Override
     public int size() {
         throw new IllegalStateException("Map Shutdown.Not Active");
@@ -121,6 +129,11 @@ class PassiveHashMap<K,V> implements BlockingMap<K,V> {
     public void putAll(Map<? extends K, ? extends V> m) {
         throw new UnsupportedOperationException("Map Shutdown.Not Active");
     }
+
+    @Override
+    public Map<K, V> takeAll(Collection<? extends K> keys, long timeout, TimeUnit unit) {
+        throw new IllegalStateException("Map Shutdown.Not Active");
+    }
     
     @SuppressWarnings("rawtypes")
     private static class SingletonHolder{
@@ -132,4 +145,20 @@ class PassiveHashMap<K,V> implements BlockingMap<K,V> {
 	public static <K,V> PassiveHashMap<K,V> getInstance() {
         return SingletonHolder.singletonInstance;
     }
+
+    @Override
+    public void forEach(long parallelismThreshold, BiConsumer<? super K, ? super V> action) {
+        throw new IllegalStateException("Map Shutdown.Not Active");
+    }
+
+    @Override
+    public <U> U search(long parallelismThreshold, BiFunction<? super K, ? super V, ? extends U> searchFunction) {
+        throw new IllegalStateException("Map Shutdown.Not Active");
+    }
+
+    @Override
+    public <U> U reduce(long parallelismThreshold, BiFunction<? super K, ? super V, ? extends U> transformer,
+            BiFunction<? super U, ? super U, ? extends U> reducer) {
+        throw new IllegalStateException("Map Shutdown.Not Active");
+    }
 }
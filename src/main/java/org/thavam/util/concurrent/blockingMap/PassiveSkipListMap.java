@@ -0,0 +1,65 @@
+/*
+ * PassiveSkipListMap.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class represents the passive or cleared state of BlockingSkipListMap.
+ * Throws <tt>IllegalStateException</tt> on all operations, including the
+ * ordered take operations. All instances of BlockingSkipListMap shall use one
+ * instance of <tt>PassiveSkipListMap</tt>. Hence, this has to be a singleton.
+ *
+ * This class is <i>immutable</i>
+ *
+ * @version 1.0 19/10/26
+ */
+/**
+ * Should not be accessible outside the package. Meant to be used from
+ * BlockingSkipListMap
+ */
+class PassiveSkipListMap<K, V> extends PassiveHashMap<K, V> implements NavigableBlockingMap<K, V> {
+
+    //prevent instantiation by any other class
+    private PassiveSkipListMap() {
+    }
+
+    @Override
+    public Map.Entry<K, V> takeFirst() throws InterruptedException {
+        throw new IllegalStateException("Map Shutdown.Not Active");
+    }
+
+    @Override
+    public Map.Entry<K, V> takeFirst(long timeout, TimeUnit unit) throws InterruptedException {
+        throw new IllegalStateException("Map Shutdown.Not Active");
+    }
+
+    @Override
+    public Map.Entry<K, V> takeCeiling(K key) throws InterruptedException {
+        throw new IllegalStateException("Map Shutdown.Not Active");
+    }
+
+    @Override
+    public Map.Entry<K, V> takeCeiling(K key, long timeout, TimeUnit unit) throws InterruptedException {
+        throw new IllegalStateException("Map Shutdown.Not Active");
+    }
+
+    @Override
+    public Map.Entry<K, V> takeInRange(K fromKey, K toKey, long timeout, TimeUnit unit) throws InterruptedException {
+        throw new IllegalStateException("Map Shutdown.Not Active");
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static class SingletonHolder {
+        private static volatile PassiveSkipListMap singletonInstance = new PassiveSkipListMap();
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PassiveSkipListMap<K, V> getInstance() {
+        return SingletonHolder.singletonInstance;
+    }
+}
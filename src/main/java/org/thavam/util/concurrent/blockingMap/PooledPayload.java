@@ -0,0 +1,87 @@
+/*
+ * PooledPayload.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A payload whose bytes are kept in a direct buffer of a
+ * {@link DirectBufferPool}, outside the Java heap. Only this small handle is
+ * kept on the heap.
+ *
+ * <p>
+ * The consumer reads the payload through the read only view returned by
+ * <tt>buffer</tt> & hands the buffer back to the pool with <tt>release</tt>,
+ * or by closing the payload in a try-with-resources statement. Views obtained
+ * before the release should not be used after it, the memory they show may
+ * hold another payload. A payload that is never released is reclaimed by the
+ * garbage collector, but its buffer is not reused by the pool.
+ *
+ * @version 1.0, 19/10/26
+ */
+public final class PooledPayload implements AutoCloseable {
+
+    private final DirectBufferPool pool;
+    private final ByteBuffer buffer;
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    //created by DirectBufferPool
+    PooledPayload(DirectBufferPool pool, ByteBuffer buffer) {
+        this.pool = pool;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Returns a read only view of the bytes of this payload, positioned at the
+     * first byte.
+     *
+     * @return a read only view of the payload
+     * @throws IllegalStateException if the payload has been released
+     */
+    public ByteBuffer buffer() {
+        if (released.get()) {
+            throw new IllegalStateException("Payload released");
+        }
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the number of bytes of this payload.
+     *
+     * @return the length of the payload
+     */
+    public int length() {
+        return buffer.limit();
+    }
+
+    /**
+     * Hands the buffer of this payload back to its pool. Further releases are
+     * ignored.
+     */
+    public void release() {
+        if (released.compareAndSet(false, true)) {
+            pool.release(buffer);
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if this payload has been released.
+     *
+     * @return <tt>true</tt> if released
+     */
+    public boolean isReleased() {
+        return released.get();
+    }
+
+    /**
+     * Same as release
+     */
+    @Override
+    public void close() {
+        release();
+    }
+}
@@ -0,0 +1,452 @@
+/*
+ * PredicateWaiterIndex.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import org.thavam.util.concurrent.blockingMap.KeyPredicates.PartitionPredicate;
+
+/**
+ * Index of consumers blocked in <tt>takeMatching</tt> and of the keys
+ * available to them.
+ *
+ * <p>
+ * Waiters with a {@linkplain KeyPredicates partition predicate} are indexed by
+ * classifier and partition. For every classifier some consumer waits with,
+ * the available keys are indexed by partition as well. A put therefore only
+ * evaluates the waiters of the partition the new key falls into and a
+ * consumer finds available keys of its partition without scanning the map.
+ * The index of a classifier is maintained by every put & take while it holds
+ * available keys or waiters, & dropped once it holds neither, so that the map
+ * is only scanned when a classifier is first waited with. Waiters with an
+ * arbitrary predicate are kept in a single queue and evaluated against every
+ * new key.
+ *
+ * <p>
+ * The available key index is a hint. Keys taken concurrently may linger
+ * briefly, consumers confirm availability on the latch before taking. As long
+ * as <tt>takeMatching</tt> has never been used, maintaining the index costs a
+ * put or take two emptiness checks.
+ *
+ * @param <K> the type of keys maintained by the map
+ *
+ * @version 1.0 19/10/26
+ */
+/**
+ * Should not be accessible outside the package. Meant to be used from
+ * ActiveBlockingHashMap & ShardedBlockingMap
+ */
+class PredicateWaiterIndex<K> {
+
+    /**
+     * Consumer parked waiting for a key matching its predicate.
+     */
+    static final class Waiter<K> {
+
+        final Thread thread = Thread.currentThread();
+        final Predicate<? super K> predicate;
+        /**
+         * partitioning the waiter is indexed in, null for arbitrary predicates
+         */
+        final Partitioning<K> partitioning;
+        final Object partition;
+        /**
+         * key handed over by a producer, null while not signalled
+         */
+        final AtomicReference<K> signal = new AtomicReference<K>();
+
+        Waiter(Predicate<? super K> predicate, Partitioning<K> partitioning, Object partition) {
+            this.predicate = predicate;
+            this.partitioning = partitioning;
+            this.partition = partition;
+        }
+    }
+
+    /**
+     * Waiters & available keys of one classifier, indexed by partition.
+     * Buckets are added & dropped atomically through compute.
+     */
+    static final class Partitioning<K> {
+
+        final Function<? super K, ?> classifier;
+        final ConcurrentMap<Object, Set<K>> availableKeys = new ConcurrentHashMap<Object, Set<K>>();
+        final ConcurrentMap<Object, Queue<Waiter<K>>> waiters = new ConcurrentHashMap<Object, Queue<Waiter<K>>>();
+        /*
+         * set once available keys present at creation have been indexed
+         */
+        volatile boolean seeded = false;
+        /*
+         * waiters registered with the partitioning, -1 once retired, which
+         * it is only when it has no waiter & indexes no key
+         */
+        final AtomicInteger users = new AtomicInteger();
+
+        Partitioning(Function<? super K, ?> classifier) {
+            this.classifier = classifier;
+        }
+    }
+
+    private final ConcurrentMap<Function<?, ?>, Partitioning<K>> partitionings
+            = new ConcurrentHashMap<Function<?, ?>, Partitioning<K>>();
+    private final Queue<Waiter<K>> unroutedWaiters = new ConcurrentLinkedQueue<Waiter<K>>();
+    /**
+     * latches of the map, used to seed the index of a new classifier
+     */
+    private final Map<K, ? extends ObjectLatch<?>> latches;
+
+    /**
+     * Map the wait loop takes mappings from
+     */
+    interface MappingSource<K, V> {
+
+        /**
+         * Takes an available mapping whose key matches, without blocking
+         */
+        Map.Entry<K, V> pollMatching(Predicate<? super K> predicate);
+
+        boolean isKeyAvailable(K key);
+
+        boolean isCleared();
+    }
+
+    PredicateWaiterIndex(Map<K, ? extends ObjectLatch<?>> latches) {
+        this.latches = latches;
+    }
+
+    /**
+     * Creates an index that only routes waiters. Available keys are not
+     * indexed, candidates() of partition predicates is always empty.
+     */
+    PredicateWaiterIndex() {
+        this(Collections.<K, ObjectLatch<?>>emptyMap());
+    }
+
+    /**
+     * Wait loop of takeMatching. Looks for an available mapping, registers the
+     * current thread as waiter and parks until signalled, timed out or
+     * interrupted.
+     *
+     * A waiter is registered before the last look at the source, a producer
+     * signals after publishing. Either the consumer sees the mapping or the
+     * producer sees the waiter, so no wake up is lost.
+     */
+    <V> Map.Entry<K, V> await(MappingSource<K, V> source, Predicate<? super K> predicate,
+            long timeout, TimeUnit unit) throws InterruptedException {
+        if (predicate == null) {
+            throw new NullPointerException();
+        }
+        //prevent any consumer from getting in to a blocked stated on cleared map
+        if (source.isCleared()) {
+            return null;
+        }
+        Map.Entry<K, V> entry = source.pollMatching(predicate);
+        if ((entry != null) || (timeout <= 0)) {
+            return entry;
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+
+        //wraps around for very long timeouts, differences remain valid
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        Waiter<K> waiter = register(predicate);
+        try {
+            for (;;) {
+                entry = source.pollMatching(predicate);
+                if (entry != null) {
+                    return entry;
+                }
+                //signalled key already gone, look again before parking
+                if (waiter.signal.getAndSet(null) != null) {
+                    continue;
+                }
+                if (source.isCleared()) {
+                    return null;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return null;
+                }
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            unregister(waiter);
+            //pass on a signal that was not consumed by this waiter
+            K signalled = waiter.signal.get();
+            if ((signalled != null) && source.isKeyAvailable(signalled)) {
+                signal(signalled);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K> PartitionPredicate<K> asPartitionPredicate(Predicate<? super K> predicate) {
+        return (predicate instanceof PartitionPredicate)
+                ? (PartitionPredicate<K>) predicate
+                : null;
+    }
+
+    /**
+     * Returns the partitioning of the classifier, with one more user. Created
+     * & seeded with the available keys if the classifier has none.
+     */
+    private Partitioning<K> acquire(Function<? super K, ?> classifier) {
+        for (;;) {
+            Partitioning<K> partitioning = partitioningFor(classifier);
+            int users = partitioning.users.get();
+            if (users < 0) {
+                //retired, help removing it
+                partitionings.remove(classifier, partitioning);
+            } else if (partitioning.users.compareAndSet(users, users + 1)) {
+                return partitioning;
+            }
+        }
+    }
+
+    /**
+     * Drops a user of the partitioning, the last one retires it if no key is
+     * indexed. Otherwise the take of the last key does.
+     */
+    private void release(Partitioning<K> partitioning) {
+        if (partitioning.users.decrementAndGet() == 0) {
+            retireIfUnused(partitioning);
+        }
+    }
+
+    /**
+     * Retires the partitioning if it has no waiter & indexes no key. Users
+     * are dropped before keys are looked at & keys before users are, so the
+     * last of a waiter leaving & a key taken concurrently retires it.
+     */
+    private void retireIfUnused(Partitioning<K> partitioning) {
+        if (partitioning.availableKeys.isEmpty()
+                && partitioning.users.compareAndSet(0, -1)) {
+            partitionings.remove(partitioning.classifier, partitioning);
+        }
+    }
+
+    private Partitioning<K> partitioningFor(Function<? super K, ?> classifier) {
+        Partitioning<K> partitioning = partitionings.get(classifier);
+        if ((partitioning != null) && partitioning.seeded) {
+            return partitioning;
+        }
+        //one time per classifier, later callers wait until seeding completes
+        synchronized (this) {
+            partitioning = partitionings.get(classifier);
+            if (partitioning == null) {
+                partitioning = new Partitioning<K>(classifier);
+                //publish before seeding, so that concurrent puts are indexed too
+                partitionings.put(classifier, partitioning);
+                for (Map.Entry<K, ? extends ObjectLatch<?>> entry : latches.entrySet()) {
+                    if (entry.getValue().isAvailable()) {
+                        index(partitioning, entry.getKey());
+                    }
+                }
+                partitioning.seeded = true;
+            }
+        }
+        return partitioning;
+    }
+
+    private void index(Partitioning<K> partitioning, final K key) {
+        Object partition = partitioning.classifier.apply(key);
+        if (partition != null) {
+            partitioning.availableKeys.compute(partition, (p, keys) -> {
+                Set<K> result = (keys == null)
+                        ? Collections.newSetFromMap(new ConcurrentHashMap<K, Boolean>())
+                        : keys;
+                result.add(key);
+                return result;
+            });
+        }
+    }
+
+    private void unindex(Partitioning<K> partitioning, final K key) {
+        Object partition = partitioning.classifier.apply(key);
+        if (partition != null) {
+            partitioning.availableKeys.computeIfPresent(partition, (p, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+            if (partitioning.users.get() == 0) {
+                retireIfUnused(partitioning);
+            }
+        }
+    }
+
+    /**
+     * Returns the available keys that may match the predicate, or null if the
+     * predicate cannot be routed and all keys have to be considered. Keys are
+     * only indexed for classifiers some consumer waits or has waited with,
+     * while keys of the classifier remain available.
+     */
+    Iterable<K> candidates(Predicate<? super K> predicate) {
+        PartitionPredicate<K> partitionPredicate = asPartitionPredicate(predicate);
+        if (partitionPredicate == null) {
+            return null;
+        }
+        Partitioning<K> partitioning = partitionings.get(partitionPredicate.classifier());
+        if ((partitioning == null) || !partitioning.seeded || (partitioning.users.get() < 0)) {
+            return null;
+        }
+        Set<K> keys = partitioning.availableKeys.get(partitionPredicate.partition());
+        return (keys == null) ? Collections.<K>emptySet() : keys;
+    }
+
+    /**
+     * Registers the current thread as waiting for a key matching the predicate.
+     */
+    Waiter<K> register(Predicate<? super K> predicate) {
+        PartitionPredicate<K> partitionPredicate = asPartitionPredicate(predicate);
+        if (partitionPredicate == null) {
+            Waiter<K> waiter = new Waiter<K>(predicate, null, null);
+            unroutedWaiters.add(waiter);
+            return waiter;
+        }
+        final Waiter<K> waiter = new Waiter<K>(predicate,
+                acquire(partitionPredicate.classifier()), partitionPredicate.partition());
+        waiter.partitioning.waiters.compute(waiter.partition, (p, queue) -> {
+            Queue<Waiter<K>> result = (queue == null) ? new ConcurrentLinkedQueue<Waiter<K>>() : queue;
+            result.add(waiter);
+            return result;
+        });
+        return waiter;
+    }
+
+    void unregister(final Waiter<K> waiter) {
+        if (waiter.partitioning == null) {
+            unroutedWaiters.remove(waiter);
+        } else {
+            waiter.partitioning.waiters.computeIfPresent(waiter.partition, (p, queue) -> {
+                queue.remove(waiter);
+                return queue.isEmpty() ? null : queue;
+            });
+            release(waiter.partitioning);
+        }
+    }
+
+    /**
+     * Indexes a key that became available & signals one interested waiter.
+     */
+    void keyAvailable(K key) {
+        if (partitionings.isEmpty() && unroutedWaiters.isEmpty()) {
+            return;
+        }
+        for (Partitioning<K> partitioning : partitionings.values()) {
+            index(partitioning, key);
+        }
+        signal(key);
+    }
+
+    /**
+     * Indexes a batch of keys that became available & signals one interested
+     * waiter per key.
+     */
+    void keysAvailable(Collection<K> keys) {
+        if (partitionings.isEmpty() && unroutedWaiters.isEmpty()) {
+            return;
+        }
+        for (Partitioning<K> partitioning : partitionings.values()) {
+            for (K key : keys) {
+                index(partitioning, key);
+            }
+        }
+        for (K key : keys) {
+            signal(key);
+        }
+    }
+
+    /**
+     * Drops a key that was taken or removed from the index.
+     */
+    void keyRemoved(K key) {
+        if (partitionings.isEmpty()) {
+            return;
+        }
+        for (Partitioning<K> partitioning : partitionings.values()) {
+            unindex(partitioning, key);
+        }
+    }
+
+    /**
+     * Drops a key found unavailable by a consumer. The key is indexed again if
+     * it was put back in the mean time.
+     */
+    void purge(K key) {
+        keyRemoved(key);
+        ObjectLatch<?> latch = latches.get(key);
+        if ((latch != null) && latch.isAvailable()) {
+            for (Partitioning<K> partitioning : partitionings.values()) {
+                index(partitioning, key);
+            }
+        }
+    }
+
+    /**
+     * Hands the signal for an available key to the first waiter that is
+     * interested in it and has not been signalled yet. Only the waiters of the
+     * partitions the key falls into & waiters with arbitrary predicates are
+     * evaluated.
+     */
+    void signal(K key) {
+        for (Partitioning<K> partitioning : partitionings.values()) {
+            Object partition = partitioning.classifier.apply(key);
+            Queue<Waiter<K>> candidates = (partition == null) ? null : partitioning.waiters.get(partition);
+            if ((candidates != null) && signalFirst(candidates, key)) {
+                return;
+            }
+        }
+        signalFirst(unroutedWaiters, key);
+    }
+
+    private boolean signalFirst(Queue<Waiter<K>> candidates, K key) {
+        for (Waiter<K> waiter : candidates) {
+            if ((waiter.signal.get() == null)
+                    && waiter.predicate.test(key)
+                    && waiter.signal.compareAndSet(null, key)) {
+                LockSupport.unpark(waiter.thread);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Interrupts all waiting consumers, used on shutdown. Returns the number
+     * of consumers interrupted
+     */
+    int interruptWaiters() {
+        int interrupted = 0;
+        for (Waiter<K> waiter : unroutedWaiters) {
+            waiter.thread.interrupt();
+            interrupted++;
+        }
+        for (Partitioning<K> partitioning : partitionings.values()) {
+            for (Queue<Waiter<K>> queue : partitioning.waiters.values()) {
+                for (Waiter<K> waiter : queue) {
+                    waiter.thread.interrupt();
+                    interrupted++;
+                }
+            }
+        }
+        return interrupted;
+    }
+}
@@ -0,0 +1,666 @@
+/*
+ * RemoteBlockingMap.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link BlockingMap} client of a {@link BlockingMapServer}. All operations
+ * of all threads are pipelined over one TCP connection : a request is written
+ * without waiting for the responses of earlier requests & a reader thread
+ * hands each response to the caller waiting for it. Requests of concurrent
+ * callers are queued & written in batches by whichever caller holds the
+ * socket, with one gathering write per batch.
+ *
+ * <p>
+ * <tt>takeAsync</tt> returns a future completed when the remote mapping
+ * becomes available; blocking takes wait on such a future. A take that is
+ * interrupted or whose future is cancelled is withdrawn on the server. If its
+ * mapping was taken meanwhile, the value is put back on the remote map.
+ *
+ * <p>
+ * Supports put/offer, take, takeAsync, get, remove, isKeyAvailable,
+ * containsKey, size, isEmpty, non atomic putAll & keySet, which returns an
+ * unmodifiable snapshot of the available keys. containsValue, entrySet &
+ * values work on an unmodifiable snapshot of the mappings, the values of a
+ * key snapshot fetched with pipelined gets. Predicates are not shipped to the
+ * server : takeMatching polls the key snapshots, takeAll takes the keys one
+ * by one & the bulk operations get the value of each key, as the default
+ * methods of BlockingMap do. Atomic putAll throws
+ * <tt>UnsupportedOperationException</tt>.
+ *
+ * <p>
+ * <tt>clear</tt> closes the connection, the remote map is left untouched.
+ * Pending operations & later ones throw <tt>IllegalStateException</tt>, as
+ * they do if the connection is lost.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ * @version 1.0, 19/10/26
+ */
+public class RemoteBlockingMap<K, V> implements BlockingMap<K, V>, Closeable {
+
+    private final SocketChannel channel;
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private final Thread reader;
+    private final AtomicLong nextId = new AtomicLong();
+    /**
+     * most frames written by one gathering write
+     */
+    private static final int WRITE_BATCH = 64;
+    /**
+     * requests waiting for their response, by id. The future receives the
+     * payload, null for a null response
+     */
+    private final Map<Long, CompletableFuture<byte[]>> pending
+            = new ConcurrentHashMap<Long, CompletableFuture<byte[]>>();
+    /**
+     * frames waiting to be written, in order
+     */
+    private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<ByteBuffer>();
+    /**
+     * held by the caller writing a batch of frames
+     */
+    private final Lock writeLock = new ReentrantLock();
+    private volatile boolean closed = false;
+
+    /**
+     * Connects to the server at the given address.
+     *
+     * @param address address of the server
+     * @param keySerializer converts keys to bytes & back, as on the server
+     * @param valueSerializer converts values to bytes & back, as on the server
+     * @throws IOException if the connection cannot be established
+     */
+    public RemoteBlockingMap(InetSocketAddress address, Serializer<K> keySerializer,
+            Serializer<V> valueSerializer) throws IOException {
+        if ((keySerializer == null) || (valueSerializer == null)) {
+            throw new NullPointerException();
+        }
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        this.channel = SocketChannel.open(address);
+        this.channel.socket().setTcpNoDelay(true);
+        this.reader = new Thread(this::readLoop, "blocking-map-client-" + address);
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    /**
+     * Sends a request with a new id & returns the future of its response
+     */
+    private CompletableFuture<byte[]> send(byte op, long argument, byte[] key, byte[] value) {
+        return send(nextId.incrementAndGet(), op, argument, key, value);
+    }
+
+    /**
+     * Sends a request & returns the future of its response. A cancel request
+     * has no response of its own.
+     */
+    private CompletableFuture<byte[]> send(long id, byte op, long argument, byte[] key, byte[] value) {
+        if (closed) {
+            throw new IllegalStateException("Connection closed");
+        }
+        CompletableFuture<byte[]> response = new CompletableFuture<byte[]>();
+        if (op != RemoteProtocol.CANCEL) {
+            pending.put(id, response);
+            if (closed) {
+                //disconnected meanwhile, the response would never come
+                pending.remove(id);
+                throw new IllegalStateException("Connection closed");
+            }
+        }
+        outbound.add(RemoteProtocol.request(id, op, argument, key, value));
+        flush();
+        return response;
+    }
+
+    /**
+     * Writes the queued frames unless another caller is writing; that caller
+     * then writes them before it lets go of the socket.
+     */
+    private void flush() {
+        ByteBuffer[] batch = new ByteBuffer[WRITE_BATCH];
+        //rechecked after unlock, for frames queued while the lock was held
+        while (!outbound.isEmpty() && writeLock.tryLock()) {
+            try {
+                int count = 0;
+                ByteBuffer frame;
+                while ((count < batch.length) && ((frame = outbound.poll()) != null)) {
+                    batch[count++] = frame;
+                }
+                //drained by the writer that held the lock before
+                if (count == 0) {
+                    break;
+                }
+                while (batch[count - 1].hasRemaining()) {
+                    channel.write(batch, 0, count);
+                }
+            } catch (IOException ex) {
+                disconnected(ex);
+                throw new IllegalStateException("Connection closed", ex);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Waits for a response, which the server always sends
+     */
+    static <T> T await(CompletableFuture<T> response) {
+        boolean interrupted = false;
+        try {
+            for (;;) {
+                try {
+                    return response.get();
+                } catch (InterruptedException ex) {
+                    //non blocking on the server, the response is on its way
+                    interrupted = true;
+                } catch (ExecutionException ex) {
+                    throw unwrap(ex.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable cause) {
+        return (cause instanceof RuntimeException) ? (RuntimeException) cause : new IllegalStateException(cause);
+    }
+
+    private byte[] keyBytes(Object key) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        @SuppressWarnings("unchecked")
+        K k = (K) key;
+        return keySerializer.toBytes(k);
+    }
+
+    private V value(byte[] bytes) {
+        return (bytes == null) ? null : valueSerializer.fromBytes(bytes);
+    }
+
+    /**
+     * Reads responses & completes the futures waiting for them, till the
+     * connection is closed
+     */
+    private void readLoop() {
+        ByteBuffer header = ByteBuffer.allocate(4);
+        try {
+            for (;;) {
+                header.clear();
+                readFully(header);
+                int length = header.getInt(0);
+                if ((length < RemoteProtocol.RESPONSE_HEADER) || (length > RemoteProtocol.MAX_FRAME)) {
+                    throw new IOException("invalid frame length " + length);
+                }
+                ByteBuffer frame = ByteBuffer.allocate(length);
+                readFully(frame);
+                frame.flip();
+                long id = frame.getLong();
+                byte status = frame.get();
+                byte[] payload = new byte[frame.remaining()];
+                frame.get(payload);
+                CompletableFuture<byte[]> response = pending.remove(id);
+                if (response == null) {
+                    continue;
+                }
+                if (status == RemoteProtocol.ERROR) {
+                    response.completeExceptionally(
+                            new IllegalStateException(new String(payload, StandardCharsets.UTF_8)));
+                } else {
+                    response.complete((status == RemoteProtocol.NULL) ? null : payload);
+                }
+            }
+        } catch (IOException ex) {
+            disconnected(ex);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("connection closed by server");
+            }
+        }
+    }
+
+    private void disconnected(IOException cause) {
+        if (!closed) {
+            closed = true;
+            if (!(cause instanceof EOFException)) {
+                Logger.getLogger(RemoteBlockingMap.class.getName()).log(Level.WARNING, null, cause);
+            }
+        }
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            Logger.getLogger(RemoteBlockingMap.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        outbound.clear();
+        IllegalStateException failure = new IllegalStateException("Connection closed", cause);
+        for (Long id : pending.keySet()) {
+            CompletableFuture<byte[]> response = pending.remove(id);
+            if (response != null) {
+                response.completeExceptionally(failure);
+            }
+        }
+    }
+
+    /**
+     * Retrieves and removes the remote mapping for a key when it becomes
+     * available, without blocking the calling thread.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @return a future completed with the value taken
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if the connection is closed
+     */
+    public CompletableFuture<V> takeAsync(K key) {
+        return takeAsync(key, -1, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Retrieves and removes the remote mapping for a key when it becomes
+     * available, without blocking the calling thread. The server completes
+     * the future with <tt>null</tt> once the timeout elapses. Cancelling the
+     * future withdraws the take.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @param timeout how long the server waits before giving up, negative to
+     * wait till the mapping is available
+     * @param unit unit of the timeout
+     * @return a future completed with the value taken, or <tt>null</tt> on
+     * timeout
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if the connection is closed
+     */
+    public CompletableFuture<V> takeAsync(K key, long timeout, TimeUnit unit) {
+        return takeAsync(key, timeout, unit, null);
+    }
+
+    /**
+     * Same as takeAsync, with the value taken after the future was cancelled
+     * handed to <tt>orphaned</tt> rather than put back on the remote map.
+     * <tt>orphaned</tt> is called on the reader thread & must not block.
+     */
+    CompletableFuture<V> takeAsync(final K key, long timeout, TimeUnit unit, final Consumer<? super V> orphaned) {
+        final byte[] keyBytes = keyBytes(key);
+        long millis = (timeout < 0) ? -1 : unit.toMillis(timeout);
+        final long id = nextId.incrementAndGet();
+        final CompletableFuture<byte[]> response = send(id, RemoteProtocol.TAKE, millis, keyBytes,
+                RemoteProtocol.EMPTY);
+        final CompletableFuture<V> result = new CompletableFuture<V>();
+        response.whenComplete((bytes, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else if (!result.complete(value(bytes)) && (bytes != null)) {
+                //withdrawn after the server took the mapping
+                if (orphaned != null) {
+                    orphaned.accept(value(bytes));
+                } else if (!closed) {
+                    //put back without waiting, on the reader thread
+                    send(RemoteProtocol.PUT, 0, keyBytes, bytes);
+                }
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if ((error instanceof CancellationException) && !response.isDone() && !closed) {
+                //the server answers the take with null, or with the value
+                send(RemoteProtocol.CANCEL, id, keyBytes, RemoteProtocol.EMPTY);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Waits for a remote take, withdrawing it if the thread is interrupted
+     */
+    private V awaitTake(CompletableFuture<V> take) throws InterruptedException {
+        try {
+            return take.get();
+        } catch (InterruptedException ex) {
+            take.cancel(false);
+            throw ex;
+        } catch (ExecutionException ex) {
+            throw unwrap(ex.getCause());
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if the remote map contains a mapping for the
+     * specified key.
+     *
+     * @param key key whose presence in this map is to be tested
+     * @return <tt>true</tt> if the remote map contains a mapping for the key
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if the connection is closed
+     */
+    @Override
+    public boolean isKeyAvailable(K key) {
+        return await(send(RemoteProtocol.CONTAINS, 0, keyBytes(key), RemoteProtocol.EMPTY))[0] != 0;
+    }
+
+    /**
+     * Same as isKeyAvailable.
+     *
+     * @throws ClassCastException if the key is not of the key type
+     * @throws IllegalStateException if the connection is closed
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        return await(send(RemoteProtocol.CONTAINS, 0, keyBytes(key), RemoteProtocol.EMPTY))[0] != 0;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped on the remote
+     * map, or {@code null} if there is no mapping for the key.
+     *
+     * @throws ClassCastException if the key is not of the key type
+     * @throws IllegalStateException if the connection is closed
+     */
+    @Override
+    public V get(Object key) {
+        return value(await(send(RemoteProtocol.GET, 0, keyBytes(key), RemoteProtocol.EMPTY)));
+    }
+
+    /**
+     * Associates the specified value with the specified key on the remote
+     * map. Attempts to put a mapping whose key is already available are
+     * ignored.
+     *
+     * @return the value already available for <tt>key</tt>, or <tt>null</tt>
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalStateException if the connection is closed
+     */
+    @Override
+    public V put(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        return value(await(send(RemoteProtocol.PUT, 0, keyBytes(key), valueSerializer.toBytes(value))));
+    }
+
+    /**
+     * Same as get, without waiting for the response
+     */
+    CompletableFuture<V> getAsync(Object key) {
+        return send(RemoteProtocol.GET, 0, keyBytes(key), RemoteProtocol.EMPTY).thenApply(this::value);
+    }
+
+    /**
+     * Returns a snapshot of the mappings available on the remote map. The
+     * values of the keys listed are fetched pipelined, keys taken meanwhile
+     * are left out.
+     *
+     * @throws IllegalStateException if the connection is closed
+     */
+    Map<K, V> snapshot() {
+        Set<K> keys = keySet();
+        Map<K, CompletableFuture<V>> gets = new HashMap<K, CompletableFuture<V>>();
+        for (K key : keys) {
+            gets.put(key, getAsync(key));
+        }
+        Map<K, V> mappings = new HashMap<K, V>();
+        for (Map.Entry<K, CompletableFuture<V>> get : gets.entrySet()) {
+            V value = await(get.getValue());
+            if (value != null) {
+                mappings.put(get.getKey(), value);
+            }
+        }
+        return mappings;
+    }
+
+    /**
+     * Same as put, without waiting for the response
+     */
+    CompletableFuture<V> putAsync(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        return send(RemoteProtocol.PUT, 0, keyBytes(key), valueSerializer.toBytes(value)).thenApply(this::value);
+    }
+
+    /**
+     * Same as remove, without waiting for the response
+     */
+    CompletableFuture<V> removeAsync(K key) {
+        return send(RemoteProtocol.REMOVE, 0, keyBytes(key), RemoteProtocol.EMPTY).thenApply(this::value);
+    }
+
+    /**
+     * Same as keySet, without waiting for the response
+     */
+    CompletableFuture<Set<K>> keysAsync() {
+        return send(RemoteProtocol.KEYS, 0, RemoteProtocol.EMPTY, RemoteProtocol.EMPTY).thenApply(bytes -> {
+            ByteBuffer payload = ByteBuffer.wrap(bytes);
+            int count = payload.getInt();
+            Set<K> keys = new HashSet<K>(Math.max(16, (int) (count / .75f) + 1));
+            for (int i = 0; i < count; i++) {
+                byte[] key = new byte[payload.getInt()];
+                payload.get(key);
+                keys.add(keySerializer.fromBytes(key));
+            }
+            return Collections.unmodifiableSet(keys);
+        });
+    }
+
+    /**
+     * Removes the mapping for a key from the remote map if it is present.
+     *
+     * @throws ClassCastException if the key is not of the key type
+     * @throws IllegalStateException if the connection is closed
+     */
+    @Override
+    public V remove(Object key) {
+        return value(await(send(RemoteProtocol.REMOVE, 0, keyBytes(key), RemoteProtocol.EMPTY)));
+    }
+
+    /**
+     * Same as put, the remote map is unbound.
+     */
+    @Override
+    public V offer(K key, V value) throws InterruptedException {
+        return put(key, value);
+    }
+
+    /**
+     * Same as put, the remote map is unbound.
+     */
+    @Override
+    public V offer(K key, V value, long timeout, TimeUnit unit) throws InterruptedException {
+        return put(key, value);
+    }
+
+    /**
+     * Retrieves and removes the remote mapping for a key, waiting if necessary
+     * until the mapping becomes available. The server does not hold a thread
+     * for the wait.
+     *
+     * @throws NullPointerException if the specified key is null
+     * @throws InterruptedException if interrupted while waiting, the take is
+     * then withdrawn
+     * @throws IllegalStateException if the connection is closed
+     */
+    @Override
+    public V take(K key) throws InterruptedException {
+        return awaitTake(takeAsync(key));
+    }
+
+    /**
+     * Retrieves and removes the remote mapping for a key, waiting if necessary
+     * until the mapping becomes available or the specified time elapses. The
+     * timeout is enforced by the server.
+     *
+     * @throws NullPointerException if the specified key is null
+     * @throws InterruptedException if interrupted while waiting, the take is
+     * then withdrawn
+     * @throws IllegalStateException if the connection is closed
+     */
+    @Override
+    public V take(K key, long timeout, TimeUnit unit) throws InterruptedException {
+        return awaitTake(takeAsync(key, Math.max(0, timeout), unit));
+    }
+
+    /**
+     * Closes the connection. The remote map is not shut down. Operations
+     * waiting for a response throw <tt>IllegalStateException</tt>.
+     *
+     * @throws IllegalStateException if the connection is already closed
+     */
+    @Override
+    public void clear() {
+        if (closed) {
+            throw new IllegalStateException("Connection closed");
+        }
+        close();
+    }
+
+    /**
+     * Closes the connection, if still open. The remote map is not shut down.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            Logger.getLogger(RemoteBlockingMap.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        try {
+            reader.join();
+        } catch (InterruptedException ex) {
+            Logger.getLogger(RemoteBlockingMap.class.getName()).log(Level.SEVERE, null, ex);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns true if a snapshot of the remote map has a mapping with the
+     * value.
+     *
+     * @throws IllegalStateException if the connection is closed
+     */
+    @Override
+    public boolean containsValue(Object value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        return snapshot().containsValue(value);
+    }
+
+    /**
+     * Returns true if the remote map contains no mappings.
+     *
+     * @throws IllegalStateException if the connection is closed
+     */
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the number of mappings of the remote map.
+     *
+     * @throws IllegalStateException if the connection is closed
+     */
+    @Override
+    public int size() {
+        return ByteBuffer.wrap(await(send(RemoteProtocol.SIZE, 0, RemoteProtocol.EMPTY, RemoteProtocol.EMPTY)))
+                .getInt();
+    }
+
+    /**
+     * Returns a snapshot of the mappings available on the remote map. Changes
+     * to the map are not reflected in the set, which is unmodifiable.
+     *
+     * @throws IllegalStateException if the connection is closed
+     */
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return Collections.unmodifiableMap(snapshot()).entrySet();
+    }
+
+    /**
+     * Returns a snapshot of the keys available on the remote map. Changes to
+     * the map are not reflected in the set, which is unmodifiable.
+     *
+     * @throws IllegalStateException if the connection is closed
+     */
+    @Override
+    public Set<K> keySet() {
+        return await(keysAsync());
+    }
+
+    /**
+     * Returns a snapshot of the values available on the remote map. Changes
+     * to the map are not reflected in the collection, which is unmodifiable.
+     *
+     * @throws IllegalStateException if the connection is closed
+     */
+    @Override
+    public Collection<V> values() {
+        return Collections.unmodifiableMap(snapshot()).values();
+    }
+
+    /**
+     * Puts all mappings, each one as with put, pipelined, & waits for all of
+     * them.
+     *
+     * @throws NullPointerException if any key or value is null
+     * @throws IllegalStateException if the connection is closed
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        for (Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
+            if ((entry.getKey() == null) || (entry.getValue() == null)) {
+                throw new NullPointerException();
+            }
+        }
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[m.size()];
+        int i = 0;
+        for (Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
+            responses[i++] = send(RemoteProtocol.PUT, 0, keyBytes(entry.getKey()),
+                    valueSerializer.toBytes(entry.getValue()));
+        }
+        for (CompletableFuture<?> response : responses) {
+            @SuppressWarnings("unchecked")
+            CompletableFuture<byte[]> put = (CompletableFuture<byte[]>) response;
+            await(put);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * RemoteProtocol.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Frames exchanged between {@link RemoteBlockingMap} & {@link BlockingMapServer}
+ * over one TCP connection. Requests are pipelined : a client sends requests
+ * without waiting for the responses of the previous ones. Each response
+ * carries the id of its request; responses of takes are sent when the mapping
+ * becomes available & hence may come out of order.
+ *
+ * <p>
+ * Request : <tt>[int length][long id][byte op][long argument][int key
+ * length][key][value]</tt>, the value taking the rest of the frame. The
+ * argument is the timeout of a take in milliseconds (negative for no
+ * timeout) or the id of the take to be cancelled, ignored by other ops.
+ *
+ * <p>
+ * Response : <tt>[int length][long id][byte status][payload]</tt>. Status is
+ * NULL (no payload), VALUE (payload is the value or the answer) or ERROR
+ * (payload is the UTF-8 message). The answer to KEYS is <tt>[int
+ * count]</tt> followed by <tt>[int length][key]</tt> for each available key.
+ *
+ * @version 1.0, 19/10/26
+ */
+/**
+ * Should not be accessible outside the package. Meant to be used from
+ * BlockingMapServer & RemoteBlockingMap
+ */
+class RemoteProtocol {
+
+    static final byte PUT = 1;
+    static final byte TAKE = 2;
+    static final byte GET = 3;
+    static final byte REMOVE = 4;
+    static final byte CONTAINS = 5;
+    static final byte SIZE = 6;
+    static final byte CANCEL = 7;
+    static final byte KEYS = 8;
+
+    static final byte NULL = 0;
+    static final byte VALUE = 1;
+    static final byte ERROR = 2;
+
+    /**
+     * id, op, argument & key length
+     */
+    static final int REQUEST_HEADER = 8 + 1 + 8 + 4;
+    /**
+     * id & status
+     */
+    static final int RESPONSE_HEADER = 8 + 1;
+    /**
+     * frames larger than this are rejected & the connection closed
+     */
+    static final int MAX_FRAME = 64 * 1024 * 1024;
+    static final byte[] EMPTY = new byte[0];
+
+    private RemoteProtocol() {
+    }
+
+    static ByteBuffer request(long id, byte op, long argument, byte[] key, byte[] value) {
+        int length = REQUEST_HEADER + key.length + value.length;
+        ByteBuffer frame = ByteBuffer.allocate(4 + length);
+        frame.putInt(length).putLong(id).put(op).putLong(argument).putInt(key.length).put(key).put(value);
+        frame.flip();
+        return frame;
+    }
+
+    static ByteBuffer response(long id, byte status, byte[] payload) {
+        int length = RESPONSE_HEADER + payload.length;
+        ByteBuffer frame = ByteBuffer.allocate(4 + length);
+        frame.putInt(length).putLong(id).put(status).put(payload);
+        frame.flip();
+        return frame;
+    }
+
+    static ByteBuffer value(long id, byte[] value) {
+        return (value == null) ? response(id, NULL, EMPTY) : response(id, VALUE, value);
+    }
+
+    static ByteBuffer error(long id, Throwable error) {
+        String message = error.getClass().getName() + " : " + error.getMessage();
+        return response(id, ERROR, message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static byte[] intBytes(int i) {
+        return ByteBuffer.allocate(4).putInt(i).array();
+    }
+
+    static byte[] booleanBytes(boolean b) {
+        return new byte[]{(byte) (b ? 1 : 0)};
+    }
+}
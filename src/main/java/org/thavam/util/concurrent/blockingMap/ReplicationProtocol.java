@@ -0,0 +1,106 @@
+/*
+ * ReplicationProtocol.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Frames sent by {@link BlockingMapReplicator} to {@link BlockingMapReplica}
+ * over one TCP connection. The replicator sends batches without waiting for
+ * the acknowledgements of the previous ones; the replica acknowledges each
+ * batch once applied.
+ *
+ * <p>
+ * Batch : <tt>[int length][long through][int count]</tt> followed by
+ * <tt>count</tt> records <tt>[byte type][int key length][key][int value
+ * length][value]</tt>, a length of -1 standing for no key or value.
+ * <tt>through</tt> is the sequence of the last change feed event covered by
+ * the batch.
+ *
+ * <p>
+ * Acknowledgement : <tt>[long through]</tt> of the batch applied.
+ *
+ * <p>
+ * RESET starts a full transfer : the replica drops its mappings & the ENTRY
+ * records that follow, in the same & later batches, carry the mappings of the
+ * primary.
+ *
+ * @version 1.0, 19/10/26
+ */
+/**
+ * Should not be accessible outside the package. Meant to be used from
+ * BlockingMapReplicator & BlockingMapReplica
+ */
+class ReplicationProtocol {
+
+    static final byte PUT = 1;
+    static final byte TAKE = 2;
+    static final byte CLEAR = 3;
+    static final byte RESET = 4;
+    static final byte ENTRY = 5;
+
+    /**
+     * through & count
+     */
+    static final int BATCH_HEADER = 8 + 4;
+    /**
+     * frames larger than this are rejected & the connection closed
+     */
+    static final int MAX_FRAME = 64 * 1024 * 1024;
+
+    /**
+     * Encodes the records of one batch, reused from batch to batch
+     */
+    static final class BatchWriter {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private int count;
+
+        void record(byte type, byte[] key, byte[] value) throws IOException {
+            out.writeByte(type);
+            bytes(key);
+            bytes(value);
+            count++;
+        }
+
+        private void bytes(byte[] b) throws IOException {
+            if (b == null) {
+                out.writeInt(-1);
+            } else {
+                out.writeInt(b.length);
+                out.write(b);
+            }
+        }
+
+        int count() {
+            return count;
+        }
+
+        int size() {
+            return bytes.size();
+        }
+
+        /**
+         * Returns the frame of the records written since the last call
+         */
+        ByteBuffer frame(long through) {
+            ByteBuffer frame = ByteBuffer.allocate(4 + BATCH_HEADER + bytes.size());
+            frame.putInt(BATCH_HEADER + bytes.size()).putLong(through).putInt(count);
+            frame.put(bytes.toByteArray());
+            frame.flip();
+            bytes.reset();
+            count = 0;
+            return frame;
+        }
+    }
+
+    private ReplicationProtocol() {
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Serializer.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+/**
+ * Converts keys or values to bytes & back, for maps that keep their mappings
+ * outside the Java heap, in a log or in a file.
+ *
+ * <p>
+ * <tt>fromBytes(toBytes(t))</tt> should be equal to <tt>t</tt>. Implementations
+ * should be thread safe, they are invoked concurrently by producers &
+ * consumers. {@link Serializers} provides serializers for common types.
+ *
+ * @param <T> the type of objects converted
+ * @version 1.0, 19/10/26
+ */
+public interface Serializer<T> {
+
+    /**
+     * Returns the bytes representing the given object.
+     *
+     * @param object object to be converted, never null
+     * @return the bytes representing the object
+     */
+    byte[] toBytes(T object);
+
+    /**
+     * Returns the object represented by the given bytes.
+     *
+     * @param bytes bytes returned by <tt>toBytes</tt>
+     * @return the object represented by the bytes
+     */
+    T fromBytes(byte[] bytes);
+}
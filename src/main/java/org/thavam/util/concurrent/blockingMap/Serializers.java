@@ -0,0 +1,103 @@
+/*
+ * Serializers.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Factory of {@link Serializer}s for common types.
+ *
+ * @version 1.0, 19/10/26
+ */
+public final class Serializers {
+
+    private static final Serializer<byte[]> BYTES = new Serializer<byte[]>() {
+        @Override
+        public byte[] toBytes(byte[] object) {
+            return object;
+        }
+
+        @Override
+        public byte[] fromBytes(byte[] bytes) {
+            return bytes;
+        }
+    };
+    private static final Serializer<String> UTF8 = new Serializer<String>() {
+        @Override
+        public byte[] toBytes(String object) {
+            return object.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String fromBytes(byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    //prevent instantiation
+    private Serializers() {
+    }
+
+    /**
+     * Returns a serializer that passes byte arrays through as they are. The
+     * arrays should not be modified after they are put on the map.
+     *
+     * @return a serializer for byte arrays
+     */
+    public static Serializer<byte[]> bytes() {
+        return BYTES;
+    }
+
+    /**
+     * Returns a serializer that encodes strings in UTF-8.
+     *
+     * @return a serializer for strings
+     */
+    public static Serializer<String> utf8() {
+        return UTF8;
+    }
+
+    /**
+     * Returns a serializer based on Java object serialization. Convenient, but
+     * slower & more verbose than a serializer written for the type.
+     *
+     * @param <T> the type of objects converted
+     * @return a serializer for serializable objects
+     */
+    public static <T extends Serializable> Serializer<T> javaSerialization() {
+        return new Serializer<T>() {
+            @Override
+            public byte[] toBytes(T object) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                    out.writeObject(object);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                return bytes.toByteArray();
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T fromBytes(byte[] bytes) {
+                try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    return (T) in.readObject();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                } catch (ClassNotFoundException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        };
+    }
+}
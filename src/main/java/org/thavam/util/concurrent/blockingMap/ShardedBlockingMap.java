@@ -0,0 +1,706 @@
+/*
+ * ShardedBlockingMap.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An unbound, unordered {@linkplain BlockingMap blocking map} that spreads its
+ * keys over a fixed number of independent {@link BlockingHashMap} shards.
+ *
+ * <p>
+ * Each shard has its own latch table & its own read/write lock. A take on one
+ * shard therefore never holds up producers or consumers of keys that hash to
+ * another shard, which removes most of the contention on the single map wide
+ * lock of BlockingHashMap when many threads work on different keys. Operations
+ * on a key are carried out by the shard the key hashes to & keep the semantics
+ * of BlockingHashMap.
+ *
+ * <p>
+ * <tt>size</tt>, <tt>isEmpty</tt> & <tt>containsValue</tt> aggregate over all
+ * shards & are not atomic with respect to concurrent puts and takes.
+ * <tt>takeMatching</tt> waits on all shards at once.
+ *
+ * <p>
+ * This map can be shutdown using <tt>clear</tt>, which shuts down every shard.
+ * All consumers blocked on the map while invoking clear will be throw
+ * <tt>InterruptedException</tt> or return with <tt>null</tt>. Attempting any
+ * operation after shutdown will throw <tt>IllegalStateException</tt>.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ * @version 1.0, 19/10/26
+ */
+public class ShardedBlockingMap<K, V> implements BlockingMap<K, V> {
+
+    private final BlockingMap<K, V>[] shards;
+    /**
+     * consumers waiting in takeMatching, on any shard
+     */
+    private final PredicateWaiterIndex<K> predicateWaiters = new PredicateWaiterIndex<K>();
+    /*
+     *
+     * flag to prevent takeMatching while or after a clear has been triggered
+     */
+    private final AtomicBoolean cleared = new AtomicBoolean(false);
+    /**
+     * view of all shards used by the takeMatching wait loop
+     */
+    private final PredicateWaiterIndex.MappingSource<K, V> mappings
+            = new PredicateWaiterIndex.MappingSource<K, V>() {
+        @Override
+        public Map.Entry<K, V> pollMatching(Predicate<? super K> predicate) {
+            for (BlockingMap<K, V> shard : shards) {
+                try {
+                    //zero timeout, returns without waiting
+                    Map.Entry<K, V> entry = shard.takeMatching(predicate, 0, TimeUnit.NANOSECONDS);
+                    if (entry != null) {
+                        return entry;
+                    }
+                } catch (InterruptedException ex) {
+                    Logger.getLogger(ShardedBlockingMap.class.getName()).log(Level.SEVERE, null, ex);
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean isKeyAvailable(K key) {
+            return ShardedBlockingMap.this.isKeyAvailable(key);
+        }
+
+        @Override
+        public boolean isCleared() {
+            return cleared.get();
+        }
+    };
+
+    /**
+     * Creates a map with one shard per available processor.
+     */
+    public ShardedBlockingMap() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a map with the given number of shards.
+     *
+     * @param shardCount the number of independent shards
+     * @throws IllegalArgumentException if shardCount is not positive
+     */
+    public ShardedBlockingMap(int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("shardCount should be positive : " + shardCount);
+        }
+        shards = newShards(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new BlockingHashMap<K, V>();
+        }
+    }
+
+    /**
+     * Creates the array of shards, arrays of a generic type cannot be created
+     * directly
+     */
+    @SuppressWarnings("unchecked")
+    private static <K, V> BlockingMap<K, V>[] newShards(int shardCount) {
+        return (BlockingMap<K, V>[]) new BlockingMap<?, ?>[shardCount];
+    }
+
+    /**
+     * Returns the number of shards of this map.
+     *
+     * @return the number of shards
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Spreads higher bits of the hash, as keys are also hashed with the low
+     * bits inside each shard.
+     */
+    private BlockingMap<K, V> shardFor(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return shards[(h & 0x7fffffff) % shards.length];
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains a mapping for the specified
+     * key.
+     *
+     * @param key key whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map contains a mapping for the specified
+     * key
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public boolean isKeyAvailable(K key) {
+        return shardFor(key).isKeyAvailable(key);
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains a mapping for the specified
+     * key.
+     *
+     * @param key key whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map contains a mapping for the specified
+     * key
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        return shardFor(key).containsKey(key);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or {@code null}
+     * if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or {@code null}
+     * if this map contains no mapping for the key
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public V get(Object key) {
+        return shardFor(key).get(key);
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * Attempts to put a mapping whose key is already available on the map are
+     * ignored.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the value already available for <tt>key</tt>, or <tt>null</tt>
+     * if there was no mapping for <tt>key</tt>
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public V put(K key, V value) {
+        V existing = shardFor(key).put(key, value);
+        if (existing == null) {
+            predicateWaiters.signal(key);
+        }
+        return existing;
+    }
+
+    /**
+     * Removes the mapping for a key from this map if it is present.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @return the previous value associated with <tt>key</tt>, or <tt>null</tt>
+     * if there was no mapping for <tt>key</tt>.
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public V remove(Object key) {
+        return shardFor(key).remove(key);
+    }
+
+    /**
+     * Same as put, an unbound map never blocks producers.
+     *
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public V offer(K key, V value) throws InterruptedException {
+        return put(key, value);
+    }
+
+    /**
+     * Same as put, an unbound map never blocks producers.
+     *
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public V offer(K key, V value, long timeout, TimeUnit unit) throws InterruptedException {
+        return put(key, value);
+    }
+
+    /**
+     * Retrieves and removes the mapping for a key from this map if it is
+     * present, waiting if necessary until the mapping becomes available.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @return the value associated with <tt>key</tt>
+     * @throws NullPointerException if the specified key is null
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public V take(K key) throws InterruptedException {
+        return shardFor(key).take(key);
+    }
+
+    /**
+     * Retrieves and removes the mapping for a key from this map if it is
+     * present, waiting if necessary until the mapping becomes available or the
+     * specified time elapses.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @param timeout how long to wait before giving up, in units of
+     * <tt>unit</tt>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the
+     * <tt>timeout</tt> parameter
+     * @return the value associated with <tt>key</tt>, or <tt>null</tt> if the
+     * call times out
+     * @throws NullPointerException if the specified key is null
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public V take(K key, long timeout, TimeUnit unit) throws InterruptedException {
+        return shardFor(key).take(key, timeout, unit);
+    }
+
+    /**
+     * Retrieves and removes a mapping whose key satisfies the given predicate
+     * from any shard, waiting if necessary until such a mapping becomes
+     * available or the specified time elapses.
+     *
+     * @param predicate condition the key of the mapping should satisfy
+     * @param timeout how long to wait before giving up, in units of
+     * <tt>unit</tt>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the
+     * <tt>timeout</tt> parameter
+     * @return the mapping taken, or <tt>null</tt> if the call times out
+     * @throws NullPointerException if the specified predicate is null
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public Map.Entry<K, V> takeMatching(Predicate<? super K> predicate, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        if (cleared.get()) {
+            throw new IllegalStateException("Map Shutdown.Not Active");
+        }
+        return predicateWaiters.await(mappings, predicate, timeout, unit);
+    }
+
+    /**
+     * Shuts down all shards of this blocking map. The map will be empty after
+     * this call.
+     *
+     * <p>
+     * Interrupts any threads waiting on any key in map before clearing. This is
+     * done to prevent threads being blocked forever
+     *
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public void clear() {
+        if (!cleared.getAndSet(true)) {
+            predicateWaiters.interruptWaiters();
+        }
+        for (BlockingMap<K, V> shard : shards) {
+            shard.clear();
+        }
+    }
+
+    /**
+     * Returns true if any shard maps one or more keys to the specified value.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return true if this map maps one or more keys to the specified value
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public boolean containsValue(Object value) {
+        for (BlockingMap<K, V> shard : shards) {
+            if (shard.containsValue(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if no shard contains key-value mappings.
+     *
+     * @return true if this map contains no key-value mappings
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public boolean isEmpty() {
+        for (BlockingMap<K, V> shard : shards) {
+            if (!shard.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of key-value mappings over all shards
+     *
+     * @return the number of key-value mappings in this map
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public int size() {
+        int size = 0;
+        for (BlockingMap<K, V> shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns a weakly consistent view of the available mappings of all
+     * shards, traversed shard by shard. Removal through the view or its
+     * iterator behaves like <tt>remove(k)</tt>.
+     *
+     * @return a view of the available mappings
+     * @throws IllegalStateException if the view is traversed after shut-down
+     */
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new ShardedSetView<Map.Entry<K, V>>(BlockingMap::entrySet);
+    }
+
+    /**
+     * Returns a weakly consistent view of the available keys of all shards,
+     * traversed shard by shard. Removal through the view or its iterator
+     * behaves like <tt>remove(k)</tt>.
+     *
+     * @return a view of the available keys
+     * @throws IllegalStateException if the view is traversed after shut-down
+     */
+    @Override
+    public Set<K> keySet() {
+        return new ShardedSetView<K>(BlockingMap::keySet);
+    }
+
+    /**
+     * Returns a weakly consistent view of the available values of all shards,
+     * traversed shard by shard. Removal through its iterator behaves like
+     * <tt>remove(k)</tt>.
+     *
+     * @return a view of the available values
+     * @throws IllegalStateException if the view is traversed after shut-down
+     */
+    @Override
+    public Collection<V> values() {
+        return new ShardedView<V>(BlockingMap::values);
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map, each one
+     * as with put. <tt>putAll(m, false)</tt> checks the whole batch first;
+     * atomic publication is not supported, shards do not share a lock.
+     *
+     * @param m mappings to be stored in this map
+     * @throws NullPointerException if any key or value is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        for (Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Performs the given action for each available mapping, shard by shard.
+     * Each shard runs its part in parallel on the common <tt>ForkJoinPool</tt>
+     * when it holds at least <tt>parallelismThreshold</tt> mappings.
+     *
+     * @param parallelismThreshold the (estimated) number of mappings of a
+     * shard needed for its part to be executed in parallel
+     * @param action the action
+     * @throws NullPointerException if the action is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public void forEach(long parallelismThreshold, BiConsumer<? super K, ? super V> action) {
+        if (action == null) {
+            throw new NullPointerException();
+        }
+        for (BlockingMap<K, V> shard : shards) {
+            shard.forEach(parallelismThreshold, action);
+        }
+    }
+
+    /**
+     * Returns a non-null result from applying the given search function on
+     * each available mapping, or null if none. Shards are searched one after
+     * the other, each in parallel like <tt>forEach(threshold, action)</tt>.
+     *
+     * @param <U> the return type of the search function
+     * @param parallelismThreshold the (estimated) number of mappings of a
+     * shard needed for its part to be executed in parallel
+     * @param searchFunction a function returning a non-null result on success,
+     * else null
+     * @return a non-null result from applying the given search function on
+     * some mapping, or null if none
+     * @throws NullPointerException if the search function is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public <U> U search(long parallelismThreshold, BiFunction<? super K, ? super V, ? extends U> searchFunction) {
+        if (searchFunction == null) {
+            throw new NullPointerException();
+        }
+        for (BlockingMap<K, V> shard : shards) {
+            U result = shard.search(parallelismThreshold, searchFunction);
+            if (result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the result of accumulating the given transformation of all
+     * available mappings using the given reducer to combine values, or null if
+     * none. The result of each shard is combined with the reducer.
+     *
+     * @param <U> the return type of the transformer
+     * @param parallelismThreshold the (estimated) number of mappings of a
+     * shard needed for its part to be executed in parallel
+     * @param transformer a function returning the transformation for a
+     * mapping, or null if there is no transformation
+     * @param reducer a commutative associative combining function
+     * @return the result of accumulating the given transformation of all
+     * mappings
+     * @throws NullPointerException if the transformer or reducer is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public <U> U reduce(long parallelismThreshold, BiFunction<? super K, ? super V, ? extends U> transformer,
+            BiFunction<? super U, ? super U, ? extends U> reducer) {
+        if ((transformer == null) || (reducer == null)) {
+            throw new NullPointerException();
+        }
+        U result = null;
+        for (BlockingMap<K, V> shard : shards) {
+            U shardResult = shard.reduce(parallelismThreshold, transformer, reducer);
+            if (shardResult != null) {
+                result = (result == null) ? shardResult : reducer.apply(result, shardResult);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Concatenation of the same view over all shards. The view of each shard
+     * is looked up when traversed.
+     */
+    private class ShardedView<E> extends AbstractCollection<E> {
+
+        private final Function<BlockingMap<K, V>, Collection<E>> viewOf;
+
+        ShardedView(Function<BlockingMap<K, V>, Collection<E>> viewOf) {
+            this.viewOf = viewOf;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return new Iterator<E>() {
+                private int shard = 0;
+                private Iterator<E> current = viewOf.apply(shards[0]).iterator();
+                private Iterator<E> last;
+
+                @Override
+                public boolean hasNext() {
+                    while (!current.hasNext() && (shard < shards.length - 1)) {
+                        current = viewOf.apply(shards[++shard]).iterator();
+                    }
+                    return current.hasNext();
+                }
+
+                @Override
+                public E next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    last = current;
+                    return current.next();
+                }
+
+                @Override
+                public void remove() {
+                    if (last == null) {
+                        throw new IllegalStateException();
+                    }
+                    last.remove();
+                    last = null;
+                }
+            };
+        }
+
+        @Override
+        public Spliterator<E> spliterator() {
+            return new ShardSpliterator(0, shards.length);
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (BlockingMap<K, V> shard : shards) {
+                size += viewOf.apply(shard).size();
+            }
+            return size;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            for (BlockingMap<K, V> shard : shards) {
+                if (!viewOf.apply(shard).isEmpty()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            for (BlockingMap<K, V> shard : shards) {
+                if (viewOf.apply(shard).contains(o)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            for (BlockingMap<K, V> shard : shards) {
+                if (viewOf.apply(shard).remove(o)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Splits the range of shards first, then the view of the last shard.
+         */
+        private class ShardSpliterator implements Spliterator<E> {
+
+            private int from;
+            private final int to;
+            private Spliterator<E> current;
+
+            ShardSpliterator(int from, int to) {
+                this.from = from;
+                this.to = to;
+            }
+
+            private Spliterator<E> current() {
+                if ((current == null) && (from < to)) {
+                    current = viewOf.apply(shards[from]).spliterator();
+                }
+                return current;
+            }
+
+            @Override
+            public boolean tryAdvance(Consumer<? super E> action) {
+                while (current() != null) {
+                    if (current.tryAdvance(action)) {
+                        return true;
+                    }
+                    current = null;
+                    from++;
+                }
+                return false;
+            }
+
+            @Override
+            public void forEachRemaining(Consumer<? super E> action) {
+                while (current() != null) {
+                    current.forEachRemaining(action);
+                    current = null;
+                    from++;
+                }
+            }
+
+            @Override
+            public Spliterator<E> trySplit() {
+                if ((current == null) && (to - from > 1)) {
+                    int middle = (from + to) >>> 1;
+                    Spliterator<E> prefix = new ShardSpliterator(from, middle);
+                    from = middle;
+                    return prefix;
+                }
+                return (current() == null) ? null : current.trySplit();
+            }
+
+            @Override
+            public long estimateSize() {
+                long size = 0;
+                for (int i = from; i < to; i++) {
+                    size += ((i == from) && (current != null))
+                            ? current.estimateSize()
+                            : viewOf.apply(shards[i]).spliterator().estimateSize();
+                }
+                return size;
+            }
+
+            @Override
+            public int characteristics() {
+                return Spliterator.CONCURRENT | Spliterator.NONNULL;
+            }
+        }
+    }
+
+    /**
+     * Keys of different shards never collide, the concatenation of key or
+     * entry views is a set.
+     */
+    private class ShardedSetView<E> extends ShardedView<E> implements Set<E> {
+
+        ShardedSetView(Function<BlockingMap<K, V>, Collection<E>> viewOf) {
+            super(viewOf);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) {
+                return true;
+            }
+            if (!(o instanceof Set)) {
+                return false;
+            }
+            Collection<?> other = (Collection<?>) o;
+            return (other.size() == size()) && containsAll(other);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 0;
+            for (E element : this) {
+                hash += element.hashCode();
+            }
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,1037 @@
+/*
+ * SharedMemoryBlockingMap.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * A bounded {@linkplain BlockingMap blocking map} of byte array values, shared
+ * by the processes of a host through a memory mapped file, by default in
+ * <tt>/dev/shm</tt>. A take in one process is satisfied by a put in another
+ * one, values are copied in to & out of the shared file, without sockets.
+ *
+ * <p>
+ * The file holds a header & a fixed number of slots. Each slot holds one
+ * mapping, with a key of at most <tt>keyCapacity</tt> bytes & a value of at
+ * most <tt>valueCapacity</tt> bytes. Slots are looked up by open addressing on
+ * the hash of the serialized key. All processes opening the file should use
+ * the same geometry & key serializer. A removed mapping leaves a tombstone,
+ * reused by the next insert probing over it; a tombstone followed by a free
+ * slot is freed at once, so that lookups of absent keys stop early even after
+ * a long run of puts & takes.
+ *
+ * <p>
+ * Mutations are done holding a lock of the table, made of a lock local to the
+ * JVM & an OS file lock on a byte of the header. The OS releases the file
+ * locks of a process when it dies, hence a crashed process never leaves the
+ * table locked. A slot is marked as being written before its key & value are
+ * copied & marked available after. A slot found marked as being written by
+ * the holder of the table lock was left behind by a dead process & is
+ * reclaimed.
+ *
+ * <p>
+ * Every put & take increments a sequence number in the header. Waiting
+ * consumers & producers spin for a short while on the sequence number, then
+ * park with an increasing back off, up to a millisecond, till the sequence
+ * changes. No futex or socket is involved. Puts made in the same process wake
+ * up local waiters at once.
+ *
+ * <p>
+ * Each process holds a shared lock on another byte of the header while the
+ * map is open. <tt>clear</tt> shuts down the map in this process only : local
+ * waiters are interrupted & the shared lock is released. The last process to
+ * leave, which obtains the exclusive lock, deletes the file. A file whose
+ * processes all died is reused as it is by the next process opening it.
+ *
+ * <p>
+ * The map is bounded : <tt>put</tt> returns <tt>null</tt> without storing the
+ * mapping when no slot is free & <tt>offer</tt> waits for a free slot. One
+ * instance per file should be opened in a JVM. The views & bulk operations
+ * work on a snapshot of the mappings.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @version 1.0, 19/10/26
+ */
+public class SharedMemoryBlockingMap<K> implements BlockingMap<K, byte[]> {
+
+    private static final int MAGIC = 0x424d5348;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int SLOT_COUNT_OFFSET = 4;
+    private static final int KEY_CAPACITY_OFFSET = 8;
+    private static final int VALUE_CAPACITY_OFFSET = 12;
+    private static final int SEQUENCE_OFFSET = 16;
+    private static final int SIZE_OFFSET = 24;
+    private static final int TABLE_LOCK_OFFSET = 32;
+    private static final int MEMBERSHIP_LOCK_OFFSET = 40;
+    private static final int HEADER_LENGTH = 64;
+
+    private static final int FREE = 0;
+    private static final int WRITING = 1;
+    private static final int AVAILABLE = 2;
+    private static final int REMOVED = 3;
+    //state, key hash, key length, value length
+    private static final int SLOT_HEADER_LENGTH = 16;
+
+    /**
+     * returned by tryPut when the mapping is stored
+     */
+    private static final byte[] STORED = new byte[0];
+    private static final int SPINS = 100;
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final Serializer<K> keySerializer;
+    private final int slotCount;
+    private final int keyCapacity;
+    private final int valueCapacity;
+    private final int slotLength;
+    private final Lock localTableLock = new ReentrantLock();
+    private final FileLock membership;
+    /**
+     * OS lock of the table, held along with localTableLock
+     */
+    private FileLock tableFileLock;
+    /**
+     * threads of this process waiting for a change of the table
+     */
+    private final Queue<Thread> waiters = new ConcurrentLinkedQueue<Thread>();
+    private final AtomicBoolean cleared = new AtomicBoolean(false);
+
+    /**
+     * Opens, or creates, the map with the given name in <tt>/dev/shm</tt>.
+     *
+     * @param name name of the file in /dev/shm
+     * @param keySerializer converts keys to bytes & back
+     * @param slotCount number of mappings the map can hold
+     * @param keyCapacity maximum length of a serialized key
+     * @param valueCapacity maximum length of a value
+     * @throws IOException if the file cannot be created or mapped
+     */
+    public SharedMemoryBlockingMap(String name, Serializer<K> keySerializer,
+            int slotCount, int keyCapacity, int valueCapacity) throws IOException {
+        this(Paths.get("/dev/shm", name), keySerializer, slotCount, keyCapacity, valueCapacity);
+    }
+
+    /**
+     * Opens, or creates, the map backed by the given file.
+     *
+     * @param file the shared file
+     * @param keySerializer converts keys to bytes & back
+     * @param slotCount number of mappings the map can hold
+     * @param keyCapacity maximum length of a serialized key
+     * @param valueCapacity maximum length of a value
+     * @throws IOException if the file cannot be created or mapped
+     * @throws IllegalArgumentException if a capacity is not positive, or the
+     * file exists with another geometry
+     */
+    public SharedMemoryBlockingMap(Path file, Serializer<K> keySerializer,
+            int slotCount, int keyCapacity, int valueCapacity) throws IOException {
+        if ((slotCount <= 0) || (keyCapacity <= 0) || (valueCapacity <= 0)) {
+            throw new IllegalArgumentException("capacities should be positive");
+        }
+        if (keySerializer == null) {
+            throw new NullPointerException();
+        }
+        this.file = file;
+        this.keySerializer = keySerializer;
+        this.slotCount = slotCount;
+        this.keyCapacity = keyCapacity;
+        this.valueCapacity = valueCapacity;
+        //slots aligned on 8 bytes
+        this.slotLength = (SLOT_HEADER_LENGTH + keyCapacity + valueCapacity + 7) & ~7;
+        long length = HEADER_LENGTH + (long) slotCount * slotLength;
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("map larger than 2 GB");
+        }
+
+        FileChannel opened;
+        FileLock member;
+        for (;;) {
+            opened = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                //a member first, so that the last process leaving does not delete the file being set up
+                member = opened.lock(MEMBERSHIP_LOCK_OFFSET, 1, true);
+            } catch (IOException | RuntimeException ex) {
+                opened.close();
+                throw ex;
+            }
+            if (Files.exists(file)) {
+                break;
+            }
+            //deleted by the last process leaving while waiting for the lock
+            opened.close();
+        }
+        this.channel = opened;
+        this.membership = member;
+        try {
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            lockTable();
+            try {
+                if (buffer.getInt(MAGIC_OFFSET) != MAGIC) {
+                    //new file, zero filled
+                    buffer.putInt(SLOT_COUNT_OFFSET, slotCount);
+                    buffer.putInt(KEY_CAPACITY_OFFSET, keyCapacity);
+                    buffer.putInt(VALUE_CAPACITY_OFFSET, valueCapacity);
+                    buffer.putInt(MAGIC_OFFSET, MAGIC);
+                } else if ((buffer.getInt(SLOT_COUNT_OFFSET) != slotCount)
+                        || (buffer.getInt(KEY_CAPACITY_OFFSET) != keyCapacity)
+                        || (buffer.getInt(VALUE_CAPACITY_OFFSET) != valueCapacity)) {
+                    throw new IllegalArgumentException("map " + file + " exists with another geometry");
+                }
+            } finally {
+                unlockTable();
+            }
+        } catch (IOException | RuntimeException ex) {
+            //closing the channel releases the membership lock
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Returns the file backing this map.
+     *
+     * @return the shared file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Locks the table in this JVM & across processes
+     *
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    private void lockTable() {
+        localTableLock.lock();
+        if (cleared.get()) {
+            localTableLock.unlock();
+            throw new IllegalStateException("Map Shutdown.Not Active");
+        }
+        try {
+            //blocks till no other process holds the table
+            tableFileLock = channel.lock(TABLE_LOCK_OFFSET, 1, false);
+        } catch (IOException ex) {
+            localTableLock.unlock();
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void unlockTable() {
+        try {
+            tableFileLock.release();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            tableFileLock = null;
+            localTableLock.unlock();
+        }
+    }
+
+    private int slotOffset(int slot) {
+        return HEADER_LENGTH + slot * slotLength;
+    }
+
+    private byte[] keyBytes(Object key) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        @SuppressWarnings("unchecked")
+        byte[] bytes = keySerializer.toBytes((K) key);
+        if (bytes.length > keyCapacity) {
+            throw new IllegalArgumentException("key of " + bytes.length + " bytes exceeds " + keyCapacity);
+        }
+        return bytes;
+    }
+
+    private static int hash(byte[] key) {
+        int h = Arrays.hashCode(key);
+        return h ^ (h >>> 16);
+    }
+
+    private boolean keyEquals(int offset, int hash, byte[] key) {
+        if ((buffer.getInt(offset + 4) != hash) || (buffer.getInt(offset + 8) != key.length)) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(offset + SLOT_HEADER_LENGTH + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the slot holding the key, or -1. Should hold the table lock.
+     * Slots left being written by a dead process are reclaimed on the way.
+     */
+    private int find(byte[] key, int hash) {
+        int start = (hash & 0x7fffffff) % slotCount;
+        for (int i = 0; i < slotCount; i++) {
+            int slot = (start + i) % slotCount;
+            int offset = slotOffset(slot);
+            int state = buffer.getInt(offset);
+            if (state == WRITING) {
+                //the table lock is held, its writer is dead
+                buffer.putInt(offset, REMOVED);
+                state = REMOVED;
+            }
+            if (state == FREE) {
+                return -1;
+            }
+            if ((state == AVAILABLE) && keyEquals(offset, hash, key)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the first free or removed slot probed for the key, or -1 if the
+     * table is full. Should hold the table lock.
+     */
+    private int freeSlot(int hash) {
+        int start = (hash & 0x7fffffff) % slotCount;
+        for (int i = 0; i < slotCount; i++) {
+            int slot = (start + i) % slotCount;
+            int state = buffer.getInt(slotOffset(slot));
+            if ((state == FREE) || (state == REMOVED) || (state == WRITING)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void write(int slot, int hash, byte[] key, byte[] value) {
+        int offset = slotOffset(slot);
+        buffer.putInt(offset, WRITING);
+        buffer.putInt(offset + 4, hash);
+        buffer.putInt(offset + 8, key.length);
+        buffer.putInt(offset + 12, value.length);
+        for (int i = 0; i < key.length; i++) {
+            buffer.put(offset + SLOT_HEADER_LENGTH + i, key[i]);
+        }
+        int valueOffset = offset + SLOT_HEADER_LENGTH + keyCapacity;
+        for (int i = 0; i < value.length; i++) {
+            buffer.put(valueOffset + i, value[i]);
+        }
+        buffer.putInt(offset, AVAILABLE);
+        buffer.putInt(SIZE_OFFSET, buffer.getInt(SIZE_OFFSET) + 1);
+    }
+
+    private byte[] readKey(int slot) {
+        int offset = slotOffset(slot);
+        byte[] key = new byte[buffer.getInt(offset + 8)];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = buffer.get(offset + SLOT_HEADER_LENGTH + i);
+        }
+        return key;
+    }
+
+    private byte[] readValue(int slot) {
+        int offset = slotOffset(slot);
+        byte[] value = new byte[buffer.getInt(offset + 12)];
+        int valueOffset = offset + SLOT_HEADER_LENGTH + keyCapacity;
+        for (int i = 0; i < value.length; i++) {
+            value[i] = buffer.get(valueOffset + i);
+        }
+        return value;
+    }
+
+    /**
+     * Marks the slot removed & returns its value. Should hold the table lock.
+     * If the next slot is free, no probe goes past this slot, nor past the
+     * tombstones right before it : all of them are freed.
+     */
+    private byte[] removeSlot(int slot) {
+        byte[] value = readValue(slot);
+        if (buffer.getInt(slotOffset((slot + 1) % slotCount)) == FREE) {
+            buffer.putInt(slotOffset(slot), FREE);
+            for (int previous = (slot + slotCount - 1) % slotCount;
+                    buffer.getInt(slotOffset(previous)) == REMOVED;
+                    previous = (previous + slotCount - 1) % slotCount) {
+                buffer.putInt(slotOffset(previous), FREE);
+            }
+        } else {
+            buffer.putInt(slotOffset(slot), REMOVED);
+        }
+        buffer.putInt(SIZE_OFFSET, buffer.getInt(SIZE_OFFSET) - 1);
+        return value;
+    }
+
+    /**
+     * Publishes a change of the table to waiting processes & threads
+     */
+    private void changed() {
+        buffer.putLong(SEQUENCE_OFFSET, buffer.getLong(SEQUENCE_OFFSET) + 1);
+        for (Thread waiter : waiters) {
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    private long sequence() {
+        return buffer.getLong(SEQUENCE_OFFSET);
+    }
+
+    /**
+     * Waits till the table changes after the given sequence, or the deadline.
+     * Spins first, then parks with an increasing back off.
+     *
+     * @return false if the deadline has passed
+     */
+    private boolean awaitChange(long seen, long deadline) throws InterruptedException {
+        Thread current = Thread.currentThread();
+        waiters.add(current);
+        try {
+            long parkNanos = 1000;
+            for (int spins = 0; sequence() == seen; spins++) {
+                if (Thread.interrupted() || cleared.get()) {
+                    throw new InterruptedException();
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                if (spins < SPINS) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(this, Math.min(parkNanos, remaining));
+                    parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+                }
+            }
+            return true;
+        } finally {
+            waiters.remove(current);
+        }
+    }
+
+    /**
+     * Stores the mapping if the key is not available & a slot is free.
+     *
+     * @return the available value, an empty array if stored or null if full
+     */
+    private byte[] tryPut(byte[] key, byte[] value) {
+        int hash = hash(key);
+        lockTable();
+        try {
+            int slot = find(key, hash);
+            if (slot >= 0) {
+                return readValue(slot);
+            }
+            slot = freeSlot(hash);
+            if (slot < 0) {
+                return null;
+            }
+            write(slot, hash, key, value);
+            changed();
+            return STORED;
+        } finally {
+            unlockTable();
+        }
+    }
+
+    private byte[] checkedValue(byte[] value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        if (value.length > valueCapacity) {
+            throw new IllegalArgumentException("value of " + value.length + " bytes exceeds " + valueCapacity);
+        }
+        return value;
+    }
+
+    private byte[] tryTake(byte[] key) {
+        int hash = hash(key);
+        lockTable();
+        try {
+            int slot = find(key, hash);
+            if (slot < 0) {
+                return null;
+            }
+            byte[] value = removeSlot(slot);
+            changed();
+            return value;
+        } finally {
+            unlockTable();
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains a mapping for the specified
+     * key.
+     *
+     * @param key key whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map contains a mapping for the specified
+     * key
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public boolean isKeyAvailable(K key) {
+        return containsKey(key);
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains a mapping for the specified
+     * key.
+     *
+     * @param key key whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map contains a mapping for the specified
+     * key
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        byte[] bytes = keyBytes(key);
+        lockTable();
+        try {
+            return find(bytes, hash(bytes)) >= 0;
+        } finally {
+            unlockTable();
+        }
+    }
+
+    /**
+     * Returns a copy of the value to which the specified key is mapped, or
+     * {@code null} if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return a copy of the value, or {@code null}
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public byte[] get(Object key) {
+        byte[] bytes = keyBytes(key);
+        lockTable();
+        try {
+            int slot = find(bytes, hash(bytes));
+            return (slot < 0) ? null : readValue(slot);
+        } finally {
+            unlockTable();
+        }
+    }
+
+    /**
+     * Copies the mapping in to the shared file. Attempts to put a mapping whose
+     * key is already available are ignored. If no slot is free, returns
+     * <tt>null</tt> without storing the mapping.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the value already available for <tt>key</tt>, or <tt>null</tt>
+     * if there was no mapping for <tt>key</tt> or no free slot
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalArgumentException if the key or value exceeds its
+     * capacity
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public byte[] put(K key, byte[] value) {
+        byte[] existing = tryPut(keyBytes(key), checkedValue(value));
+        return (existing == STORED) ? null : existing;
+    }
+
+    /**
+     * Removes the mapping for a key from this map if it is present.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @return the value associated with <tt>key</tt>, or <tt>null</tt> if
+     * there was no mapping for <tt>key</tt>.
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public byte[] remove(Object key) {
+        return tryTake(keyBytes(key));
+    }
+
+    /**
+     * Copies the mapping in to the shared file, waiting if necessary for a
+     * slot to be freed.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the value already available for <tt>key</tt>, or <tt>null</tt>
+     * if there was no mapping for <tt>key</tt>
+     * @throws InterruptedException if interrupted while waiting
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalArgumentException if the key or value exceeds its
+     * capacity
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public byte[] offer(K key, byte[] value) throws InterruptedException {
+        return offer(key, value, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Copies the mapping in to the shared file, waiting if necessary for a
+     * slot to be freed or the specified time to elapse.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @param timeout how long to wait before giving up, in units of
+     * <tt>unit</tt>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the
+     * <tt>timeout</tt> parameter
+     * @return the value already available for <tt>key</tt>, or <tt>null</tt>
+     * if there was no mapping for <tt>key</tt> or the call times out
+     * @throws InterruptedException if interrupted while waiting
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalArgumentException if the key or value exceeds its
+     * capacity
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public byte[] offer(K key, byte[] value, long timeout, TimeUnit unit) throws InterruptedException {
+        byte[] keyBytes = keyBytes(key);
+        checkedValue(value);
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (;;) {
+            long seen = sequence();
+            byte[] existing = tryPut(keyBytes, value);
+            if (existing != null) {
+                return (existing == STORED) ? null : existing;
+            }
+            if (!awaitChange(seen, deadline)) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Retrieves and removes the mapping for a key, waiting if necessary until
+     * a process puts it.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @return the value associated with <tt>key</tt>
+     * @throws NullPointerException if the specified key is null
+     * @throws InterruptedException if interrupted while waiting, or if the map
+     * is cleared in this process
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public byte[] take(K key) throws InterruptedException {
+        return take(key, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Retrieves and removes the mapping for a key, waiting if necessary until
+     * a process puts it or the specified time elapses.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @param timeout how long to wait before giving up, in units of
+     * <tt>unit</tt>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the
+     * <tt>timeout</tt> parameter
+     * @return the value associated with <tt>key</tt>, or <tt>null</tt> if the
+     * call times out
+     * @throws NullPointerException if the specified key is null
+     * @throws InterruptedException if interrupted while waiting, or if the map
+     * is cleared in this process
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public byte[] take(K key, long timeout, TimeUnit unit) throws InterruptedException {
+        byte[] keyBytes = keyBytes(key);
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (;;) {
+            long seen = sequence();
+            byte[] value = tryTake(keyBytes);
+            if (value != null) {
+                return value;
+            }
+            if (!awaitChange(seen, deadline)) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Retrieves and removes a mapping whose key matches the given predicate,
+     * waiting if necessary until such a mapping is put or the specified time
+     * elapses. Keys are deserialized & tested while holding the table lock.
+     *
+     * @param predicate condition the key of the mapping should satisfy
+     * @param timeout how long to wait before giving up, in units of
+     * <tt>unit</tt>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the
+     * <tt>timeout</tt> parameter
+     * @return the mapping taken, or <tt>null</tt> if the call times out
+     * @throws NullPointerException if the predicate is null
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public Map.Entry<K, byte[]> takeMatching(Predicate<? super K> predicate, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        if (predicate == null) {
+            throw new NullPointerException();
+        }
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (;;) {
+            long seen = sequence();
+            lockTable();
+            try {
+                for (int slot = 0; slot < slotCount; slot++) {
+                    if (buffer.getInt(slotOffset(slot)) == AVAILABLE) {
+                        K key = keySerializer.fromBytes(readKey(slot));
+                        if (predicate.test(key)) {
+                            byte[] value = removeSlot(slot);
+                            changed();
+                            return new AbstractMap.SimpleImmutableEntry<K, byte[]>(key, value);
+                        }
+                    }
+                }
+            } finally {
+                unlockTable();
+            }
+            if (!awaitChange(seen, deadline)) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Stores all mappings. Keys already available are ignored. The whole
+     * batch is validated before any mapping is stored. With <tt>atomic</tt>,
+     * the mappings are stored while holding the table lock & other processes
+     * see all of them or none of them. Without, each mapping is stored as with
+     * put, taking the table lock in turn, & mappings finding no free slot are
+     * not stored.
+     *
+     * @param m mappings to be stored in this map
+     * @param atomic whether the batch should become visible all at once
+     * @throws NullPointerException if any key or value is null
+     * @throws IllegalArgumentException if a key or value exceeds its capacity
+     * @throws IllegalStateException if the map has been shut-down, or there
+     * are not enough free slots for an atomic batch
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends byte[]> m, boolean atomic) {
+        Map<byte[], byte[]> batch = new LinkedHashMap<byte[], byte[]>();
+        for (Map.Entry<? extends K, ? extends byte[]> entry : m.entrySet()) {
+            batch.put(keyBytes(entry.getKey()), checkedValue(entry.getValue()));
+        }
+        if (!atomic) {
+            for (Map.Entry<byte[], byte[]> entry : batch.entrySet()) {
+                tryPut(entry.getKey(), entry.getValue());
+            }
+            return;
+        }
+        lockTable();
+        try {
+            if (slotCount - buffer.getInt(SIZE_OFFSET) < batch.size()) {
+                throw new IllegalStateException("Map full");
+            }
+            for (Map.Entry<byte[], byte[]> entry : batch.entrySet()) {
+                int hash = hash(entry.getKey());
+                if (find(entry.getKey(), hash) < 0) {
+                    write(freeSlot(hash), hash, entry.getKey(), entry.getValue());
+                }
+            }
+            changed();
+        } finally {
+            unlockTable();
+        }
+    }
+
+    /**
+     * Same as <tt>putAll(m, true)</tt>
+     *
+     * @param m mappings to be stored in this map
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends byte[]> m) {
+        putAll(m, true);
+    }
+
+    /**
+     * Retrieves and removes the mappings of all the given keys, waiting if
+     * necessary until all of them are available or the specified time elapses.
+     * The mappings are removed while holding the table lock, all at once.
+     *
+     * @param keys keys whose mappings are to be removed from the map
+     * @param timeout how long to wait before giving up, in units of
+     * <tt>unit</tt>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the
+     * <tt>timeout</tt> parameter
+     * @return the mappings of all the keys, or <tt>null</tt> if the call times
+     * out before all of them are available
+     * @throws NullPointerException if any of the keys is null
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public Map<K, byte[]> takeAll(Collection<? extends K> keys, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        Map<K, byte[]> keyBytes = new LinkedHashMap<K, byte[]>();
+        for (K key : keys) {
+            keyBytes.put(key, keyBytes(key));
+        }
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (;;) {
+            long seen = sequence();
+            lockTable();
+            try {
+                int[] slots = new int[keyBytes.size()];
+                boolean allAvailable = true;
+                int i = 0;
+                for (byte[] bytes : keyBytes.values()) {
+                    slots[i] = find(bytes, hash(bytes));
+                    if (slots[i++] < 0) {
+                        allAvailable = false;
+                        break;
+                    }
+                }
+                if (allAvailable) {
+                    Map<K, byte[]> result = new LinkedHashMap<K, byte[]>();
+                    i = 0;
+                    for (K key : keyBytes.keySet()) {
+                        result.put(key, removeSlot(slots[i++]));
+                    }
+                    changed();
+                    return result;
+                }
+            } finally {
+                unlockTable();
+            }
+            if (!awaitChange(seen, deadline)) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Shuts down the map in this process. Local waiters are interrupted & the
+     * file is unmapped from the view of this map. The last process to leave
+     * deletes the file.
+     *
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public void clear() {
+        if (!cleared.compareAndSet(false, true)) {
+            throw new IllegalStateException("Map Shutdown.Not Active");
+        }
+        for (Thread waiter : waiters) {
+            waiter.interrupt();
+        }
+        //no table operation of this process in progress while leaving
+        localTableLock.lock();
+        try {
+            membership.release();
+            FileLock last = null;
+            try {
+                last = channel.tryLock(MEMBERSHIP_LOCK_OFFSET, 1, false);
+            } catch (OverlappingFileLockException ex) {
+                //another instance of this JVM has the map open
+            }
+            if (last != null) {
+                //no other process has the map open
+                Files.deleteIfExists(file);
+                last.release();
+            }
+            channel.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            localTableLock.unlock();
+        }
+    }
+
+    /**
+     * Copies the available mappings, holding the table lock.
+     */
+    private Map<K, byte[]> snapshot() {
+        Map<K, byte[]> snapshot = new LinkedHashMap<K, byte[]>();
+        lockTable();
+        try {
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (buffer.getInt(slotOffset(slot)) == AVAILABLE) {
+                    snapshot.put(keySerializer.fromBytes(readKey(slot)), readValue(slot));
+                }
+            }
+        } finally {
+            unlockTable();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns <tt>true</tt> if a mapping has a value with the same content.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return <tt>true</tt> if a mapping has a value with the same content
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public boolean containsValue(Object value) {
+        if (!(value instanceof byte[])) {
+            return false;
+        }
+        for (byte[] available : snapshot().values()) {
+            if (Arrays.equals(available, (byte[]) value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if this map contains no key-value mappings.
+     *
+     * @return true if this map contains no key-value mappings
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the number of mappings, in all processes.
+     *
+     * @return the number of key-value mappings in this map
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public int size() {
+        lockTable();
+        try {
+            return buffer.getInt(SIZE_OFFSET);
+        } finally {
+            unlockTable();
+        }
+    }
+
+    /**
+     * Returns a read only snapshot of the mappings.
+     *
+     * @return a snapshot of the mappings
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public Set<Map.Entry<K, byte[]>> entrySet() {
+        return Collections.unmodifiableMap(snapshot()).entrySet();
+    }
+
+    /**
+     * Returns a read only snapshot of the keys.
+     *
+     * @return a snapshot of the keys
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public Set<K> keySet() {
+        return Collections.unmodifiableSet(snapshot().keySet());
+    }
+
+    /**
+     * Returns a read only snapshot of the values.
+     *
+     * @return a snapshot of the values
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public Collection<byte[]> values() {
+        return Collections.unmodifiableCollection(snapshot().values());
+    }
+
+    private Stream<Map.Entry<K, byte[]>> bulkStream(long parallelismThreshold) {
+        Map<K, byte[]> snapshot = snapshot();
+        Stream<Map.Entry<K, byte[]>> stream = snapshot.entrySet().stream();
+        return (snapshot.size() >= parallelismThreshold) ? stream.parallel() : stream;
+    }
+
+    /**
+     * Performs the given action for each mapping of a snapshot, in parallel
+     * if the snapshot holds at least <tt>parallelismThreshold</tt> mappings.
+     *
+     * @throws NullPointerException if the action is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public void forEach(long parallelismThreshold, BiConsumer<? super K, ? super byte[]> action) {
+        if (action == null) {
+            throw new NullPointerException();
+        }
+        bulkStream(parallelismThreshold).forEach(entry -> action.accept(entry.getKey(), entry.getValue()));
+    }
+
+    /**
+     * Searches the mappings of a snapshot, in parallel if the snapshot holds
+     * at least <tt>parallelismThreshold</tt> mappings.
+     *
+     * @throws NullPointerException if the search function is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public <U> U search(long parallelismThreshold,
+            BiFunction<? super K, ? super byte[], ? extends U> searchFunction) {
+        if (searchFunction == null) {
+            throw new NullPointerException();
+        }
+        Optional<U> result = bulkStream(parallelismThreshold)
+                .<U>map(entry -> searchFunction.apply(entry.getKey(), entry.getValue()))
+                .filter(u -> u != null)
+                .findAny();
+        return result.orElse(null);
+    }
+
+    /**
+     * Reduces the mappings of a snapshot, in parallel if the snapshot holds at
+     * least <tt>parallelismThreshold</tt> mappings.
+     *
+     * @throws NullPointerException if the transformer or reducer is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public <U> U reduce(long parallelismThreshold, BiFunction<? super K, ? super byte[], ? extends U> transformer,
+            BiFunction<? super U, ? super U, ? extends U> reducer) {
+        if ((transformer == null) || (reducer == null)) {
+            throw new NullPointerException();
+        }
+        Optional<U> result = bulkStream(parallelismThreshold)
+                .<U>map(entry -> transformer.apply(entry.getKey(), entry.getValue()))
+                .filter(u -> u != null)
+                .reduce((left, right) -> reducer.apply(left, right));
+        return result.orElse(null);
+    }
+}
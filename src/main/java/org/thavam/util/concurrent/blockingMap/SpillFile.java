@@ -0,0 +1,119 @@
+/*
+ * SpillFile.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An append only file of values spilled out of memory. A value is written once
+ * at the end of the file & read back with a positional read, which does not
+ * move the position of the channel, so any number of readers can read
+ * concurrently with each other & with the appender.
+ *
+ * <p>
+ * Space of values read back is not reclaimed one by one. The file is
+ * truncated as a whole, once the owner knows that no spilled value is left in
+ * it.
+ *
+ * @version 1.0, 19/10/26
+ */
+/**
+ * Should not be accessible outside the package. Meant to be used from
+ * SpillingBlockingHashMap
+ */
+class SpillFile {
+
+    private final Path file;
+    private final FileChannel channel;
+    /**
+     * end of the last value appended, guarded by this
+     */
+    private long end = 0;
+
+    /**
+     * Creates the file, truncating any content left by a previous map.
+     *
+     * @param file path of the spill file
+     * @throws IOException if the file cannot be created
+     */
+    SpillFile(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Appends the bytes at the end of the file.
+     *
+     * @param bytes bytes of a spilled value
+     * @return position of the bytes in the file
+     * @throws IOException if the bytes cannot be written
+     */
+    synchronized long append(byte[] bytes) throws IOException {
+        long position = end;
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+        end = position + bytes.length;
+        return position;
+    }
+
+    /**
+     * Reads the bytes of a spilled value. Does not hold any lock.
+     *
+     * @param position position returned by append
+     * @param length number of bytes appended
+     * @return the bytes of the value
+     * @throws IOException if the bytes cannot be read, or the file has been
+     * truncated
+     */
+    byte[] read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("spilled value at " + position + " beyond end of " + file);
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Drops all the values appended so far. Should be invoked only when none
+     * of them will be read again.
+     *
+     * @throws IOException if the file cannot be truncated
+     */
+    synchronized void truncate() throws IOException {
+        channel.truncate(0);
+        end = 0;
+    }
+
+    /**
+     * Returns the number of bytes appended since the last truncation.
+     *
+     * @return the length of the file
+     */
+    synchronized long length() {
+        return end;
+    }
+
+    /**
+     * Closes & deletes the file.
+     *
+     * @throws IOException if the file cannot be deleted
+     */
+    void close() throws IOException {
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+}
@@ -0,0 +1,703 @@
+/*
+ * SpillingBlockingHashMap.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link BlockingHashMap} that keeps its available values in memory up to a
+ * budget & spills the values beyond it to a local file. Once the weight of the
+ * values held in memory exceeds the budget, the oldest available values are
+ * serialized & appended to the spill file. Only a small handle, the position &
+ * length of the value in the file, stays in the map.
+ *
+ * <p>
+ * Consumers do not see the difference : <tt>take</tt> of a spilled mapping
+ * reads the value back with a positional read of the file, without any lock,
+ * & deserializes it. The weight of a value is given by a weigher, e.g.
+ * <tt>v -&gt; v.length</tt> for <tt>byte[]</tt> values.
+ *
+ * <p>
+ * Spilling is done by the producer whose put exceeds the budget, one producer
+ * at a time. Other producers do not wait for it, the budget may hence be
+ * exceeded briefly under concurrent puts. The spill file is append only; its
+ * space is reclaimed by truncating it whenever the last spilled value has
+ * been taken.
+ *
+ * <p>
+ * <tt>putAll(m, true)</tt> is not supported. The key set is a read only,
+ * weakly consistent view; <tt>values</tt> & <tt>entrySet</tt> return read only
+ * snapshots, reading back the spilled values.
+ *
+ * <p>
+ * <tt>clear</tt> shuts down the map, closes & deletes the spill file.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ * @version 1.0, 19/10/26
+ */
+public class SpillingBlockingHashMap<K, V> implements BlockingMap<K, V> {
+
+    private static final int RESIDENT = 0;
+    private static final int SPILLED = 1;
+    private static final int TAKEN = 2;
+    /**
+     * taken handles tolerated in the resident queue beyond the resident ones,
+     * before the queue is swept
+     */
+    private static final int SWEEP_SLACK = 64;
+
+    /**
+     * Value held by the map. Either resident, the value is in memory, or
+     * spilled, the value is in the spill file. Moves to taken exactly once,
+     * from either state.
+     */
+    private static final class Handle<V> {
+
+        final long weight;
+        volatile V value;
+        /**
+         * written before the move to spilled, read after it
+         */
+        long position;
+        int length;
+        final AtomicInteger state = new AtomicInteger(RESIDENT);
+
+        Handle(V value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    private final BlockingMap<K, Handle<V>> map = new BlockingHashMap<K, Handle<V>>();
+    private final SpillFile spillFile;
+    private final Serializer<V> serializer;
+    private final ToLongFunction<? super V> weigher;
+    private final long memoryBudget;
+    /**
+     * resident handles in put order, oldest first. May hold handles taken
+     * since, they are skipped when polled & swept out in bulk.
+     */
+    private final Queue<Handle<V>> residents = new ConcurrentLinkedQueue<Handle<V>>();
+    private final AtomicLong residentWeight = new AtomicLong();
+    private final AtomicInteger residentCount = new AtomicInteger();
+    /**
+     * handles taken while resident, hence left in the resident queue
+     */
+    private final AtomicInteger staleCount = new AtomicInteger();
+    private final AtomicInteger spilledCount = new AtomicInteger();
+    /**
+     * serializes spilling, sweeping & truncation of the spill file
+     */
+    private final Lock spillLock = new ReentrantLock();
+
+    /**
+     * Creates the map with the given spill file, created or truncated.
+     *
+     * @param spillFile path of the spill file
+     * @param serializer converts spilled values to bytes & back
+     * @param memoryBudget total weight of the values kept in memory
+     * @param weigher weight of a value, in the unit of the budget
+     * @throws IOException if the spill file cannot be created
+     * @throws IllegalArgumentException if the budget is negative
+     */
+    public SpillingBlockingHashMap(Path spillFile, Serializer<V> serializer, long memoryBudget,
+            ToLongFunction<? super V> weigher) throws IOException {
+        if ((serializer == null) || (weigher == null)) {
+            throw new NullPointerException();
+        }
+        if (memoryBudget < 0) {
+            throw new IllegalArgumentException("memoryBudget : " + memoryBudget);
+        }
+        this.serializer = serializer;
+        this.weigher = weigher;
+        this.memoryBudget = memoryBudget;
+        this.spillFile = new SpillFile(spillFile);
+    }
+
+    /**
+     * Returns the total weight of the values kept in memory.
+     *
+     * @return the weight of the resident values
+     */
+    public long getResidentWeight() {
+        return residentWeight.get();
+    }
+
+    /**
+     * Returns the number of available values held in the spill file.
+     *
+     * @return the number of spilled values
+     */
+    public int getSpilledCount() {
+        return spilledCount.get();
+    }
+
+    /**
+     * Returns the number of bytes appended to the spill file since it was last
+     * truncated.
+     *
+     * @return the length of the spill file
+     */
+    public long getSpillFileLength() {
+        return spillFile.length();
+    }
+
+    /**
+     * Returns the total weight of values kept in memory before spilling.
+     *
+     * @return the memory budget
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Spills the oldest resident values till the resident weight is back
+     * within the budget. Returns at once if another producer is spilling.
+     */
+    private void spill() {
+        if (!spillLock.tryLock()) {
+            return;
+        }
+        try {
+            while (residentWeight.get() > memoryBudget) {
+                Handle<V> handle = residents.poll();
+                if (handle == null) {
+                    break;
+                }
+                V value = handle.value;
+                if ((handle.state.get() != RESIDENT) || (value == null)) {
+                    staleCount.decrementAndGet();
+                    continue;
+                }
+                byte[] bytes = serializer.toBytes(value);
+                try {
+                    handle.position = spillFile.append(bytes);
+                } catch (IOException ex) {
+                    //keep it in memory, spilling is retried by later puts
+                    residents.add(handle);
+                    Logger.getLogger(SpillingBlockingHashMap.class.getName()).log(Level.SEVERE, null, ex);
+                    break;
+                }
+                handle.length = bytes.length;
+                //counted before the move, a take right after it never sees 0
+                spilledCount.incrementAndGet();
+                if (handle.state.compareAndSet(RESIDENT, SPILLED)) {
+                    handle.value = null;
+                    residentCount.decrementAndGet();
+                    residentWeight.addAndGet(-handle.weight);
+                } else {
+                    //taken meanwhile, the bytes appended are dead
+                    spilledCount.decrementAndGet();
+                    staleCount.decrementAndGet();
+                }
+            }
+            if (staleCount.get() > residentCount.get() + SWEEP_SLACK) {
+                sweep();
+            }
+        } finally {
+            spillLock.unlock();
+        }
+    }
+
+    /**
+     * Drops handles taken while resident out of the resident queue. Should be
+     * invoked holding the spill lock.
+     */
+    private void sweep() {
+        int removed = 0;
+        for (Iterator<Handle<V>> it = residents.iterator(); it.hasNext();) {
+            if (it.next().state.get() != RESIDENT) {
+                it.remove();
+                removed++;
+            }
+        }
+        staleCount.addAndGet(-removed);
+    }
+
+    /**
+     * Truncates the spill file if no spilled value is left in it.
+     */
+    private void reclaim() {
+        spillLock.lock();
+        try {
+            if (spilledCount.get() == 0) {
+                spillFile.truncate();
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(SpillingBlockingHashMap.class.getName()).log(Level.SEVERE, null, ex);
+        } finally {
+            spillLock.unlock();
+        }
+    }
+
+    /**
+     * Moves the handle removed from the map to taken & returns its value, read
+     * back from the spill file if it was spilled.
+     */
+    private V taken(Handle<V> handle) {
+        if (handle == null) {
+            return null;
+        }
+        int previous = handle.state.getAndSet(TAKEN);
+        if (previous == RESIDENT) {
+            V value = handle.value;
+            handle.value = null;
+            residentCount.decrementAndGet();
+            residentWeight.addAndGet(-handle.weight);
+            staleCount.incrementAndGet();
+            return value;
+        }
+        byte[] bytes;
+        try {
+            bytes = spillFile.read(handle.position, handle.length);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            //read before the file can be truncated
+            if (spilledCount.decrementAndGet() == 0) {
+                reclaim();
+            }
+        }
+        return serializer.fromBytes(bytes);
+    }
+
+    /**
+     * Returns the value of the handle without taking it, or <tt>null</tt> if
+     * it has been taken meanwhile.
+     */
+    private V peek(Handle<V> handle) {
+        if (handle == null) {
+            return null;
+        }
+        V value = handle.value;
+        if (value != null) {
+            return value;
+        }
+        if (handle.state.get() != SPILLED) {
+            return null;
+        }
+        byte[] bytes;
+        try {
+            bytes = spillFile.read(handle.position, handle.length);
+        } catch (IOException ex) {
+            if (handle.state.get() != SPILLED) {
+                return null;
+            }
+            throw new UncheckedIOException(ex);
+        }
+        //still spilled after the read, hence the file was not truncated under it
+        return (handle.state.get() == SPILLED) ? serializer.fromBytes(bytes) : null;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains a mapping for the specified
+     * key.
+     *
+     * @param key key whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map contains a mapping for the specified
+     * key
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public boolean isKeyAvailable(K key) {
+        return map.isKeyAvailable(key);
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains a mapping for the specified
+     * key.
+     *
+     * @param key key whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map contains a mapping for the specified
+     * key
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        return map.containsKey(key);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or {@code null}
+     * if this map contains no mapping for the key. A spilled value is read
+     * back from the spill file & stays spilled.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or {@code null}
+     * if this map contains no mapping for the key
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if the map has been shut-down
+     * @throws UncheckedIOException if the spill file cannot be read
+     */
+    @Override
+    public V get(Object key) {
+        return peek(map.get(key));
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map. If
+     * the weight of the values in memory exceeds the budget, the oldest values
+     * are spilled. Attempts to put a mapping whose key is already available on
+     * the map are ignored.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the value already available for <tt>key</tt>, or <tt>null</tt>
+     * if there was no mapping for <tt>key</tt>
+     * @throws NullPointerException if the specified key or value is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public V put(K key, V value) {
+        if ((key == null) || (value == null)) {
+            throw new NullPointerException();
+        }
+        Handle<V> handle = new Handle<V>(value, weigher.applyAsLong(value));
+        Handle<V> existing = map.put(key, handle);
+        if (existing != null) {
+            return peek(existing);
+        }
+        //counted before it is queued, a take racing with the put evens out
+        residentCount.incrementAndGet();
+        residentWeight.addAndGet(handle.weight);
+        residents.add(handle);
+        if ((residentWeight.get() > memoryBudget)
+                || (staleCount.get() > residentCount.get() + SWEEP_SLACK)) {
+            spill();
+        }
+        return null;
+    }
+
+    /**
+     * Removes the mapping for a key from this map if it is present.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @return the previous value associated with <tt>key</tt>, or <tt>null</tt>
+     * if there was no mapping for <tt>key</tt>.
+     * @throws NullPointerException if the specified key is null
+     * @throws IllegalStateException if the map has been shut-down
+     * @throws UncheckedIOException if the spill file cannot be read
+     */
+    @Override
+    public V remove(Object key) {
+        return taken(map.remove(key));
+    }
+
+    /**
+     * Same as put, an unbound map never blocks producers.
+     *
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public V offer(K key, V value) throws InterruptedException {
+        return put(key, value);
+    }
+
+    /**
+     * Same as put, an unbound map never blocks producers.
+     *
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public V offer(K key, V value, long timeout, TimeUnit unit) throws InterruptedException {
+        return put(key, value);
+    }
+
+    /**
+     * Retrieves and removes the mapping for a key from this map if it is
+     * present, waiting if necessary until the mapping becomes available. A
+     * spilled value is read back from the spill file.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @return the value associated with <tt>key</tt>
+     * @throws NullPointerException if the specified key is null
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the map has been shut-down
+     * @throws UncheckedIOException if the spill file cannot be read
+     */
+    @Override
+    public V take(K key) throws InterruptedException {
+        return taken(map.take(key));
+    }
+
+    /**
+     * Retrieves and removes the mapping for a key from this map if it is
+     * present, waiting if necessary until the mapping becomes available or the
+     * specified time elapses. A spilled value is read back from the spill
+     * file.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @param timeout how long to wait before giving up, in units of
+     * <tt>unit</tt>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the
+     * <tt>timeout</tt> parameter
+     * @return the value associated with <tt>key</tt>, or <tt>null</tt> if the
+     * call times out
+     * @throws NullPointerException if the specified key is null
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the map has been shut-down
+     * @throws UncheckedIOException if the spill file cannot be read
+     */
+    @Override
+    public V take(K key, long timeout, TimeUnit unit) throws InterruptedException {
+        return taken(map.take(key, timeout, unit));
+    }
+
+    /**
+     * Retrieves and removes a mapping whose key matches the given predicate,
+     * waiting if necessary until such a mapping becomes available or the
+     * specified time elapses.
+     *
+     * @param predicate condition the key of the mapping should satisfy
+     * @param timeout how long to wait before giving up, in units of
+     * <tt>unit</tt>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the
+     * <tt>timeout</tt> parameter
+     * @return the mapping taken, or <tt>null</tt> if the call times out
+     * @throws NullPointerException if the predicate is null
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the map has been shut-down
+     * @throws UncheckedIOException if the spill file cannot be read
+     */
+    @Override
+    public Map.Entry<K, V> takeMatching(Predicate<? super K> predicate, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        Map.Entry<K, Handle<V>> entry = map.takeMatching(predicate, timeout, unit);
+        if (entry == null) {
+            return null;
+        }
+        return new AbstractMap.SimpleImmutableEntry<K, V>(entry.getKey(), taken(entry.getValue()));
+    }
+
+    /**
+     * Retrieves and removes the mappings of all the given keys, waiting if
+     * necessary until all of them are available or the specified time elapses.
+     *
+     * @param keys keys whose mappings are to be removed from the map
+     * @param timeout how long to wait before giving up, in units of
+     * <tt>unit</tt>
+     * @param unit a <tt>TimeUnit</tt> determining how to interpret the
+     * <tt>timeout</tt> parameter
+     * @return the mappings of all the keys, or <tt>null</tt> if the call times
+     * out before all of them are available
+     * @throws NullPointerException if any of the keys is null
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the map has been shut-down
+     * @throws UncheckedIOException if the spill file cannot be read
+     */
+    @Override
+    public Map<K, V> takeAll(Collection<? extends K> keys, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        Map<K, Handle<V>> taken = map.takeAll(keys, timeout, unit);
+        if (taken == null) {
+            return null;
+        }
+        Map<K, V> result = new LinkedHashMap<K, V>();
+        for (Map.Entry<K, Handle<V>> entry : taken.entrySet()) {
+            result.put(entry.getKey(), taken(entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Shuts down this blocking map, closes & deletes the spill file. Consumers
+     * blocked on the map are interrupted. Mappings available at this time are
+     * dropped.
+     *
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public void clear() {
+        map.clear();
+        spillLock.lock();
+        try {
+            residents.clear();
+            spillFile.close();
+        } catch (IOException ex) {
+            Logger.getLogger(SpillingBlockingHashMap.class.getName()).log(Level.SEVERE, null, ex);
+        } finally {
+            spillLock.unlock();
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map maps one or more keys to the specified
+     * value. Spilled values are read back for the comparison.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map maps one or more keys to the specified
+     * value
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public boolean containsValue(Object value) {
+        return search(Long.MAX_VALUE, (k, v) -> v.equals(value) ? Boolean.TRUE : null) != null;
+    }
+
+    /**
+     * Returns true if this map contains no key-value mappings.
+     *
+     * @return true if this map contains no key-value mappings
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map
+     *
+     * @return the number of key-value mappings in this map
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    /**
+     * Returns a read only snapshot of the available mappings, spilled values
+     * read back.
+     *
+     * @return a snapshot of the available mappings
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        final Map<K, V> snapshot = new LinkedHashMap<K, V>();
+        forEach(Long.MAX_VALUE, (key, value) -> snapshot.put(key, value));
+        return Collections.unmodifiableMap(snapshot).entrySet();
+    }
+
+    /**
+     * Returns a read only, weakly consistent view of the available keys.
+     *
+     * @return a view of the available keys
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public Set<K> keySet() {
+        return Collections.unmodifiableSet(map.keySet());
+    }
+
+    /**
+     * Returns a read only snapshot of the available values, spilled values
+     * read back.
+     *
+     * @return a snapshot of the available values
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public Collection<V> values() {
+        final List<V> snapshot = new ArrayList<V>();
+        forEach(Long.MAX_VALUE, (key, value) -> snapshot.add(value));
+        return Collections.unmodifiableList(snapshot);
+    }
+
+    /**
+     * Puts all mappings, each one as with put. <tt>putAll(m, false)</tt>
+     * checks the whole batch first; atomic publication is not supported.
+     *
+     * @param m mappings to be stored in this map
+     * @throws NullPointerException if any key or value is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        for (Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Performs the given action for each available mapping, like
+     * {@link BlockingHashMap#forEach(long, BiConsumer)}. Spilled values are
+     * read back.
+     *
+     * @throws NullPointerException if the action is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public void forEach(long parallelismThreshold, BiConsumer<? super K, ? super V> action) {
+        if (action == null) {
+            throw new NullPointerException();
+        }
+        map.forEach(parallelismThreshold, (key, handle) -> {
+            V value = peek(handle);
+            if (value != null) {
+                action.accept(key, value);
+            }
+        });
+    }
+
+    /**
+     * Searches the available mappings, like
+     * {@link BlockingHashMap#search(long, BiFunction)}. Spilled values are
+     * read back.
+     *
+     * @throws NullPointerException if the search function is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public <U> U search(long parallelismThreshold, BiFunction<? super K, ? super V, ? extends U> searchFunction) {
+        if (searchFunction == null) {
+            throw new NullPointerException();
+        }
+        return map.search(parallelismThreshold, (key, handle) -> {
+            V value = peek(handle);
+            return (value == null) ? null : searchFunction.apply(key, value);
+        });
+    }
+
+    /**
+     * Reduces the available mappings, like
+     * {@link BlockingHashMap#reduce(long, BiFunction, BiFunction)}. Spilled
+     * values are read back.
+     *
+     * @throws NullPointerException if the transformer or reducer is null
+     * @throws IllegalStateException if the map has been shut-down
+     */
+    @Override
+    public <U> U reduce(long parallelismThreshold, BiFunction<? super K, ? super V, ? extends U> transformer,
+            BiFunction<? super U, ? super U, ? extends U> reducer) {
+        if (transformer == null) {
+            throw new NullPointerException();
+        }
+        return map.reduce(parallelismThreshold, (key, handle) -> {
+            V value = peek(handle);
+            return (value == null) ? null : transformer.apply(key, value);
+        }, reducer);
+    }
+}
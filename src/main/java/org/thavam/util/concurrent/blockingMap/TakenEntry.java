@@ -0,0 +1,77 @@
+/*
+ * TakenEntry.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.util.AbstractMap;
+
+/**
+ * Mapping taken by {@link BlockingHashMap#takeEntry(Object)}, along with the
+ * context its producer attached with
+ * {@link BlockingHashMap#put(Object, Object, Object)} & the time it spent on
+ * the map. Lets a consumer continue the trace of the producer & measure the
+ * latency of the handoff.
+ *
+ * <p>
+ * Times are <tt>System.nanoTime()</tt> readings, comparable within the JVM
+ * only. A mapping put without a context is stamped only while the map is
+ * metered or watched, {@link #getPutNanos()} is 0 otherwise.
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the value
+ * @version 1.0, 19/10/26
+ */
+public final class TakenEntry<K, V> extends AbstractMap.SimpleImmutableEntry<K, V> {
+
+    private static final long serialVersionUID = 1L;
+    private final transient Object context;
+    private final long putNanos;
+    private final long takenNanos;
+
+    TakenEntry(K key, V value, Object context, long putNanos, long takenNanos) {
+        super(key, value);
+        this.context = context;
+        this.putNanos = putNanos;
+        this.takenNanos = takenNanos;
+    }
+
+    /**
+     * Returns the context attached by the producer, e.g. its trace id.
+     *
+     * @return the context, null if none was attached
+     */
+    public Object getContext() {
+        return context;
+    }
+
+    /**
+     * Returns the time the mapping was put at.
+     *
+     * @return the <tt>System.nanoTime()</tt> of the put, 0 if unknown
+     */
+    public long getPutNanos() {
+        return putNanos;
+    }
+
+    /**
+     * Returns the time the mapping was taken at.
+     *
+     * @return the <tt>System.nanoTime()</tt> of the take
+     */
+    public long getTakenNanos() {
+        return takenNanos;
+    }
+
+    /**
+     * Returns how long the mapping was available on the map before being
+     * taken.
+     *
+     * @return the time from put to take in nanoseconds, -1 if the time of
+     * the put is unknown
+     */
+    public long getResidenceNanos() {
+        return (putNanos == 0) ? -1 : Math.max(0, takenNanos - putNanos);
+    }
+}
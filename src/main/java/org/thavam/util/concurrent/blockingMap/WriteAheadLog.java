@@ -0,0 +1,508 @@
+/*
+ * WriteAheadLog.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMap;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * An append only log of put & take records, kept in memory mapped segments of
+ * fixed size. A record is appended by copying it in to the mapped segment, no
+ * system call is made per record. A flusher thread forces the written
+ * segments to disk once per sync interval, so all records appended during an
+ * interval share one fsync (group commit).
+ *
+ * <p>
+ * Record layout : <tt>[int length][int crc][byte type][long id][int key
+ * length][key][value]</tt>, length & crc covering everything from type to the
+ * end of the value. A length of 0 marks the end of a segment, the remainder of
+ * a mapped segment is zero filled. A torn record at the tail of a segment
+ * fails its crc check & ends the replay of that segment.
+ *
+ * <p>
+ * The segments found in the directory on opening are the segments to be
+ * replayed. Appends always start in a new segment, hence the replayed
+ * segments can be deleted, once the live records they contain have been
+ * appended again & forced.
+ *
+ * <p>
+ * Segments appended to are retained until reclaimed. The log counts the put
+ * records of each segment that are still live, i.e. not released by the
+ * logging of their take or by a copy appended later. The oldest segments
+ * without live put record are reclaimed once forced : their mapping is
+ * released & their file deleted. Take records of a reclaimed segment only
+ * refer to put records of the same or older segments, all reclaimed.
+ *
+ * @version 1.0, 19/10/26
+ */
+/**
+ * Should not be accessible outside the package. Meant to be used from
+ * DurableBlockingHashMap
+ */
+class WriteAheadLog {
+
+    static final byte PUT = 1;
+    static final byte TAKE = 2;
+    private static final int HEADER_LENGTH = 8;
+    private static final int FIXED_PAYLOAD_LENGTH = 1 + 8 + 4;
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+
+    /**
+     * Receives the records of the replayed segments, in the order appended
+     */
+    interface RecordHandler {
+
+        void record(byte type, long id, byte[] key, byte[] value);
+    }
+
+    /**
+     * A segment appended to since the log was opened
+     */
+    private static final class Segment {
+
+        final long number;
+        final MappedByteBuffer buffer;
+        /**
+         * put records of the segment not released yet
+         */
+        final AtomicInteger livePuts = new AtomicInteger();
+
+        Segment(long number, MappedByteBuffer buffer) {
+            this.number = number;
+            this.buffer = buffer;
+        }
+    }
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long syncIntervalNanos;
+    /**
+     * segments present when the log was opened
+     */
+    private final List<Path> replayedSegments;
+    /**
+     * serializes appends & rotation
+     */
+    private final Lock appendLock = new ReentrantLock();
+    /**
+     * guards the durable position, signalled by the flusher
+     */
+    private final Lock syncLock = new ReentrantLock();
+    private final Condition synced = syncLock.newCondition();
+    private final Thread flusher;
+    private long segmentNumber;
+    private MappedByteBuffer segment;
+    /**
+     * segments appended to & not reclaimed yet, by number, the current one
+     * last
+     */
+    private final ConcurrentNavigableMap<Long, Segment> retained = new ConcurrentSkipListMap<Long, Segment>();
+    /**
+     * rotated out segments, not yet forced by the flusher
+     */
+    private final List<MappedByteBuffer> unforced = new ArrayList<MappedByteBuffer>();
+    /**
+     * position of the end of the last record appended, ever increasing across
+     * segments : segment number * segment size + offset
+     */
+    private volatile long appended;
+    /**
+     * position up to which records have been forced to disk
+     */
+    private volatile long durable;
+    private volatile boolean closed = false;
+
+    /**
+     * Opens the log in the given directory, creating the directory if needed.
+     *
+     * @param directory directory of the segment files
+     * @param segmentSize size of a segment in bytes
+     * @param syncInterval interval between two forces of the written segments
+     * @param unit unit of the sync interval
+     * @throws IOException if the directory cannot be read or the first segment
+     * cannot be created
+     */
+    WriteAheadLog(Path directory, int segmentSize, long syncInterval, TimeUnit unit) throws IOException {
+        if (segmentSize <= HEADER_LENGTH + FIXED_PAYLOAD_LENGTH) {
+            throw new IllegalArgumentException("segmentSize too small : " + segmentSize);
+        }
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        this.syncIntervalNanos = unit.toNanos(syncInterval);
+        this.replayedSegments = listSegments();
+        long last = replayedSegments.isEmpty() ? -1 : numberOf(replayedSegments.get(replayedSegments.size() - 1));
+        this.segmentNumber = last + 1;
+        this.segment = map(segmentNumber);
+        retained.put(segmentNumber, new Segment(segmentNumber, segment));
+        this.appended = segmentNumber * segmentSize;
+        this.durable = appended;
+
+        this.flusher = new Thread(this::flushLoop, "blocking-map-wal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<Path>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                segments.add(file);
+            }
+        }
+        //zero padded numbers, name order is append order
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static long numberOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private Path fileOf(long number) {
+        return directory.resolve(String.format("%s%016d%s", PREFIX, number, SUFFIX));
+    }
+
+    private MappedByteBuffer map(long number) throws IOException {
+        Path file = fileOf(number);
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            //mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    /**
+     * Replays the records of the segments present when the log was opened.
+     * Should be invoked before the first append.
+     *
+     * @param handler receives the records
+     * @throws IOException if a segment cannot be read
+     */
+    void replay(RecordHandler handler) throws IOException {
+        CRC32 crc = new CRC32();
+        for (Path file : replayedSegments) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            while (buffer.remaining() >= HEADER_LENGTH + FIXED_PAYLOAD_LENGTH) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if ((length < FIXED_PAYLOAD_LENGTH) || (length > buffer.remaining())) {
+                    //end of segment or torn record
+                    break;
+                }
+                crc.reset();
+                crc.update(buffer.array(), buffer.position(), length);
+                if ((int) crc.getValue() != checksum) {
+                    Logger.getLogger(WriteAheadLog.class.getName()).log(Level.WARNING,
+                            "torn record at {0} of {1}, rest of segment ignored",
+                            new Object[]{buffer.position() - HEADER_LENGTH, file});
+                    break;
+                }
+                byte type = buffer.get();
+                long id = buffer.getLong();
+                byte[] key = new byte[buffer.getInt()];
+                buffer.get(key);
+                byte[] value = new byte[length - FIXED_PAYLOAD_LENGTH - key.length];
+                buffer.get(value);
+                handler.record(type, id, key, value);
+            }
+        }
+    }
+
+    /**
+     * Deletes the segments present when the log was opened. Live records
+     * replayed from them should have been appended again & made durable.
+     *
+     * @throws IOException if a segment cannot be deleted
+     */
+    void deleteReplayedSegments() throws IOException {
+        for (Path file : replayedSegments) {
+            Files.deleteIfExists(file);
+        }
+        replayedSegments.clear();
+    }
+
+    /**
+     * Appends a record & returns the position to be awaited for it to be
+     * durable. Does not wait for the record to reach the disk. A put record is
+     * live until its position is {@linkplain #release released}.
+     *
+     * @param type PUT or TAKE
+     * @param id id of the put the record refers to
+     * @param key serialized key
+     * @param value serialized value, empty for TAKE
+     * @return position of the end of the record
+     * @throws IllegalArgumentException if the record does not fit in a segment
+     * @throws IllegalStateException if the log is closed
+     * @throws UncheckedIOException if a new segment cannot be created
+     */
+    long append(byte type, long id, byte[] key, byte[] value) {
+        int length = FIXED_PAYLOAD_LENGTH + key.length + value.length;
+        if (HEADER_LENGTH + length > segmentSize) {
+            throw new IllegalArgumentException("record of " + length + " bytes larger than segment");
+        }
+        //checksum computed out of the lock
+        CRC32 crc = new CRC32();
+        ByteBuffer fixed = ByteBuffer.allocate(FIXED_PAYLOAD_LENGTH);
+        fixed.put(type).putLong(id).putInt(key.length);
+        crc.update(fixed.array());
+        crc.update(key);
+        crc.update(value);
+
+        appendLock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Log closed");
+            }
+            if (segment.remaining() < HEADER_LENGTH + length) {
+                rotate();
+            }
+            segment.putInt(length).putInt((int) crc.getValue());
+            segment.put(fixed.array()).put(key).put(value);
+            if (type == PUT) {
+                retained.get(segmentNumber).livePuts.incrementAndGet();
+            }
+            appended = segmentNumber * segmentSize + segment.position();
+            return appended;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Moves appends to the next segment. The previous segment is forced by the
+     * flusher along with the current one.
+     */
+    private void rotate() {
+        try {
+            MappedByteBuffer next = map(segmentNumber + 1);
+            synchronized (unforced) {
+                unforced.add(segment);
+            }
+            retained.put(segmentNumber + 1, new Segment(segmentNumber + 1, next));
+            segment = next;
+            segmentNumber++;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Releases the put record ending at the given position, once its take has
+     * been logged or a copy of it has been appended.
+     *
+     * @param position position returned by the append of the put record
+     */
+    void release(long position) {
+        Segment put = retained.get(segmentOf(position));
+        if (put != null) {
+            put.livePuts.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the number of the segment holding the record ending at the
+     * given position
+     */
+    long segmentOf(long position) {
+        return (position - 1) / segmentSize;
+    }
+
+    /**
+     * Returns the number of the oldest segment retained, -1 once closed
+     */
+    long getOldestSegment() {
+        Map.Entry<Long, Segment> oldest = retained.firstEntry();
+        return (oldest == null) ? -1 : oldest.getKey();
+    }
+
+    /**
+     * Returns the number of live put records of a segment, 0 once reclaimed
+     */
+    int getLivePuts(long number) {
+        Segment retainedSegment = retained.get(number);
+        return (retainedSegment == null) ? 0 : retainedSegment.livePuts.get();
+    }
+
+    /**
+     * Returns the number of segments retained, that are not appended to
+     * anymore
+     */
+    int getSealedSegmentCount() {
+        return retained.size() - 1;
+    }
+
+    /**
+     * Reclaims the oldest segments that hold no live put record & have been
+     * forced : unmaps them & deletes their files.
+     *
+     * @throws IOException if a segment file cannot be deleted
+     */
+    void reclaim() throws IOException {
+        synchronized (retained) {
+            Map.Entry<Long, Segment> oldest;
+            //forced up to a later segment, hence neither appended to nor flushed
+            while (((oldest = retained.firstEntry()) != null)
+                    && (oldest.getValue().livePuts.get() == 0)
+                    && (durable >= (oldest.getKey() + 1) * segmentSize)) {
+                retained.remove(oldest.getKey());
+                unmap(oldest.getValue().buffer);
+                Files.deleteIfExists(fileOf(oldest.getKey()));
+            }
+        }
+    }
+
+    /**
+     * Waits till the record ending at the given position has been forced to
+     * disk.
+     *
+     * @param position position returned by append
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void awaitDurable(long position) throws InterruptedException {
+        if (durable >= position) {
+            return;
+        }
+        LockSupport.unpark(flusher);
+        syncLock.lock();
+        try {
+            //close forces the tail, waiters are released by its last flush
+            while (durable < position) {
+                synced.await();
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Forces the written segments once per sync interval, when there are
+     * records that are not durable yet.
+     */
+    private void flushLoop() {
+        while (!closed) {
+            if (appended == durable) {
+                //parked till an appender waits or the interval elapses
+                LockSupport.parkNanos(this, syncIntervalNanos);
+                continue;
+            }
+            //let more records join this force
+            LockSupport.parkNanos(this, syncIntervalNanos);
+            flush();
+        }
+    }
+
+    private void flush() {
+        long target;
+        MappedByteBuffer current;
+        List<MappedByteBuffer> rotated;
+        appendLock.lock();
+        try {
+            target = appended;
+            current = segment;
+        } finally {
+            appendLock.unlock();
+        }
+        synchronized (unforced) {
+            rotated = new ArrayList<MappedByteBuffer>(unforced);
+            unforced.clear();
+        }
+        for (MappedByteBuffer buffer : rotated) {
+            buffer.force();
+        }
+        current.force();
+
+        syncLock.lock();
+        try {
+            durable = target;
+            synced.signalAll();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Forces all records appended so far & stops the flusher. Appending after
+     * close throws <tt>IllegalStateException</tt>.
+     */
+    void close() {
+        appendLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            appendLock.unlock();
+        }
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join();
+        } catch (InterruptedException ex) {
+            Logger.getLogger(WriteAheadLog.class.getName()).log(Level.SEVERE, null, ex);
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        synchronized (retained) {
+            for (Segment closedSegment : retained.values()) {
+                unmap(closedSegment.buffer);
+            }
+            retained.clear();
+        }
+    }
+
+    /**
+     * Releases the mapping of a segment at once, rather than when the buffer
+     * is garbage collected. The buffer must not be accessed afterwards. Best
+     * effort : through <tt>sun.misc.Unsafe.invokeCleaner</tt> on Java 9 &
+     * later, through the cleaner of the buffer on Java 8.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            try {
+                Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            } catch (NoSuchMethodException ex) {
+                //Java 8
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            //left to the garbage collector
+            Logger.getLogger(WriteAheadLog.class.getName()).log(Level.FINE, "segment not unmapped", ex);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * BaselineBenchmark.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMapTester;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import org.thavam.util.concurrent.blockingMap.BlockingHashMap;
+import org.thavam.util.concurrent.blockingMap.BlockingMap;
+import org.thavam.util.concurrent.blockingMap.LatencyHistogram;
+
+/**
+ * Compares BlockingHashMap with the structures usually hand-rolled for the
+ * same purpose, all behind the BlockingMap interface : a
+ * <tt>ConcurrentHashMap</tt> of <tt>CompletableFuture</tt>s, a
+ * <tt>ConcurrentHashMap</tt> with a <tt>wait/notifyAll</tt> monitor & a
+ * <tt>SynchronousQueue</tt> per key.
+ *
+ * <p>
+ * Every map runs the same handoff workload : pairs of a producer & a
+ * consumer thread, each pair on its own key sequence. The producer offers
+ * key n once its consumer has taken key <tt>n - window</tt>, with the time it
+ * put it at as value; the consumer takes the keys in order & records the
+ * put-to-take latency. A window of 1 makes every consumer wait for its
+ * producer. Memory per pending key is the heap retained by keys put & not
+ * taken yet, key & value objects excluded; a SynchronousQueue holds a pending
+ * value only in a parked producer thread, hence is not measured.
+ *
+ * <pre>
+ * usage : BaselineBenchmark [--option=value]...
+ *   --seconds=2          seconds measured per point, after a quarter of warmup
+ *   --pairs=1,2,4        producer & consumer pairs, comma separated
+ *   --window=16          keys a producer may put ahead of its consumer
+ *   --pending=1000000    keys left pending to measure memory
+ * </pre>
+ */
+public class BaselineBenchmark {
+
+    private static final long POLL_MILLIS = 100;
+
+    /**
+     * Measurements of a map at a number of pairs
+     */
+    static final class Result {
+
+        long handoffs;
+        double seconds;
+        final LatencyHistogram latency = new LatencyHistogram();
+
+        double throughput() {
+            return handoffs / seconds;
+        }
+    }
+
+    /**
+     * Runs the handoff workload on the map & keeps the measurements of the
+     * last millis.
+     */
+    static Result measure(final BlockingMap<Long, Long> map, int pairs, final int window, long warmupMillis,
+            long millis) throws InterruptedException {
+        final Result result = new Result();
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicBoolean measuring = new AtomicBoolean(false);
+        final LongAdder handoffs = new LongAdder();
+        List<Thread> threads = new ArrayList<Thread>();
+
+        for (int p = 0; p < pairs; p++) {
+            //key sequences of the pairs never meet
+            final long firstKey = ((long) p) << 40;
+            final AtomicLong taken = new AtomicLong();
+            threads.add(new Thread("producer-" + p) {
+                @Override
+                public void run() {
+                    try {
+                        for (long n = 0; running.get(); n++) {
+                            while ((n - taken.get() >= window) && running.get()) {
+                                LockSupport.parkNanos(1000);
+                            }
+                            Long key = firstKey + n;
+                            Long value = System.nanoTime();
+                            //a SynchronousQueue is offered to until a consumer takes it
+                            while (running.get()
+                                    && (map.offer(key, value, POLL_MILLIS, TimeUnit.MILLISECONDS) != null)) {
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            threads.add(new Thread("consumer-" + p) {
+                @Override
+                public void run() {
+                    try {
+                        for (long n = 0; running.get(); n++) {
+                            Long key = firstKey + n;
+                            Long value = null;
+                            while (running.get()
+                                    && ((value = map.take(key, POLL_MILLIS, TimeUnit.MILLISECONDS)) == null)) {
+                            }
+                            if (value == null) {
+                                break;
+                            }
+                            taken.set(n + 1);
+                            if (measuring.get()) {
+                                result.latency.record(System.nanoTime() - value);
+                                handoffs.increment();
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        Thread.sleep(warmupMillis);
+        measuring.set(true);
+        long start = System.nanoTime();
+        Thread.sleep(millis);
+        measuring.set(false);
+        result.seconds = (System.nanoTime() - start) / 1e9;
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        result.handoffs = handoffs.sum();
+        return result;
+    }
+
+    /**
+     * Returns the heap retained per key put on a new map & not taken
+     */
+    static double bytesPerPendingKey(Supplier<BlockingMap<Long, Long>> factory, int pending) {
+        Long[] keys = new Long[pending];
+        for (int i = 0; i < pending; i++) {
+            keys[i] = (long) i;
+        }
+        Long value = 0L;
+        long before = usedHeap();
+        BlockingMap<Long, Long> map = factory.get();
+        for (Long key : keys) {
+            map.put(key, value);
+        }
+        long after = usedHeap();
+        if (map.size() != pending) {
+            throw new IllegalStateException("keys missing from " + map.getClass().getSimpleName());
+        }
+        map.clear();
+        return (after - before) / (double) pending;
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static String nameOf(BlockingMap<?, ?> map) {
+        return (map instanceof BaselineBlockingMap) ? ((BaselineBlockingMap<?, ?>) map).name()
+                : map.getClass().getSimpleName();
+    }
+
+    public static void main(String ar[]) throws InterruptedException {
+        Map<String, String> options = LoadGenerator.parse(ar);
+        long millis = TimeUnit.SECONDS.toMillis(Long.parseLong(remove(options, "seconds", "2")));
+        String pairList = remove(options, "pairs", "1,2,4");
+        int window = Integer.parseInt(remove(options, "window", "16"));
+        int pending = Integer.parseInt(remove(options, "pending", "1000000"));
+        if (!options.isEmpty()) {
+            throw new IllegalArgumentException("unknown options : " + options.keySet());
+        }
+        List<Supplier<BlockingMap<Long, Long>>> factories = new ArrayList<Supplier<BlockingMap<Long, Long>>>();
+        factories.add(BlockingHashMap::new);
+        factories.add(FutureBlockingMap::new);
+        factories.add(MonitorBlockingMap::new);
+        factories.add(SynchronousQueueBlockingMap::new);
+
+        System.out.println("available processors : " + Runtime.getRuntime().availableProcessors()
+                + ", window : " + window);
+        System.out.println(String.format("%-26s %6s %14s %10s %10s %10s %10s",
+                "map", "pairs", "handoffs/s", "p50 us", "p99 us", "p99.9 us", "max us"));
+        for (String pairs : pairList.split(",")) {
+            for (Supplier<BlockingMap<Long, Long>> factory : factories) {
+                BlockingMap<Long, Long> map = factory.get();
+                Result result = measure(map, Integer.parseInt(pairs.trim()), window, millis / 4, millis);
+                System.out.println(String.format("%-26s %6s %14.0f %10.1f %10.1f %10.1f %10.1f",
+                        nameOf(map), pairs.trim(), result.throughput(),
+                        result.latency.getValueAtPercentile(50) / 1e3, result.latency.getValueAtPercentile(99) / 1e3,
+                        result.latency.getValueAtPercentile(99.9) / 1e3, result.latency.getMax() / 1e3));
+                map.clear();
+            }
+        }
+
+        System.out.println();
+        System.out.println(String.format("%-26s %22s", "map", "bytes per pending key"));
+        for (Supplier<BlockingMap<Long, Long>> factory : factories) {
+            BlockingMap<Long, Long> map = factory.get();
+            if (map instanceof SynchronousQueueBlockingMap) {
+                System.out.println(String.format("%-26s %22s", nameOf(map), "a parked producer"));
+                continue;
+            }
+            System.out.println(String.format("%-26s %22.1f", nameOf(map), bytesPerPendingKey(factory, pending)));
+        }
+    }
+
+    private static String remove(Map<String, String> options, String name, String defaultValue) {
+        String value = options.remove(name);
+        return (value == null) ? defaultValue : value;
+    }
+}
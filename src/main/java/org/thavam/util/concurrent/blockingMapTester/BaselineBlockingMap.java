@@ -0,0 +1,99 @@
+/*
+ * BaselineBlockingMap.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMapTester;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.thavam.util.concurrent.blockingMap.BlockingMap;
+
+/**
+ * Base of the hand-rolled alternatives to BlockingHashMap measured by
+ * {@link BaselineBenchmark}. Subclasses implement the single key operations
+ * & keySet; offers are puts, as on an unbound map, & the other views are
+ * snapshots of the available mappings.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ * @version 1.0, 19/10/26
+ */
+abstract class BaselineBlockingMap<K, V> implements BlockingMap<K, V> {
+
+    /**
+     * Returns the name of the structure, as reported by the benchmark
+     */
+    abstract String name();
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public boolean isKeyAvailable(K key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public V offer(K key, V value) throws InterruptedException {
+        return put(key, value);
+    }
+
+    @Override
+    public V offer(K key, V value, long timeout, TimeUnit unit) throws InterruptedException {
+        return put(key, value);
+    }
+
+    @Override
+    public V take(K key) throws InterruptedException {
+        return take(key, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        for (Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Returns a snapshot of the available mappings, getting the value of each
+     * key of keySet in turn
+     */
+    Map<K, V> snapshot() {
+        Map<K, V> mappings = new HashMap<K, V>();
+        for (K key : keySet()) {
+            V value = get(key);
+            if (value != null) {
+                mappings.put(key, value);
+            }
+        }
+        return mappings;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return snapshot().containsValue(value);
+    }
+
+    @Override
+    public Collection<V> values() {
+        return Collections.unmodifiableMap(snapshot()).values();
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return Collections.unmodifiableMap(snapshot()).entrySet();
+    }
+}
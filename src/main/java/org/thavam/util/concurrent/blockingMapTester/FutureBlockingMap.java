@@ -0,0 +1,138 @@
+/*
+ * FutureBlockingMap.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMapTester;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Baseline of a <tt>ConcurrentHashMap&lt;K, CompletableFuture&lt;V&gt;&gt;</tt> :
+ * the producer & the consumers of a key meet on a future created by whichever
+ * comes first. The producer completes it, a consumer waits on it & removes it
+ * once completed; consumers that find it removed by another start over. A
+ * consumer timing out removes & cancels the future it waited on, which sends
+ * the other consumers of the key to a new one.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ * @version 1.0, 19/10/26
+ */
+class FutureBlockingMap<K, V> extends BaselineBlockingMap<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> futures = new ConcurrentHashMap<K, CompletableFuture<V>>();
+
+    @Override
+    String name() {
+        return "CHM<K, CompletableFuture>";
+    }
+
+    private CompletableFuture<V> futureOf(K key) {
+        return futures.computeIfAbsent(key, k -> new CompletableFuture<V>());
+    }
+
+    @Override
+    public V get(Object key) {
+        CompletableFuture<V> future = futures.get(key);
+        return ((future == null) || future.isCancelled()) ? null : future.getNow(null);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        for (;;) {
+            CompletableFuture<V> future = futureOf(key);
+            if (future.complete(value)) {
+                return null;
+            }
+            if (!future.isCancelled()) {
+                //ignored, the key is available
+                return future.join();
+            }
+            futures.remove(key, future);
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        CompletableFuture<V> future = futures.get(key);
+        if ((future != null) && future.isDone() && !future.isCancelled() && futures.remove(key, future)) {
+            return future.join();
+        }
+        return null;
+    }
+
+    @Override
+    public V take(K key, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (;;) {
+            CompletableFuture<V> future = futureOf(key);
+            try {
+                long remaining = deadline - System.nanoTime();
+                V value = future.get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+                if (futures.remove(key, future)) {
+                    return value;
+                }
+                //taken by another consumer
+            } catch (TimeoutException e) {
+                if (futures.remove(key, future)) {
+                    if (!future.cancel(false)) {
+                        //completed meanwhile, hence taken
+                        return future.join();
+                    }
+                }
+                return null;
+            } catch (CancellationException e) {
+                //another consumer timed out, start over on a new future
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e);
+            }
+            if (deadline - System.nanoTime() <= 0) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Returns a snapshot of the keys whose future is completed
+     */
+    @Override
+    public Set<K> keySet() {
+        Set<K> keys = new HashSet<K>();
+        for (Map.Entry<K, CompletableFuture<V>> entry : futures.entrySet()) {
+            if (entry.getValue().isDone() && !entry.getValue().isCancelled()) {
+                keys.add(entry.getKey());
+            }
+        }
+        return Collections.unmodifiableSet(keys);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (CompletableFuture<V> future : futures.values()) {
+            if (future.isDone() && !future.isCancelled()) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (CompletableFuture<V> future : futures.values()) {
+            future.cancel(false);
+        }
+        futures.clear();
+    }
+}
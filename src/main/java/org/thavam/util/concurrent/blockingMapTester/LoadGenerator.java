@@ -0,0 +1,376 @@
+/*
+ * LoadGenerator.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMapTester;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.thavam.util.concurrent.blockingMap.BlockingHashMap;
+import org.thavam.util.concurrent.blockingMap.LatencyHistogram;
+
+/**
+ * Drives a BlockingHashMap open-loop with a request/response traffic shape &
+ * reports throughput & latency percentiles corrected for coordinated
+ * omission.
+ *
+ * <p>
+ * Requests arrive at a fixed target rate : request <tt>n</tt> is due at
+ * <tt>start + n / rate</tt> & concerns a key drawn from the key distribution,
+ * a pure function of <tt>n</tt>. Request <tt>n</tt> is served by producer
+ * <tt>n % producers</tt>, which puts a value on the key, & by consumer
+ * <tt>n % consumers</tt>, which takes it, blocking or with a timeout. Both
+ * start on the request when it is due, or at once if they fall behind.
+ * Latencies are measured from the time the request was due, not from the
+ * time the thread got to it, hence a stall of the map shows in the latency of
+ * every request scheduled meanwhile, as it would for independent clients.
+ *
+ * <p>
+ * Keys drawn twice while in flight contend : consumers of the key race for
+ * its value, & the put of a producer finding the key still available is
+ * ignored, hence the next consumer of the key to come skips its take, its
+ * response merged with the previous one. A consumer whose take times out
+ * abandons its request, hence the next put of the key is dropped, as a late
+ * response would be. Puts & takes of a key thus balance, & a consumer blocks
+ * only for a value yet to be put. A skewed (Zipf) distribution over a small
+ * key space reproduces hot keys.
+ *
+ * <pre>
+ * usage : LoadGenerator [--option=value]...
+ *   --producers=4          producer threads
+ *   --consumers=4          consumer threads
+ *   --keys=100000          size of the key space
+ *   --distribution=uniform uniform or zipf
+ *   --zipf-exponent=1.0    skew of the zipf distribution
+ *   --rate=100000          requests per second, over all threads
+ *   --duration=10          seconds measured
+ *   --warmup=2             seconds run before measuring
+ *   --timeout-ratio=0.0    share of takes with a timeout, others block
+ *   --timeout-ms=10        timeout of those takes
+ *   --value-size=64        bytes of each value
+ *   --seed=42              seed of the key sequence
+ * </pre>
+ */
+public class LoadGenerator {
+
+    /**
+     * time left to consumers after the last put, before the map is cleared
+     */
+    private static final long DRAIN_MILLIS = 1000;
+    private final Map<String, String> options;
+    private final int producers;
+    private final int consumers;
+    private final int rate;
+    private final long durationNanos;
+    private final long warmupNanos;
+    private final double timeoutRatio;
+    private final long timeoutNanos;
+    private final int valueSize;
+    private final long seed;
+    private final KeyDistribution keys;
+    private final BlockingHashMap<Integer, byte[]> map = new BlockingHashMap<Integer, byte[]>();
+    private final LatencyHistogram putLatency = new LatencyHistogram();
+    private final LatencyHistogram takeLatency = new LatencyHistogram();
+    /**
+     * takes timed out per key, whose puts are yet to be dropped
+     */
+    private final ConcurrentMap<Integer, AtomicInteger> abandoned = new ConcurrentHashMap<Integer, AtomicInteger>();
+    /**
+     * puts ignored per key, whose takes are yet to be skipped
+     */
+    private final ConcurrentMap<Integer, AtomicInteger> merged = new ConcurrentHashMap<Integer, AtomicInteger>();
+    private final LongAdder ignoredPuts = new LongAdder();
+    private final LongAdder droppedPuts = new LongAdder();
+    private final LongAdder skippedTakes = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder stranded = new LongAdder();
+
+    LoadGenerator(Map<String, String> options) {
+        this.options = options;
+        this.producers = intOption("producers", 4);
+        this.consumers = intOption("consumers", 4);
+        this.rate = intOption("rate", 100000);
+        this.durationNanos = TimeUnit.SECONDS.toNanos(intOption("duration", 10));
+        this.warmupNanos = TimeUnit.SECONDS.toNanos(intOption("warmup", 2));
+        this.timeoutRatio = Double.parseDouble(option("timeout-ratio", "0.0"));
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(intOption("timeout-ms", 10));
+        this.valueSize = intOption("value-size", 64);
+        this.seed = Long.parseLong(option("seed", "42"));
+        int keySpace = intOption("keys", 100000);
+        String distribution = option("distribution", "uniform");
+        if (distribution.equals("uniform")) {
+            this.keys = new KeyDistribution(keySpace);
+        } else if (distribution.equals("zipf")) {
+            this.keys = new KeyDistribution(keySpace, Double.parseDouble(option("zipf-exponent", "1.0")));
+        } else {
+            throw new IllegalArgumentException("unknown distribution : " + distribution);
+        }
+        if ((producers <= 0) || (consumers <= 0) || (rate <= 0) || (valueSize < 0)
+                || (timeoutRatio < 0) || (timeoutRatio > 1)) {
+            throw new IllegalArgumentException("invalid options : " + options);
+        }
+        if (!options.isEmpty()) {
+            throw new IllegalArgumentException("unknown options : " + options.keySet());
+        }
+    }
+
+    private String option(String name, String defaultValue) {
+        String value = options.remove(name);
+        return (value == null) ? defaultValue : value;
+    }
+
+    private int intOption(String name, int defaultValue) {
+        return Integer.parseInt(option(name, Integer.toString(defaultValue)));
+    }
+
+    /**
+     * Distribution of the keys, drawn by inverting its cumulative
+     * distribution at a uniform variate
+     */
+    static final class KeyDistribution {
+
+        private final int size;
+        /**
+         * cumulative probabilities of the keys, null if uniform
+         */
+        private final double[] cumulative;
+
+        KeyDistribution(int size) {
+            if (size <= 0) {
+                throw new IllegalArgumentException("key space should not be empty");
+            }
+            this.size = size;
+            this.cumulative = null;
+        }
+
+        KeyDistribution(int size, double exponent) {
+            if (size <= 0) {
+                throw new IllegalArgumentException("key space should not be empty");
+            }
+            this.size = size;
+            this.cumulative = new double[size];
+            double sum = 0;
+            for (int rank = 0; rank < size; rank++) {
+                sum += 1 / Math.pow(rank + 1, exponent);
+                cumulative[rank] = sum;
+            }
+            for (int rank = 0; rank < size; rank++) {
+                cumulative[rank] /= sum;
+            }
+        }
+
+        /**
+         * Returns the key at the uniform variate u in [0, 1)
+         */
+        int keyAt(double u) {
+            if (cumulative == null) {
+                return (int) (u * size);
+            }
+            int low = 0;
+            int high = size - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (cumulative[middle] <= u) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Returns the uniform variate of request n in [0, 1), the same for its
+     * producer & its consumer
+     */
+    static double uniform(long seed, long n) {
+        //splitmix64 finalizer
+        long z = seed + (n + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (z >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Returns the time request n is due at
+     */
+    private long dueAt(long start, long n) {
+        return start + (long) (n * (1e9 / rate));
+    }
+
+    /**
+     * Parks until the deadline, returns at once if it has passed
+     */
+    private static void awaitDue(long due) {
+        long wait;
+        while ((wait = due - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    private void produce(long start, long requests, int producer) {
+        for (long n = producer; n < requests; n += producers) {
+            long due = dueAt(start, n);
+            awaitDue(due);
+            Integer key = keys.keyAt(uniform(seed, n));
+            if (settle(abandoned, key)) {
+                droppedPuts.increment();
+                continue;
+            }
+            if (map.put(key, new byte[valueSize]) != null) {
+                ignoredPuts.increment();
+                owe(merged, key);
+            }
+            if (due - start >= warmupNanos) {
+                putLatency.record(System.nanoTime() - due);
+            }
+        }
+    }
+
+    private static void owe(ConcurrentMap<Integer, AtomicInteger> debts, Integer key) {
+        debts.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    /**
+     * Pays a debt owed on the key, if any
+     */
+    private static boolean settle(ConcurrentMap<Integer, AtomicInteger> debts, Integer key) {
+        AtomicInteger count = debts.get(key);
+        if (count == null) {
+            return false;
+        }
+        int current;
+        while ((current = count.get()) > 0) {
+            if (count.compareAndSet(current, current - 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void consume(long start, long requests, int consumer) throws InterruptedException {
+        for (long n = consumer; n < requests; n += consumers) {
+            long due = dueAt(start, n);
+            awaitDue(due);
+            Integer key = keys.keyAt(uniform(seed, n));
+            if (settle(merged, key)) {
+                skippedTakes.increment();
+                continue;
+            }
+            boolean timed = (uniform(~seed, n) < timeoutRatio);
+            byte[] value = timed ? map.take(key, timeoutNanos, TimeUnit.NANOSECONDS) : map.take(key);
+            if (value == null) {
+                owe(abandoned, key);
+            }
+            if (due - start < warmupNanos) {
+                continue;
+            }
+            if (value != null) {
+                takeLatency.record(System.nanoTime() - due);
+            } else {
+                timeouts.increment();
+            }
+        }
+    }
+
+    /**
+     * Runs the load & prints the report
+     */
+    void run() throws InterruptedException {
+        final long requests = (long) ((warmupNanos + durationNanos) / 1e9 * rate);
+        //leaves the threads time to start
+        final long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        List<Thread> producerThreads = new ArrayList<Thread>();
+        List<Thread> consumerThreads = new ArrayList<Thread>();
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            producerThreads.add(new Thread(() -> produce(start, requests, producer), "producer-" + p));
+        }
+        for (int c = 0; c < consumers; c++) {
+            final int consumer = c;
+            consumerThreads.add(new Thread(() -> {
+                try {
+                    consume(start, requests, consumer);
+                } catch (InterruptedException | IllegalStateException e) {
+                    //waiting for a value never put when the map was cleared
+                    stranded.increment();
+                }
+            }, "consumer-" + c));
+        }
+        for (Thread thread : producerThreads) {
+            thread.start();
+        }
+        for (Thread thread : consumerThreads) {
+            thread.start();
+        }
+        for (Thread thread : producerThreads) {
+            thread.join();
+        }
+        long drained = System.currentTimeMillis() + DRAIN_MILLIS;
+        for (Thread thread : consumerThreads) {
+            thread.join(Math.max(1, drained - System.currentTimeMillis()));
+        }
+        long elapsed = System.nanoTime() - start;
+        map.clear();
+        for (Thread thread : consumerThreads) {
+            thread.join();
+        }
+        report(requests, elapsed);
+    }
+
+    private void report(long requests, long elapsed) {
+        double measured = durationNanos / 1e9;
+        System.out.println(String.format("target rate %d/s, %d producers, %d consumers, %d requests in %.1f s",
+                rate, producers, consumers, requests, elapsed / 1e9));
+        System.out.println(String.format("puts %.0f/s (%d ignored, key available, %d dropped, take timed out)",
+                putLatency.getCount() / measured, ignoredPuts.sum(), droppedPuts.sum()));
+        System.out.println(String.format("takes %.0f/s (%d timed out, %d skipped, put ignored, %d consumers stranded)",
+                takeLatency.getCount() / measured, timeouts.sum(), skippedTakes.sum(), stranded.sum()));
+        System.out.println("latency from the time due, in microseconds :");
+        System.out.println(String.format("%6s %10s %10s %10s %10s %10s %10s",
+                "", "p50", "p90", "p99", "p99.9", "p99.99", "max"));
+        printLatency("put", putLatency);
+        printLatency("take", takeLatency);
+    }
+
+    private static void printLatency(String name, LatencyHistogram histogram) {
+        System.out.println(String.format("%6s %10d %10d %10d %10d %10d %10d", name,
+                micros(histogram.getValueAtPercentile(50)), micros(histogram.getValueAtPercentile(90)),
+                micros(histogram.getValueAtPercentile(99)), micros(histogram.getValueAtPercentile(99.9)),
+                micros(histogram.getValueAtPercentile(99.99)), micros(histogram.getMax())));
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    /**
+     * Parses <tt>--name=value</tt> arguments
+     */
+    static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new LinkedHashMap<String, String>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || (equals < 0)) {
+                throw new IllegalArgumentException("expected --option=value : " + arg);
+            }
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        return options;
+    }
+
+    public static void main(String ar[]) throws InterruptedException {
+        new LoadGenerator(parse(ar)).run();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * MonitorBlockingMap.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMapTester;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Baseline of a <tt>ConcurrentHashMap&lt;K, V&gt;</tt> guarded by a single
+ * monitor for waiting : consumers of absent keys <tt>wait()</tt> on it &
+ * every put <tt>notifyAll()</tt>, waking all consumers whatever their key.
+ * Reads do not take the monitor.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ * @version 1.0, 19/10/26
+ */
+class MonitorBlockingMap<K, V> extends BaselineBlockingMap<K, V> {
+
+    private final ConcurrentMap<K, V> map = new ConcurrentHashMap<K, V>();
+    private final Object monitor = new Object();
+
+    @Override
+    String name() {
+        return "CHM + wait/notifyAll";
+    }
+
+    @Override
+    public V get(Object key) {
+        return map.get(key);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        synchronized (monitor) {
+            V existing = map.putIfAbsent(key, value);
+            if (existing == null) {
+                monitor.notifyAll();
+            }
+            return existing;
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        return map.remove(key);
+    }
+
+    @Override
+    public V take(K key, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (monitor) {
+            V value;
+            while ((value = map.remove(key)) == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return null;
+                }
+                TimeUnit.NANOSECONDS.timedWait(monitor, remaining);
+            }
+            return value;
+        }
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return Collections.unmodifiableSet(map.keySet());
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public void clear() {
+        map.clear();
+    }
+}
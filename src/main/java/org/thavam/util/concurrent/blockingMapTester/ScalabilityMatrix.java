@@ -0,0 +1,355 @@
+/*
+ * ScalabilityMatrix.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMapTester;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.thavam.util.concurrent.blockingMap.BlockingHashMap;
+import org.thavam.util.concurrent.blockingMap.LatencyHistogram;
+
+/**
+ * Sweeps the thread count from 1 to twice the available processors over
+ * several traffic scenarios & reports, per point, the throughput of
+ * BlockingHashMap, its latency percentiles & the lock contention its threads
+ * went through, as CSV or JSON.
+ *
+ * <p>
+ * Every thread runs the same closed loop : a put or a timed take of a key,
+ * chosen at random with the share of puts of the scenario or in put & take
+ * pairs, on its own keys or on keys shared by all threads. Contention comes
+ * from the ThreadMXBean : the number of times & the time the threads blocked
+ * on a monitor or waited, which includes parking on the locks of the map,
+ * over the measured interval. One operation in {@value #SAMPLE_RATE} on
+ * average is timed, so as not to contend on the histograms.
+ *
+ * <pre>
+ * usage : ScalabilityMatrix [--option=value]...
+ *   --seconds=1              seconds measured per point, after a quarter of warmup
+ *   --max-threads=2*cores    largest thread count
+ *   --scenarios=all          comma separated scenario names
+ *   --format=csv             csv or json
+ *   --out=-                  report file, - for the standard output
+ * </pre>
+ */
+public class ScalabilityMatrix {
+
+    private static final int SAMPLE_RATE = 16;
+    private static final int KEYS_PER_THREAD = 1024;
+    private static final int WARMING_UP = 0;
+    private static final int MEASURING = 1;
+    private static final int STOPPED = 2;
+    private static final double PAIRED = -1;
+
+    /**
+     * Traffic shape of a point of the matrix
+     */
+    enum Scenario {
+
+        /**
+         * each thread puts then takes its own keys, takes never wait
+         */
+        DISJOINT_KEYS("disjoint-keys", PAIRED, KEYS_PER_THREAD, false, 1000),
+        /**
+         * all threads put then take a few hot keys, racing for their values
+         */
+        SHARED_KEYS("shared-keys", PAIRED, 64, true, 1000),
+        /**
+         * puts outnumber takes, most puts find the key available
+         */
+        PRODUCER_HEAVY("producer-heavy", 0.75, KEYS_PER_THREAD, true, 1000),
+        /**
+         * takes outnumber puts, most takes wait for the key
+         */
+        CONSUMER_HEAVY("consumer-heavy", 0.25, KEYS_PER_THREAD, true, 1000),
+        /**
+         * few puts, most takes time out after a short wait
+         */
+        TIMEOUT_HEAVY("timeout-heavy", 0.1, KEYS_PER_THREAD, true, 50);
+
+        final String label;
+        /**
+         * share of puts, PAIRED for a put followed by a take of its key
+         */
+        final double putShare;
+        final int keys;
+        final boolean shared;
+        final long timeoutMicros;
+
+        Scenario(String label, double putShare, int keys, boolean shared, long timeoutMicros) {
+            this.label = label;
+            this.putShare = putShare;
+            this.keys = keys;
+            this.shared = shared;
+            this.timeoutMicros = timeoutMicros;
+        }
+
+        static Scenario of(String label) {
+            for (Scenario scenario : values()) {
+                if (scenario.label.equals(label)) {
+                    return scenario;
+                }
+            }
+            throw new IllegalArgumentException("unknown scenario : " + label);
+        }
+    }
+
+    /**
+     * Measurements of a scenario at a thread count
+     */
+    static final class Point {
+
+        Scenario scenario;
+        int threads;
+        double seconds;
+        long puts;
+        long takes;
+        long timeouts;
+        LatencyHistogram putLatency = new LatencyHistogram();
+        LatencyHistogram takeLatency = new LatencyHistogram();
+        long blockedCount;
+        long blockedMillis;
+        long waitedCount;
+        long waitedMillis;
+
+        double throughput() {
+            return (puts + takes) / seconds;
+        }
+    }
+
+    private static final String[] COLUMNS = {"scenario", "threads", "ops_per_sec", "puts", "takes",
+        "timeouts", "put_p50_us", "put_p99_us", "take_p50_us", "take_p99_us", "take_p999_us",
+        "take_max_us", "blocked_count", "blocked_ms", "waited_count", "waited_ms"};
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /**
+     * Runs the scenario on a new map from the given number of threads & keeps
+     * the measurements of the last millis.
+     */
+    static Point measure(final Scenario scenario, final int threads, long warmupMillis, long millis)
+            throws InterruptedException {
+        final BlockingHashMap<Integer, Integer> map = new BlockingHashMap<Integer, Integer>();
+        final Point point = new Point();
+        point.scenario = scenario;
+        point.threads = threads;
+        final CountDownLatch started = new CountDownLatch(threads);
+        final LongAdder puts = new LongAdder();
+        final LongAdder takes = new LongAdder();
+        final LongAdder timeouts = new LongAdder();
+        //warming up, measuring, stopped
+        final AtomicInteger phase = new AtomicInteger(WARMING_UP);
+        Thread[] workers = new Thread[threads];
+
+        for (int t = 0; t < threads; t++) {
+            final int firstKey = scenario.shared ? 0 : t * scenario.keys;
+            workers[t] = new Thread("worker-" + t) {
+                @Override
+                public void run() {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long timeoutNanos = TimeUnit.MICROSECONDS.toNanos(scenario.timeoutMicros);
+                    long count = 0;
+                    Integer key = null;
+                    started.countDown();
+                    try {
+                        started.await();
+                        int current;
+                        while ((current = phase.get()) != STOPPED) {
+                            boolean measuring = (current == MEASURING);
+                            boolean put;
+                            if (scenario.putShare == PAIRED) {
+                                put = ((count++ & 1) == 0);
+                                if (put) {
+                                    key = firstKey + random.nextInt(scenario.keys);
+                                }
+                            } else {
+                                put = (random.nextDouble() < scenario.putShare);
+                                key = firstKey + random.nextInt(scenario.keys);
+                            }
+                            boolean sampled = measuring && (random.nextInt(SAMPLE_RATE) == 0);
+                            long begin = sampled ? System.nanoTime() : 0;
+                            if (put) {
+                                map.put(key, key);
+                                if (measuring) {
+                                    puts.increment();
+                                }
+                                if (sampled) {
+                                    point.putLatency.record(System.nanoTime() - begin);
+                                }
+                            } else {
+                                Integer value = map.take(key, timeoutNanos, TimeUnit.NANOSECONDS);
+                                if (measuring) {
+                                    takes.increment();
+                                    if (value == null) {
+                                        timeouts.increment();
+                                    }
+                                }
+                                if (sampled) {
+                                    point.takeLatency.record(System.nanoTime() - begin);
+                                }
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            };
+            workers[t].start();
+        }
+        started.await();
+        Thread.sleep(warmupMillis);
+        long[] ids = new long[threads];
+        for (int t = 0; t < threads; t++) {
+            ids[t] = workers[t].getId();
+        }
+        ThreadInfo[] before = THREADS.getThreadInfo(ids);
+        long start = System.nanoTime();
+        phase.set(MEASURING);
+        Thread.sleep(millis);
+        ThreadInfo[] after = THREADS.getThreadInfo(ids);
+        phase.set(STOPPED);
+        long elapsed = System.nanoTime() - start;
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        map.clear();
+
+        point.seconds = elapsed / 1e9;
+        point.puts = puts.sum();
+        point.takes = takes.sum();
+        point.timeouts = timeouts.sum();
+        for (int t = 0; t < threads; t++) {
+            if ((before[t] == null) || (after[t] == null)) {
+                continue;
+            }
+            point.blockedCount += after[t].getBlockedCount() - before[t].getBlockedCount();
+            point.waitedCount += after[t].getWaitedCount() - before[t].getWaitedCount();
+            if (before[t].getBlockedTime() >= 0) {
+                point.blockedMillis += after[t].getBlockedTime() - before[t].getBlockedTime();
+                point.waitedMillis += after[t].getWaitedTime() - before[t].getWaitedTime();
+            }
+        }
+        return point;
+    }
+
+    /**
+     * Returns 1, 2, 4... up to & including the largest thread count
+     */
+    static List<Integer> threadCounts(int maxThreads) {
+        List<Integer> counts = new ArrayList<Integer>();
+        for (int threads = 1; threads < maxThreads; threads *= 2) {
+            counts.add(threads);
+        }
+        counts.add(maxThreads);
+        return counts;
+    }
+
+    private static Object[] row(Point point) {
+        return new Object[]{point.scenario.label, point.threads, Math.round(point.throughput()),
+            point.puts, point.takes, point.timeouts,
+            micros(point.putLatency.getValueAtPercentile(50)), micros(point.putLatency.getValueAtPercentile(99)),
+            micros(point.takeLatency.getValueAtPercentile(50)), micros(point.takeLatency.getValueAtPercentile(99)),
+            micros(point.takeLatency.getValueAtPercentile(99.9)), micros(point.takeLatency.getMax()),
+            point.blockedCount, point.blockedMillis, point.waitedCount, point.waitedMillis};
+    }
+
+    private static double micros(long nanos) {
+        return Math.round(nanos / 100.0) / 10.0;
+    }
+
+    static void writeCsv(List<Point> points, PrintWriter out) {
+        out.println(String.join(",", COLUMNS));
+        for (Point point : points) {
+            Object[] row = row(point);
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < row.length; i++) {
+                line.append((i == 0) ? "" : ",").append(row[i]);
+            }
+            out.println(line);
+        }
+    }
+
+    static void writeJson(List<Point> points, PrintWriter out) {
+        out.println("{");
+        out.println("  \"availableProcessors\": " + Runtime.getRuntime().availableProcessors() + ",");
+        out.println("  \"contentionMonitoring\": " + THREADS.isThreadContentionMonitoringEnabled() + ",");
+        out.println("  \"points\": [");
+        for (int p = 0; p < points.size(); p++) {
+            Object[] row = row(points.get(p));
+            StringBuilder line = new StringBuilder("    {");
+            for (int i = 0; i < row.length; i++) {
+                line.append((i == 0) ? "" : ", ").append('"').append(COLUMNS[i]).append("\": ");
+                line.append((row[i] instanceof String) ? "\"" + row[i] + "\"" : row[i]);
+            }
+            out.println(line.append((p + 1 < points.size()) ? "}," : "}"));
+        }
+        out.println("  ]");
+        out.println("}");
+    }
+
+    public static void main(String ar[]) throws InterruptedException, IOException {
+        Map<String, String> options = LoadGenerator.parse(ar);
+        long millis = TimeUnit.SECONDS.toMillis(Long.parseLong(remove(options, "seconds", "1")));
+        int maxThreads = Integer.parseInt(remove(options, "max-threads",
+                Integer.toString(2 * Runtime.getRuntime().availableProcessors())));
+        String names = remove(options, "scenarios", "all");
+        String format = remove(options, "format", "csv");
+        String out = remove(options, "out", "-");
+        if (!options.isEmpty()) {
+            throw new IllegalArgumentException("unknown options : " + options.keySet());
+        }
+        if (!format.equals("csv") && !format.equals("json")) {
+            throw new IllegalArgumentException("unknown format : " + format);
+        }
+        List<Scenario> scenarios = new ArrayList<Scenario>();
+        if (names.equals("all")) {
+            scenarios.addAll(Arrays.asList(Scenario.values()));
+        } else {
+            for (String name : names.split(",")) {
+                scenarios.add(Scenario.of(name.trim()));
+            }
+        }
+        if (THREADS.isThreadContentionMonitoringSupported()) {
+            THREADS.setThreadContentionMonitoringEnabled(true);
+        }
+
+        List<Point> points = new ArrayList<Point>();
+        for (Scenario scenario : scenarios) {
+            for (int threads : threadCounts(maxThreads)) {
+                Point point = measure(scenario, threads, millis / 4, millis);
+                points.add(point);
+                System.err.println(String.format("%-16s %4d threads %12.0f ops/s", scenario.label, threads,
+                        point.throughput()));
+            }
+        }
+        Writer writer = out.equals("-") ? new PrintWriter(System.out) : new FileWriter(out);
+        try (PrintWriter printer = new PrintWriter(writer)) {
+            if (format.equals("csv")) {
+                writeCsv(points, printer);
+            } else {
+                writeJson(points, printer);
+            }
+        }
+    }
+
+    private static String remove(Map<String, String> options, String name, String defaultValue) {
+        String value = options.remove(name);
+        return (value == null) ? defaultValue : value;
+    }
+}
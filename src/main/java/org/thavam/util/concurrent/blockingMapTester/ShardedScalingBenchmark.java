@@ -0,0 +1,100 @@
+/*
+ * ShardedScalingBenchmark.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMapTester;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import org.thavam.util.concurrent.blockingMap.BlockingHashMap;
+import org.thavam.util.concurrent.blockingMap.BlockingMap;
+import org.thavam.util.concurrent.blockingMap.ShardedBlockingMap;
+
+/**
+ * Compares throughput of BlockingHashMap & ShardedBlockingMap from 1 to 64
+ * threads. Every thread puts & takes its own keys, so keys never conflict and
+ * any loss of scaling comes from contention inside the map.
+ *
+ * <pre>
+ * usage : ShardedScalingBenchmark [seconds per point] [shard count]
+ * </pre>
+ */
+public class ShardedScalingBenchmark {
+
+    private static final int KEYS_PER_THREAD = 1024;
+    private static final int MAX_THREADS = 64;
+
+    /**
+     * Runs put/take pairs on the map from the given number of threads for the
+     * given duration & returns the number of pairs completed per second.
+     */
+    static double measure(final BlockingMap<Integer, Integer> map, int threads, long millis)
+            throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(threads);
+        final CountDownLatch finished = new CountDownLatch(threads);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final LongAdder operations = new LongAdder();
+
+        for (int t = 0; t < threads; t++) {
+            final int firstKey = t * KEYS_PER_THREAD;
+            new Thread("worker-" + t) {
+                @Override
+                public void run() {
+                    long count = 0;
+                    started.countDown();
+                    try {
+                        started.await();
+                        while (running.get()) {
+                            Integer key = firstKey + (int) (count % KEYS_PER_THREAD);
+                            map.put(key, key);
+                            map.take(key);
+                            count++;
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        operations.add(count);
+                        finished.countDown();
+                    }
+                }
+            }.start();
+        }
+        started.await();
+        long start = System.nanoTime();
+        Thread.sleep(millis);
+        running.set(false);
+        finished.await();
+        long elapsed = System.nanoTime() - start;
+        return operations.sum() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    public static void main(String ar[]) throws InterruptedException {
+        long millis = (ar.length > 0) ? TimeUnit.SECONDS.toMillis(Long.parseLong(ar[0])) : 1000;
+        int shardCount = (ar.length > 1)
+                ? Integer.parseInt(ar[1])
+                : Runtime.getRuntime().availableProcessors();
+
+        System.out.println("available processors : " + Runtime.getRuntime().availableProcessors()
+                + ", shards : " + shardCount);
+        System.out.println(String.format("%8s %20s %20s %8s",
+                "threads", "BlockingHashMap/s", "ShardedBlockingMap/s", "ratio"));
+
+        for (int threads = 1; threads <= MAX_THREADS; threads *= 2) {
+            BlockingMap<Integer, Integer> single = new BlockingHashMap<Integer, Integer>();
+            BlockingMap<Integer, Integer> sharded = new ShardedBlockingMap<Integer, Integer>(shardCount);
+            //warm up both maps before measuring
+            measure(single, threads, millis / 4);
+            measure(sharded, threads, millis / 4);
+
+            double singleThroughput = measure(single, threads, millis);
+            double shardedThroughput = measure(sharded, threads, millis);
+            System.out.println(String.format("%8d %20.0f %20.0f %8.2f",
+                    threads, singleThroughput, shardedThroughput, shardedThroughput / singleThroughput));
+            single.clear();
+            sharded.clear();
+        }
+    }
+}
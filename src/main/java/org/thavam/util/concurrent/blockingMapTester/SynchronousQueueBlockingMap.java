@@ -0,0 +1,95 @@
+/*
+ * SynchronousQueueBlockingMap.java
+ *
+ * Created on October 19, 2026
+ */
+package org.thavam.util.concurrent.blockingMapTester;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Baseline of a <tt>SynchronousQueue</tt> per key : the producer of a key
+ * hands its value directly to a consumer. Values never rest on the map, a put
+ * blocks until a consumer takes it, hence <tt>get</tt> & <tt>isKeyAvailable</tt>
+ * never find a value & the map is always empty. Queues are kept once created,
+ * as a consumer may be waiting on one.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ * @version 1.0, 19/10/26
+ */
+class SynchronousQueueBlockingMap<K, V> extends BaselineBlockingMap<K, V> {
+
+    private final ConcurrentMap<K, SynchronousQueue<V>> queues = new ConcurrentHashMap<K, SynchronousQueue<V>>();
+
+    @Override
+    String name() {
+        return "SynchronousQueue per key";
+    }
+
+    private SynchronousQueue<V> queueOf(K key) {
+        return queues.computeIfAbsent(key, k -> new SynchronousQueue<V>());
+    }
+
+    @Override
+    public V get(Object key) {
+        return null;
+    }
+
+    /**
+     * Blocks until a consumer takes the value, returns null
+     */
+    @Override
+    public V put(K key, V value) {
+        try {
+            queueOf(key).put(value);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    /**
+     * Waits for a consumer to take the value, until the timeout elapses
+     *
+     * @return null if taken, else the value not handed over
+     */
+    @Override
+    public V offer(K key, V value, long timeout, TimeUnit unit) throws InterruptedException {
+        return queueOf(key).offer(value, timeout, unit) ? null : value;
+    }
+
+    /**
+     * Takes the value of a producer blocked on the key, if any
+     */
+    @Override
+    public V remove(Object key) {
+        SynchronousQueue<V> queue = queues.get(key);
+        return (queue == null) ? null : queue.poll();
+    }
+
+    @Override
+    public V take(K key, long timeout, TimeUnit unit) throws InterruptedException {
+        return queueOf(key).poll(timeout, unit);
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public int size() {
+        return 0;
+    }
+
+    @Override
+    public void clear() {
+        queues.clear();
+    }
+}
@@ -0,0 +1,152 @@
+package org.thavam.util.concurrent.blockingMap;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the bytes allocated per operation on the steady-state hot path, as
+ * counted by the ThreadMXBean of the current thread. Budgets leave headroom
+ * over the current figures, for other JVMs & heap layouts, but fail if an
+ * allocation is added per operation.
+ */
+public class AllocationTest {
+
+    private static final int FAIL_TIMEOUT = 30000;
+    private static final int WARMUP = 50000;
+    private static final int ITERATIONS = 200000;
+    /**
+     * a latch & the entry of the primary map, 272 bytes with compressed oops
+     */
+    private static final double PUT_TAKE_BUDGET = 400;
+    /**
+     * the latch, its CountDownLatch & its ReentrantReadWriteLock, 176 bytes
+     * with compressed oops
+     */
+    private static final double LATCH_BUDGET = 256;
+    /**
+     * operations that create nothing, noise allowed
+     */
+    private static final double NO_ALLOCATION = 1;
+    private com.sun.management.ThreadMXBean threads;
+    private Integer[] keys;
+
+    private interface Operation {
+
+        void run(int i) throws Exception;
+    }
+
+    @Before
+    public void setUp() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        //boxed once, so that the operations measured do not box
+        keys = new Integer[1024];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = 1000 + i;
+        }
+    }
+
+    /**
+     * Returns the bytes allocated per run of the operation, once compiled
+     */
+    private double bytesPerOperation(Operation operation) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run(i);
+        }
+        long id = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.run(i);
+        }
+        return (threads.getThreadAllocatedBytes(id) - before) / (double) ITERATIONS;
+    }
+
+    private Integer key(int i) {
+        return keys[i & (keys.length - 1)];
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testObjectLatch() throws Exception {
+        double lifecycle = bytesPerOperation(i -> {
+            ObjectLatch<Integer> latch = new ObjectLatch<Integer>();
+            latch.set(key(i));
+            latch.getIfAvailable();
+        });
+        assertTrue("latch lifecycle allocates " + lifecycle, lifecycle <= LATCH_BUDGET);
+
+        final ObjectLatch<Integer> latch = new ObjectLatch<Integer>();
+        latch.set(keys[0]);
+        double available = bytesPerOperation(i -> {
+            latch.set(key(i));
+            latch.isAvailable();
+            latch.getImmediately();
+            latch.get(0, TimeUnit.NANOSECONDS);
+        });
+        assertTrue("available latch allocates " + available, available <= NO_ALLOCATION);
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testActiveBlockingHashMap() throws Exception {
+        final ActiveBlockingHashMap<Integer, Integer> map = new ActiveBlockingHashMap<Integer, Integer>();
+        double putTake = bytesPerOperation(i -> {
+            map.put(key(i), keys[0]);
+            map.take(key(i));
+        });
+        assertTrue("put & take allocate " + putTake, putTake <= PUT_TAKE_BUDGET);
+        double putRemove = bytesPerOperation(i -> {
+            map.put(key(i), keys[0]);
+            map.remove(key(i));
+        });
+        assertTrue("put & remove allocate " + putRemove, putRemove <= PUT_TAKE_BUDGET);
+        double timedTake = bytesPerOperation(i -> {
+            map.put(key(i), keys[0]);
+            map.take(key(i), 1, TimeUnit.SECONDS);
+        });
+        assertTrue("put & timed take allocate " + timedTake, timedTake <= PUT_TAKE_BUDGET);
+
+        map.put(keys[1], keys[1]);
+        double available = bytesPerOperation(i -> {
+            map.get(keys[1]);
+            map.get(keys[2]);
+            map.put(keys[1], key(i));
+            map.isKeyAvailable(keys[1]);
+            map.containsKey(keys[1]);
+        });
+        assertTrue("reads & ignored puts allocate " + available, available <= NO_ALLOCATION);
+        map.clear();
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testDelegation() throws Exception {
+        final ActiveBlockingHashMap<Integer, Integer> active = new ActiveBlockingHashMap<Integer, Integer>();
+        final BlockingHashMap<Integer, Integer> map = new BlockingHashMap<Integer, Integer>();
+        double direct = bytesPerOperation(i -> {
+            active.put(key(i), keys[0]);
+            active.take(key(i));
+        });
+        double delegated = bytesPerOperation(i -> {
+            map.put(key(i), keys[0]);
+            map.take(key(i));
+        });
+        //the state delegation adds no allocation
+        assertTrue("delegation allocates " + (delegated - direct), delegated - direct <= NO_ALLOCATION);
+
+        map.put(keys[1], keys[1]);
+        double available = bytesPerOperation(i -> {
+            map.get(keys[1]);
+            map.put(keys[1], key(i));
+            map.isKeyAvailable(keys[1]);
+        });
+        assertTrue("reads & ignored puts allocate " + available, available <= NO_ALLOCATION);
+        active.clear();
+        map.clear();
+    }
+}
@@ -0,0 +1,115 @@
+package org.thavam.util.concurrent.blockingMap;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the keySet, values & entrySet views of BlockingHashMap &
+ * ShardedBlockingMap.
+ */
+public class AvailableEntryViewsTest {
+
+    private static final int FAIL_TIMEOUT = 2000;
+    private BlockingMap<Integer, String> blockingMap;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        blockingMap = new BlockingHashMap<Integer, String>();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        blockingMap.clear();
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testViewsSkipPendingKeys() throws Exception {
+        Future<String> consumer = executor.submit(new Callable<String>() {
+            @Override
+            public String call() throws InterruptedException {
+                return blockingMap.take(99);
+            }
+        });
+        blockingMap.put(1, "one");
+        blockingMap.put(2, "two");
+        Thread.sleep(100);
+
+        assertEquals(2, blockingMap.keySet().size());
+        assertFalse(blockingMap.keySet().contains(99));
+        assertTrue(blockingMap.values().contains("two"));
+        assertEquals("one", blockingMap.entrySet().stream()
+                .filter(e -> e.getKey() == 1).findFirst().get().getValue());
+
+        blockingMap.put(99, "ninety nine");
+        assertEquals("ninety nine", consumer.get());
+    }
+
+    @Test
+    public void testViewsAreLive() {
+        Set<Integer> keys = blockingMap.keySet();
+        assertTrue(keys.isEmpty());
+        blockingMap.put(1, "one");
+        assertTrue(keys.contains(1));
+        blockingMap.remove(1);
+        assertTrue(keys.isEmpty());
+    }
+
+    @Test
+    public void testIteratorRemoveRemovesMapping() {
+        for (int i = 0; i < 10; i++) {
+            blockingMap.put(i, "value " + i);
+        }
+        for (Iterator<Map.Entry<Integer, String>> it = blockingMap.entrySet().iterator(); it.hasNext();) {
+            if (it.next().getKey() % 2 == 0) {
+                it.remove();
+            }
+            //concurrent modification is tolerated
+            blockingMap.put(100, "hundred");
+        }
+        assertEquals(6, blockingMap.size());
+        assertFalse(blockingMap.isKeyAvailable(4));
+        assertTrue(blockingMap.keySet().remove(5));
+        assertFalse(blockingMap.isKeyAvailable(5));
+    }
+
+    @Test
+    public void testParallelStreamVisitsAllMappings() {
+        for (int i = 0; i < 10000; i++) {
+            blockingMap.put(i, "value " + i);
+        }
+        assertEquals(10000, blockingMap.keySet().parallelStream().distinct().count());
+        assertEquals(49995000L, blockingMap.keySet().parallelStream().mapToLong(Integer::longValue).sum());
+    }
+
+    @Test
+    public void testShardedViewsConcatenateShards() {
+        ShardedBlockingMap<Integer, String> sharded = new ShardedBlockingMap<Integer, String>(4);
+        for (int i = 0; i < 1000; i++) {
+            sharded.put(i, "value " + i);
+        }
+        Set<Integer> keys = sharded.keySet().parallelStream().collect(Collectors.toSet());
+        assertEquals(1000, keys.size());
+        assertEquals(keys, sharded.keySet());
+        assertEquals(1000, sharded.values().size());
+
+        Iterator<Integer> it = sharded.keySet().iterator();
+        Integer first = it.next();
+        it.remove();
+        assertFalse(sharded.isKeyAvailable(first));
+        assertEquals(999, sharded.entrySet().size());
+        sharded.clear();
+    }
+}
@@ -0,0 +1,118 @@
+package org.thavam.util.concurrent.blockingMap;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the JMX statistics of named BlockingHashMaps.
+ */
+public class BlockingMapStatisticsTest {
+
+    private static final int FAIL_TIMEOUT = 10000;
+    private MBeanServer server;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        server = ManagementFactory.getPlatformMBeanServer();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static ObjectName nameOf(String map) throws Exception {
+        return new ObjectName(BlockingMapStatistics.DOMAIN + ":type=BlockingHashMap,name=" + ObjectName.quote(map));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testAttributes() throws Exception {
+        final BlockingHashMap<String, String> blockingMap = new BlockingHashMap<String, String>("orders");
+        ObjectName name = nameOf("orders");
+        try {
+            assertTrue(server.isRegistered(name));
+            assertEquals("orders", server.getAttribute(name, "Name"));
+            blockingMap.put("a", "1");
+            blockingMap.put("b", "2");
+            blockingMap.put("b", "ignored");
+            assertEquals(2L, server.getAttribute(name, "AvailableCount"));
+            blockingMap.take("a");
+            assertEquals(1L, server.getAttribute(name, "AvailableCount"));
+            assertEquals(2L, server.getAttribute(name, "PutCount"));
+            assertEquals(1L, server.getAttribute(name, "TakeCount"));
+
+            Future<String> consumer = executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws InterruptedException {
+                    return blockingMap.take("late");
+                }
+            });
+            while ((Long) server.getAttribute(name, "PendingWaiterCount") == 0) {
+                Thread.sleep(1);
+            }
+            Thread.sleep(60);
+            assertTrue((Long) server.getAttribute(name, "OldestPendingAgeMillis") >= 50);
+            blockingMap.put("late", "3");
+            assertEquals("3", consumer.get());
+            assertEquals(0L, server.getAttribute(name, "PendingWaiterCount"));
+            assertEquals(0L, server.getAttribute(name, "OldestPendingAgeMillis"));
+            assertTrue((Long) server.getAttribute(name, "WaitP999Micros") >= 50000);
+
+            assertNull(blockingMap.take("missing", 1, TimeUnit.MILLISECONDS));
+            assertEquals(1L, server.getAttribute(name, "TimeoutCount"));
+            assertEquals(0.0, (Double) server.getAttribute(name, "TimeoutRate"), 0.0);
+        } finally {
+            blockingMap.clear();
+        }
+        assertFalse(server.isRegistered(name));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testDuplicateName() {
+        BlockingHashMap<String, String> first = new BlockingHashMap<String, String>("duplicate");
+        try {
+            new BlockingHashMap<String, String>("duplicate");
+            fail("a second map should not be registered under the same name");
+        } catch (IllegalArgumentException expected) {
+        } finally {
+            first.clear();
+        }
+        //the name is free again after shutdown
+        new BlockingHashMap<String, String>("duplicate").clear();
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testAvailableCountAfterShutdown() {
+        BlockingMapMetrics metrics = new BlockingMapMetrics();
+        BlockingHashMap<String, String> blockingMap = new BlockingHashMap<String, String>(metrics);
+        blockingMap.put("a", "1");
+        blockingMap.put("b", "2");
+        blockingMap.clear();
+        assertEquals(0, metrics.getAvailableCount());
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testRate() {
+        BlockingMapStatistics.Rate rate = new BlockingMapStatistics.Rate();
+        long start = System.nanoTime();
+        assertEquals(0.0, rate.perSecond(100, start), 0.0);
+        //first tick sets the rate
+        assertEquals(20.0, rate.perSecond(100, start + BlockingMapStatistics.Rate.TICK_NANOS), 0.001);
+        //no event for a minute decays it
+        double decayed = rate.perSecond(100, start + 13 * BlockingMapStatistics.Rate.TICK_NANOS);
+        assertTrue(decayed < 20.0 * 0.4);
+        assertTrue(decayed > 0);
+    }
+}
@@ -0,0 +1,211 @@
+package org.thavam.util.concurrent.blockingMap;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the ordered take operations of BlockingSkipListMap.
+ */
+public class BlockingSkipListMapTest {
+
+    private static final int FAIL_TIMEOUT = 2000;
+    private NavigableBlockingMap<Long, String> blockingMap;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        blockingMap = new BlockingSkipListMap<Long, String>();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        blockingMap.clear();
+    }
+
+    @Test
+    public void testTakeFirstReturnsSmallestKey() throws InterruptedException {
+        blockingMap.put(30L, "thirty");
+        blockingMap.put(10L, "ten");
+        blockingMap.put(20L, "twenty");
+
+        assertEquals(Long.valueOf(10L), blockingMap.takeFirst().getKey());
+        assertEquals(Long.valueOf(20L), blockingMap.takeFirst().getKey());
+        assertEquals("thirty", blockingMap.takeFirst().getValue());
+        assertTrue(blockingMap.isEmpty());
+        assertNull(blockingMap.takeFirst(10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testPutOnAvailableKeyIsIgnored() {
+        assertNull(blockingMap.put(1L, "one"));
+        assertEquals("one", blockingMap.put(1L, "uno"));
+        assertEquals("one", blockingMap.get(1L));
+        assertEquals(1, blockingMap.size());
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testTakeFirstBlocksUntilAnyKeyIsPut() throws Exception {
+        Future<Map.Entry<Long, String>> consumer = executor.submit(new Callable<Map.Entry<Long, String>>() {
+            @Override
+            public Map.Entry<Long, String> call() throws InterruptedException {
+                return blockingMap.takeFirst();
+            }
+        });
+        Thread.sleep(100);
+        assertFalse(consumer.isDone());
+
+        blockingMap.put(42L, "answer");
+        assertEquals("answer", consumer.get().getValue());
+        assertTrue(blockingMap.isEmpty());
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testTakeCeilingIgnoresSmallerKeys() throws Exception {
+        Future<Map.Entry<Long, String>> consumer = executor.submit(new Callable<Map.Entry<Long, String>>() {
+            @Override
+            public Map.Entry<Long, String> call() throws InterruptedException {
+                return blockingMap.takeCeiling(100L);
+            }
+        });
+        blockingMap.put(5L, "five");
+        Thread.sleep(100);
+        assertFalse(consumer.isDone());
+
+        blockingMap.put(150L, "one fifty");
+        assertEquals(Long.valueOf(150L), consumer.get().getKey());
+        assertEquals("five", blockingMap.get(5L));
+    }
+
+    @Test
+    public void testTakeInRangeExcludesUpperBound() throws InterruptedException {
+        blockingMap.put(20L, "twenty");
+        assertNull(blockingMap.takeInRange(10L, 20L, 50, TimeUnit.MILLISECONDS));
+        assertEquals("twenty", blockingMap.takeInRange(10L, 21L, 50, TimeUnit.MILLISECONDS).getValue());
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testDisjointRangeWaitersEachGetTheirKey() throws Exception {
+        Future<Map.Entry<Long, String>> low = executor.submit(new Callable<Map.Entry<Long, String>>() {
+            @Override
+            public Map.Entry<Long, String> call() throws InterruptedException {
+                return blockingMap.takeInRange(0L, 100L, FAIL_TIMEOUT, TimeUnit.MILLISECONDS);
+            }
+        });
+        Future<Map.Entry<Long, String>> high = executor.submit(new Callable<Map.Entry<Long, String>>() {
+            @Override
+            public Map.Entry<Long, String> call() throws InterruptedException {
+                return blockingMap.takeInRange(100L, 200L, FAIL_TIMEOUT, TimeUnit.MILLISECONDS);
+            }
+        });
+        Thread.sleep(100);
+        blockingMap.put(150L, "high");
+        blockingMap.put(50L, "low");
+
+        assertEquals("low", low.get().getValue());
+        assertEquals("high", high.get().getValue());
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testEachPutWakesOneWaiterOnSameKey() throws Exception {
+        Callable<String> consumer = new Callable<String>() {
+            @Override
+            public String call() throws InterruptedException {
+                return blockingMap.take(7L, FAIL_TIMEOUT, TimeUnit.MILLISECONDS);
+            }
+        };
+        Future<String> first = executor.submit(consumer);
+        Future<String> second = executor.submit(consumer);
+        Thread.sleep(100);
+
+        blockingMap.put(7L, "a");
+        Thread.sleep(100);
+        blockingMap.put(7L, "b");
+
+        String firstValue = first.get();
+        String secondValue = second.get();
+        assertTrue(("a".equals(firstValue) && "b".equals(secondValue))
+                || ("b".equals(firstValue) && "a".equals(secondValue)));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testKeyWaitersAcrossRounds() throws Exception {
+        //the waiters of a key are dropped from the index when the last leaves & indexed again
+        for (int round = 0; round < 50; round++) {
+            Future<String> keyWaiter = executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws InterruptedException {
+                    return blockingMap.take(5L);
+                }
+            });
+            Future<Map.Entry<Long, String>> rangeWaiter = executor.submit(new Callable<Map.Entry<Long, String>>() {
+                @Override
+                public Map.Entry<Long, String> call() throws InterruptedException {
+                    return blockingMap.takeInRange(10L, 20L, FAIL_TIMEOUT, TimeUnit.MILLISECONDS);
+                }
+            });
+            blockingMap.put(15L, "fifteen");
+            blockingMap.put(5L, "five");
+            assertEquals("five", keyWaiter.get());
+            assertEquals("fifteen", rangeWaiter.get().getValue());
+        }
+        assertTrue(blockingMap.isEmpty());
+    }
+
+    @Test
+    public void testViews() {
+        blockingMap.put(3L, "three");
+        blockingMap.put(1L, "one");
+        blockingMap.put(2L, "two");
+
+        assertArrayEquals(new Long[]{1L, 2L, 3L}, blockingMap.keySet().toArray(new Long[0]));
+        assertTrue(blockingMap.values().contains("two"));
+        assertEquals(3, blockingMap.entrySet().size());
+        //removal through a view removes the mapping
+        blockingMap.keySet().remove(2L);
+        assertFalse(blockingMap.isKeyAvailable(2L));
+        blockingMap.entrySet().removeIf(entry -> entry.getKey() == 1L);
+        assertEquals(1, blockingMap.size());
+        assertEquals("three", blockingMap.values().iterator().next());
+        try {
+            blockingMap.keySet().add(4L);
+            fail("addition through a view not supported");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testClearInterruptsWaiters() throws Exception {
+        final NavigableBlockingMap<Long, String> shutdown = new BlockingSkipListMap<Long, String>();
+        Future<Boolean> consumer = executor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                try {
+                    shutdown.takeFirst();
+                    return false;
+                } catch (InterruptedException e) {
+                    return true;
+                }
+            }
+        });
+        Thread.sleep(100);
+        shutdown.clear();
+
+        assertTrue(consumer.get());
+        try {
+            shutdown.takeFirst();
+            fail("IllegalStateException expected after shutdown");
+        } catch (IllegalStateException e) {
+            //expected
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.thavam.util.concurrent.blockingMap;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import static org.junit.Assert.*;
+
+/**
+ * Tests forEach, search & reduce with parallelism thresholds on every
+ * BlockingMap implementation.
+ */
+@RunWith(Parameterized.class)
+public class BulkOperationsTest {
+
+    private static final int FAIL_TIMEOUT = 2000;
+    private static final int MAPPINGS = 10000;
+    private final String kind;
+    private BlockingMap<Integer, Integer> blockingMap;
+    private ExecutorService executor;
+
+    public BulkOperationsTest(String kind) {
+        this.kind = kind;
+    }
+
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> kinds() {
+        return Arrays.asList(new Object[][]{{"hash"}, {"skipList"}, {"sharded"}});
+    }
+
+    @Before
+    public void setUp() {
+        if (kind.equals("hash")) {
+            blockingMap = new BlockingHashMap<Integer, Integer>();
+        } else if (kind.equals("skipList")) {
+            blockingMap = new BlockingSkipListMap<Integer, Integer>();
+        } else {
+            blockingMap = new ShardedBlockingMap<Integer, Integer>(4);
+        }
+        for (int i = 0; i < MAPPINGS; i++) {
+            blockingMap.put(i, i * 2);
+        }
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        blockingMap.clear();
+    }
+
+    @Test
+    public void testForEachVisitsAllMappings() {
+        for (long threshold : new long[]{1, 1000, Long.MAX_VALUE}) {
+            final LongAdder visited = new LongAdder();
+            blockingMap.forEach(threshold, (key, value) -> {
+                assertEquals(key * 2, value.intValue());
+                visited.increment();
+            });
+            assertEquals(MAPPINGS, visited.sum());
+        }
+    }
+
+    @Test
+    public void testSearch() {
+        assertEquals(Integer.valueOf(4242), blockingMap.search(1, (key, value) -> (key == 2121) ? value : null));
+        assertNull(blockingMap.search(1, (key, value) -> (value < 0) ? key : null));
+    }
+
+    @Test
+    public void testReduce() {
+        long expected = (long) MAPPINGS * (MAPPINGS - 1);
+        assertEquals(Long.valueOf(expected),
+                blockingMap.reduce(1, (key, value) -> value.longValue(), Long::sum));
+        assertEquals(Long.valueOf(expected),
+                blockingMap.reduce(Long.MAX_VALUE, (key, value) -> value.longValue(), Long::sum));
+        assertNull(blockingMap.reduce(1, (key, value) -> null, (Long a, Long b) -> a + b));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testBulkOperationsSkipPendingKeys() throws Exception {
+        Future<Integer> consumer = executor.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() throws InterruptedException {
+                return blockingMap.take(-1);
+            }
+        });
+        Thread.sleep(100);
+        assertEquals(Integer.valueOf(MAPPINGS),
+                blockingMap.reduce(1, (key, value) -> 1, Integer::sum));
+        blockingMap.put(-1, 1);
+        assertEquals(Integer.valueOf(1), consumer.get());
+    }
+}
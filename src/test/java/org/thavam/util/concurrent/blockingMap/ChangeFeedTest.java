@@ -0,0 +1,211 @@
+package org.thavam.util.concurrent.blockingMap;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the change feed of BlockingHashMap.
+ */
+public class ChangeFeedTest {
+
+    private static final int FAIL_TIMEOUT = 10000;
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private BlockingHashMap<String, String> blockingMap;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        blockingMap = new BlockingHashMap<String, String>();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        blockingMap.clear();
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testEvents() throws Exception {
+        ChangeFeed<String, String> feed = blockingMap.changeFeed(100);
+        assertEquals(128, feed.getCapacity());
+        assertSame(feed, blockingMap.changeFeed());
+        ChangeFeed.Subscription<String, String> subscription = feed.subscribe();
+        assertNull(subscription.poll());
+
+        blockingMap.put("a", "1");
+        //ignored put, no event
+        blockingMap.put("a", "2");
+        assertEquals("1", blockingMap.take("a"));
+        assertNull(blockingMap.take("b", 10, TimeUnit.MILLISECONDS));
+        Map<String, String> batch = new HashMap<String, String>();
+        batch.put("c", "3");
+        blockingMap.putAll(batch);
+        assertEquals("3", blockingMap.remove("c"));
+
+        ChangeFeed.Type[] expected = {ChangeFeed.Type.PUT, ChangeFeed.Type.TAKE, ChangeFeed.Type.EXPIRE,
+            ChangeFeed.Type.PUT, ChangeFeed.Type.TAKE};
+        String[] keys = {"a", "a", "b", "c", "c"};
+        String[] values = {"1", "1", null, "3", "3"};
+        long last = -1;
+        for (int i = 0; i < expected.length; i++) {
+            ChangeFeed.Event<String, String> event = subscription.poll();
+            assertEquals(expected[i], event.getType());
+            assertEquals(keys[i], event.getKey());
+            assertEquals(values[i], event.getValue());
+            assertTrue(event.getSequence() > last);
+            last = event.getSequence();
+        }
+        assertNull(subscription.poll());
+        assertEquals(feed.getNextSequence(), subscription.getNextSequence());
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testClearEvent() throws Exception {
+        BlockingHashMap<String, String> shutdown = new BlockingHashMap<String, String>();
+        ChangeFeed.Subscription<String, String> subscription = shutdown.changeFeed().subscribe();
+        shutdown.put("a", "1");
+        shutdown.clear();
+        assertEquals(ChangeFeed.Type.PUT, subscription.poll().getType());
+        ChangeFeed.Event<String, String> event = subscription.poll();
+        assertEquals(ChangeFeed.Type.CLEAR, event.getType());
+        assertNull(event.getKey());
+        assertNull(subscription.poll());
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testLaggingSubscriberToldToResync() throws Exception {
+        ChangeFeed<String, String> feed = blockingMap.changeFeed(16);
+        ChangeFeed.Subscription<String, String> lagging = feed.subscribe();
+        //producers are not held up by the subscriber
+        for (int i = 0; i < 100; i++) {
+            blockingMap.put("key" + i, "value" + i);
+        }
+        try {
+            lagging.poll();
+            fail("overwritten events read");
+        } catch (ChangeFeed.LaggedException expected) {
+            assertEquals(0, expected.getMissedSequence());
+        }
+        //the last events are still there
+        ChangeFeed.Subscription<String, String> recent = feed.subscribe(feed.getNextSequence() - 16);
+        assertEquals("key84", recent.poll().getKey());
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testMirrorFollowsConcurrentUpdates() throws Exception {
+        final ChangeFeed<String, String> feed = blockingMap.changeFeed(1 << 20);
+        final ChangeFeed.Subscription<String, String> subscription = feed.subscribe();
+        final int threads = 4;
+        final int operations = 20000;
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    try {
+                        for (int i = 0; i < operations; i++) {
+                            //few keys, put & take of the same key race
+                            String key = "key" + random.nextInt(16);
+                            if (random.nextBoolean()) {
+                                blockingMap.put(key, Thread.currentThread().getName() + i);
+                            } else {
+                                blockingMap.take(key, 0, TimeUnit.NANOSECONDS);
+                            }
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                    return null;
+                }
+            });
+        }
+        Future<Map<String, String>> mirror = executor.submit(new Callable<Map<String, String>>() {
+            @Override
+            public Map<String, String> call() throws Exception {
+                Map<String, String> mirror = new HashMap<String, String>();
+                while ((done.getCount() > 0) || (subscription.getNextSequence() < feed.getNextSequence())) {
+                    ChangeFeed.Event<String, String> event = subscription.poll(10, TimeUnit.MILLISECONDS);
+                    if (event != null) {
+                        apply(mirror, event);
+                    }
+                }
+                return mirror;
+            }
+        });
+        Map<String, String> mirrored = mirror.get();
+        assertEquals(copy(blockingMap), mirrored);
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testResyncFromSnapshot() throws Exception {
+        ChangeFeed<String, String> feed = blockingMap.changeFeed(1024);
+        for (int i = 0; i < 100; i++) {
+            blockingMap.put("key" + i, "value" + i);
+        }
+        //subscribe before the snapshot, events reflected in it are applied again
+        ChangeFeed.Subscription<String, String> subscription = feed.subscribe();
+        blockingMap.take("key1");
+        Path file = new File(folder.getRoot(), "map.snapshot").toPath();
+        blockingMap.snapshot(file, Serializers.utf8(), Serializers.utf8());
+        blockingMap.take("key2");
+        blockingMap.put("key1", "again");
+        blockingMap.put("late", "late value");
+
+        BlockingHashMap<String, String> standby = new BlockingHashMap<String, String>();
+        standby.restore(file, Serializers.utf8(), Serializers.utf8());
+        Map<String, String> mirror = copy(standby);
+        ChangeFeed.Event<String, String> event;
+        while ((event = subscription.poll()) != null) {
+            apply(mirror, event);
+        }
+        assertEquals(copy(blockingMap), mirror);
+        standby.clear();
+    }
+
+    private static void apply(Map<String, String> mirror, ChangeFeed.Event<String, String> event) {
+        switch (event.getType()) {
+            case PUT:
+                if (!mirror.containsKey(event.getKey())) {
+                    mirror.put(event.getKey(), event.getValue());
+                }
+                break;
+            case TAKE:
+                mirror.remove(event.getKey());
+                break;
+            case CLEAR:
+                mirror.clear();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static Map<String, String> copy(BlockingHashMap<String, String> map) {
+        Map<String, String> copy = new HashMap<String, String>();
+        List<String> keys = new ArrayList<String>(map.keySet());
+        for (String key : keys) {
+            copy.put(key, map.get(key));
+        }
+        return copy;
+    }
+}
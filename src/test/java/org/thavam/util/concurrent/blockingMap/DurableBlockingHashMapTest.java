@@ -0,0 +1,193 @@
+package org.thavam.util.concurrent.blockingMap;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Tests DurableBlockingHashMap rebuilds its available mappings from the log.
+ */
+public class DurableBlockingHashMapTest {
+
+    private static final int FAIL_TIMEOUT = 5000;
+    private static final int SEGMENT_SIZE = 4096;
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private Path directory;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        directory = folder.getRoot().toPath().resolve("wal");
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private DurableBlockingHashMap<String, String> open() throws IOException {
+        return new DurableBlockingHashMap<String, String>(directory, Serializers.utf8(), Serializers.utf8(),
+                SEGMENT_SIZE, 1, TimeUnit.MILLISECONDS);
+    }
+
+    private List<Path> segments() throws IOException {
+        List<Path> segments = new ArrayList<Path>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                segments.add(file);
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testUnconsumedMappingsSurviveRestart() throws Exception {
+        DurableBlockingHashMap<String, String> map = open();
+        for (int i = 0; i < 10; i++) {
+            map.put("key " + i, "value " + i);
+        }
+        assertEquals("value 3", map.take("key 3"));
+        assertEquals("value 4", map.remove("key 4"));
+        assertEquals("value 5", map.takeMatching(k -> k.endsWith("5"), 0, TimeUnit.MILLISECONDS).getValue());
+        map.clear();
+
+        map = open();
+        assertEquals(7, map.size());
+        assertFalse(map.isKeyAvailable("key 3"));
+        assertEquals("value 0", map.take("key 0"));
+        assertEquals("value 9", map.get("key 9"));
+        map.clear();
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testRetakenKeySurvivesRestart() throws Exception {
+        DurableBlockingHashMap<String, String> map = open();
+        map.put("k", "first");
+        assertEquals("first", map.take("k"));
+        map.put("k", "second");
+        map.clear();
+
+        map = open();
+        assertEquals("second", map.get("k"));
+        map.clear();
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testPutWakesUpConsumer() throws Exception {
+        final DurableBlockingHashMap<String, String> map = open();
+        Future<String> consumer = executor.submit(new Callable<String>() {
+            @Override
+            public String call() throws InterruptedException {
+                return map.take("k");
+            }
+        });
+        Thread.sleep(100);
+        map.put("k", "v");
+        assertEquals("v", consumer.get());
+        map.clear();
+        assertTrue(open().isEmpty());
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testSegmentsRotateAndAreCompactedWhileRunning() throws Exception {
+        DurableBlockingHashMap<String, String> map = open();
+        StringBuilder payload = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            payload.append('x');
+        }
+        long rotations = 0;
+        Path first = null;
+        for (int i = 0; i < 1000; i++) {
+            map.put("key " + i, payload.toString());
+            if (i % 10 != 0) {
+                map.take("key " + i);
+            }
+            List<Path> segments = segments();
+            //the current segment, the full ones & one forced late
+            assertTrue(segments.size() <= DurableBlockingHashMap.MAX_SEALED_SEGMENTS + 2);
+            if (!segments.get(0).equals(first)) {
+                first = segments.get(0);
+                rotations++;
+            }
+        }
+        assertTrue(rotations > 5);
+        map.clear();
+
+        map = open();
+        assertEquals(100, map.size());
+        assertEquals("value of key 0", payload.toString(), map.get("key 0"));
+        map.clear();
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testSegmentsRotateAndAreCompactedOnRestart() throws Exception {
+        DurableBlockingHashMap<String, String> map = open();
+        StringBuilder payload = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            payload.append('x');
+        }
+        for (int i = 0; i < 200; i++) {
+            map.put("key " + i, payload.toString());
+            if (i % 10 != 0) {
+                map.take("key " + i);
+            }
+        }
+        map.clear();
+        assertTrue(segments().size() > 1);
+
+        map = open();
+        assertEquals(20, map.size());
+        assertEquals(1, segments().size());
+        map.clear();
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testTornTailIsIgnored() throws Exception {
+        DurableBlockingHashMap<String, String> map = open();
+        map.put("a", "1");
+        map.put("b", "2");
+        map.clear();
+
+        //corrupt the last byte of the second record
+        Path segment = segments().get(0);
+        int recordLength = 8 + 13 + 1 + 1;
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(2 * recordLength - 1);
+            file.write('x');
+        }
+
+        map = open();
+        assertEquals("1", map.get("a"));
+        assertFalse(map.isKeyAvailable("b"));
+        map.clear();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testAtomicPutAllNotSupported() throws IOException {
+        DurableBlockingHashMap<String, String> map = open();
+        try {
+            map.putAll(Collections.singletonMap("a", "1"), true);
+        } finally {
+            map.clear();
+        }
+    }
+}
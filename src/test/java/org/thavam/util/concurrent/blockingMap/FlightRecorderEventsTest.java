@@ -0,0 +1,128 @@
+package org.thavam.util.concurrent.blockingMap;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the Flight Recorder events of BlockingHashMap.
+ */
+public class FlightRecorderEventsTest {
+
+    private static final int FAIL_TIMEOUT = 10000;
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private List<RecordedEvent> eventsOf(Recording recording, String name) throws Exception {
+        Path file = folder.newFile().toPath();
+        recording.dump(file);
+        List<RecordedEvent> events = new ArrayList<RecordedEvent>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            if (event.getEventType().getName().equals(name)) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testSlowOperationsRecorded() throws Exception {
+        assertTrue(FlightRecorderEvents.isAvailable());
+        BlockingMapMetrics metrics = new BlockingMapMetrics();
+        final BlockingHashMap<String, String> blockingMap = new BlockingHashMap<String, String>(metrics);
+        try (Recording recording = new Recording()) {
+            recording.enable("org.thavam.blockingMap.TakeCompleted").withThreshold(Duration.ofMillis(20));
+            recording.enable("org.thavam.blockingMap.TakeTimedOut").withThreshold(Duration.ofMillis(20));
+            recording.enable("org.thavam.blockingMap.PutHandoff").withThreshold(Duration.ZERO);
+            recording.enable("org.thavam.blockingMap.Shutdown");
+            recording.start();
+
+            //fast, below the threshold
+            blockingMap.put("fast", "1");
+            blockingMap.take("fast");
+
+            Future<String> consumer = executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws InterruptedException {
+                    return blockingMap.take("slow");
+                }
+            });
+            while (metrics.getWaitingCount() == 0) {
+                Thread.sleep(1);
+            }
+            Thread.sleep(50);
+            blockingMap.put("slow", "2");
+            assertEquals("2", consumer.get());
+
+            Future<String> batchConsumer = executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws InterruptedException {
+                    return blockingMap.take("batched");
+                }
+            });
+            while (metrics.getWaitingCount() == 0) {
+                Thread.sleep(1);
+            }
+            blockingMap.putAll(Collections.singletonMap("batched", "4"));
+            assertEquals("4", batchConsumer.get());
+
+            assertNull(blockingMap.take("missing", 30, TimeUnit.MILLISECONDS));
+            blockingMap.put("left", "3");
+            blockingMap.clear();
+            recording.stop();
+
+            List<RecordedEvent> completed = eventsOf(recording, "org.thavam.blockingMap.TakeCompleted");
+            assertEquals(1, completed.size());
+            assertEquals("slow".hashCode(), completed.get(0).getInt("keyHash"));
+            assertTrue(completed.get(0).getDuration().toMillis() >= 50);
+
+            List<RecordedEvent> timedOut = eventsOf(recording, "org.thavam.blockingMap.TakeTimedOut");
+            assertEquals(1, timedOut.size());
+            assertEquals("missing".hashCode(), timedOut.get(0).getInt("keyHash"));
+
+            List<RecordedEvent> handoffs = eventsOf(recording, "org.thavam.blockingMap.PutHandoff");
+            //puts of a batch recorded as single puts
+            Set<Integer> handedOff = new HashSet<Integer>();
+            for (RecordedEvent handoff : handoffs) {
+                handedOff.add(handoff.getInt("keyHash"));
+                assertEquals(1, handoff.getInt("waitersWoken"));
+            }
+            assertEquals(new HashSet<Integer>(Arrays.asList("slow".hashCode(), "batched".hashCode())), handedOff);
+
+            List<RecordedEvent> shutdowns = eventsOf(recording, "org.thavam.blockingMap.Shutdown");
+            assertEquals(1, shutdowns.size());
+            assertEquals(1, shutdowns.get(0).getInt("mappingsDiscarded"));
+            assertEquals(0, shutdowns.get(0).getInt("waitersAbandoned"));
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package org.thavam.util.concurrent.blockingMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the hot key tracking of BlockingHashMap.
+ */
+public class HotKeyTrackerTest {
+
+    private static final int FAIL_TIMEOUT = 10000;
+    private BlockingMapMetrics metrics;
+    private BlockingHashMap<String, String> blockingMap;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        metrics = new BlockingMapMetrics();
+        blockingMap = new BlockingHashMap<String, String>(metrics);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        blockingMap.clear();
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testContendedKey() throws Exception {
+        HotKeyTracker<String> tracker = blockingMap.trackHotKeys(8, 1);
+        List<Future<String>> consumers = new ArrayList<Future<String>>();
+        for (int i = 0; i < 3; i++) {
+            consumers.add(executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws InterruptedException {
+                    return blockingMap.take("hot");
+                }
+            }));
+        }
+        while (metrics.getWaitingCount() < 3) {
+            Thread.sleep(1);
+        }
+        blockingMap.put("hot", "value");
+        int taken = 0;
+        for (Future<String> consumer : consumers) {
+            if (consumer.get() != null) {
+                taken++;
+            }
+        }
+        assertEquals(1, taken);
+        blockingMap.put("hot", "1");
+        blockingMap.put("hot", "2");
+        blockingMap.put("cold", "1");
+
+        List<HotKeyTracker.HotKey<String>> hotKeys = tracker.getHotKeys();
+        assertEquals(1, hotKeys.size());
+        HotKeyTracker.HotKey<String> hot = hotKeys.get(0);
+        assertEquals("hot", hot.getKey());
+        assertEquals(3, hot.getWaits());
+        assertEquals(2, hot.getLostTakes());
+        assertEquals(1, hot.getDuplicatePuts());
+        assertEquals(6, hot.getCount());
+        assertEquals(0, hot.getError());
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testDuplicatePutsOfBatchesTracked() {
+        HotKeyTracker<String> tracker = blockingMap.trackHotKeys(8, 1);
+        blockingMap.put("hot", "1");
+        Map<String, String> batch = new HashMap<String, String>();
+        batch.put("hot", "2");
+        batch.put("cold", "1");
+        blockingMap.putAll(batch);
+        blockingMap.putAll(batch, true);
+
+        List<HotKeyTracker.HotKey<String>> hotKeys = tracker.getHotKeys();
+        assertEquals(2, hotKeys.size());
+        assertEquals("hot", hotKeys.get(0).getKey());
+        assertEquals(2, hotKeys.get(0).getDuplicatePuts());
+        assertEquals("cold", hotKeys.get(1).getKey());
+        assertEquals(1, hotKeys.get(1).getDuplicatePuts());
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testClosedOnShutdown() {
+        BlockingHashMap<String, String> shutdown = new BlockingHashMap<String, String>();
+        HotKeyTracker<String> tracker = shutdown.trackHotKeys(8, 1);
+        shutdown.clear();
+        assertTrue(tracker.isClosed());
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testSketchKeepsHeavyHitters() throws Exception {
+        HotKeyTracker<String> tracker = blockingMap.trackHotKeys(8, 1);
+        //one heavy key among many light ones
+        for (int i = 0; i < 1000; i++) {
+            tracker.duplicatePut("heavy");
+            tracker.duplicatePut("light" + i);
+            if ((i % 2) == 0) {
+                tracker.waited("medium");
+            }
+        }
+        List<HotKeyTracker.HotKey<String>> hotKeys = tracker.getHotKeys(2);
+        assertEquals(2, hotKeys.size());
+        assertEquals("heavy", hotKeys.get(0).getKey());
+        assertTrue(hotKeys.get(0).getCount() >= 1000);
+        assertTrue(hotKeys.get(0).getCount() - hotKeys.get(0).getError() <= 1000);
+        //above a share of 1 / capacity, tracked whatever the order of events
+        boolean medium = false;
+        for (HotKeyTracker.HotKey<String> hotKey : tracker.getHotKeys()) {
+            medium |= hotKey.getKey().equals("medium") && (hotKey.getCount() >= 500);
+        }
+        assertTrue(medium);
+        assertEquals(8, tracker.getHotKeys().size());
+
+        tracker.reset();
+        assertTrue(tracker.getHotKeys().isEmpty());
+        try {
+            blockingMap.trackHotKeys();
+            fail("a single tracker runs at a time");
+        } catch (IllegalStateException expected) {
+        }
+        tracker.close();
+        blockingMap.put("key", "1");
+        blockingMap.put("key", "2");
+        assertTrue(tracker.getHotKeys().isEmpty());
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testSampling() {
+        HotKeyTracker<String> tracker = blockingMap.trackHotKeys(4, 16);
+        Consumer<String> put = tracker::duplicatePut;
+        for (int i = 0; i < 16000; i++) {
+            put.accept("sampled");
+        }
+        long estimate = tracker.getHotKeys().get(0).getCount();
+        //about a thousand events sampled
+        assertTrue(Math.abs(estimate - 16000) < 16000 * 0.2);
+        assertEquals(0, estimate % 16);
+    }
+}
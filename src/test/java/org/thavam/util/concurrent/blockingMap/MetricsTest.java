@@ -0,0 +1,157 @@
+package org.thavam.util.concurrent.blockingMap;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests BlockingMapMetrics recorded by BlockingHashMap & LatencyHistogram.
+ */
+public class MetricsTest {
+
+    private static final int FAIL_TIMEOUT = 10000;
+    private BlockingMapMetrics metrics;
+    private BlockingHashMap<String, String> blockingMap;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        metrics = new BlockingMapMetrics();
+        blockingMap = new BlockingHashMap<String, String>(metrics);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        blockingMap.clear();
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000000, histogram.getMax());
+        assertEquals(500500, histogram.getMean(), 1);
+        //within the 3% precision of a bucket
+        assertEquals(500000, histogram.getValueAtPercentile(50), 500000 * 0.04);
+        assertEquals(990000, histogram.getValueAtPercentile(99), 990000 * 0.04);
+        assertEquals(1000000, histogram.getValueAtPercentile(100));
+
+        //buckets cover the whole range without gaps
+        for (long value : new long[]{0, 31, 32, 33, 63, 64, 1000, 123456789, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(LatencyHistogram.highestValueOf(index) >= value);
+            assertTrue((index == 0) || (LatencyHistogram.highestValueOf(index - 1) < value));
+        }
+        histogram.record(-5);
+        assertEquals(1001, histogram.getCount());
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testCountersAndLatencies() throws Exception {
+        Future<String> consumer = executor.submit(new Callable<String>() {
+            @Override
+            public String call() throws InterruptedException {
+                return blockingMap.take("waited");
+            }
+        });
+        while (metrics.getWaitingCount() == 0) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(50);
+        blockingMap.put("waited", "value");
+        assertEquals("value", consumer.get());
+        assertEquals(0, metrics.getWaitingCount());
+        assertTrue(metrics.getTakeWait().getMax() >= TimeUnit.MILLISECONDS.toNanos(50));
+
+        blockingMap.put("available", "1");
+        assertEquals("1", blockingMap.put("available", "2"));
+        Thread.sleep(20);
+        assertEquals("1", blockingMap.take("available"));
+        assertTrue(metrics.getHandoffLatency().getMax() >= TimeUnit.MILLISECONDS.toNanos(20));
+
+        assertNull(blockingMap.take("missing", 10, TimeUnit.MILLISECONDS));
+        blockingMap.put("a", "1");
+        blockingMap.put("b", "2");
+        Map<String, String> both = blockingMap.takeAll(Arrays.asList("a", "b"), 1, TimeUnit.SECONDS);
+        assertEquals(2, both.size());
+        CompletableFuture<String> async = blockingMap.takeAsync("async");
+        blockingMap.put("async", "3");
+        assertEquals("3", async.get());
+
+        assertEquals(5, metrics.getPutCount());
+        assertEquals(1, metrics.getDuplicatePutCount());
+        assertEquals(5, metrics.getTakeCount());
+        assertEquals(1, metrics.getTimeoutCount());
+        assertEquals(5, metrics.getHandoffLatency().getCount());
+        assertEquals(6, metrics.getTakeWait().getCount());
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testRemoveIsNeitherParkedNorTimedOut() {
+        final int[] parked = {0};
+        BlockingMapMetrics counting = new BlockingMapMetrics() {
+            @Override
+            public void waiterParked() {
+                parked[0]++;
+                super.waiterParked();
+            }
+        };
+        BlockingHashMap<String, String> map = new BlockingHashMap<String, String>(counting);
+        assertNull(map.remove("missing"));
+        map.put("k", "v");
+        assertEquals("v", map.remove("k"));
+        assertEquals(0, parked[0]);
+        assertEquals(0, counting.getTimeoutCount());
+        assertEquals(1, counting.getTakeCount());
+        map.clear();
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testAbandonedOnShutdown() throws Exception {
+        BlockingMapMetrics abandoned = new BlockingMapMetrics();
+        final BlockingHashMap<String, String> shutdown = new BlockingHashMap<String, String>(abandoned);
+        for (int i = 0; i < 3; i++) {
+            final String key = "never" + i;
+            executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws InterruptedException {
+                    return shutdown.take(key);
+                }
+            });
+        }
+        shutdown.takeAsync("async never");
+        while (abandoned.getWaitingCount() < 3) {
+            Thread.sleep(1);
+        }
+        shutdown.clear();
+        assertEquals(4, abandoned.getAbandonedCount());
+        while (abandoned.getWaitingCount() > 0) {
+            Thread.sleep(1);
+        }
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testUnmeteredMapRecordsNothing() throws Exception {
+        MetricsRecorder.NOOP.published();
+        BlockingHashMap<String, String> unmetered = new BlockingHashMap<String, String>();
+        unmetered.put("k", "v");
+        assertEquals("v", unmetered.take("k"));
+        assertEquals(0, metrics.getPutCount());
+        unmetered.clear();
+    }
+}
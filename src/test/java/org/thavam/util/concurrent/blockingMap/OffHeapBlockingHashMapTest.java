@@ -0,0 +1,151 @@
+package org.thavam.util.concurrent.blockingMap;
+
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests OffHeapBlockingHashMap & its pool of direct buffers.
+ */
+public class OffHeapBlockingHashMapTest {
+
+    private static final int FAIL_TIMEOUT = 2000;
+    private DirectBufferPool pool;
+    private OffHeapBlockingHashMap<String> blockingMap;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        pool = new DirectBufferPool(1024, 64 * 1024, 1024 * 1024);
+        blockingMap = new OffHeapBlockingHashMap<String>(pool);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        blockingMap.clear();
+    }
+
+    private static ByteBuffer bytes(int length, byte fill) {
+        ByteBuffer bytes = ByteBuffer.allocate(length);
+        for (int i = 0; i < length; i++) {
+            bytes.put(fill);
+        }
+        bytes.flip();
+        return bytes;
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testConsumerReadsReadOnlyDirectView() throws Exception {
+        Future<PooledPayload> consumer = executor.submit(new Callable<PooledPayload>() {
+            @Override
+            public PooledPayload call() throws InterruptedException {
+                return blockingMap.take("response");
+            }
+        });
+        Thread.sleep(100);
+        ByteBuffer source = bytes(3000, (byte) 7);
+        assertTrue(blockingMap.putBytes("response", source));
+        assertEquals(0, source.position());
+
+        try (PooledPayload payload = consumer.get()) {
+            ByteBuffer view = payload.buffer();
+            assertTrue(view.isDirect());
+            assertTrue(view.isReadOnly());
+            assertEquals(3000, view.remaining());
+            assertEquals(7, view.get(2999));
+            try {
+                view.put((byte) 1);
+                fail("ReadOnlyBufferException expected");
+            } catch (ReadOnlyBufferException e) {
+                //expected
+            }
+        }
+        assertEquals(0, pool.getAllocatedBytes());
+        assertEquals(4096, pool.getPooledBytes());
+    }
+
+    @Test
+    public void testReleasedBuffersAreReused() throws InterruptedException {
+        blockingMap.putBytes("a", bytes(2000, (byte) 1));
+        blockingMap.take("a").release();
+        assertEquals(2048, pool.getPooledBytes());
+
+        blockingMap.putBytes("b", bytes(1500, (byte) 2));
+        assertEquals(0, pool.getPooledBytes());
+        assertEquals(2048, pool.getAllocatedBytes());
+
+        PooledPayload payload = blockingMap.take("b");
+        payload.release();
+        payload.release();
+        assertTrue(payload.isReleased());
+        assertEquals(2048, pool.getPooledBytes());
+        try {
+            payload.buffer();
+            fail("IllegalStateException expected after release");
+        } catch (IllegalStateException e) {
+            //expected
+        }
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testConcurrentReleasesStayWithinPoolLimit() throws Exception {
+        //twice the pool limit in buffers, released by competing threads
+        final PooledPayload[] payloads = new PooledPayload[32];
+        for (int i = 0; i < payloads.length; i++) {
+            payloads[i] = pool.copyOf(new byte[64 * 1024]);
+        }
+        Future<?>[] releases = new Future<?>[4];
+        for (int t = 0; t < releases.length; t++) {
+            final int first = t;
+            releases[t] = executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = first; i < payloads.length; i += 4) {
+                        payloads[i].release();
+                    }
+                }
+            });
+        }
+        for (Future<?> release : releases) {
+            release.get();
+        }
+        assertEquals(1024 * 1024, pool.getPooledBytes());
+        assertEquals(0, pool.getAllocatedBytes());
+    }
+
+    @Test
+    public void testPutOnAvailableKeyReleasesCopy() {
+        assertTrue(blockingMap.putBytes("k", bytes(10, (byte) 1)));
+        assertFalse(blockingMap.putBytes("k", bytes(10, (byte) 2)));
+        assertEquals(1024, pool.getAllocatedBytes());
+        assertEquals(1, blockingMap.get("k").buffer().get(0));
+    }
+
+    @Test
+    public void testLargePayloadsAreNotPooled() throws InterruptedException {
+        blockingMap.putBytes("large", bytes(100 * 1024, (byte) 3));
+        blockingMap.take("large").release();
+        assertEquals(0, pool.getPooledBytes());
+        assertEquals(0, pool.getAllocatedBytes());
+    }
+
+    @Test
+    public void testClearReleasesAvailablePayloads() {
+        OffHeapBlockingHashMap<String> shutdown = new OffHeapBlockingHashMap<String>(pool);
+        for (int i = 0; i < 10; i++) {
+            shutdown.putBytes("key " + i, bytes(100, (byte) i));
+        }
+        shutdown.clear();
+        assertEquals(0, pool.getAllocatedBytes());
+        assertEquals(10 * 1024, pool.getPooledBytes());
+    }
+}
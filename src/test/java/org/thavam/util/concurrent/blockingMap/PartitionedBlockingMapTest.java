@@ -0,0 +1,208 @@
+package org.thavam.util.concurrent.blockingMap;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests PartitionedBlockingMap over BlockingMapServers on loopback.
+ */
+public class PartitionedBlockingMapTest {
+
+    private static final int FAIL_TIMEOUT = 10000;
+    private static final int NODES = 3;
+    private static final int KEYS = 3000;
+    private final List<BlockingHashMap<String, String>> nodeMaps = new ArrayList<BlockingHashMap<String, String>>();
+    private final List<BlockingMapServer<String, String>> servers = new ArrayList<BlockingMapServer<String, String>>();
+    private PartitionedBlockingMap<String, String> blockingMap;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        List<InetSocketAddress> addresses = new ArrayList<InetSocketAddress>();
+        for (int i = 0; i < NODES; i++) {
+            addresses.add(startServer());
+        }
+        blockingMap = new PartitionedBlockingMap<String, String>(addresses, Serializers.utf8(), Serializers.utf8());
+        executor = Executors.newCachedThreadPool();
+    }
+
+    private InetSocketAddress startServer() throws Exception {
+        BlockingHashMap<String, String> map = new BlockingHashMap<String, String>();
+        BlockingMapServer<String, String> server = new BlockingMapServer<String, String>(map,
+                Serializers.utf8(), Serializers.utf8(), new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        nodeMaps.add(map);
+        servers.add(server);
+        return server.getLocalAddress();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        blockingMap.close();
+        for (BlockingMapServer<String, String> server : servers) {
+            server.close();
+        }
+        for (BlockingHashMap<String, String> map : nodeMaps) {
+            map.clear();
+        }
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testRing() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<String>(64);
+        ring = ring.withNode("a").withNode("b").withNode("c");
+        assertSame(ring, ring.withNode("b"));
+        ConsistentHashRing<String> grown = ring.withNode("d");
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            byte[] key = ("key" + i).getBytes();
+            String before = ring.nodeFor(key);
+            String after = grown.nodeFor(key);
+            if (!before.equals(after)) {
+                //keys only move to the new node
+                assertEquals("d", after);
+                moved++;
+            }
+        }
+        //about a quarter of the keys
+        assertTrue("moved " + moved, (moved > KEYS / 8) && (moved < KEYS / 2));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testDistribution() throws Exception {
+        Map<String, String> batch = new HashMap<String, String>();
+        for (int i = 0; i < KEYS; i++) {
+            batch.put("key" + i, "value" + i);
+        }
+        blockingMap.putAll(batch);
+        assertEquals(KEYS, blockingMap.size());
+        assertEquals(KEYS, blockingMap.keySet().size());
+        for (int n = 0; n < NODES; n++) {
+            BlockingHashMap<String, String> map = nodeMaps.get(n);
+            assertTrue("node " + n + " holds " + map.size(), map.size() > KEYS / (NODES * 2));
+            for (String key : map.keySet()) {
+                assertEquals(servers.get(n).getLocalAddress(), blockingMap.nodeFor(key));
+            }
+        }
+        assertEquals("value7", blockingMap.get("key7"));
+        assertTrue(blockingMap.isKeyAvailable("key8"));
+        assertEquals("value8", blockingMap.remove("key8"));
+        assertEquals("value9", blockingMap.take("key9"));
+        assertEquals(KEYS - 2, blockingMap.size());
+
+        //views over the snapshots of all nodes
+        assertEquals(KEYS - 2, blockingMap.entrySet().size());
+        assertEquals(KEYS - 2, blockingMap.values().size());
+        assertTrue(blockingMap.containsValue("value" + (KEYS - 1)));
+        assertFalse(blockingMap.containsValue("value9"));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testTakesOnAllNodes() throws Exception {
+        List<Future<String>> consumers = new ArrayList<Future<String>>();
+        for (int i = 0; i < 30; i++) {
+            final String key = "pending" + i;
+            consumers.add(executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws InterruptedException {
+                    return blockingMap.take(key);
+                }
+            }));
+        }
+        Thread.sleep(100);
+        for (int i = 0; i < 30; i++) {
+            blockingMap.put("pending" + i, "value" + i);
+        }
+        for (int i = 0; i < 30; i++) {
+            assertEquals("value" + i, consumers.get(i).get());
+        }
+        assertTrue(blockingMap.isEmpty());
+        assertNull(blockingMap.take("missing", 50, TimeUnit.MILLISECONDS));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testAddNodeMovesMappingsAndTakes() throws Exception {
+        for (int i = 0; i < KEYS; i++) {
+            blockingMap.put("key" + i, "value" + i);
+        }
+        List<String> pendingKeys = new ArrayList<String>();
+        List<CompletableFuture<String>> pending = new ArrayList<CompletableFuture<String>>();
+        for (int i = 0; i < 200; i++) {
+            pendingKeys.add("pending" + i);
+            pending.add(blockingMap.takeAsync("pending" + i, -1, TimeUnit.MILLISECONDS));
+        }
+        CompletableFuture<String> timed = blockingMap.takeAsync("timed", 200, TimeUnit.MILLISECONDS);
+        Thread.sleep(50);
+
+        InetSocketAddress added = startServer();
+        int moved = blockingMap.addNode(added);
+        assertEquals(0, blockingMap.addNode(added));
+        assertEquals(NODES + 1, blockingMap.getNodes().size());
+        BlockingHashMap<String, String> addedMap = nodeMaps.get(NODES);
+        assertEquals(moved, addedMap.size());
+        assertTrue("moved " + moved, moved > 0);
+        for (String key : addedMap.keySet()) {
+            assertEquals(added, blockingMap.nodeFor(key));
+        }
+        //every mapping still reachable through its new owner
+        assertEquals(KEYS, blockingMap.size());
+        for (int i = 0; i < KEYS; i++) {
+            assertEquals("value" + i, blockingMap.get("key" + i));
+        }
+
+        int followed = 0;
+        for (int i = 0; i < pendingKeys.size(); i++) {
+            if (added.equals(blockingMap.nodeFor(pendingKeys.get(i)))) {
+                followed++;
+            }
+            blockingMap.put(pendingKeys.get(i), "value" + i);
+        }
+        assertTrue(followed > 0);
+        for (int i = 0; i < pending.size(); i++) {
+            assertEquals("value" + i, pending.get(i).get());
+        }
+        assertNull(timed.get());
+        assertEquals(KEYS, blockingMap.size());
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testCancelledTakeWithdrawn() throws Exception {
+        CompletableFuture<String> cancelled = blockingMap.takeAsync("cancelled", -1, TimeUnit.MILLISECONDS);
+        Thread.sleep(50);
+        cancelled.cancel(false);
+        Thread.sleep(100);
+        blockingMap.put("cancelled", "kept");
+        assertEquals("kept", blockingMap.get("cancelled"));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testClosedMap() throws Exception {
+        CompletableFuture<String> pending = blockingMap.takeAsync("never", -1, TimeUnit.MILLISECONDS);
+        blockingMap.clear();
+        assertTrue(pending.isCompletedExceptionally());
+        try {
+            blockingMap.put("k", "v");
+            fail("put on closed map");
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            blockingMap.clear();
+            fail("closed twice");
+        } catch (IllegalStateException expected) {
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package org.thavam.util.concurrent.blockingMap;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests putAll & takeAll on BlockingHashMap.
+ */
+public class PutAllTest {
+
+    private static final int FAIL_TIMEOUT = 2000;
+    private BlockingMap<Integer, String> blockingMap;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        blockingMap = new BlockingHashMap<Integer, String>();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        blockingMap.clear();
+    }
+
+    private static Map<Integer, String> batch(int from, int to) {
+        Map<Integer, String> batch = new HashMap<Integer, String>();
+        for (int i = from; i < to; i++) {
+            batch.put(i, "value " + i);
+        }
+        return batch;
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testPutAllWakesUpWaitingConsumers() throws Exception {
+        Future<String> consumer = executor.submit(new Callable<String>() {
+            @Override
+            public String call() throws InterruptedException {
+                return blockingMap.take(3);
+            }
+        });
+        Thread.sleep(100);
+        blockingMap.putAll(batch(0, 5));
+        assertEquals("value 3", consumer.get());
+        assertEquals(4, blockingMap.size());
+    }
+
+    @Test
+    public void testPutAllIgnoresAvailableKeys() {
+        blockingMap.put(1, "first");
+        blockingMap.putAll(batch(0, 3), true);
+        assertEquals("first", blockingMap.get(1));
+        assertEquals(3, blockingMap.size());
+    }
+
+    @Test
+    public void testNullInBatchLeavesMapUntouched() {
+        Map<Integer, String> batch = batch(0, 3);
+        batch.put(3, null);
+        try {
+            blockingMap.putAll(batch, true);
+            fail("NullPointerException expected");
+        } catch (NullPointerException e) {
+            //expected
+        }
+        assertTrue(blockingMap.isEmpty());
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testTakeAllReceivesWholeBatch() throws Exception {
+        Future<Map<Integer, String>> consumer = executor.submit(new Callable<Map<Integer, String>>() {
+            @Override
+            public Map<Integer, String> call() throws InterruptedException {
+                return blockingMap.takeAll(Arrays.asList(0, 1, 2, 3), FAIL_TIMEOUT, TimeUnit.MILLISECONDS);
+            }
+        });
+        Thread.sleep(100);
+        blockingMap.put(0, "value 0");
+        Thread.sleep(100);
+        assertFalse(consumer.isDone());
+        assertTrue(blockingMap.isKeyAvailable(0));
+
+        blockingMap.putAll(batch(1, 4), true);
+        assertEquals(batch(0, 4), consumer.get());
+        assertTrue(blockingMap.isEmpty());
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testAtomicBatchesAreNeverSplit() throws Exception {
+        final int batches = 200;
+        Future<Integer> consumer = executor.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() throws InterruptedException {
+                int taken = 0;
+                for (int i = 0; i < batches; i++) {
+                    Map<Integer, String> result = blockingMap.takeAll(
+                            Arrays.asList(2 * i, 2 * i + 1), FAIL_TIMEOUT, TimeUnit.MILLISECONDS);
+                    assertEquals(2, result.size());
+                    taken++;
+                }
+                return taken;
+            }
+        });
+        for (int i = 0; i < batches; i++) {
+            blockingMap.putAll(batch(2 * i, 2 * i + 2), true);
+        }
+        assertEquals(Integer.valueOf(batches), consumer.get());
+    }
+
+    @Test
+    public void testTakeAllTimesOutWithoutRemovingAnything() throws InterruptedException {
+        blockingMap.put(0, "value 0");
+        assertNull(blockingMap.takeAll(Arrays.asList(0, 1), 50, TimeUnit.MILLISECONDS));
+        assertEquals("value 0", blockingMap.get(0));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testTakeAllOnShardedAndSkipListMaps() throws Exception {
+        List<BlockingMap<Integer, String>> maps = Arrays.<BlockingMap<Integer, String>>asList(
+                new ShardedBlockingMap<Integer, String>(2), new BlockingSkipListMap<Integer, String>());
+        for (final BlockingMap<Integer, String> map : maps) {
+            map.putAll(batch(0, 2), false);
+            assertNull(map.takeAll(Arrays.asList(0, 1, 2), 50, TimeUnit.MILLISECONDS));
+            assertEquals(batch(0, 2), new HashMap<Integer, String>(map));
+
+            Future<Map<Integer, String>> consumer = executor.submit(new Callable<Map<Integer, String>>() {
+                @Override
+                public Map<Integer, String> call() throws InterruptedException {
+                    return map.takeAll(Arrays.asList(0, 1, 2), FAIL_TIMEOUT, TimeUnit.MILLISECONDS);
+                }
+            });
+            Thread.sleep(100);
+            map.put(2, "value 2");
+            assertEquals(batch(0, 3), consumer.get());
+            assertTrue(map.isEmpty());
+            map.clear();
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testAtomicPutAllNotSupportedOnShardedMap() {
+        BlockingMap<Integer, String> sharded = new ShardedBlockingMap<Integer, String>(2);
+        try {
+            sharded.putAll(batch(0, 2), true);
+        } finally {
+            sharded.clear();
+        }
+    }
+}
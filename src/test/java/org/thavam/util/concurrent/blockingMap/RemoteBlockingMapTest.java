@@ -0,0 +1,289 @@
+package org.thavam.util.concurrent.blockingMap;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests BlockingHashMap.takeAsync & a RemoteBlockingMap served over loopback
+ * by a BlockingMapServer.
+ */
+public class RemoteBlockingMapTest {
+
+    private static final int FAIL_TIMEOUT = 10000;
+    private BlockingHashMap<String, String> serverMap;
+    private BlockingMapServer<String, String> server;
+    private RemoteBlockingMap<String, String> client;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        serverMap = new BlockingHashMap<String, String>();
+        server = new BlockingMapServer<String, String>(serverMap, Serializers.utf8(), Serializers.utf8(),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        client = new RemoteBlockingMap<String, String>(server.getLocalAddress(),
+                Serializers.utf8(), Serializers.utf8());
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        client.close();
+        server.close();
+        serverMap.clear();
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testLocalTakeAsync() throws Exception {
+        CompletableFuture<String> waiting = serverMap.takeAsync("a");
+        assertFalse(waiting.isDone());
+        assertNull(serverMap.put("a", "1"));
+        assertEquals("1", waiting.get());
+        assertFalse(serverMap.isKeyAvailable("a"));
+
+        serverMap.put("b", "2");
+        assertEquals("2", serverMap.takeAsync("b").getNow(null));
+
+        //withdrawn consumer, the value stays on the map
+        CompletableFuture<String> withdrawn = serverMap.takeAsync("c");
+        withdrawn.cancel(false);
+        serverMap.put("c", "3");
+        assertEquals("3", serverMap.get("c"));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testLocalTakeAsyncCancelledOnShutdown() throws Exception {
+        BlockingHashMap<String, String> shutdown = new BlockingHashMap<String, String>();
+        CompletableFuture<String> pending = shutdown.takeAsync("d");
+        shutdown.clear();
+        assertTrue(pending.isCancelled());
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testWithdrawnTakesAreDropped() throws Exception {
+        ActiveBlockingHashMap<String, String> map = new ActiveBlockingHashMap<String, String>();
+        map.takeAsync("cancelled").cancel(false);
+        map.takeAsync("timed out").complete(null);
+        CompletableFuture<String> waiting = map.takeAsync("waiting");
+        waiting.cancel(false);
+        CompletableFuture<String> served = map.takeAsync("waiting");
+        assertEquals(1, map.getAsyncWaitedKeyCount());
+        map.put("waiting", "value");
+        assertEquals("value", served.get());
+        assertEquals(0, map.getAsyncWaitedKeyCount());
+        map.clear();
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testBasicOperations() throws Exception {
+        assertNull(client.put("k1", "v1"));
+        assertEquals("v1", client.put("k1", "ignored"));
+        assertEquals("v1", client.get("k1"));
+        assertTrue(client.isKeyAvailable("k1"));
+        assertTrue(client.containsKey("k1"));
+        assertEquals(1, client.size());
+        assertEquals("v1", serverMap.get("k1"));
+
+        assertEquals("v1", client.remove("k1"));
+        assertNull(client.remove("k1"));
+        assertTrue(client.isEmpty());
+
+        Map<String, String> batch = new HashMap<String, String>();
+        for (int i = 0; i < 100; i++) {
+            batch.put("batch" + i, "value" + i);
+        }
+        client.putAll(batch);
+        assertEquals(100, serverMap.size());
+        assertEquals("value7", client.take("batch7"));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testRemoteTakeCompletedByLocalPut() throws Exception {
+        Future<String> consumer = executor.submit(new Callable<String>() {
+            @Override
+            public String call() throws InterruptedException {
+                return client.take("response");
+            }
+        });
+        Thread.sleep(100);
+        serverMap.put("response", "done");
+        assertEquals("done", consumer.get());
+
+        //and the other way round
+        CompletableFuture<String> local = serverMap.takeAsync("request");
+        client.put("request", "sent");
+        assertEquals("sent", local.get());
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testTakeMatching() throws Exception {
+        serverMap.put("job/1", "first");
+        Map.Entry<String, String> entry = client.takeMatching(KeyPredicates.startsWith("job/"), 0, TimeUnit.MILLISECONDS);
+        assertEquals("job/1", entry.getKey());
+        assertEquals("first", entry.getValue());
+        assertNull(client.takeMatching(KeyPredicates.startsWith("job/"), 10, TimeUnit.MILLISECONDS));
+
+        Future<Map.Entry<String, String>> consumer = executor.submit(new Callable<Map.Entry<String, String>>() {
+            @Override
+            public Map.Entry<String, String> call() throws InterruptedException {
+                return client.takeMatching(KeyPredicates.startsWith("job/"), FAIL_TIMEOUT, TimeUnit.MILLISECONDS);
+            }
+        });
+        Thread.sleep(100);
+        serverMap.put("other/1", "other");
+        serverMap.put("job/2", "second");
+        assertEquals("second", consumer.get().getValue());
+        assertEquals("other", serverMap.get("other/1"));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testTakeAll() throws Exception {
+        Map<String, String> batch = new HashMap<String, String>();
+        batch.put("a", "1");
+        batch.put("b", "2");
+        client.putAll(batch, false);
+        assertEquals(batch, client.takeAll(batch.keySet(), 0, TimeUnit.MILLISECONDS));
+        assertTrue(serverMap.isEmpty());
+
+        //a timed out takeAll puts back the mappings it took
+        serverMap.put("a", "1");
+        assertNull(client.takeAll(batch.keySet(), 50, TimeUnit.MILLISECONDS));
+        assertEquals("1", serverMap.get("a"));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testBulkOperations() throws Exception {
+        serverMap.put("a", "1");
+        serverMap.put("b", "22");
+        final Map<String, String> seen = new HashMap<String, String>();
+        client.forEach(1, (key, value) -> seen.put(key, value));
+        assertEquals(serverMap.size(), seen.size());
+        assertEquals("b", client.search(1, (key, value) -> (value.length() == 2) ? key : null));
+        assertEquals(Integer.valueOf(3), client.reduce(1, (key, value) -> value.length(), Integer::sum));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testSnapshotViews() throws Exception {
+        serverMap.put("a", "1");
+        serverMap.put("b", "2");
+        assertTrue(client.containsValue("2"));
+        assertFalse(client.containsValue("3"));
+        assertEquals(2, client.values().size());
+        Map<String, String> copy = new HashMap<String, String>();
+        for (Map.Entry<String, String> entry : client.entrySet()) {
+            copy.put(entry.getKey(), entry.getValue());
+        }
+        assertEquals("1", copy.get("a"));
+        assertEquals("2", copy.get("b"));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testManyPendingTakesPipelined() throws Exception {
+        int takes = 500;
+        List<CompletableFuture<String>> futures = new ArrayList<CompletableFuture<String>>();
+        for (int i = 0; i < takes; i++) {
+            futures.add(client.takeAsync("key" + i));
+        }
+        //no server thread is held by the pending takes
+        for (int i = takes - 1; i >= 0; i--) {
+            client.put("key" + i, "value" + i);
+        }
+        for (int i = 0; i < takes; i++) {
+            assertEquals("value" + i, futures.get(i).get());
+        }
+        assertTrue(serverMap.isEmpty());
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testTimedTakeExpiresOnServer() throws Exception {
+        long start = System.nanoTime();
+        assertNull(client.take("missing", 100, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(90));
+        //a later put is not handed to the expired take
+        client.put("missing", "late");
+        assertEquals("late", serverMap.get("missing"));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testInterruptedTakeWithdrawn() throws Exception {
+        Future<String> consumer = executor.submit(new Callable<String>() {
+            @Override
+            public String call() throws InterruptedException {
+                return client.take("interrupted");
+            }
+        });
+        Thread.sleep(100);
+        consumer.cancel(true);
+        CompletableFuture<String> cancelled = client.takeAsync("cancelled");
+        cancelled.cancel(false);
+        try {
+            cancelled.get();
+            fail("cancelled take completed");
+        } catch (CancellationException expected) {
+        }
+        Thread.sleep(100);
+
+        client.put("interrupted", "kept");
+        client.put("cancelled", "kept too");
+        assertEquals("kept", client.get("interrupted"));
+        assertEquals("kept too", client.get("cancelled"));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testMalformedRequestClosesItsConnectionOnly() throws Exception {
+        for (int keyLength : new int[]{-1, 100}) {
+            try (SocketChannel raw = SocketChannel.open(server.getLocalAddress())) {
+                ByteBuffer frame = ByteBuffer.allocate(4 + RemoteProtocol.REQUEST_HEADER + 2);
+                frame.putInt(RemoteProtocol.REQUEST_HEADER + 2).putLong(1).put(RemoteProtocol.PUT).putLong(0)
+                        .putInt(keyLength).put((byte) 'k').put((byte) 'v');
+                frame.flip();
+                while (frame.hasRemaining()) {
+                    raw.write(frame);
+                }
+                //closed by the server without a response
+                assertEquals(-1, raw.read(ByteBuffer.allocate(64)));
+            }
+        }
+        assertNull(client.put("k", "v"));
+        assertEquals("v", client.get("k"));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testClosedClient() throws Exception {
+        CompletableFuture<String> pending = client.takeAsync("never");
+        client.clear();
+        try {
+            pending.get();
+            fail("pending take completed after close");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof IllegalStateException);
+        }
+        try {
+            client.put("k", "v");
+            fail("put on closed client");
+        } catch (IllegalStateException expected) {
+        }
+        //take withdrawn by the server once the connection is closed
+        Thread.sleep(200);
+        serverMap.put("never", "kept");
+        assertEquals("kept", serverMap.get("never"));
+    }
+}
@@ -0,0 +1,191 @@
+package org.thavam.util.concurrent.blockingMap;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests replication of a BlockingHashMap to a standby over loopback.
+ */
+public class ReplicationTest {
+
+    private static final int FAIL_TIMEOUT = 10000;
+    private BlockingHashMap<String, String> primary;
+    private BlockingHashMap<String, String> standby;
+    private BlockingMapReplica<String, String> replica;
+    private BlockingMapReplicator<String, String> replicator;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        primary = new BlockingHashMap<String, String>();
+        standby = new BlockingHashMap<String, String>();
+        replica = new BlockingMapReplica<String, String>(standby, Serializers.utf8(), Serializers.utf8(),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        if (replicator != null) {
+            replicator.close();
+        }
+        replica.close();
+        primary.clear();
+        standby.clear();
+    }
+
+    private void startReplicator() throws Exception {
+        replicator = new BlockingMapReplicator<String, String>(primary, Serializers.utf8(), Serializers.utf8(),
+                replica.getLocalAddress());
+    }
+
+    private void awaitReplicated() throws InterruptedException {
+        while (!replicator.isCaughtUp()) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static Map<String, String> copy(BlockingHashMap<String, String> map) {
+        Map<String, String> copy = new HashMap<String, String>();
+        for (String key : map.keySet()) {
+            copy.put(key, map.get(key));
+        }
+        return copy;
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testExistingMappingsTransferred() throws Exception {
+        for (int i = 0; i < 5000; i++) {
+            primary.put("key" + i, "value" + i);
+        }
+        //stale mapping dropped by the transfer
+        standby.put("stale", "value");
+        startReplicator();
+        awaitReplicated();
+        assertEquals(copy(primary), copy(standby));
+        assertTrue(replica.isConnected());
+        assertEquals(0, replicator.getLagNanos());
+
+        primary.put("later", "value");
+        assertEquals("value1", primary.take("key1"));
+        awaitReplicated();
+        assertEquals("value", standby.get("later"));
+        assertFalse(standby.isKeyAvailable("key1"));
+        assertEquals(replicator.getShippedSequence(), replica.getAppliedSequence());
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testConcurrentUpdatesReplicated() throws Exception {
+        startReplicator();
+        final int threads = 4;
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    try {
+                        for (int i = 0; i < 20000; i++) {
+                            String key = "key" + random.nextInt(64);
+                            if (random.nextBoolean()) {
+                                primary.put(key, Thread.currentThread().getName() + "-" + i);
+                            } else {
+                                primary.take(key, 0, TimeUnit.NANOSECONDS);
+                            }
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                    return null;
+                }
+            });
+        }
+        done.await();
+        awaitReplicated();
+        assertEquals(copy(primary), copy(standby));
+        assertTrue(replicator.getShippedEvents() > 0);
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testUpdatesDuringTransferReplicated() throws Exception {
+        for (int i = 0; i < 20000; i++) {
+            primary.put("key" + i, "value" + i);
+        }
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        Future<Integer> writer = executor.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                int i = 0;
+                for (; running.get(); i++) {
+                    primary.put("new" + i, "value" + i);
+                    primary.take("key" + i, 0, TimeUnit.NANOSECONDS);
+                    started.countDown();
+                }
+                return i;
+            }
+        });
+        started.await();
+        //the writer runs all along the transfer
+        startReplicator();
+        awaitReplicated();
+        running.set(false);
+        int written = writer.get();
+        awaitReplicated();
+        assertEquals(copy(primary), copy(standby));
+        assertEquals("value" + (written - 1), standby.get("new" + (written - 1)));
+        assertFalse(standby.isKeyAvailable("key0"));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testClearDropsStandbyMappings() throws Exception {
+        BlockingHashMap<String, String> shutdown = new BlockingHashMap<String, String>();
+        replicator = new BlockingMapReplicator<String, String>(shutdown, Serializers.utf8(), Serializers.utf8(),
+                replica.getLocalAddress());
+        shutdown.put("a", "1");
+        shutdown.put("b", "2");
+        awaitReplicated();
+        assertEquals(2, standby.size());
+        shutdown.clear();
+        awaitReplicated();
+        //standby dropped the mappings but stays active, ready to take over
+        assertTrue(standby.isEmpty());
+        standby.put("c", "3");
+        assertEquals("3", standby.take("c"));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testReconnectAfterReplicaRestart() throws Exception {
+        startReplicator();
+        primary.put("a", "1");
+        awaitReplicated();
+        InetSocketAddress address = replica.getLocalAddress();
+        replica.close();
+        primary.put("b", "2");
+
+        BlockingHashMap<String, String> newStandby = new BlockingHashMap<String, String>();
+        replica = new BlockingMapReplica<String, String>(newStandby, Serializers.utf8(), Serializers.utf8(),
+                address);
+        while (!newStandby.isKeyAvailable("b")) {
+            Thread.sleep(5);
+        }
+        awaitReplicated();
+        assertEquals(copy(primary), copy(newStandby));
+        newStandby.clear();
+    }
+}
@@ -0,0 +1,115 @@
+package org.thavam.util.concurrent.blockingMap;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests ShardedBlockingMap keeps BlockingHashMap semantics across shards.
+ */
+public class ShardedBlockingMapTest {
+
+    private static final int FAIL_TIMEOUT = 2000;
+    private ShardedBlockingMap<Integer, String> blockingMap;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        blockingMap = new ShardedBlockingMap<Integer, String>(4);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        blockingMap.clear();
+    }
+
+    @Test
+    public void testDefaultShardCountIsAvailableProcessors() {
+        ShardedBlockingMap<Integer, String> sharded = new ShardedBlockingMap<Integer, String>();
+        assertEquals(Runtime.getRuntime().availableProcessors(), sharded.getShardCount());
+        sharded.clear();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShardCountShouldBePositive() {
+        new ShardedBlockingMap<Integer, String>(0);
+    }
+
+    @Test
+    public void testSizeAndIsEmptyAggregateShards() throws InterruptedException {
+        assertTrue(blockingMap.isEmpty());
+        for (int i = 0; i < 100; i++) {
+            blockingMap.put(i, "value " + i);
+        }
+        assertEquals(100, blockingMap.size());
+        assertTrue(blockingMap.containsValue("value 42"));
+        assertEquals("value 42", blockingMap.take(42));
+        assertEquals(99, blockingMap.size());
+        assertEquals("value 7", blockingMap.put(7, "other"));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testTakeBlocksUntilPut() throws Exception {
+        Future<String> consumer = executor.submit(new Callable<String>() {
+            @Override
+            public String call() throws InterruptedException {
+                return blockingMap.take(5);
+            }
+        });
+        Thread.sleep(100);
+        assertFalse(consumer.isDone());
+        blockingMap.put(5, "five");
+        assertEquals("five", consumer.get());
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testTakeMatchingWaitsOnAllShards() throws Exception {
+        Future<Map.Entry<Integer, String>> consumer = executor.submit(new Callable<Map.Entry<Integer, String>>() {
+            @Override
+            public Map.Entry<Integer, String> call() throws InterruptedException {
+                return blockingMap.takeMatching(k -> k > 1000, FAIL_TIMEOUT, TimeUnit.MILLISECONDS);
+            }
+        });
+        Thread.sleep(100);
+        for (int i = 0; i < 10; i++) {
+            blockingMap.put(i, "small");
+        }
+        blockingMap.put(1001, "large");
+        assertEquals(Integer.valueOf(1001), consumer.get().getKey());
+        assertEquals(10, blockingMap.size());
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testClearShutsDownAllShards() throws Exception {
+        final ShardedBlockingMap<Integer, String> shutdown = new ShardedBlockingMap<Integer, String>(4);
+        Future<Boolean> consumer = executor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                try {
+                    shutdown.take(3);
+                    return false;
+                } catch (InterruptedException e) {
+                    return true;
+                }
+            }
+        });
+        Thread.sleep(100);
+        shutdown.clear();
+        assertTrue(consumer.get());
+        try {
+            shutdown.size();
+            fail("IllegalStateException expected after shutdown");
+        } catch (IllegalStateException e) {
+            //expected
+        }
+    }
+}
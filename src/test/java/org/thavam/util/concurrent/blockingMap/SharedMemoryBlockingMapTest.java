@@ -0,0 +1,208 @@
+package org.thavam.util.concurrent.blockingMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Tests SharedMemoryBlockingMap within a JVM & across two JVMs.
+ */
+public class SharedMemoryBlockingMapTest {
+
+    private static final int FAIL_TIMEOUT = 20000;
+    private static final int SLOTS = 16;
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private Path file;
+    private SharedMemoryBlockingMap<String> blockingMap;
+    private ExecutorService executor;
+
+    /**
+     * Puts a mapping on the shared map from another JVM & waits for its take.
+     */
+    public static class Producer {
+
+        public static void main(String[] args) throws Exception {
+            SharedMemoryBlockingMap<String> map = open(new File(args[0]).toPath());
+            Thread.sleep(200);
+            map.put(args[1], args[2].getBytes(StandardCharsets.UTF_8));
+            map.take("ack", 10, TimeUnit.SECONDS);
+            map.clear();
+        }
+    }
+
+    private static SharedMemoryBlockingMap<String> open(Path file) throws IOException {
+        return new SharedMemoryBlockingMap<String>(file, Serializers.utf8(), SLOTS, 32, 64);
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        file = folder.getRoot().toPath().resolve("shared-map");
+        blockingMap = open(file);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        blockingMap.clear();
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testTakeBlocksUntilPut() throws Exception {
+        Future<byte[]> consumer = executor.submit(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws InterruptedException {
+                return blockingMap.take("k");
+            }
+        });
+        Thread.sleep(100);
+        assertFalse(consumer.isDone());
+        assertNull(blockingMap.put("k", new byte[]{1, 2, 3}));
+        assertArrayEquals(new byte[]{1, 2, 3}, consumer.get());
+        assertTrue(blockingMap.isEmpty());
+    }
+
+    @Test
+    public void testPutOnAvailableKeyIsIgnored() throws InterruptedException {
+        blockingMap.put("k", new byte[]{1});
+        assertArrayEquals(new byte[]{1}, blockingMap.put("k", new byte[]{2}));
+        assertArrayEquals(new byte[]{1}, blockingMap.take("k", 0, TimeUnit.MILLISECONDS));
+        assertNull(blockingMap.take("k", 10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testBoundedPutAndOffer() throws Exception {
+        for (int i = 0; i < SLOTS; i++) {
+            assertNull(blockingMap.put("key " + i, new byte[]{(byte) i}));
+        }
+        assertEquals(SLOTS, blockingMap.size());
+        assertNull(blockingMap.put("extra", new byte[]{1}));
+        assertFalse(blockingMap.isKeyAvailable("extra"));
+        assertNull(blockingMap.offer("extra", new byte[]{1}, 50, TimeUnit.MILLISECONDS));
+
+        Future<byte[]> producer = executor.submit(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws InterruptedException {
+                return blockingMap.offer("extra", new byte[]{42});
+            }
+        });
+        Thread.sleep(100);
+        blockingMap.take("key 3");
+        assertNull(producer.get());
+        assertArrayEquals(new byte[]{42}, blockingMap.get("extra"));
+    }
+
+    @Test
+    public void testSlotLeftByDeadWriterIsReclaimed() throws Exception {
+        blockingMap.put("k", new byte[]{7});
+        //as if a process died after marking the slot as being written
+        int slotLength = (16 + 32 + 64 + 7) & ~7;
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                raw.seek(64 + slot * slotLength);
+                if (raw.readInt() == 2) {
+                    raw.seek(64 + slot * slotLength);
+                    raw.writeInt(1);
+                }
+            }
+        }
+        assertFalse(blockingMap.isKeyAvailable("k"));
+        for (int i = 0; i < SLOTS - 1; i++) {
+            assertNull(blockingMap.put("key " + i, new byte[]{(byte) i}));
+        }
+        //the reclaimed slot is reused
+        assertNull(blockingMap.put("last", new byte[]{1}));
+        assertTrue(blockingMap.isKeyAvailable("last"));
+    }
+
+    @Test
+    public void testTombstonesAreFreed() throws Exception {
+        for (int i = 0; i < 10 * SLOTS; i++) {
+            blockingMap.put("key " + i, new byte[]{(byte) i});
+            blockingMap.put("other " + i, new byte[]{(byte) i});
+            assertArrayEquals(new byte[]{(byte) i}, blockingMap.take("key " + i, 0, TimeUnit.MILLISECONDS));
+            assertArrayEquals(new byte[]{(byte) i}, blockingMap.take("other " + i, 0, TimeUnit.MILLISECONDS));
+        }
+        assertTrue(blockingMap.isEmpty());
+        int slotLength = (16 + 32 + 64 + 7) & ~7;
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "r")) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                raw.seek(64 + slot * slotLength);
+                assertEquals("state of slot " + slot, 0, raw.readInt());
+            }
+        }
+    }
+
+    @Test
+    public void testPutAllWithoutAtomicStoresWhatFits() {
+        Map<String, byte[]> batch = new LinkedHashMap<String, byte[]>();
+        for (int i = 0; i < SLOTS + 2; i++) {
+            batch.put("key " + i, new byte[]{(byte) i});
+        }
+        try {
+            blockingMap.putAll(batch, true);
+            fail("IllegalStateException expected on a full map");
+        } catch (IllegalStateException e) {
+            //expected
+        }
+        assertTrue(blockingMap.isEmpty());
+        blockingMap.putAll(batch, false);
+        assertEquals(SLOTS, blockingMap.size());
+        assertFalse(blockingMap.isKeyAvailable("key " + SLOTS));
+    }
+
+    @Test
+    public void testClearShutsDownAndDeletesFile() throws IOException {
+        Path shutdownFile = folder.getRoot().toPath().resolve("shutdown-map");
+        SharedMemoryBlockingMap<String> shutdown = open(shutdownFile);
+        shutdown.clear();
+        assertFalse(Files.exists(shutdownFile));
+        try {
+            shutdown.size();
+            fail("IllegalStateException expected after shutdown");
+        } catch (IllegalStateException e) {
+            //expected
+        }
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testTakeSatisfiedByAnotherJvm() throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Path sharedFile = folder.getRoot().toPath().resolve("jvm-shared-map");
+        SharedMemoryBlockingMap<String> shared = open(sharedFile);
+        Process producer = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                Producer.class.getName(), sharedFile.toString(), "remote", "hello")
+                .inheritIO().start();
+        try {
+            byte[] value = shared.take("remote", 15, TimeUnit.SECONDS);
+            assertNotNull(value);
+            assertEquals("hello", new String(value, StandardCharsets.UTF_8));
+            shared.put("ack", new byte[]{1});
+            assertEquals(0, producer.waitFor());
+        } finally {
+            producer.destroy();
+        }
+        assertNull(shared.get("remote"));
+        //the other process has left, this one is the last
+        assertTrue(Files.exists(sharedFile));
+        shared.clear();
+        assertFalse(Files.exists(sharedFile));
+    }
+}
@@ -0,0 +1,262 @@
+package org.thavam.util.concurrent.blockingMap;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Tests snapshot & restore of BlockingHashMap.
+ */
+public class SnapshotTest {
+
+    private static final int FAIL_TIMEOUT = 10000;
+    private static final int ENTRIES = 20000;
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private Path file;
+    private BlockingHashMap<String, String> blockingMap;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        file = new File(folder.getRoot(), "map.snapshot").toPath();
+        blockingMap = new BlockingHashMap<String, String>();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        blockingMap.clear();
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testRoundTrip() throws Exception {
+        for (int i = 0; i < ENTRIES; i++) {
+            blockingMap.put("key" + i, "value" + i);
+        }
+        //large value, written past the buffer
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            large.append((char) ('a' + (i % 26)));
+        }
+        blockingMap.put("large", large.toString());
+
+        assertEquals(ENTRIES + 1, blockingMap.snapshot(file, Serializers.utf8(), Serializers.utf8()));
+
+        BlockingHashMap<String, String> restored = new BlockingHashMap<String, String>();
+        assertEquals(ENTRIES + 1, restored.restore(file, Serializers.utf8(), Serializers.utf8()));
+        assertEquals(ENTRIES + 1, restored.size());
+        for (int i = 0; i < ENTRIES; i++) {
+            assertEquals("value" + i, restored.take("key" + i));
+        }
+        assertEquals(large.toString(), restored.take("large"));
+        assertFalse(new File(folder.getRoot(), "map.snapshot.tmp").exists());
+        restored.clear();
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testPendingKeysSkippedAndWaitersServedOnRestore() throws Exception {
+        blockingMap.put("available", "value");
+        Future<String> pending = executor.submit(new Callable<String>() {
+            @Override
+            public String call() throws InterruptedException {
+                return blockingMap.take("pending", 100, TimeUnit.MILLISECONDS);
+            }
+        });
+        Thread.sleep(50);
+        assertEquals(1, blockingMap.snapshot(file, Serializers.utf8(), Serializers.utf8()));
+        assertNull(pending.get());
+
+        final BlockingHashMap<String, String> restored = new BlockingHashMap<String, String>();
+        Future<String> consumer = executor.submit(new Callable<String>() {
+            @Override
+            public String call() throws InterruptedException {
+                return restored.take("available");
+            }
+        });
+        Thread.sleep(50);
+        restored.restore(file, Serializers.utf8(), Serializers.utf8());
+        assertEquals("value", consumer.get());
+        assertFalse(restored.isKeyAvailable("pending"));
+        restored.clear();
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testUpdatesDuringPassCapturedByDelta() throws Exception {
+        for (int i = 0; i < ENTRIES; i++) {
+            blockingMap.put("key" + i, "value" + i);
+        }
+        final AtomicBoolean updated = new AtomicBoolean(false);
+        //updates the map from within the pass, whatever the traversal order
+        Serializer<String> updating = new Serializer<String>() {
+            @Override
+            public byte[] toBytes(String value) {
+                if (updated.compareAndSet(false, true)) {
+                    assertEquals("value7", blockingMap.remove("key7"));
+                    assertEquals("value8", blockingMap.remove("key8"));
+                    blockingMap.put("key8", "replaced");
+                    blockingMap.put("late", "late value");
+                }
+                return Serializers.utf8().toBytes(value);
+            }
+
+            @Override
+            public String fromBytes(byte[] bytes) {
+                return Serializers.utf8().fromBytes(bytes);
+            }
+        };
+        blockingMap.snapshot(file, Serializers.utf8(), updating);
+        assertTrue(updated.get());
+
+        BlockingHashMap<String, String> restored = new BlockingHashMap<String, String>();
+        restored.restore(file, Serializers.utf8(), Serializers.utf8());
+        assertEquals(ENTRIES, restored.size());
+        assertFalse(restored.isKeyAvailable("key7"));
+        assertEquals("replaced", restored.get("key8"));
+        assertEquals("late value", restored.get("late"));
+        assertEquals("value9", restored.get("key9"));
+        restored.clear();
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testConcurrentPutsAndTakesCaptured() throws Exception {
+        final int writers = 4;
+        final int keys = 1000;
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < keys; i++) {
+                blockingMap.put("key" + i, "value" + i);
+            }
+            //writers run across the start of the pass & stop midway
+            final AtomicBoolean stop = new AtomicBoolean(false);
+            final List<Future<?>> updates = new ArrayList<Future<?>>();
+            for (int w = 0; w < writers; w++) {
+                final int first = w;
+                updates.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int count = 0; !stop.get(); count++) {
+                            for (int i = first; i < keys; i += writers) {
+                                if (blockingMap.remove("key" + i) == null) {
+                                    blockingMap.put("key" + i, "update" + count);
+                                }
+                            }
+                        }
+                    }
+                }));
+            }
+            final AtomicInteger written = new AtomicInteger();
+            Serializer<String> stopping = new Serializer<String>() {
+                @Override
+                public byte[] toBytes(String value) {
+                    //lets the writers run while the pass writes its first values
+                    Thread.yield();
+                    if ((written.incrementAndGet() >= keys / 8) && stop.compareAndSet(false, true)) {
+                        try {
+                            for (Future<?> update : updates) {
+                                update.get();
+                            }
+                        } catch (Exception e) {
+                            throw new AssertionError(e);
+                        }
+                    }
+                    return Serializers.utf8().toBytes(value);
+                }
+
+                @Override
+                public String fromBytes(byte[] bytes) {
+                    return Serializers.utf8().fromBytes(bytes);
+                }
+            };
+            Thread.sleep(5);
+            blockingMap.snapshot(file, Serializers.utf8(), stopping);
+
+            BlockingHashMap<String, String> restored = new BlockingHashMap<String, String>();
+            restored.restore(file, Serializers.utf8(), Serializers.utf8());
+            assertEquals(blockingMap.size(), restored.size());
+            for (int i = 0; i < keys; i++) {
+                assertEquals(blockingMap.get("key" + i), restored.get("key" + i));
+            }
+            restored.clear();
+            for (int i = 0; i < keys; i++) {
+                blockingMap.remove("key" + i);
+            }
+        }
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testIncompleteSnapshotRejected() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            blockingMap.put("key" + i, "value" + i);
+        }
+        blockingMap.snapshot(file, Serializers.utf8(), Serializers.utf8());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+        BlockingHashMap<String, String> restored = new BlockingHashMap<String, String>();
+        try {
+            restored.restore(file, Serializers.utf8(), Serializers.utf8());
+            fail("truncated snapshot restored");
+        } catch (IOException expected) {
+        } finally {
+            restored.clear();
+        }
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testReadFailureKeptOverLoadFailure() throws Exception {
+        for (int i = 0; i < ENTRIES; i++) {
+            blockingMap.put("key" + i, "value" + i);
+        }
+        blockingMap.snapshot(file, Serializers.utf8(), Serializers.utf8());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+        Serializer<String> failing = new Serializer<String>() {
+            @Override
+            public byte[] toBytes(String object) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public String fromBytes(byte[] bytes) {
+                throw new IllegalArgumentException("unreadable value");
+            }
+        };
+        BlockingHashMap<String, String> restored = new BlockingHashMap<String, String>();
+        try {
+            restored.restore(file, Serializers.utf8(), failing);
+            fail("truncated snapshot restored");
+        } catch (EOFException expected) {
+            assertEquals(1, expected.getSuppressed().length);
+            assertTrue(expected.getSuppressed()[0].getCause() instanceof IllegalArgumentException);
+        } finally {
+            restored.clear();
+        }
+    }
+
+    @Test(timeout = FAIL_TIMEOUT, expected = IllegalStateException.class)
+    public void testSnapshotAfterClear() throws Exception {
+        BlockingHashMap<String, String> shutdown = new BlockingHashMap<String, String>();
+        shutdown.clear();
+        shutdown.snapshot(file, Serializers.utf8(), Serializers.utf8());
+    }
+}
@@ -0,0 +1,161 @@
+package org.thavam.util.concurrent.blockingMap;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Tests SpillingBlockingHashMap with a small memory budget.
+ */
+public class SpillingBlockingHashMapTest {
+
+    private static final int FAIL_TIMEOUT = 5000;
+    private static final int VALUE_LENGTH = 50;
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private Path spillFile;
+    private SpillingBlockingHashMap<Integer, byte[]> blockingMap;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        spillFile = new File(folder.getRoot(), "spill.dat").toPath();
+        blockingMap = new SpillingBlockingHashMap<Integer, byte[]>(spillFile, Serializers.bytes(),
+                2 * VALUE_LENGTH, v -> v.length);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        blockingMap.clear();
+    }
+
+    private static byte[] value(int i) {
+        byte[] value = new byte[VALUE_LENGTH];
+        Arrays.fill(value, (byte) i);
+        return value;
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testOldestValuesSpilledBeyondBudget() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            blockingMap.put(i, value(i));
+        }
+        assertEquals(2 * VALUE_LENGTH, blockingMap.getResidentWeight());
+        assertEquals(8, blockingMap.getSpilledCount());
+        assertEquals(8 * VALUE_LENGTH, blockingMap.getSpillFileLength());
+        assertEquals(10, blockingMap.size());
+
+        //oldest spilled, newest resident, both read back alike
+        assertArrayEquals(value(0), blockingMap.get(0));
+        assertArrayEquals(value(9), blockingMap.get(9));
+        assertEquals(8, blockingMap.getSpilledCount());
+        assertEquals(Integer.valueOf(3), blockingMap.search(Long.MAX_VALUE,
+                (k, v) -> Arrays.equals(v, value(3)) ? k : null));
+        assertEquals(10, blockingMap.values().size());
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testTakeReadsBackSpilledValues() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            blockingMap.put(i, value(i));
+        }
+        for (int i = 0; i < 10; i++) {
+            assertArrayEquals(value(i), blockingMap.take(i));
+        }
+        assertTrue(blockingMap.isEmpty());
+        assertEquals(0, blockingMap.getSpilledCount());
+        assertEquals(0, blockingMap.getResidentWeight());
+        //last spilled value taken, file space reclaimed
+        assertEquals(0, blockingMap.getSpillFileLength());
+        assertEquals(0, Files.size(spillFile));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testWaitingConsumerReceivesValue() throws Exception {
+        Future<byte[]> consumer = executor.submit(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws InterruptedException {
+                return blockingMap.take(42, 2, TimeUnit.SECONDS);
+            }
+        });
+        Thread.sleep(100);
+        for (int i = 0; i < 5; i++) {
+            blockingMap.put(i, value(i));
+        }
+        blockingMap.put(42, value(42));
+        assertArrayEquals(value(42), consumer.get());
+        assertNull(blockingMap.take(43, 10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testRemoveAndTakeAllAcrossTiers() throws Exception {
+        for (int i = 0; i < 6; i++) {
+            blockingMap.put(i, value(i));
+        }
+        assertArrayEquals(value(0), blockingMap.remove(0));
+        assertArrayEquals(value(5), blockingMap.remove(5));
+        assertNull(blockingMap.remove(5));
+
+        Map<Integer, byte[]> taken = blockingMap.takeAll(Arrays.asList(1, 4), 1, TimeUnit.SECONDS);
+        assertArrayEquals(value(1), taken.get(1));
+        assertArrayEquals(value(4), taken.get(4));
+        assertEquals(2, blockingMap.size());
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testConcurrentProducersAndConsumers() throws Exception {
+        final int perProducer = 500;
+        final int producers = 4;
+        for (int p = 0; p < producers; p++) {
+            final int base = p * perProducer;
+            executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (int i = base; i < base + perProducer; i++) {
+                        blockingMap.put(i, value(i));
+                    }
+                    return null;
+                }
+            });
+        }
+        for (int i = 0; i < producers * perProducer; i++) {
+            assertArrayEquals(value(i), blockingMap.take(i, 2, TimeUnit.SECONDS));
+        }
+        assertTrue(blockingMap.isEmpty());
+        assertEquals(0, blockingMap.getSpilledCount());
+        assertEquals(0, blockingMap.getResidentWeight());
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testClearDeletesSpillFile() throws Exception {
+        Path shutdownFile = new File(folder.getRoot(), "shutdown.dat").toPath();
+        SpillingBlockingHashMap<Integer, byte[]> shutdown = new SpillingBlockingHashMap<Integer, byte[]>(
+                shutdownFile, Serializers.bytes(), 2 * VALUE_LENGTH, v -> v.length);
+        for (int i = 0; i < 10; i++) {
+            shutdown.put(i, value(i));
+        }
+        assertTrue(Files.exists(shutdownFile));
+        shutdown.clear();
+        assertFalse(Files.exists(shutdownFile));
+        try {
+            shutdown.put(1, value(1));
+            fail("put after clear");
+        } catch (IllegalStateException expected) {
+        }
+    }
+}
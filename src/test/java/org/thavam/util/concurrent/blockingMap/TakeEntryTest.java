@@ -0,0 +1,94 @@
+package org.thavam.util.concurrent.blockingMap;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the propagation of the producer context with put & takeEntry.
+ */
+public class TakeEntryTest {
+
+    private static final int FAIL_TIMEOUT = 10000;
+    private BlockingHashMap<String, String> blockingMap;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        blockingMap = new BlockingHashMap<String, String>();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        blockingMap.clear();
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testContextAndResidence() throws Exception {
+        long before = System.nanoTime();
+        assertNull(blockingMap.put("key", "value", "trace-1"));
+        Thread.sleep(20);
+        TakenEntry<String, String> entry = blockingMap.takeEntry("key");
+        assertEquals("key", entry.getKey());
+        assertEquals("value", entry.getValue());
+        assertEquals("trace-1", entry.getContext());
+        assertTrue(entry.getPutNanos() >= before);
+        assertTrue(entry.getResidenceNanos() >= TimeUnit.MILLISECONDS.toNanos(20));
+        assertFalse(blockingMap.isKeyAvailable("key"));
+
+        //a put ignored keeps the context of the mapping available
+        blockingMap.put("key", "first", "trace-2");
+        assertEquals("first", blockingMap.put("key", "second", "trace-3"));
+        assertEquals("trace-2", blockingMap.takeEntry("key").getContext());
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testBlockedConsumer() throws Exception {
+        Future<TakenEntry<String, String>> consumer = executor.submit(new Callable<TakenEntry<String, String>>() {
+            @Override
+            public TakenEntry<String, String> call() throws InterruptedException {
+                return blockingMap.takeEntry("late", 5, TimeUnit.SECONDS);
+            }
+        });
+        Thread.sleep(20);
+        blockingMap.put("late", "value", 42L);
+        TakenEntry<String, String> entry = consumer.get();
+        assertEquals("value", entry.getValue());
+        assertEquals(42L, entry.getContext());
+        assertTrue(entry.getResidenceNanos() >= 0);
+        assertNull(blockingMap.takeEntry("missing", 10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testPlainPut() throws Exception {
+        blockingMap.put("plain", "value");
+        TakenEntry<String, String> entry = blockingMap.takeEntry("plain");
+        assertEquals("value", entry.getValue());
+        assertNull(entry.getContext());
+        assertEquals(-1, entry.getResidenceNanos());
+
+        //a plain take of a traced mapping
+        blockingMap.put("traced", "value", "trace");
+        assertEquals("value", blockingMap.take("traced"));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testShutdown() throws Exception {
+        BlockingHashMap<String, String> shutdown = new BlockingHashMap<String, String>();
+        shutdown.put("traced", "value", "trace");
+        shutdown.clear();
+        try {
+            shutdown.takeEntry("traced");
+            fail("shut-down map should not be taken from");
+        } catch (IllegalStateException expected) {
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package org.thavam.util.concurrent.blockingMap;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests takeMatching on BlockingHashMap, with routed & arbitrary predicates.
+ */
+public class TakeMatchingTest {
+
+    private static final int FAIL_TIMEOUT = 2000;
+    private static final Function<String, String> TENANT = new Function<String, String>() {
+        @Override
+        public String apply(String key) {
+            int separator = key.indexOf('/');
+            return (separator < 0) ? null : key.substring(0, separator);
+        }
+    };
+    private BlockingMap<String, String> blockingMap;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        blockingMap = new BlockingHashMap<String, String>();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        blockingMap.clear();
+    }
+
+    @Test
+    public void testTakeMatchingFindsAvailableKey() throws InterruptedException {
+        blockingMap.put("tenant-a/1", "a1");
+        blockingMap.put("tenant-b/1", "b1");
+
+        Map.Entry<String, String> entry = blockingMap.takeMatching(
+                KeyPredicates.<String>inPartition(TENANT, "tenant-b"), 0, TimeUnit.MILLISECONDS);
+        assertEquals("tenant-b/1", entry.getKey());
+        assertEquals("b1", entry.getValue());
+        assertFalse(blockingMap.isKeyAvailable("tenant-b/1"));
+        assertNull(blockingMap.takeMatching(
+                KeyPredicates.<String>inPartition(TENANT, "tenant-b"), 10, TimeUnit.MILLISECONDS));
+        assertEquals("a1", blockingMap.get("tenant-a/1"));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testPartitionIndexOutlivesItsWaiters() throws Exception {
+        //the index of the classifier is dropped with its last key & waiter, then seeded again
+        for (int round = 0; round < 20; round++) {
+            assertNull(blockingMap.takeMatching(
+                    KeyPredicates.<String>inPartition(TENANT, "tenant-c"), 1, TimeUnit.MILLISECONDS));
+            blockingMap.put("tenant-c/" + round, "c" + round);
+            assertEquals("c" + round, blockingMap.takeMatching(
+                    KeyPredicates.<String>inPartition(TENANT, "tenant-c"), 0, TimeUnit.MILLISECONDS).getValue());
+        }
+        blockingMap.put("tenant-c/last", "last");
+        assertEquals("last", blockingMap.takeMatching(
+                KeyPredicates.<String>inPartition(TENANT, "tenant-c"), FAIL_TIMEOUT, TimeUnit.MILLISECONDS).getValue());
+        assertTrue(blockingMap.isEmpty());
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testPartitionIndexKeptWhileKeysAvailable() {
+        Map<String, ObjectLatch<String>> latches = new ConcurrentHashMap<String, ObjectLatch<String>>();
+        PredicateWaiterIndex<String> index = new PredicateWaiterIndex<String>(latches);
+        Predicate<String> tenantA = KeyPredicates.<String>inPartition(TENANT, "tenant-a");
+        for (String key : new String[]{"tenant-a/1", "tenant-b/1"}) {
+            latches.put(key, new ObjectLatch<String>());
+            latches.get(key).set(key);
+            index.keyAvailable(key);
+        }
+        assertNull(index.candidates(tenantA));
+
+        //the last waiter leaves, keys of the classifier remain indexed
+        index.unregister(index.register(tenantA));
+        assertEquals(Collections.singleton("tenant-a/1"), index.candidates(tenantA));
+        latches.put("tenant-a/2", new ObjectLatch<String>());
+        latches.get("tenant-a/2").set("tenant-a/2");
+        index.keyAvailable("tenant-a/2");
+        assertEquals(new HashSet<String>(Arrays.asList("tenant-a/1", "tenant-a/2")), index.candidates(tenantA));
+
+        for (String key : new String[]{"tenant-a/1", "tenant-a/2"}) {
+            latches.remove(key);
+            index.keyRemoved(key);
+        }
+        assertEquals(Collections.<String>emptySet(), index.candidates(tenantA));
+        //dropped with the last key of the classifier
+        latches.remove("tenant-b/1");
+        index.keyRemoved("tenant-b/1");
+        assertNull(index.candidates(tenantA));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testRoutedWaiterIsWokenByItsPartitionOnly() throws Exception {
+        Future<Map.Entry<String, String>> consumer = executor.submit(new Callable<Map.Entry<String, String>>() {
+            @Override
+            public Map.Entry<String, String> call() throws InterruptedException {
+                return blockingMap.takeMatching(KeyPredicates.startsWith("tenant-x/"), FAIL_TIMEOUT, TimeUnit.MILLISECONDS);
+            }
+        });
+        Thread.sleep(100);
+        blockingMap.put("tenant-y/1", "y1");
+        Thread.sleep(100);
+        assertFalse(consumer.isDone());
+
+        blockingMap.put("tenant-x/7", "x7");
+        assertEquals("x7", consumer.get().getValue());
+        assertEquals("y1", blockingMap.get("tenant-y/1"));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testArbitraryPredicateWaiter() throws Exception {
+        Future<Map.Entry<String, String>> consumer = executor.submit(new Callable<Map.Entry<String, String>>() {
+            @Override
+            public Map.Entry<String, String> call() throws InterruptedException {
+                return blockingMap.takeMatching(new Predicate<String>() {
+                    @Override
+                    public boolean test(String key) {
+                        return key.endsWith("!");
+                    }
+                }, FAIL_TIMEOUT, TimeUnit.MILLISECONDS);
+            }
+        });
+        Thread.sleep(100);
+        blockingMap.put("quiet", "q");
+        blockingMap.put("loud!", "l");
+
+        assertEquals("loud!", consumer.get().getKey());
+        assertTrue(blockingMap.isKeyAvailable("quiet"));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testOnlyOneOfCompetingConsumersGetsTheMapping() throws Exception {
+        Callable<Map.Entry<String, String>> consumer = new Callable<Map.Entry<String, String>>() {
+            @Override
+            public Map.Entry<String, String> call() throws InterruptedException {
+                return blockingMap.takeMatching(KeyPredicates.startsWith("job/"), 500, TimeUnit.MILLISECONDS);
+            }
+        };
+        Future<Map.Entry<String, String>> first = executor.submit(consumer);
+        Future<Map.Entry<String, String>> second = executor.submit(consumer);
+        Thread.sleep(100);
+        blockingMap.put("job/1", "one");
+
+        int taken = ((first.get() == null) ? 0 : 1) + ((second.get() == null) ? 0 : 1);
+        assertEquals(1, taken);
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testClearInterruptsPredicateWaiters() throws Exception {
+        final BlockingMap<String, String> shutdown = new BlockingHashMap<String, String>();
+        Future<Boolean> consumer = executor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                try {
+                    shutdown.takeMatching(KeyPredicates.startsWith("never/"), FAIL_TIMEOUT, TimeUnit.MILLISECONDS);
+                    return false;
+                } catch (InterruptedException e) {
+                    return true;
+                }
+            }
+        });
+        Thread.sleep(100);
+        shutdown.clear();
+        assertTrue(consumer.get());
+    }
+}
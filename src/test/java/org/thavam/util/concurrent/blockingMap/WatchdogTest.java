@@ -0,0 +1,122 @@
+package org.thavam.util.concurrent.blockingMap;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the stuck consumer & orphan value watchdog of BlockingHashMap.
+ */
+public class WatchdogTest {
+
+    private static final int FAIL_TIMEOUT = 10000;
+    private BlockingHashMap<String, String> blockingMap;
+    private ExecutorService executor;
+    private BlockingQueue<String> stuck;
+    private BlockingQueue<String> orphaned;
+    private BlockingMapWatchdog.Listener<String> listener;
+
+    @Before
+    public void setUp() {
+        blockingMap = new BlockingHashMap<String, String>();
+        executor = Executors.newCachedThreadPool();
+        stuck = new LinkedBlockingQueue<String>();
+        orphaned = new LinkedBlockingQueue<String>();
+        listener = new BlockingMapWatchdog.Listener<String>() {
+            @Override
+            public void consumerStuck(String key, Thread consumer, long waitNanos) {
+                stuck.add(key);
+            }
+
+            @Override
+            public void valueOrphaned(String key, long ageNanos) {
+                orphaned.add(key);
+            }
+        };
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        blockingMap.clear();
+    }
+
+    private void consume(final String key) {
+        executor.submit(new Callable<String>() {
+            @Override
+            public String call() throws InterruptedException {
+                return blockingMap.take(key);
+            }
+        });
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testStuckConsumers() throws Exception {
+        BlockingMapWatchdog<String> watchdog = blockingMap.watchdog(50, TimeUnit.MINUTES.toMillis(1),
+                TimeUnit.MILLISECONDS, listener);
+        consume("never");
+        consume("never");
+        consume("soon");
+        while (watchdog.awaitedKeys().size() < 2) {
+            Thread.sleep(1);
+        }
+        blockingMap.put("soon", "value");
+        assertEquals("never", stuck.take());
+        assertEquals("never", stuck.take());
+        //reported once per wait
+        assertNull(stuck.poll(100, TimeUnit.MILLISECONDS));
+
+        List<BlockingMapWatchdog.Awaited<String>> awaited = watchdog.awaitedKeys();
+        assertEquals(1, awaited.size());
+        assertEquals("never", awaited.get(0).getKey());
+        assertEquals(2, awaited.get(0).getWaiters());
+        assertTrue(awaited.get(0).getLongestWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(watchdog.dump().startsWith("never : 2 waiting"));
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testOrphanedValues() throws Exception {
+        blockingMap.put("before", "value");
+        blockingMap.watchdog(1, 50, TimeUnit.MILLISECONDS, listener);
+        blockingMap.put("orphan", "value");
+        blockingMap.put("taken", "value");
+        blockingMap.take("taken");
+        String first = orphaned.take();
+        String second = orphaned.take();
+        assertTrue((first.equals("before") && second.equals("orphan"))
+                || (first.equals("orphan") && second.equals("before")));
+        //reported once per value
+        assertNull(orphaned.poll(100, TimeUnit.MILLISECONDS));
+        //a new value of the key is reported again
+        blockingMap.take("orphan");
+        blockingMap.put("orphan", "again");
+        assertEquals("orphan", orphaned.take());
+    }
+
+    @Test(timeout = FAIL_TIMEOUT)
+    public void testCloseAndShutdown() throws Exception {
+        BlockingMapWatchdog<String> watchdog = blockingMap.watchdog(10, 10, TimeUnit.MILLISECONDS, listener);
+        try {
+            blockingMap.watchdog(10, 10, TimeUnit.MILLISECONDS, listener);
+            fail("a single watchdog runs at a time");
+        } catch (IllegalStateException expected) {
+        }
+        watchdog.close();
+        assertTrue(watchdog.isClosed());
+        blockingMap.put("key", "value");
+        assertNull(orphaned.poll(100, TimeUnit.MILLISECONDS));
+
+        BlockingHashMap<String, String> shutdown = new BlockingHashMap<String, String>();
+        watchdog = shutdown.watchdog(10, 10, TimeUnit.MILLISECONDS, listener);
+        shutdown.clear();
+        assertTrue(watchdog.isClosed());
+    }
+}